@@ -0,0 +1,194 @@
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * In-memory availability calendar, one interval index per equipment serial.
+ *
+ * Bookings for a serial never overlap, so each serial's bookings are kept in
+ * a TreeMap keyed by start day: the only booking that can overlap a request
+ * [start, end) is the one with the greatest start before end, which makes
+ * overlap checks O(log n) regardless of how much history a serial has.
+ *
+ * Days are epoch days; intervals are half-open [startDay, endDay).
+ */
+public class AvailabilityCalendar {
+
+    public static final String RESERVATION = "RESERVATION";
+    public static final String RENTAL = "RENTAL";
+
+    private final Map<String, TreeMap<Long, Booking>> bySerial = new HashMap<>();
+    private final Map<String, Booking> byId = new HashMap<>();
+
+    /**
+     * Builds the calendar from booked reservations and open rentals. Open
+     * rentals block from today until their due date (or just today if overdue).
+     */
+    public static AvailabilityCalendar load(Repositories repos) throws SQLException {
+        AvailabilityCalendar cal = new AvailabilityCalendar();
+        for (Booking b : repos.reservations().findBooked())
+            cal.put(b);
+
+        long today = LocalDate.now().toEpochDay();
+        for (Rental r : repos.rentals().findOpen()) {
+            long due = today;
+            try {
+                due = Math.max(today, toDay(r.getDueDate()));
+            } catch (RuntimeException e) {
+                // Missing or unparseable due date: block today only
+            }
+            Booking b = new Booking(r.getCheckOutID(), RENTAL, r.getSerialNum(), r.getUserID(), today, due + 1);
+            if (cal.isFree(b.serialNum, b.startDay, b.endDay))
+                cal.put(b);
+        }
+        return cal;
+    }
+
+    public static long toDay(String isoDate) {
+        return LocalDate.parse(isoDate.trim()).toEpochDay();
+    }
+
+    public static String toDate(long epochDay) {
+        return LocalDate.ofEpochDay(epochDay).toString();
+    }
+
+    /** True if nothing is booked for serial anywhere in [startDay, endDay). */
+    public synchronized boolean isFree(String serial, long startDay, long endDay) {
+        return firstConflict(serial, startDay, endDay) == null;
+    }
+
+    /** All bookings overlapping [startDay, endDay) for serial, in date order. */
+    public synchronized List<Booking> conflicts(String serial, long startDay, long endDay) {
+        List<Booking> result = new ArrayList<>();
+        TreeMap<Long, Booking> index = bySerial.get(serial);
+        if (index == null)
+            return result;
+        Booking before = firstConflict(serial, startDay, endDay);
+        Long from = before != null ? before.startDay : startDay;
+        for (Booking b : index.subMap(from, true, endDay, false).values()) {
+            if (b.endDay > startDay)
+                result.add(b);
+        }
+        return result;
+    }
+
+    private Booking firstConflict(String serial, long startDay, long endDay) {
+        TreeMap<Long, Booking> index = bySerial.get(serial);
+        if (index == null)
+            return null;
+        // Latest booking starting before our start, it may still be running
+        Map.Entry<Long, Booking> floor = index.floorEntry(startDay);
+        if (floor != null && floor.getValue().endDay > startDay)
+            return floor.getValue();
+        // Earliest booking starting inside our interval
+        Map.Entry<Long, Booking> next = index.higherEntry(startDay);
+        if (next != null && next.getKey() < endDay)
+            return next.getValue();
+        return null;
+    }
+
+    /** Adds a booking if it does not overlap anything; returns false otherwise. */
+    public synchronized boolean tryBook(Booking b) {
+        if (firstConflict(b.serialNum, b.startDay, b.endDay) != null)
+            return false;
+        put(b);
+        return true;
+    }
+
+    /**
+     * Like tryBook, but in place of the booking with id replacing (such as
+     * the renter's own reservation), which is kept if b does not fit.
+     */
+    public synchronized boolean tryBookReplacing(Booking b, String replacing) {
+        Booking old = replacing == null ? null : remove(replacing);
+        if (tryBook(b))
+            return true;
+        if (old != null)
+            put(old);
+        return false;
+    }
+
+    public synchronized Booking remove(String id) {
+        Booking b = byId.remove(id);
+        if (b == null)
+            return null;
+        TreeMap<Long, Booking> index = bySerial.get(b.serialNum);
+        index.remove(b.startDay);
+        if (index.isEmpty())
+            bySerial.remove(b.serialNum);
+        return b;
+    }
+
+    public synchronized Booking get(String id) {
+        return byId.get(id);
+    }
+
+    /** Bookings for serial ending after fromDay, in date order. */
+    public synchronized List<Booking> upcoming(String serial, long fromDay) {
+        List<Booking> result = new ArrayList<>();
+        TreeMap<Long, Booking> index = bySerial.get(serial);
+        if (index == null)
+            return result;
+        Map.Entry<Long, Booking> floor = index.floorEntry(fromDay);
+        Long from = (floor != null && floor.getValue().endDay > fromDay) ? floor.getKey() : fromDay;
+        result.addAll(index.tailMap(from, true).values());
+        return result;
+    }
+
+    private void put(Booking b) {
+        bySerial.computeIfAbsent(b.serialNum, k -> new TreeMap<>()).put(b.startDay, b);
+        byId.put(b.id, b);
+    }
+
+    public static class Booking {
+        private final String id;
+        private final String kind;
+        private final String serialNum;
+        private final String userID;
+        private final long startDay;
+        private final long endDay;
+
+        public Booking(String id, String kind, String serialNum, String userID, long startDay, long endDay) {
+            this.id = id;
+            this.kind = kind;
+            this.serialNum = serialNum;
+            this.userID = userID;
+            this.startDay = startDay;
+            this.endDay = endDay;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getKind() {
+            return kind;
+        }
+
+        public String getSerialNum() {
+            return serialNum;
+        }
+
+        public String getUserID() {
+            return userID;
+        }
+
+        public long getStartDay() {
+            return startDay;
+        }
+
+        public long getEndDay() {
+            return endDay;
+        }
+
+        @Override
+        public String toString() {
+            return kind + " " + id + " | serial=" + serialNum + " | user=" + userID +
+                    " | " + toDate(startDay) + " to " + toDate(endDay - 1);
+        }
+    }
+}
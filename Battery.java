@@ -0,0 +1,52 @@
+public class Battery {
+    private String productID;
+    private String type;
+    private BatteryState state;
+    private String warehouseAddress;
+    private String droneSN;
+
+    /** droneSN is the drone it is installed in, or null for a spare. */
+    public Battery(String productID, String type, BatteryState state, String warehouseAddress, String droneSN) {
+        this.productID = productID;
+        this.type = type;
+        this.state = state;
+        this.warehouseAddress = warehouseAddress;
+        this.droneSN = droneSN;
+    }
+
+    public Battery copy() {
+        return new Battery(productID, type, state, warehouseAddress, droneSN);
+    }
+
+    public String getProductID() {
+        return productID;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public BatteryState getState() {
+        return state;
+    }
+
+    public void setState(BatteryState state) {
+        this.state = state;
+    }
+
+    public String getWarehouseAddress() {
+        return warehouseAddress;
+    }
+
+    public void setWarehouseAddress(String warehouseAddress) {
+        this.warehouseAddress = warehouseAddress;
+    }
+
+    public String getDroneSN() {
+        return droneSN;
+    }
+
+    public void setDroneSN(String droneSN) {
+        this.droneSN = droneSN;
+    }
+}
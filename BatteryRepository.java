@@ -0,0 +1,30 @@
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Battery charge scheduling. Each warehouse has a fixed number of chargers;
+ * depleted batteries there are rotated onto free chargers (spares first, then
+ * batteries in idle drones, which show as CHARGING meanwhile), and finishing
+ * a charge immediately starts the next one.
+ *
+ * Drone dispatch (TransportRepository.schedule) swaps in a charged spare from
+ * the drone's warehouse when its own battery is not charged, and uses the
+ * battery up. The number of drones holding a charged battery is maintained
+ * per warehouse as these operations happen.
+ */
+public interface BatteryRepository {
+    /** Adds a spare battery at a warehouse, or moves an existing spare there. */
+    void stock(String batteryID, String type, String warehouseAddress, boolean charged) throws SQLException;
+
+    /** Puts depleted batteries at the warehouse on its free chargers; returns their IDs. */
+    List<String> startCharging(String warehouseAddress) throws SQLException;
+
+    /** Marks a CHARGING battery charged and refills the freed charger; false if it was not charging. */
+    boolean finishCharging(String batteryID) throws SQLException;
+
+    /** Spares kept at the warehouse plus batteries in drones based there. */
+    List<Battery> findAt(String warehouseAddress) throws SQLException;
+
+    /** Drones whose installed battery is charged; the whole fleet when warehouseAddress is null. */
+    int chargedDroneCount(String warehouseAddress) throws SQLException;
+}
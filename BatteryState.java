@@ -0,0 +1,33 @@
+/**
+ * Charge state of a battery. The code is stored in Batteries.chargeCode;
+ * Batteries.chargedStatus keeps its original '1' / '0' meaning (charged or
+ * not) for older queries.
+ */
+public enum BatteryState {
+    DEPLETED(0),
+    CHARGED(1),
+    CHARGING(2);
+
+    private final int code;
+
+    BatteryState(int code) {
+        this.code = code;
+    }
+
+    public int code() {
+        return code;
+    }
+
+    /** Value for the legacy chargedStatus column. */
+    public String chargedStatus() {
+        return this == CHARGED ? "1" : "0";
+    }
+
+    public static BatteryState fromCode(int code) {
+        for (BatteryState s : values()) {
+            if (s.code == code)
+                return s;
+        }
+        throw new IllegalArgumentException("Unknown battery state code: " + code);
+    }
+}
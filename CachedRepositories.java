@@ -0,0 +1,414 @@
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Read-through cache in front of another Repositories: equipment and drone
+ * rows by serial number, and Equip_Model / Drone_Model specs by key.
+ *
+ * Every write made through these repositories invalidates exactly the rows it
+ * can change, including status changes made by checkout, checkin and drone
+ * transports, so a cached row never shows a stale status. Writes made by
+ * another process are not seen; the cache is meant for the single JVM that
+ * owns rentalApp.db (RentalAppConnected or RentalServer).
+ */
+public class CachedRepositories extends Repositories {
+    private final Repositories delegate;
+
+    private final LruCache<String, Equipment> equipmentCache;
+    private final LruCache<String, Drone> droneCache;
+    private final LruCache<String, EquipModel> equipModelCache;
+    private final LruCache<String, DroneModel> droneModelCache;
+
+    private final EquipmentRepository equipment = new CachedEquipment();
+    private final DroneRepository drones = new CachedDrones();
+    private final RentalRepository rentals = new CachedRentals();
+    private final TransportRepository transports = new CachedTransports();
+    private final BatteryRepository batteries = new CachedBatteries();
+    private final ModelRepository models = new CachedModels();
+
+    public CachedRepositories(Repositories delegate, int capacity) {
+        this.delegate = delegate;
+        this.equipmentCache = new LruCache<>("equipment", capacity);
+        this.droneCache = new LruCache<>("drones", capacity);
+        this.equipModelCache = new LruCache<>("equip_model", capacity);
+        this.droneModelCache = new LruCache<>("drone_model", capacity);
+    }
+
+    @Override
+    public MemberRepository members() {
+        return delegate.members();
+    }
+
+    @Override
+    public EquipmentRepository equipment() {
+        return equipment;
+    }
+
+    @Override
+    public DroneRepository drones() {
+        return drones;
+    }
+
+    @Override
+    public RentalRepository rentals() {
+        return rentals;
+    }
+
+    @Override
+    public TransportRepository transports() {
+        return transports;
+    }
+
+    @Override
+    public ReservationRepository reservations() {
+        return delegate.reservations();
+    }
+
+    @Override
+    public ReviewRepository reviews() {
+        return delegate.reviews();
+    }
+
+    @Override
+    public MaintenanceRepository maintenance() {
+        return delegate.maintenance();
+    }
+
+    @Override
+    public BatteryRepository batteries() {
+        return batteries;
+    }
+
+    @Override
+    public LocationRepository locations() {
+        return delegate.locations();
+    }
+
+    @Override
+    public OrderRepository orders() {
+        return delegate.orders();
+    }
+
+    @Override
+    public ModelRepository models() {
+        return models;
+    }
+
+    @Override
+    public boolean isPersistent() {
+        return delegate.isPersistent();
+    }
+
+    @Override
+    public int leaseIdNode(int nodes) throws SQLException {
+        return delegate.leaseIdNode(nodes);
+    }
+
+    /** One line per cache with size, hit ratio and eviction counts. */
+    public String cacheStats() {
+        return equipmentCache.stats() + "\n" + droneCache.stats() + "\n" + equipModelCache.stats() + "\n" +
+                droneModelCache.stats();
+    }
+
+    // ==========================================================
+    // EQUIPMENT
+    // ==========================================================
+
+    private class CachedEquipment implements EquipmentRepository {
+        @Override
+        public void add(Equipment e) throws SQLException {
+            try {
+                delegate.equipment().add(e);
+            } finally {
+                equipmentCache.invalidate(e.getSerialNum());
+            }
+        }
+
+        @Override
+        public Equipment find(String serialNum) throws SQLException {
+            Equipment cached = equipmentCache.get(serialNum);
+            if (cached != null)
+                return cached.copy();
+            long generation = equipmentCache.generation();
+            Equipment loaded = delegate.equipment().find(serialNum);
+            if (loaded != null)
+                equipmentCache.put(serialNum, loaded.copy(), generation);
+            return loaded;
+        }
+
+        @Override
+        public boolean exists(String serialNum) throws SQLException {
+            return equipmentCache.get(serialNum) != null || delegate.equipment().exists(serialNum);
+        }
+
+        @Override
+        public List<Equipment> findByType(String partial) throws SQLException {
+            long generation = equipmentCache.generation();
+            return remember(delegate.equipment().findByType(partial), generation);
+        }
+
+        @Override
+        public List<Equipment> findByExactType(String type) throws SQLException {
+            long generation = equipmentCache.generation();
+            return remember(delegate.equipment().findByExactType(type), generation);
+        }
+
+        @Override
+        public List<Equipment> findAvailableByType(String type) throws SQLException {
+            long generation = equipmentCache.generation();
+            return remember(delegate.equipment().findAvailableByType(type), generation);
+        }
+
+        @Override
+        public List<Equipment> findRentableByType(String type) throws SQLException {
+            long generation = equipmentCache.generation();
+            return remember(delegate.equipment().findRentableByType(type), generation);
+        }
+
+        @Override
+        public List<Equipment> findAll() throws SQLException {
+            return delegate.equipment().findAll();
+        }
+
+        @Override
+        public boolean update(Equipment e) throws SQLException {
+            try {
+                return delegate.equipment().update(e);
+            } finally {
+                equipmentCache.invalidate(e.getSerialNum());
+            }
+        }
+
+        @Override
+        public boolean delete(String serialNum) throws SQLException {
+            try {
+                return delegate.equipment().delete(serialNum);
+            } finally {
+                equipmentCache.invalidate(serialNum);
+            }
+        }
+
+        @Override
+        public int count(MassUpdate u) throws SQLException {
+            return delegate.equipment().count(u);
+        }
+
+        // Any cached row may be among the matches
+        @Override
+        public int updateAll(MassUpdate u) throws SQLException {
+            try {
+                return delegate.equipment().updateAll(u);
+            } finally {
+                equipmentCache.clear();
+            }
+        }
+
+        // Search results warm the cache for the detail lookups that follow them
+        private List<Equipment> remember(List<Equipment> rows, long generation) {
+            for (Equipment e : rows)
+                equipmentCache.put(e.getSerialNum(), e.copy(), generation);
+            return rows;
+        }
+    }
+
+    // ==========================================================
+    // DRONES
+    // ==========================================================
+
+    private class CachedDrones implements DroneRepository {
+        @Override
+        public void add(Drone d) throws SQLException {
+            try {
+                delegate.drones().add(d);
+            } finally {
+                droneCache.invalidate(d.getSerialNum());
+            }
+        }
+
+        @Override
+        public Drone find(String serialNum) throws SQLException {
+            Drone cached = droneCache.get(serialNum);
+            if (cached != null)
+                return cached.copy();
+            long generation = droneCache.generation();
+            Drone loaded = delegate.drones().find(serialNum);
+            if (loaded != null)
+                droneCache.put(serialNum, loaded.copy(), generation);
+            return loaded;
+        }
+
+        @Override
+        public boolean exists(String serialNum) throws SQLException {
+            return droneCache.get(serialNum) != null || delegate.drones().exists(serialNum);
+        }
+
+        @Override
+        public List<Drone> findByModel(String partial) throws SQLException {
+            long generation = droneCache.generation();
+            return remember(delegate.drones().findByModel(partial), generation);
+        }
+
+        @Override
+        public List<Drone> findIdleAt(String warehouseAddress) throws SQLException {
+            long generation = droneCache.generation();
+            return remember(delegate.drones().findIdleAt(warehouseAddress), generation);
+        }
+
+        @Override
+        public List<Drone> findAll() throws SQLException {
+            return delegate.drones().findAll();
+        }
+
+        @Override
+        public boolean update(Drone d) throws SQLException {
+            try {
+                return delegate.drones().update(d);
+            } finally {
+                droneCache.invalidate(d.getSerialNum());
+            }
+        }
+
+        @Override
+        public boolean delete(String serialNum) throws SQLException {
+            try {
+                return delegate.drones().delete(serialNum);
+            } finally {
+                droneCache.invalidate(serialNum);
+            }
+        }
+
+        @Override
+        public int count(MassUpdate u) throws SQLException {
+            return delegate.drones().count(u);
+        }
+
+        // Any cached row may be among the matches
+        @Override
+        public int updateAll(MassUpdate u) throws SQLException {
+            try {
+                return delegate.drones().updateAll(u);
+            } finally {
+                droneCache.clear();
+            }
+        }
+
+        private List<Drone> remember(List<Drone> rows, long generation) {
+            for (Drone d : rows)
+                droneCache.put(d.getSerialNum(), d.copy(), generation);
+            return rows;
+        }
+    }
+
+    // ==========================================================
+    // STATUS CHANGES MADE OUTSIDE THE EQUIPMENT / DRONE REPOSITORIES
+    // ==========================================================
+
+    private class CachedRentals implements RentalRepository {
+        @Override
+        public boolean checkout(Rental r, String reservationID) throws SQLException {
+            try {
+                return delegate.rentals().checkout(r, reservationID);
+            } finally {
+                equipmentCache.invalidate(r.getSerialNum());
+            }
+        }
+
+        @Override
+        public String checkin(String checkOutID) throws SQLException {
+            String serial = null;
+            try {
+                serial = delegate.rentals().checkin(checkOutID);
+                return serial;
+            } finally {
+                if (serial != null)
+                    equipmentCache.invalidate(serial);
+                else
+                    equipmentCache.clear(); // failed part-way: the serial is unknown
+            }
+        }
+
+        @Override
+        public List<Rental> findOpen() throws SQLException {
+            return delegate.rentals().findOpen();
+        }
+    }
+
+    private class CachedTransports implements TransportRepository {
+        @Override
+        public void schedule(String droneSerial, String equipmentSerial, DroneStatus droneStatus)
+                throws SQLException {
+            try {
+                delegate.transports().schedule(droneSerial, equipmentSerial, droneStatus);
+            } finally {
+                droneCache.invalidate(droneSerial);
+            }
+        }
+    }
+
+    // Charging moves drones in and out of CHARGING; which ones is not returned
+    private class CachedBatteries implements BatteryRepository {
+        @Override
+        public void stock(String batteryID, String type, String warehouseAddress, boolean charged)
+                throws SQLException {
+            delegate.batteries().stock(batteryID, type, warehouseAddress, charged);
+        }
+
+        @Override
+        public List<String> startCharging(String warehouseAddress) throws SQLException {
+            try {
+                return delegate.batteries().startCharging(warehouseAddress);
+            } finally {
+                droneCache.clear();
+            }
+        }
+
+        @Override
+        public boolean finishCharging(String batteryID) throws SQLException {
+            try {
+                return delegate.batteries().finishCharging(batteryID);
+            } finally {
+                droneCache.clear();
+            }
+        }
+
+        @Override
+        public List<Battery> findAt(String warehouseAddress) throws SQLException {
+            return delegate.batteries().findAt(warehouseAddress);
+        }
+
+        @Override
+        public int chargedDroneCount(String warehouseAddress) throws SQLException {
+            return delegate.batteries().chargedDroneCount(warehouseAddress);
+        }
+    }
+
+    // ==========================================================
+    // MODEL CATALOGS
+    // ==========================================================
+
+    private class CachedModels implements ModelRepository {
+        @Override
+        public EquipModel findEquipModel(String type, String model, int year) throws SQLException {
+            String key = type + "|" + model + "|" + year;
+            EquipModel cached = equipModelCache.get(key);
+            if (cached != null)
+                return cached;
+            long generation = equipModelCache.generation();
+            EquipModel loaded = delegate.models().findEquipModel(type, model, year);
+            equipModelCache.put(key, loaded, generation);
+            return loaded;
+        }
+
+        @Override
+        public DroneModel findDroneModel(String model, int year) throws SQLException {
+            String key = model + "|" + year;
+            DroneModel cached = droneModelCache.get(key);
+            if (cached != null)
+                return cached;
+            long generation = droneModelCache.generation();
+            DroneModel loaded = delegate.models().findDroneModel(model, year);
+            droneModelCache.put(key, loaded, generation);
+            return loaded;
+        }
+    }
+}
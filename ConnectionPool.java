@@ -0,0 +1,157 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fixed-size pool of SQLite connections shared by every session in the JVM.
+ *
+ * Connections are opened lazily up to maxSize. Callers get a wrapper whose
+ * close() hands the connection back (rolling back anything left open) instead
+ * of closing it, so existing try-with-resources code works unchanged. Once
+ * the pool is closed, borrow() refuses and handed-back connections are closed.
+ */
+public class ConnectionPool {
+    // How long a borrower waits for a free connection before giving up
+    private static final long BORROW_TIMEOUT_SECONDS = 30;
+
+    /** Opens a new physical connection. */
+    public interface Factory {
+        Connection open() throws SQLException;
+    }
+
+    private final Factory factory;
+    private final int maxSize;
+    private final Semaphore permits;
+    private final BlockingQueue<Connection> idle = new LinkedBlockingQueue<>();
+
+    private int opened = 0;
+    private long borrows = 0;
+    // Set by close(); guarded by this, like the idle queue's refills in giveBack
+    private boolean closed = false;
+
+    public ConnectionPool(Factory factory, int maxSize) {
+        this.factory = factory;
+        this.maxSize = maxSize;
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    public Connection borrow() throws SQLException {
+        if (isClosed())
+            throw new SQLException("Connection pool is closed");
+        try {
+            if (!permits.tryAcquire(BORROW_TIMEOUT_SECONDS, TimeUnit.SECONDS))
+                throw new SQLException("Timed out waiting for a pooled connection");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a pooled connection", e);
+        }
+        try {
+            if (isClosed())
+                throw new SQLException("Connection pool is closed");
+            Connection conn = idle.poll();
+            if (conn == null || conn.isClosed()) {
+                conn = factory.open();
+                synchronized (this) {
+                    opened++;
+                }
+            }
+            synchronized (this) {
+                borrows++;
+            }
+            return wrap(conn);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /** Closes idle connections; borrowed ones are closed when handed back. */
+    public void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        Connection conn;
+        while ((conn = idle.poll()) != null) {
+            try {
+                conn.close();
+            } catch (SQLException e) {
+                System.err.println("Pool close error: " + e.getMessage());
+            }
+        }
+    }
+
+    /** Most connections open at once. */
+    public int size() {
+        return maxSize;
+    }
+
+    private synchronized boolean isClosed() {
+        return closed;
+    }
+
+    public synchronized String stats() {
+        return "size=" + maxSize + " | opened=" + opened + " | in use=" + (maxSize - permits.availablePermits()) +
+                " | borrows=" + borrows;
+    }
+
+    private void giveBack(Connection conn) {
+        try {
+            if (!conn.getAutoCommit()) {
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+            synchronized (this) {
+                if (!closed) {
+                    idle.add(conn);
+                    return;
+                }
+            }
+            conn.close();
+        } catch (SQLException e) {
+            // Broken connection: drop it, a new one is opened on demand
+            try {
+                conn.close();
+            } catch (SQLException ignored) {
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private Connection wrap(Connection conn) {
+        InvocationHandler handler = new InvocationHandler() {
+            private boolean closed = false;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close":
+                        if (!closed) {
+                            closed = true;
+                            giveBack(conn);
+                        }
+                        return null;
+                    case "isClosed":
+                        return closed || conn.isClosed();
+                    default:
+                        if (closed)
+                            throw new SQLException("Connection has been returned to the pool");
+                        try {
+                            return method.invoke(conn, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                }
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, handler);
+    }
+}
@@ -0,0 +1,170 @@
+import java.io.PrintStream;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the reports in parallel, each on its own read-only WAL connection, and
+ * renders them together with per-report timing. Queries still running when
+ * the time budget is spent are cancelled (Statement.cancel, through the
+ * governor's watchdog), so they give their connection back at once, and
+ * their reports are shown as timed out.
+ *
+ * The whole dashboard takes one ReportGovernor slot, waiting for it out of
+ * its own budget; its reports then run inside that slot (see
+ * ReportGovernor for how the two limits combine).
+ */
+public class Dashboard {
+    public static final long DEFAULT_BUDGET_MS = 5000;
+    // Dashboard queries running at once, across all sessions; one thread per report is enough
+    public static final int MAX_PARALLEL = 10;
+
+    // Shared by all sessions; created on first use, once the read pool is sized
+    private static ExecutorService workers;
+
+    /**
+     * Dashboard queries run at once: MAX_PARALLEL, but never more than the
+     * read pool leaves after the other report slots, so dashboard workers
+     * never wait on a connection behind each other.
+     */
+    public static int parallelism() {
+        return Math.max(1, Math.min(MAX_PARALLEL,
+                Database.readPoolSize() - (ReportGovernor.MAX_CONCURRENT - 1)));
+    }
+
+    private static synchronized ExecutorService workers() {
+        if (workers == null)
+            workers = Executors.newFixedThreadPool(parallelism(), r -> {
+                Thread t = new Thread(r, "dashboard");
+                t.setDaemon(true);
+                return t;
+            });
+        return workers;
+    }
+
+    private interface ReportCall {
+        ReportResult run() throws SQLException;
+    }
+
+    /** Timed outcome of one report: a result or an error message. */
+    private static class Outcome {
+        ReportResult result;
+        String error;
+        long nanos;
+    }
+
+    /**
+     * userID (report 1) and type/year (report 6) may be null to skip those
+     * reports; includeArchived adds archived rentals to the rental counts.
+     */
+    public static void show(PrintStream out, String userID, String type, Integer year, boolean includeArchived,
+            long budgetMillis) {
+        Map<String, ReportCall> reports = new LinkedHashMap<>();
+        if (userID != null)
+            reports.put("Rentals by member " + userID, () -> Reports.checkoutsByMember(userID, includeArchived));
+        reports.put("Popular item", () -> Reports.popularItem(includeArchived));
+        reports.put("Popular manufacturer", () -> Reports.popularManufacturer(includeArchived));
+        reports.put("Popular drone", Reports::popularDrone);
+        reports.put("Member with most items", () -> Reports.memberWithMostItems(includeArchived));
+        reports.put("Best-rated item per type", Reports::bestRatedByType);
+        reports.put("Most repaired drones", Reports::mostRepairedDrones);
+        reports.put("Mechanic workload", Reports::mechanicWorkload);
+        reports.put("Warehouse utilization", Reports::warehouseUtilization);
+        if (type != null && year != null)
+            reports.put(type + " made before " + year, () -> Reports.equipmentByTypeBeforeYear(type, year));
+
+        ReportGovernor governor = ReportGovernor.shared();
+        long start = System.nanoTime();
+        // Queries still running at the end of the budget are cancelled by the governor
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+        List<Callable<Outcome>> tasks = new ArrayList<>();
+        for (ReportCall call : reports.values()) {
+            tasks.add(() -> {
+                Outcome o = new Outcome();
+                long began = System.nanoTime();
+                try {
+                    o.result = governor.joined(deadline, call::run);
+                } catch (SQLException e) {
+                    o.error = e.getMessage();
+                }
+                o.nanos = System.nanoTime() - began;
+                return o;
+            });
+        }
+
+        ExecutorService pool = workers();
+        List<Future<Outcome>> futures;
+        try {
+            futures = governor.admit("dashboard", () -> {
+                long left = budgetMillis - (System.nanoTime() - start) / 1_000_000;
+                try {
+                    return pool.invokeAll(tasks, Math.max(0, left), TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return null;
+                }
+            });
+        } catch (SQLException e) {
+            out.println("Dashboard error: " + e.getMessage());
+            return;
+        }
+        if (futures == null) {
+            out.println("Dashboard interrupted.");
+            return;
+        }
+        long wall = System.nanoTime() - start;
+
+        out.println("\n===== DASHBOARD =====");
+        int i = 0;
+        for (String title : reports.keySet()) {
+            Future<Outcome> f = futures.get(i++);
+            try {
+                Outcome o = f.get();
+                out.println("\n== " + title + " (" + millis(o.nanos) + " ms) ==");
+                if (o.error != null)
+                    out.println("   Report error: " + o.error);
+                else
+                    render(out, o.result);
+            } catch (CancellationException e) {
+                out.println("\n== " + title + " (timed out after " + budgetMillis + " ms) ==");
+            } catch (ExecutionException e) {
+                out.println("\n== " + title + " ==\n   Report error: " + e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        out.println("\nTotal: " + millis(wall) + " ms for " + reports.size() + " reports (budget " + budgetMillis
+                + " ms)");
+    }
+
+    private static void render(PrintStream out, ReportResult r) {
+        if (r.isEmpty()) {
+            out.println("   (no rows)");
+            return;
+        }
+        out.println("   " + String.join(" | ", r.getColumns()));
+        for (Object[] row : r.getRows()) {
+            StringBuilder line = new StringBuilder("   ");
+            for (int c = 0; c < row.length; c++) {
+                if (c > 0)
+                    line.append(" | ");
+                line.append(row[c]);
+            }
+            out.println(line);
+        }
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.1f", nanos / 1e6);
+    }
+}
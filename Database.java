@@ -1,12 +1,436 @@
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class Database {
-    private static final String DB_URL = "jdbc:sqlite:rentalApp.db";
+    // -Drental.db=<file> points everything at another database (see JournalReplay)
+    private static final String DB_FILE = System.getProperty("rental.db", "rentalApp.db");
+    private static final String DB_URL = "jdbc:sqlite:" + DB_FILE;
 
-    // Get a connection
+    // How long a connection waits on another connection's write lock
+    private static final int BUSY_TIMEOUT_MS = 5000;
+
+    private static volatile boolean migrated = false;
+
+    // Bumped after every commit made through write(); see ReportCache
+    private static final AtomicLong writeEpoch = new AtomicLong();
+
+    // Set when writes are batched into shared transactions (see GroupCommitter)
+    private static volatile GroupCommitter groupCommitter;
+
+    // Read-only connections for reports, searches and listings; sized by enablePool
+    private static volatile ConnectionPool readPool;
+    private static final int DEFAULT_READERS = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+    // The one connection that writes; every transaction borrows it in turn
+    private static volatile ConnectionPool writer;
+
+    // Per-warehouse shard files, by warehouse address; null when not sharded (see Shards)
+    private static volatile Map<String, Shard> shards;
+
+    // Shard this thread's connections are routed to (see onShard); null for rentalApp.db
+    private static final ThreadLocal<Shard> currentShard = new ThreadLocal<>();
+
+    // Transaction open on this thread (write() or batch()); nested writes and reads join it
+    private static final ThreadLocal<Bound> batchConnection = new ThreadLocal<>();
+
+    /** A unit of work run inside a write transaction. */
+    public interface Work<T> {
+        T apply(Connection conn) throws SQLException;
+    }
+
+    /** Work run with this thread's connections routed to one shard. */
+    public interface Routed<T> {
+        T run() throws SQLException;
+    }
+
+    // One warehouse's shard file with its own readers and writer
+    private static final class Shard {
+        final String warehouse;
+        final ConnectionPool readPool;
+        final ConnectionPool writer;
+
+        Shard(String warehouse, Path file, int readers) {
+            this.warehouse = warehouse;
+            this.readPool = new ConnectionPool(() -> readOnly(openShardConnection(file)), readers);
+            this.writer = new ConnectionPool(() -> openShardConnection(file), 1);
+        }
+    }
+
+    // An open transaction and the shard (or null) its connection belongs to
+    private static final class Bound {
+        final Connection conn;
+        final Shard shard;
+
+        Bound(Connection conn, Shard shard) {
+            this.conn = conn;
+            this.shard = shard;
+        }
+    }
+
+    // The open transaction, if it is on the database this thread is routed to
+    private static Connection bound() {
+        Bound b = batchConnection.get();
+        return b != null && b.shard == currentShard.get() ? b.conn : null;
+    }
+
+    /**
+     * A connection that may write: the single writer connection, held until
+     * closed, so other writers wait. Prefer write(), which also commits and
+     * bumps the write epoch.
+     */
     public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(DB_URL);
+        Connection bound = bound();
+        if (bound != null)
+            return unclosable(bound);
+        return routedWriter().borrow();
+    }
+
+    private static Connection openConnection() throws SQLException {
+        Connection conn = DriverManager.getConnection(DB_URL);
+        try (Statement st = conn.createStatement()) {
+            st.execute("PRAGMA busy_timeout = " + BUSY_TIMEOUT_MS + ";");
+        }
+        if (!migrated)
+            migrate(conn);
+        return conn;
+    }
+
+    private static Connection openReadOnlyConnection() throws SQLException {
+        return readOnly(openConnection());
+    }
+
+    private static Connection readOnly(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.execute("PRAGMA query_only = true;");
+        }
+        return conn;
+    }
+
+    /**
+     * Connection to a shard file with rentalApp.db attached as "global".
+     * The shard holds only the per-warehouse tables, so unqualified names
+     * resolve to the shard for those and to rentalApp.db for the rest, and
+     * the repositories' SQL runs unchanged.
+     */
+    static Connection openShardConnection(Path file) throws SQLException {
+        if (!migrated)
+            openConnection().close();
+        Connection conn = DriverManager.getConnection("jdbc:sqlite:" + file);
+        try (Statement st = conn.createStatement();
+                PreparedStatement attach = conn.prepareStatement("ATTACH DATABASE ? AS global;")) {
+            st.execute("PRAGMA busy_timeout = " + BUSY_TIMEOUT_MS + ";");
+            attach.setString(1, DB_FILE);
+            attach.execute();
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+        return conn;
+    }
+
+    // Connection used by the group committer for its batches (rentalApp.db only)
+    static Connection openWriteConnection() throws SQLException {
+        return writer().borrow();
+    }
+
+    /**
+     * Read-only connection for reports, searches and listings, from a pool
+     * separate from the writer. The database runs in WAL mode, so readers see
+     * the last committed snapshot and neither block nor wait for the writer.
+     * Inside write() or batch() this is the transaction's own connection, so
+     * reads see its uncommitted changes.
+     */
+    public static Connection getReadConnection() throws SQLException {
+        Connection bound = bound();
+        if (bound != null)
+            return unclosable(bound);
+        Shard shard = currentShard.get();
+        return shard != null ? shard.readPool.borrow() : readPool().borrow();
+    }
+
+    // Long-lived connection that must not hold a pool slot
+    static Connection openUnpooledConnection() throws SQLException {
+        return openConnection();
+    }
+
+    /** Read connections one caller can hold at once: the read pool's size, or each shard's when sharded. */
+    public static int readPoolSize() {
+        Map<String, Shard> s = shards;
+        if (s != null && !s.isEmpty())
+            return s.values().iterator().next().readPool.size();
+        return readPool().size();
+    }
+
+    private static ConnectionPool readPool() {
+        ConnectionPool p = readPool;
+        if (p == null) {
+            synchronized (Database.class) {
+                if (readPool == null)
+                    readPool = new ConnectionPool(Database::openReadOnlyConnection, DEFAULT_READERS);
+                p = readPool;
+            }
+        }
+        return p;
+    }
+
+    private static ConnectionPool routedWriter() {
+        Shard shard = currentShard.get();
+        return shard != null ? shard.writer : writer();
+    }
+
+    private static ConnectionPool writer() {
+        ConnectionPool w = writer;
+        if (w == null) {
+            synchronized (Database.class) {
+                if (writer == null)
+                    writer = new ConnectionPool(Database::openConnection, 1);
+                w = writer;
+            }
+        }
+        return w;
+    }
+
+    /** Number of write transactions this process has committed. */
+    public static long writeEpoch() {
+        return writeEpoch.get();
+    }
+
+    /**
+     * Runs work in a write transaction on the single writer connection:
+     * committed if it returns, rolled back if it throws. Writers queue for
+     * that connection in arrival order. With group commit enabled the work is
+     * queued and this returns once the batch containing it has committed.
+     */
+    public static <T> T write(Work<T> work) throws SQLException {
+        Connection bound = bound();
+        if (bound != null)
+            return inSavepoint(bound, work);
+
+        GroupCommitter committer = groupCommitter;
+        if (committer != null && currentShard.get() == null) {
+            try {
+                return committer.submit(work);
+            } finally {
+                writeEpoch.incrementAndGet();
+            }
+        }
+
+        return batch(work);
+    }
+
+    /**
+     * Runs work as one transaction on the calling thread. Every write() made
+     * inside it joins that transaction in its own SAVEPOINT (a failing one
+     * is rolled back alone), and getConnection() / getReadConnection() return
+     * the same connection, so reads see the batch's own changes. Meant for bulk jobs such as
+     * journal replay, where a commit per operation would dominate.
+     */
+    public static <T> T batch(Work<T> work) throws SQLException {
+        Connection bound = bound();
+        if (bound != null)
+            return work.apply(bound);
+
+        Bound outer = batchConnection.get();
+        try (Connection conn = routedWriter().borrow()) {
+            conn.setAutoCommit(false); // Start transaction
+            batchConnection.set(new Bound(conn, currentShard.get()));
+            try {
+                T result = work.apply(conn);
+                conn.commit();
+                writeEpoch.incrementAndGet();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                if (outer == null)
+                    batchConnection.remove();
+                else
+                    batchConnection.set(outer);
+            }
+        }
+    }
+
+    /**
+     * Runs work with conn bound as this thread's open transaction, as batch()
+     * binds its own, so write() and the connection getters inside join it
+     * instead of waiting for the writer conn already holds. For the group
+     * committer, whose batches run on a writer connection it commits itself.
+     */
+    static <T> T boundTo(Connection conn, Work<T> work) throws SQLException {
+        Bound outer = batchConnection.get();
+        batchConnection.set(new Bound(conn, currentShard.get()));
+        try {
+            return work.apply(conn);
+        } finally {
+            if (outer == null)
+                batchConnection.remove();
+            else
+                batchConnection.set(outer);
+        }
+    }
+
+    private static <T> T inSavepoint(Connection conn, Work<T> work) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.execute("SAVEPOINT write;");
+            try {
+                T result = work.apply(conn);
+                st.execute("RELEASE write;");
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                st.execute("ROLLBACK TO write;");
+                st.execute("RELEASE write;");
+                throw e;
+            }
+        }
+    }
+
+    // The batch connection as handed to code that will close it when done
+    private static Connection unclosable(Connection conn) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close":
+                            return null;
+                        default:
+                            try {
+                                return method.invoke(conn, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getCause();
+                            }
+                    }
+                });
+    }
+
+    /** Batches writes into one transaction per maxBatch ops or maxDelayMillis. */
+    public static synchronized void enableGroupCommit(int maxBatch, long maxDelayMillis) {
+        if (groupCommitter == null)
+            groupCommitter = new GroupCommitter(maxBatch, maxDelayMillis);
+    }
+
+    /**
+     * Switches to sharded storage: equipment, drones, rentals, transports and
+     * their per-warehouse counters live in one file per warehouse under dir,
+     * created (and filled from rentalApp.db) on first use. See Shards.
+     */
+    public static synchronized void enableShards(Path dir) throws SQLException {
+        if (shards != null)
+            return;
+        Map<String, Shard> opened = new TreeMap<>();
+        int readers = Math.max(2, DEFAULT_READERS / 2);
+        for (Map.Entry<String, Path> e : Shards.open(dir).entrySet())
+            opened.put(e.getKey(), new Shard(e.getKey(), e.getValue(), readers));
+        shards = Collections.unmodifiableMap(opened);
+    }
+
+    /** True when per-warehouse data lives in shard files. */
+    public static boolean isSharded() {
+        return shards != null;
+    }
+
+    /** Warehouses with a shard, in address order; empty when not sharded. */
+    public static List<String> shards() {
+        Map<String, Shard> s = shards;
+        return s == null ? List.of() : new ArrayList<>(s.keySet());
+    }
+
+    /** Warehouse this thread is routed to, or null for rentalApp.db. */
+    public static String currentShard() {
+        Shard shard = currentShard.get();
+        return shard == null ? null : shard.warehouse;
+    }
+
+    /**
+     * Runs work with this thread's connections (reads, write(), batch())
+     * routed to the shard of warehouseAddress. Without sharding it just runs.
+     */
+    public static <T> T onShard(String warehouseAddress, Routed<T> work) throws SQLException {
+        Map<String, Shard> s = shards;
+        if (s == null)
+            return work.run();
+        Shard shard = s.get(warehouseAddress);
+        if (shard == null)
+            throw new SQLException("No warehouse at " + warehouseAddress);
+        Shard previous = currentShard.get();
+        currentShard.set(shard);
+        try {
+            return work.run();
+        } finally {
+            currentShard.set(previous);
+        }
+    }
+
+    /** Sizes the read pool (default: one per core, at least 4); call before the first read. */
+    public static synchronized void enablePool(int maxSize) {
+        if (readPool == null)
+            readPool = new ConnectionPool(Database::openReadOnlyConnection, maxSize);
+    }
+
+    /** Null before the first connection. */
+    public static String poolStats() {
+        ConnectionPool r = readPool, w = writer;
+        if (r == null && w == null)
+            return null;
+        Map<String, Shard> s = shards;
+        return "readers: " + (r == null ? "-" : r.stats()) + "\nwriter:  " + (w == null ? "-" : w.stats())
+                + (s == null ? "" : "\nshards:  " + s.size() + " (a reader pool and a writer each)");
+    }
+
+    /** Null when group commit is off. */
+    public static String groupCommitStats() {
+        GroupCommitter committer = groupCommitter;
+        return committer == null ? null : committer.stats();
+    }
+
+    /** Flushes queued writes and closes pooled connections; call before the process exits. */
+    public static synchronized void shutdown() {
+        if (groupCommitter != null) {
+            groupCommitter.shutdown();
+            groupCommitter = null;
+        }
+        if (readPool != null) {
+            readPool.close();
+            readPool = null;
+        }
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+        if (shards != null) {
+            for (Shard shard : shards.values()) {
+                shard.readPool.close();
+                shard.writer.close();
+            }
+            shards = null;
+        }
+    }
+
+    // Upgrade the schema once per process, on the first connection handed out
+    private static synchronized void migrate(Connection conn) throws SQLException {
+        if (migrated)
+            return;
+        try {
+            // WAL is persistent in the file; must be set outside a transaction
+            try (Statement st = conn.createStatement()) {
+                st.execute("PRAGMA journal_mode = WAL;");
+            }
+            Schema.migrate(conn);
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+        migrated = true;
     }
 }
@@ -0,0 +1,84 @@
+public class Drone {
+    private String serialNum;
+    private String name;
+    private String model;
+    private DroneStatus status;
+    private String location;
+    private int year;
+    private String warehouseAddress;
+    private String batteryID;
+    private double totalMiles;
+
+    public Drone(String serialNum, String name, String model, DroneStatus status, String location, int year,
+            String warehouseAddress, String batteryID, double totalMiles) {
+        this.serialNum = serialNum;
+        this.name = name;
+        this.model = model;
+        this.status = status;
+        this.location = location;
+        this.year = year;
+        this.warehouseAddress = warehouseAddress;
+        this.batteryID = batteryID;
+        this.totalMiles = totalMiles;
+    }
+
+    public Drone copy() {
+        return new Drone(serialNum, name, model, status, location, year, warehouseAddress, batteryID, totalMiles);
+    }
+
+    public String getSerialNum() {
+        return serialNum;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public void setModel(String model) {
+        this.model = model;
+    }
+
+    public DroneStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(DroneStatus status) {
+        this.status = status;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public int getYear() {
+        return year;
+    }
+
+    public String getWarehouseAddress() {
+        return warehouseAddress;
+    }
+
+    public void setWarehouseAddress(String warehouseAddress) {
+        this.warehouseAddress = warehouseAddress;
+    }
+
+    public String getBatteryID() {
+        return batteryID;
+    }
+
+    public void setBatteryID(String batteryID) {
+        this.batteryID = batteryID;
+    }
+
+    public double getTotalMiles() {
+        return totalMiles;
+    }
+}
@@ -0,0 +1,42 @@
+/** Row of Drone_Model: specs shared by every drone of one model/year. */
+public class DroneModel {
+    private final String model;
+    private final int year;
+    private final int weightCap;
+    private final int maxSpeed;
+    private final int maxDist;
+    private final String manufacturer;
+
+    public DroneModel(String model, int year, int weightCap, int maxSpeed, int maxDist, String manufacturer) {
+        this.model = model;
+        this.year = year;
+        this.weightCap = weightCap;
+        this.maxSpeed = maxSpeed;
+        this.maxDist = maxDist;
+        this.manufacturer = manufacturer;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public int getYear() {
+        return year;
+    }
+
+    public int getWeightCap() {
+        return weightCap;
+    }
+
+    public int getMaxSpeed() {
+        return maxSpeed;
+    }
+
+    public int getMaxDist() {
+        return maxDist;
+    }
+
+    public String getManufacturer() {
+        return manufacturer;
+    }
+}
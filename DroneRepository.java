@@ -0,0 +1,32 @@
+import java.sql.SQLException;
+import java.util.List;
+
+public interface DroneRepository {
+    void add(Drone d) throws SQLException;
+
+    Drone find(String serialNum) throws SQLException;
+
+    boolean exists(String serialNum) throws SQLException;
+
+    /** Case-insensitive partial match on model. */
+    List<Drone> findByModel(String partial) throws SQLException;
+
+    /** IDLE drones based at exactly this warehouse address. */
+    List<Drone> findIdleAt(String warehouseAddress) throws SQLException;
+
+    /** Ordered by name, model. */
+    List<Drone> findAll() throws SQLException;
+
+    boolean update(Drone d) throws SQLException;
+
+    boolean delete(String serialNum) throws SQLException;
+
+    /** Number of drones an updateAll with these filters would change (its preview). */
+    int count(MassUpdate u) throws SQLException;
+
+    /**
+     * Applies the new values to every matching drone row in one set-based
+     * transaction; nothing changes if any row breaks a constraint.
+     */
+    int updateAll(MassUpdate u) throws SQLException;
+}
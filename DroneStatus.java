@@ -0,0 +1,71 @@
+import java.util.Locale;
+
+/**
+ * Canonical drone status. The integer code is what gets stored in
+ * Drones.statusCode; the name is kept in Drones.status for readability.
+ */
+public enum DroneStatus {
+    IDLE(0),
+    CHARGING(1),
+    IN_TRANSIT_DELIVERY(2),
+    IN_TRANSIT_PICKUP(3),
+    MAINTENANCE(4),
+    OFFLINE(5);
+
+    private final int code;
+
+    DroneStatus(int code) {
+        this.code = code;
+    }
+
+    public int code() {
+        return code;
+    }
+
+    public static DroneStatus fromCode(int code) {
+        for (DroneStatus s : values()) {
+            if (s.code == code)
+                return s;
+        }
+        throw new IllegalArgumentException("Unknown drone status code: " + code);
+    }
+
+    /**
+     * Parses free-text status as found in the CSV data and older menus
+     * ("Idle", "In-Transit (Pickup)", "AVAILABLE", "INACTIVE", ...).
+     * Returns null if the text does not match any status.
+     */
+    public static DroneStatus parse(String text) {
+        if (text == null)
+            return null;
+        String key = text.trim().toUpperCase(Locale.ROOT)
+                .replace("(", "").replace(")", "")
+                .replace('-', '_').replace(' ', '_');
+        switch (key) {
+            case "AVAILABLE":
+                return IDLE;
+            case "INACTIVE":
+                return OFFLINE;
+            case "IN_TRANSIT":
+            case "IN_TRANSIT_DELIVERY":
+                return IN_TRANSIT_DELIVERY;
+            default:
+                for (DroneStatus s : values()) {
+                    if (s.name().equals(key))
+                        return s;
+                }
+                return null;
+        }
+    }
+
+    /** Comma separated list of valid names, for prompts. */
+    public static String names() {
+        StringBuilder sb = new StringBuilder();
+        for (DroneStatus s : values()) {
+            if (sb.length() > 0)
+                sb.append(", ");
+            sb.append(s.name());
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,43 @@
+/** Row of Equip_Model: specs shared by every item of one type/model/year. */
+public class EquipModel {
+    private final String type;
+    private final String model;
+    private final int year;
+    private final double weight;
+    private final String dimensions;
+    private final String manufacturer;
+
+    public EquipModel(String type, String model, int year, double weight, String dimensions,
+            String manufacturer) {
+        this.type = type;
+        this.model = model;
+        this.year = year;
+        this.weight = weight;
+        this.dimensions = dimensions;
+        this.manufacturer = manufacturer;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public int getYear() {
+        return year;
+    }
+
+    public double getWeight() {
+        return weight;
+    }
+
+    public String getDimensions() {
+        return dimensions;
+    }
+
+    public String getManufacturer() {
+        return manufacturer;
+    }
+}
@@ -0,0 +1,112 @@
+public class Equipment {
+    private String serialNum;
+    private String description;
+    private String type;
+    private String model;
+    private int year;
+    private EquipmentStatus status;
+    private int warehouseID;
+    private String warehouseAddress;
+    private String orderNum;
+    private String location;
+    private String warExp;
+    private String renterID;
+
+    public Equipment(String serialNum, String description, String type, String model, int year,
+            EquipmentStatus status, int warehouseID, String warehouseAddress, String orderNum, String location,
+            String warExp, String renterID) {
+        this.serialNum = serialNum;
+        this.description = description;
+        this.type = type;
+        this.model = model;
+        this.year = year;
+        this.status = status;
+        this.warehouseID = warehouseID;
+        this.warehouseAddress = warehouseAddress;
+        this.orderNum = orderNum;
+        this.location = location;
+        this.warExp = warExp;
+        this.renterID = renterID;
+    }
+
+    public Equipment copy() {
+        return new Equipment(serialNum, description, type, model, year, status, warehouseID, warehouseAddress,
+                orderNum, location, warExp, renterID);
+    }
+
+    public String getSerialNum() {
+        return serialNum;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public void setModel(String model) {
+        this.model = model;
+    }
+
+    public int getYear() {
+        return year;
+    }
+
+    public EquipmentStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(EquipmentStatus status) {
+        this.status = status;
+    }
+
+    public int getWarehouseID() {
+        return warehouseID;
+    }
+
+    public String getWarehouseAddress() {
+        return warehouseAddress;
+    }
+
+    public void setWarehouseAddress(String warehouseAddress) {
+        this.warehouseAddress = warehouseAddress;
+    }
+
+    public String getOrderNum() {
+        return orderNum;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public void setLocation(String location) {
+        this.location = location;
+    }
+
+    public String getWarExp() {
+        return warExp;
+    }
+
+    public String getRenterID() {
+        return renterID;
+    }
+
+    public void setRenterID(String renterID) {
+        this.renterID = renterID;
+    }
+}
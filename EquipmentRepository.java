@@ -0,0 +1,38 @@
+import java.sql.SQLException;
+import java.util.List;
+
+public interface EquipmentRepository {
+    void add(Equipment e) throws SQLException;
+
+    Equipment find(String serialNum) throws SQLException;
+
+    boolean exists(String serialNum) throws SQLException;
+
+    /** Case-insensitive partial match on type. */
+    List<Equipment> findByType(String partial) throws SQLException;
+
+    /** Case-insensitive whole match on type. */
+    List<Equipment> findByExactType(String type) throws SQLException;
+
+    /** AVAILABLE items of exactly this type. */
+    List<Equipment> findAvailableByType(String type) throws SQLException;
+
+    /** Items of exactly this type that are not LOST or RETIRED, by serial. */
+    List<Equipment> findRentableByType(String type) throws SQLException;
+
+    /** Ordered by type, description. */
+    List<Equipment> findAll() throws SQLException;
+
+    boolean update(Equipment e) throws SQLException;
+
+    boolean delete(String serialNum) throws SQLException;
+
+    /** Number of items an updateAll with these filters would change (its preview). */
+    int count(MassUpdate u) throws SQLException;
+
+    /**
+     * Applies the new values to every matching equipment row in one set-based
+     * transaction; nothing changes if any row breaks a constraint.
+     */
+    int updateAll(MassUpdate u) throws SQLException;
+}
@@ -0,0 +1,57 @@
+import java.util.Locale;
+
+/**
+ * Canonical equipment status. The integer code is what gets stored in
+ * Equipment.statusCode; the name is kept in Equipment.status for readability.
+ */
+public enum EquipmentStatus {
+    AVAILABLE(0),
+    RENTED(1),
+    MAINTENANCE(2),
+    LOST(3),
+    RETIRED(4);
+
+    private final int code;
+
+    EquipmentStatus(int code) {
+        this.code = code;
+    }
+
+    public int code() {
+        return code;
+    }
+
+    public static EquipmentStatus fromCode(int code) {
+        for (EquipmentStatus s : values()) {
+            if (s.code == code)
+                return s;
+        }
+        throw new IllegalArgumentException("Unknown equipment status code: " + code);
+    }
+
+    /**
+     * Parses free-text status ("Available", "rented", "AVAILABLE", ...).
+     * Returns null if the text does not match any status.
+     */
+    public static EquipmentStatus parse(String text) {
+        if (text == null)
+            return null;
+        String key = text.trim().toUpperCase(Locale.ROOT).replace('-', '_').replace(' ', '_');
+        for (EquipmentStatus s : values()) {
+            if (s.name().equals(key))
+                return s;
+        }
+        return null;
+    }
+
+    /** Comma separated list of valid names, for prompts. */
+    public static String names() {
+        StringBuilder sb = new StringBuilder();
+        for (EquipmentStatus s : values()) {
+            if (sb.length() > 0)
+                sb.append(", ");
+            sb.append(s.name());
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,300 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Writes a table or a report out as CSV or newline-delimited JSON.
+ *
+ * Tables are streamed: one forward-only cursor on a read-only WAL connection,
+ * each row written to a buffered writer as it is read, so memory stays flat
+ * however large the table is and writers are never blocked. A table with a
+ * CSV_files/&lt;table&gt;.csv snapshot is exported with that file's header and
+ * column order (columns it lacks come out empty); other tables export every
+ * column. With per-warehouse shards, a sharded table is streamed from each
+ * shard in turn. Reports are written from their (cached, bounded) ReportResult.
+ *
+ * Usage: java Exporter &lt;table|report&gt; [csv|ndjson] [outFile]
+ */
+public class Exporter {
+    public enum Format {
+        CSV, NDJSON;
+
+        public static Format parse(String text) {
+            try {
+                return valueOf(text.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+    }
+
+    private static final Path CSV_DIR = Paths.get("CSV_files");
+    private static final int FETCH_SIZE = 500;
+    private static final int BUFFER_CHARS = 1 << 16;
+
+    private interface ReportCall {
+        ReportResult run() throws SQLException;
+    }
+
+    // Reports that take no parameters, by the names used on the command line
+    private static final Map<String, ReportCall> REPORTS = new LinkedHashMap<>();
+    static {
+        REPORTS.put("popularItem", Reports::popularItem);
+        REPORTS.put("popularManufacturer", Reports::popularManufacturer);
+        REPORTS.put("popularDrone", Reports::popularDrone);
+        REPORTS.put("memberWithMostItems", Reports::memberWithMostItems);
+        REPORTS.put("bestRatedByType", Reports::bestRatedByType);
+        REPORTS.put("mostRepairedDrones", Reports::mostRepairedDrones);
+        REPORTS.put("mechanicWorkload", Reports::mechanicWorkload);
+        REPORTS.put("warehouseUtilization", Reports::warehouseUtilization);
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 1 || args.length > 3) {
+            System.err.println("Usage: java Exporter <table|report> [csv|ndjson] [outFile]");
+            System.err.println("Reports: " + String.join(", ", REPORTS.keySet()));
+            return;
+        }
+        Format format = args.length > 1 ? Format.parse(args[1]) : Format.CSV;
+        if (format == null) {
+            System.err.println("Unknown format '" + args[1] + "'; use csv or ndjson.");
+            return;
+        }
+        try {
+            if (args.length > 2) {
+                System.err.println("Exported " + exportToFile(args[0], format, Paths.get(args[2])) + " rows to " +
+                        args[2]);
+            } else {
+                Writer w = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), BUFFER_CHARS);
+                export(args[0], format, w);
+                w.flush();
+            }
+        } catch (SQLException | IOException e) {
+            System.err.println("Export error: " + e.getMessage());
+        } finally {
+            Database.shutdown();
+        }
+    }
+
+    public static List<String> reportNames() {
+        return new ArrayList<>(REPORTS.keySet());
+    }
+
+    public static long exportToFile(String name, Format format, Path file) throws SQLException, IOException {
+        try (Writer w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            return export(name, format, w);
+        }
+    }
+
+    /** Exports a report (by name) or a table; returns the number of rows written. */
+    public static long export(String name, Format format, Writer out) throws SQLException, IOException {
+        ReportCall report = REPORTS.get(name);
+        if (report != null)
+            return exportReport(report.run(), format, out);
+        return exportTable(name, format, out);
+    }
+
+    public static long exportTable(String table, Format format, Writer out) throws SQLException, IOException {
+        String actual;
+        String header;
+        List<String> names = new ArrayList<>();
+        StringBuilder select = new StringBuilder("SELECT ");
+        try (Connection conn = Database.getReadConnection()) {
+            actual = tableName(conn, table);
+            if (actual == null)
+                throw new SQLException("No table or report named " + table);
+            List<String> present = columns(conn, actual);
+            header = snapshotHeader(actual);
+
+            // Columns in the snapshot's order; ones the table lacks are selected as NULL
+            for (String raw : header != null ? header.split(",", -1) : present.toArray(new String[0])) {
+                String name = raw.trim();
+                String column = match(present, name);
+                if (!names.isEmpty())
+                    select.append(", ");
+                select.append(column == null ? "NULL" : quoteIdent(column));
+                names.add(name);
+            }
+            select.append(" FROM ").append(quoteIdent(actual)).append(";");
+        }
+        if (format == Format.CSV)
+            out.write((header != null ? header : String.join(",", names)) + "\n");
+
+        if (!Database.isSharded() || !Shards.isShardTable(actual)) {
+            try (Connection conn = Database.getReadConnection()) {
+                return streamRows(conn, select.toString(), format, names, out);
+            }
+        }
+        // One shard after another, in warehouse order
+        long rows = 0;
+        for (String warehouse : Database.shards()) {
+            try (Connection conn = Database.onShard(warehouse, Database::getReadConnection)) {
+                rows += streamRows(conn, select.toString(), format, names, out);
+            }
+        }
+        return rows;
+    }
+
+    private static long streamRows(Connection conn, String select, Format format, List<String> names, Writer out)
+            throws SQLException, IOException {
+        try (PreparedStatement ps = conn.prepareStatement(select, ResultSet.TYPE_FORWARD_ONLY,
+                ResultSet.CONCUR_READ_ONLY)) {
+            ps.setFetchSize(FETCH_SIZE);
+            try (ResultSet rs = ps.executeQuery()) {
+                ResultSetMetaData meta = rs.getMetaData();
+                long rows = 0;
+                Object[] row = new Object[names.size()];
+                while (rs.next()) {
+                    for (int i = 0; i < row.length; i++)
+                        row[i] = value(rs, meta, i + 1);
+                    writeRow(out, format, names, row);
+                    rows++;
+                }
+                return rows;
+            }
+        }
+    }
+
+    public static long exportReport(ReportResult result, Format format, Writer out) throws IOException {
+        List<String> columns = result.getColumns();
+        if (format == Format.CSV) {
+            List<String> cells = new ArrayList<>();
+            for (String c : columns)
+                cells.add(csv(c));
+            out.write(String.join(",", cells) + "\n");
+        }
+        for (Object[] row : result.getRows())
+            writeRow(out, format, columns, row);
+        return result.size();
+    }
+
+    private static void writeRow(Writer out, Format format, List<String> names, Object[] row) throws IOException {
+        if (format == Format.CSV) {
+            for (int i = 0; i < row.length; i++) {
+                if (i > 0)
+                    out.write(',');
+                out.write(row[i] == null ? "" : csv(String.valueOf(row[i])));
+            }
+        } else {
+            out.write('{');
+            for (int i = 0; i < row.length; i++) {
+                if (i > 0)
+                    out.write(',');
+                out.write(json(names.get(i)));
+                out.write(':');
+                Object v = row[i];
+                out.write(v == null ? "null" : v instanceof Number ? String.valueOf(v) : json(String.valueOf(v)));
+            }
+            out.write('}');
+        }
+        out.write('\n');
+    }
+
+    // Numbers stay numbers for JSON; everything else as SQLite's text
+    private static Object value(ResultSet rs, ResultSetMetaData meta, int i) throws SQLException {
+        Object v = rs.getObject(i);
+        if (v == null || v instanceof Number)
+            return v;
+        return meta.getColumnType(i) == Types.BLOB ? "<blob>" : rs.getString(i);
+    }
+
+    // RFC 4180: quote fields holding a comma, quote or line break
+    private static String csv(String s) {
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0 && s.indexOf('\r') < 0)
+            return s;
+        return "\"" + s.replace("\"", "\"\"") + "\"";
+    }
+
+    private static String json(String s) {
+        StringBuilder b = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':
+                    b.append("\\\"");
+                    break;
+                case '\\':
+                    b.append("\\\\");
+                    break;
+                case '\n':
+                    b.append("\\n");
+                    break;
+                case '\r':
+                    b.append("\\r");
+                    break;
+                case '\t':
+                    b.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20)
+                        b.append(String.format("\\u%04x", (int) c));
+                    else
+                        b.append(c);
+            }
+        }
+        return b.append('"').toString();
+    }
+
+    // Case-insensitive lookup against sqlite_master, so only real tables are ever named in SQL
+    private static String tableName(Connection conn, String table) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT name FROM sqlite_master WHERE type = 'table' AND name = ? COLLATE NOCASE;")) {
+            ps.setString(1, table);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+
+    private static List<String> columns(Connection conn, String table) throws SQLException {
+        List<String> names = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement("SELECT name FROM pragma_table_info(?);")) {
+            ps.setString(1, table);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next())
+                    names.add(rs.getString(1));
+            }
+        }
+        return names;
+    }
+
+    private static String match(List<String> columns, String name) {
+        for (String c : columns) {
+            if (c.equalsIgnoreCase(name))
+                return c;
+        }
+        return null;
+    }
+
+    // Header line of CSV_files/<table>.csv, or null when there is no snapshot
+    private static String snapshotHeader(String table) throws IOException {
+        Path file = CSV_DIR.resolve(table.toLowerCase(Locale.ROOT) + ".csv");
+        if (!Files.isRegularFile(file))
+            return null;
+        try (BufferedReader r = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line = r.readLine();
+            return line == null || line.isBlank() ? null : line;
+        }
+    }
+
+    private static String quoteIdent(String name) {
+        return "\"" + name.replace("\"", "\"\"") + "\"";
+    }
+}
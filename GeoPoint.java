@@ -0,0 +1,35 @@
+/** A latitude/longitude pair in degrees. */
+public class GeoPoint {
+    public static final double EARTH_RADIUS_MILES = 3958.8;
+    public static final double MILES_PER_DEGREE_LAT = 69.05;
+
+    private final double lat;
+    private final double lon;
+
+    public GeoPoint(double lat, double lon) {
+        this.lat = lat;
+        this.lon = lon;
+    }
+
+    public double getLat() {
+        return lat;
+    }
+
+    public double getLon() {
+        return lon;
+    }
+
+    /** Great-circle (haversine) distance in miles. */
+    public double milesTo(GeoPoint other) {
+        double dLat = Math.toRadians(other.lat - lat);
+        double dLon = Math.toRadians(other.lon - lon);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) + Math.cos(Math.toRadians(lat))
+                * Math.cos(Math.toRadians(other.lat)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_MILES * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%.5f, %.5f", lat, lon);
+    }
+}
@@ -0,0 +1,83 @@
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Offline geocoding by ZIP code: an address ending in a five-digit ZIP is
+ * placed at that ZIP's approximate centroid. The table covers the ZIPs our
+ * warehouses and members use; anything else needs coordinates entered by
+ * hand.
+ */
+public class Geocoder {
+    private static final Pattern ZIP = Pattern.compile("(\\d{5})(-\\d{4})?\\s*$");
+
+    private static final Map<String, GeoPoint> ZIP_CENTROIDS = Map.ofEntries(
+            // Columbus metro
+            Map.entry("43016", new GeoPoint(40.0850, -83.1550)),
+            Map.entry("43017", new GeoPoint(40.1170, -83.1300)),
+            Map.entry("43026", new GeoPoint(40.0240, -83.1600)),
+            Map.entry("43054", new GeoPoint(40.0850, -82.8000)),
+            Map.entry("43068", new GeoPoint(39.9550, -82.8000)),
+            Map.entry("43081", new GeoPoint(40.1100, -82.9150)),
+            Map.entry("43085", new GeoPoint(40.1000, -83.0150)),
+            Map.entry("43123", new GeoPoint(39.8800, -83.0800)),
+            Map.entry("43201", new GeoPoint(39.9900, -83.0000)),
+            Map.entry("43202", new GeoPoint(40.0200, -83.0100)),
+            Map.entry("43203", new GeoPoint(39.9700, -82.9700)),
+            Map.entry("43205", new GeoPoint(39.9550, -82.9650)),
+            Map.entry("43207", new GeoPoint(39.9000, -82.9700)),
+            Map.entry("43210", new GeoPoint(40.0030, -83.0200)),
+            Map.entry("43212", new GeoPoint(39.9870, -83.0450)),
+            Map.entry("43213", new GeoPoint(39.9700, -82.8700)),
+            Map.entry("43214", new GeoPoint(40.0550, -83.0250)),
+            Map.entry("43215", new GeoPoint(39.9620, -83.0050)),
+            Map.entry("43220", new GeoPoint(40.0500, -83.0700)),
+            Map.entry("43229", new GeoPoint(40.0850, -82.9750)),
+            Map.entry("43230", new GeoPoint(40.0350, -82.8800)),
+            // Toledo
+            Map.entry("43604", new GeoPoint(41.6530, -83.5400)),
+            Map.entry("43606", new GeoPoint(41.6750, -83.6100)),
+            Map.entry("43608", new GeoPoint(41.6800, -83.5300)),
+            Map.entry("43614", new GeoPoint(41.6000, -83.6300)),
+            Map.entry("43615", new GeoPoint(41.6500, -83.6700)),
+            Map.entry("43620", new GeoPoint(41.6650, -83.5550)),
+            Map.entry("43623", new GeoPoint(41.7050, -83.6900)),
+            // Cleveland
+            Map.entry("44102", new GeoPoint(41.4750, -81.7350)),
+            Map.entry("44106", new GeoPoint(41.5050, -81.6050)),
+            Map.entry("44109", new GeoPoint(41.4450, -81.6950)),
+            Map.entry("44111", new GeoPoint(41.4570, -81.7900)),
+            Map.entry("44113", new GeoPoint(41.4850, -81.7000)),
+            Map.entry("44114", new GeoPoint(41.5100, -81.6750)),
+            Map.entry("44115", new GeoPoint(41.4950, -81.6700)),
+            // Akron
+            Map.entry("44301", new GeoPoint(41.0450, -81.5200)),
+            Map.entry("44303", new GeoPoint(41.1050, -81.5350)),
+            Map.entry("44304", new GeoPoint(41.0800, -81.5050)),
+            Map.entry("44308", new GeoPoint(41.0850, -81.5150)),
+            Map.entry("44311", new GeoPoint(41.0650, -81.5200)),
+            Map.entry("44313", new GeoPoint(41.1300, -81.5700)),
+            // Cincinnati
+            Map.entry("45202", new GeoPoint(39.1050, -84.5100)),
+            Map.entry("45203", new GeoPoint(39.1080, -84.5300)),
+            Map.entry("45204", new GeoPoint(39.0950, -84.5700)),
+            Map.entry("45205", new GeoPoint(39.1100, -84.5750)),
+            Map.entry("45206", new GeoPoint(39.1250, -84.4850)),
+            Map.entry("45207", new GeoPoint(39.1400, -84.4700)),
+            Map.entry("45208", new GeoPoint(39.1350, -84.4350)),
+            // Dayton
+            Map.entry("45402", new GeoPoint(39.7570, -84.1900)),
+            Map.entry("45403", new GeoPoint(39.7650, -84.1500)),
+            Map.entry("45404", new GeoPoint(39.7850, -84.1650)),
+            Map.entry("45405", new GeoPoint(39.7900, -84.2100)),
+            Map.entry("45406", new GeoPoint(39.7800, -84.2400)),
+            Map.entry("45410", new GeoPoint(39.7500, -84.1600)));
+
+    /** The centroid of the address's ZIP code, or null if it has none we know. */
+    public static GeoPoint locate(String address) {
+        if (address == null)
+            return null;
+        Matcher m = ZIP.matcher(address);
+        return m.find() ? ZIP_CENTROIDS.get(m.group(1)) : null;
+    }
+}
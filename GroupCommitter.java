@@ -0,0 +1,175 @@
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces writes from concurrent sessions into shared transactions.
+ *
+ * Callers hand in a unit of work and block until the transaction containing
+ * it has committed, so an acknowledged write is as durable as one committed
+ * on its own, but a whole batch pays for a single commit (one fsync). A batch
+ * closes after maxBatch operations or maxDelayMillis after its first one,
+ * whichever comes first.
+ *
+ * Each operation runs inside its own SAVEPOINT: one that fails is rolled back
+ * and reported to its caller without affecting the rest of the batch. The
+ * batch's connection is bound as the worker's transaction (Database.boundTo),
+ * so an operation that calls Database.write itself joins the batch rather
+ * than waiting for the writer the worker holds.
+ *
+ * After shutdown() new work is refused; work queued before it is still
+ * committed, or failed if the worker cannot finish in time.
+ */
+public class GroupCommitter {
+    private final BlockingQueue<Pending<?>> queue = new LinkedBlockingQueue<>();
+    private final int maxBatch;
+    private final long maxDelayNanos;
+    private final Thread worker;
+    private volatile boolean running = true;
+    // Orders submit's check-and-queue against shutdown, so nothing is queued after the last drain
+    private final Object accepting = new Object();
+
+    private long batches = 0;
+    private long operations = 0;
+
+    public GroupCommitter(int maxBatch, long maxDelayMillis) {
+        this.maxBatch = maxBatch;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        this.worker = new Thread(this::runLoop, "group-commit");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /** Queues work and waits until the batch holding it has committed. */
+    public <T> T submit(Database.Work<T> work) throws SQLException {
+        if (!running)
+            throw new SQLException("Group commit is shut down");
+        Pending<T> p = new Pending<>(work);
+        synchronized (accepting) {
+            if (!running)
+                throw new SQLException("Group commit is shut down");
+            queue.add(p);
+        }
+        try {
+            return p.result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for commit", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException)
+                throw (SQLException) cause;
+            throw new SQLException(cause);
+        }
+    }
+
+    /** Commits whatever is queued and stops the worker. */
+    public void shutdown() {
+        synchronized (accepting) {
+            running = false;
+        }
+        worker.interrupt();
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Anything the worker did not get to: its callers must not wait forever
+        List<Pending<?>> left = new ArrayList<>();
+        queue.drainTo(left);
+        for (Pending<?> p : left)
+            p.result.completeExceptionally(new SQLException("Group commit is shut down"));
+    }
+
+    public synchronized String stats() {
+        return "batches=" + batches + " | operations=" + operations +
+                " | avg batch=" + (batches == 0 ? 0 : String.format("%.1f", (double) operations / batches));
+    }
+
+    private void runLoop() {
+        List<Pending<?>> batch = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending<?> first = running ? queue.take() : queue.poll();
+                if (first == null)
+                    break;
+                batch.add(first);
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < maxBatch) {
+                    long wait = deadline - System.nanoTime();
+                    Pending<?> next = wait > 0 ? queue.poll(wait, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null)
+                        break;
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // shutdown(): drain what is left without waiting
+                queue.drainTo(batch);
+            }
+            if (!batch.isEmpty())
+                commit(batch);
+            batch.clear();
+        }
+    }
+
+    private void commit(List<Pending<?>> batch) {
+        List<Pending<?>> applied = new ArrayList<>();
+        try (Connection conn = Database.openWriteConnection()) {
+            conn.setAutoCommit(false); // Start transaction
+            Database.boundTo(conn, c -> {
+                for (Pending<?> p : batch) {
+                    try (Statement st = c.createStatement()) {
+                        st.execute("SAVEPOINT op;");
+                        try {
+                            p.apply(c);
+                            st.execute("RELEASE op;");
+                            applied.add(p);
+                        } catch (SQLException | RuntimeException e) {
+                            st.execute("ROLLBACK TO op;");
+                            st.execute("RELEASE op;");
+                            p.result.completeExceptionally(e);
+                        }
+                    }
+                }
+                return null;
+            });
+            conn.commit(); // One commit for the whole batch
+            for (Pending<?> p : applied)
+                p.acknowledge();
+            synchronized (this) {
+                batches++;
+                operations += batch.size();
+            }
+        } catch (SQLException e) {
+            // Nothing in the batch is durable; fail every caller still waiting
+            for (Pending<?> p : batch)
+                p.result.completeExceptionally(e);
+        }
+    }
+
+    private static class Pending<T> {
+        private final Database.Work<T> work;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private T value;
+
+        Pending(Database.Work<T> work) {
+            this.work = work;
+        }
+
+        void apply(Connection conn) throws SQLException {
+            value = work.apply(conn);
+        }
+
+        // Only called once the batch is committed
+        void acknowledge() {
+            result.complete(value);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+import java.sql.SQLException;
+
+/**
+ * Time-ordered 64-bit IDs for checkOutID and orderNumber, unique across
+ * sessions and processes without a database round trip per ID.
+ *
+ * Layout (high to low): 41 bits of milliseconds since EPOCH_MILLIS, 10 bits
+ * of node, 12 bits of sequence within the millisecond. Each process leases a
+ * node once from the repositories it first generates for: rentalApp.db hands
+ * out 0..1023 in turn from the IdNodes counter (schema v9), so IDs only
+ * collide if 1024 processes are started while an older one is still running;
+ * in-memory storage shares nothing and picks one at random. Within a process
+ * the generator never goes backwards: if the clock steps back, or 4096 IDs
+ * are taken in one millisecond, it keeps counting on from the last
+ * millisecond it used.
+ *
+ * Generated checkOutIDs all have 19 digits, so as text they sort in the
+ * order they were made and each new rental lands next to the previous
+ * generated one in the checkOutID index. Older typed IDs such as 70001 sort
+ * after all of them; the generated run grows just ahead of those. Order
+ * numbers are the bare BIGINT, so they sort after seeded ones such as 50001.
+ */
+public class IdGenerator {
+    static final long EPOCH_MILLIS = 1735689600000L; // 2025-01-01T00:00:00Z
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    // An ID shifted right by this many bits is its milliseconds since EPOCH_MILLIS
+    static final int TIME_SHIFT = NODE_BITS + SEQUENCE_BITS;
+    private static final int NODES = 1 << NODE_BITS;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    // Zero padding keeps string order equal to numeric order for checkOutID
+    private static final int ID_DIGITS = 19;
+
+    private static int node = -1;
+    private static long lastMillis = -1;
+    private static long sequence = 0;
+
+    /** A new ID, larger than any this process has handed out before. */
+    public static synchronized long next(Repositories repos) throws SQLException {
+        if (node < 0)
+            node = repos.leaseIdNode(NODES);
+        long now = Math.max(System.currentTimeMillis() - EPOCH_MILLIS, lastMillis);
+        if (now == lastMillis) {
+            sequence = (sequence + 1) & SEQUENCE_MASK;
+            if (sequence == 0)
+                now++; // sequence used up: borrow the next millisecond
+        } else {
+            sequence = 0;
+        }
+        lastMillis = now;
+        return (now << TIME_SHIFT) | ((long) node << SEQUENCE_BITS) | sequence;
+    }
+
+    /** A checkOutID for a new rental. */
+    public static String nextCheckOutID(Repositories repos) throws SQLException {
+        return String.format("%0" + ID_DIGITS + "d", next(repos));
+    }
+
+    /** An orderNumber for a new purchase order. */
+    public static long nextOrderNumber(Repositories repos) throws SQLException {
+        return next(repos);
+    }
+
+    /** When an ID was generated, in epoch milliseconds. */
+    public static long timeOf(long id) {
+        return (id >>> TIME_SHIFT) + EPOCH_MILLIS;
+    }
+}
@@ -0,0 +1,1110 @@
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Repositories kept entirely in memory. Rows are hashed on their primary key,
+ * and the available-by-type / idle-by-warehouse sets mirror the partial
+ * indexes of the SQLite schema, so every menu operation is a constant-time
+ * lookup. Stored rows are copies; callers change them through update().
+ *
+ * All repositories share one lock (this object) so concurrent sessions see
+ * multi-step operations such as checkout atomically.
+ */
+public class InMemoryRepositories extends Repositories {
+    private final Map<String, Member> members = new HashMap<>();
+    // Lower-cased last name / type -> ids: whole-name lookups are one get, partial ones scan distinct names
+    private final Map<String, Set<String>> membersByLastName = new HashMap<>();
+    private final Map<String, Equipment> equipment = new HashMap<>();
+    private final Map<String, Set<String>> equipmentByType = new HashMap<>();
+    private final Map<String, Set<String>> availableByType = new HashMap<>();
+    private final Map<String, Drone> drones = new HashMap<>();
+    private final Map<String, Set<String>> idleByWarehouse = new HashMap<>();
+    private final Map<String, Rental> rentals = new HashMap<>();
+    private final Map<String, Rental> openRentals = new LinkedHashMap<>();
+    private final Set<String> transports = new HashSet<>();
+    private final Map<String, String> reservationStatus = new HashMap<>();
+    private final Set<String> reviews = new HashSet<>();
+    private final Map<String, RatingSummary> ratingBySerial = new HashMap<>();
+    private final Map<String, RatingSummary> ratingByType = new HashMap<>();
+    private final Map<String, Integer> repairsByPair = new HashMap<>();
+    private final Map<String, RepairCount> repairsByDrone = new HashMap<>();
+    private final Map<String, RepairCount> repairsByMechanic = new HashMap<>();
+    private final Map<String, Battery> batteries = new HashMap<>();
+    private final Map<String, GeoPoint> addressLocations = new HashMap<>();
+    private final Set<Long> orders = new HashSet<>();
+    private final AvailabilityCalendar booked = new AvailabilityCalendar();
+
+    private final MemberRepository memberRepo = new Members();
+    private final EquipmentRepository equipmentRepo = new EquipmentTable();
+    private final DroneRepository droneRepo = new Drones();
+    private final RentalRepository rentalRepo = new Rentals();
+    private final TransportRepository transportRepo = new Transports();
+    private final ReservationRepository reservationRepo = new Reservations();
+    private final ReviewRepository reviewRepo = new Reviews();
+    private final MaintenanceRepository maintenanceRepo = new Maintenance();
+    private final BatteryRepository batteryRepo = new Batteries();
+    private final LocationRepository locationRepo = new Locations();
+    private final OrderRepository orderRepo = new Orders();
+    private final ModelRepository modelRepo = new Models();
+
+    // No Warehouses table offline: every warehouse gets the same number of chargers
+    static final int CHARGERS_PER_WAREHOUSE = 2;
+
+    @Override
+    public MemberRepository members() {
+        return memberRepo;
+    }
+
+    @Override
+    public EquipmentRepository equipment() {
+        return equipmentRepo;
+    }
+
+    @Override
+    public DroneRepository drones() {
+        return droneRepo;
+    }
+
+    @Override
+    public RentalRepository rentals() {
+        return rentalRepo;
+    }
+
+    @Override
+    public TransportRepository transports() {
+        return transportRepo;
+    }
+
+    @Override
+    public ReservationRepository reservations() {
+        return reservationRepo;
+    }
+
+    @Override
+    public ReviewRepository reviews() {
+        return reviewRepo;
+    }
+
+    @Override
+    public MaintenanceRepository maintenance() {
+        return maintenanceRepo;
+    }
+
+    @Override
+    public BatteryRepository batteries() {
+        return batteryRepo;
+    }
+
+    @Override
+    public LocationRepository locations() {
+        return locationRepo;
+    }
+
+    @Override
+    public OrderRepository orders() {
+        return orderRepo;
+    }
+
+    @Override
+    public ModelRepository models() {
+        return modelRepo;
+    }
+
+    @Override
+    public boolean isPersistent() {
+        return false;
+    }
+
+    // Nothing is shared with other processes, so any node will do
+    @Override
+    public int leaseIdNode(int nodes) {
+        return ThreadLocalRandom.current().nextInt(nodes);
+    }
+
+    // ==========================================================
+    // HELPER METHODS
+    // ==========================================================
+
+    private static SQLException uniqueViolation(String column) {
+        return new SQLException("UNIQUE constraint failed: " + column);
+    }
+
+    private static boolean containsIgnoreCase(String value, String partial) {
+        return value != null && value.toLowerCase(Locale.ROOT).contains(partial.toLowerCase(Locale.ROOT));
+    }
+
+    private static void index(Map<String, Set<String>> index, String key, String id) {
+        index.computeIfAbsent(key, k -> new LinkedHashSet<>()).add(id);
+    }
+
+    private static void unindex(Map<String, Set<String>> index, String key, String id) {
+        Set<String> ids = index.get(key);
+        if (ids == null)
+            return;
+        ids.remove(id);
+        if (ids.isEmpty())
+            index.remove(key);
+    }
+
+    private static String nameKey(String name) {
+        return name == null ? null : name.toLowerCase(Locale.ROOT);
+    }
+
+    // Ids under every indexed name containing partial, ignoring case (LIKE '%partial%')
+    private static List<String> searchIndex(Map<String, Set<String>> index, String partial) {
+        String key = nameKey(partial);
+        List<String> ids = new ArrayList<>();
+        for (Map.Entry<String, Set<String>> name : index.entrySet()) {
+            if (name.getKey().contains(key))
+                ids.addAll(name.getValue());
+        }
+        return ids;
+    }
+
+    private void indexMember(Member m) {
+        if (m.getLname() != null)
+            index(membersByLastName, nameKey(m.getLname()), m.getUserID());
+    }
+
+    private void unindexMember(Member m) {
+        if (m.getLname() != null)
+            unindex(membersByLastName, nameKey(m.getLname()), m.getUserID());
+    }
+
+    private void indexEquipment(Equipment e) {
+        if (e.getType() != null)
+            index(equipmentByType, nameKey(e.getType()), e.getSerialNum());
+        if (e.getStatus() == EquipmentStatus.AVAILABLE)
+            index(availableByType, e.getType(), e.getSerialNum());
+    }
+
+    private void unindexEquipment(Equipment e) {
+        if (e.getType() != null)
+            unindex(equipmentByType, nameKey(e.getType()), e.getSerialNum());
+        if (e.getStatus() == EquipmentStatus.AVAILABLE)
+            unindex(availableByType, e.getType(), e.getSerialNum());
+    }
+
+    // Rebuilds one type's totals from its per-item summaries
+    private void refreshTypeRating(String type) {
+        double sum = 0;
+        int count = 0;
+        double max = 0;
+        for (RatingSummary r : ratingBySerial.values()) {
+            if (r.getType().equals(type)) {
+                sum += r.getRatingSum();
+                max = count == 0 ? r.getMaxRating() : Math.max(max, r.getMaxRating());
+                count += r.getRatingCount();
+            }
+        }
+        if (count == 0)
+            ratingByType.remove(type);
+        else
+            ratingByType.put(type, new RatingSummary(type, type, sum, count, max));
+    }
+
+    private void indexDrone(Drone d) {
+        if (d.getStatus() == DroneStatus.IDLE)
+            index(idleByWarehouse, d.getWarehouseAddress(), d.getSerialNum());
+    }
+
+    private void unindexDrone(Drone d) {
+        if (d.getStatus() == DroneStatus.IDLE)
+            unindex(idleByWarehouse, d.getWarehouseAddress(), d.getSerialNum());
+    }
+
+    private Drone droneWithBattery(String batteryID) {
+        for (Drone d : drones.values()) {
+            if (batteryID.equals(d.getBatteryID()))
+                return d;
+        }
+        return null;
+    }
+
+    // Same rules as the SQLite scheduler; batteries never stocked are not scheduled
+    private void dispatchBattery(Drone d) throws SQLException {
+        Battery own = d.getBatteryID() == null ? null : batteries.get(d.getBatteryID());
+        if (own == null)
+            return;
+        Battery used = own;
+        if (own.getState() != BatteryState.CHARGED) {
+            used = null;
+            for (Battery b : batteries.values()) {
+                if (b.getState() == BatteryState.CHARGED && d.getWarehouseAddress().equals(b.getWarehouseAddress())
+                        && droneWithBattery(b.getProductID()) == null
+                        && (used == null || b.getProductID().compareTo(used.getProductID()) < 0))
+                    used = b;
+            }
+            if (used == null)
+                throw new SQLException("No charged battery for drone " + d.getSerialNum() + " at " +
+                        d.getWarehouseAddress() + "; start charging there first");
+            own.setWarehouseAddress(d.getWarehouseAddress());
+            d.setBatteryID(used.getProductID());
+        }
+        used.setState(BatteryState.DEPLETED);
+    }
+
+    private List<String> fillChargers(String warehouse) {
+        int free = CHARGERS_PER_WAREHOUSE;
+        List<Battery> spares = new ArrayList<>();
+        List<Battery> installed = new ArrayList<>();
+        for (Battery b : batteries.values()) {
+            Drone d = droneWithBattery(b.getProductID());
+            if (b.getState() == BatteryState.CHARGING && warehouse.equals(b.getWarehouseAddress()))
+                free--;
+            else if (b.getState() == BatteryState.DEPLETED && d == null && warehouse.equals(b.getWarehouseAddress()))
+                spares.add(b);
+            else if (b.getState() == BatteryState.DEPLETED && d != null && warehouse.equals(d.getWarehouseAddress())
+                    && d.getStatus() == DroneStatus.IDLE)
+                installed.add(b);
+        }
+        spares.sort(Comparator.comparing(Battery::getProductID));
+        installed.sort(Comparator.comparing(Battery::getProductID));
+        spares.addAll(installed);
+
+        List<String> started = new ArrayList<>();
+        for (Battery b : spares) {
+            if (started.size() >= free)
+                break;
+            b.setState(BatteryState.CHARGING);
+            b.setWarehouseAddress(warehouse);
+            Drone d = droneWithBattery(b.getProductID());
+            if (d != null) {
+                unindexDrone(d);
+                d.setStatus(DroneStatus.CHARGING);
+            }
+            started.add(b.getProductID());
+        }
+        return started;
+    }
+
+    // ==========================================================
+    // MEMBERS
+    // ==========================================================
+
+    private class Members implements MemberRepository {
+        @Override
+        public void add(Member m) throws SQLException {
+            synchronized (InMemoryRepositories.this) {
+                if (members.containsKey(m.getUserID()))
+                    throw uniqueViolation("members.userID");
+                Member stored = m.copy();
+                members.put(stored.getUserID(), stored);
+                indexMember(stored);
+            }
+        }
+
+        @Override
+        public void add(Member m, GeoPoint location) throws SQLException {
+            synchronized (InMemoryRepositories.this) {
+                add(m);
+                if (location != null)
+                    addressLocations.put(m.getAddress(), location);
+            }
+        }
+
+        @Override
+        public Member find(String userID) {
+            synchronized (InMemoryRepositories.this) {
+                Member m = members.get(userID);
+                return m == null ? null : m.copy();
+            }
+        }
+
+        @Override
+        public boolean exists(String userID) {
+            synchronized (InMemoryRepositories.this) {
+                return members.containsKey(userID);
+            }
+        }
+
+        @Override
+        public List<Member> findByLastName(String partial) {
+            List<Member> result = new ArrayList<>();
+            synchronized (InMemoryRepositories.this) {
+                for (String userID : searchIndex(membersByLastName, partial))
+                    result.add(members.get(userID).copy());
+            }
+            return result;
+        }
+
+        @Override
+        public List<Member> findByExactLastName(String lname) {
+            List<Member> result = new ArrayList<>();
+            synchronized (InMemoryRepositories.this) {
+                for (String userID : membersByLastName.getOrDefault(nameKey(lname), Set.of()))
+                    result.add(members.get(userID).copy());
+            }
+            return result;
+        }
+
+        @Override
+        public List<Member> findAll() {
+            List<Member> result = new ArrayList<>();
+            synchronized (InMemoryRepositories.this) {
+                for (Member m : members.values())
+                    result.add(m.copy());
+            }
+            result.sort(Comparator.comparing(Member::getLname, Comparator.nullsFirst(Comparator.naturalOrder()))
+                    .thenComparing(Member::getFname, Comparator.nullsFirst(Comparator.naturalOrder())));
+            return result;
+        }
+
+        @Override
+        public boolean update(Member m) {
+            synchronized (InMemoryRepositories.this) {
+                Member old = members.get(m.getUserID());
+                if (old == null)
+                    return false;
+                unindexMember(old);
+                Member stored = m.copy();
+                members.put(stored.getUserID(), stored);
+                indexMember(stored);
+                return true;
+            }
+        }
+
+        @Override
+        public boolean update(Member m, GeoPoint location) {
+            synchronized (InMemoryRepositories.this) {
+                boolean updated = update(m);
+                if (updated && location != null)
+                    addressLocations.put(m.getAddress(), location);
+                return updated;
+            }
+        }
+
+        @Override
+        public boolean delete(String userID) {
+            synchronized (InMemoryRepositories.this) {
+                Member old = members.remove(userID);
+                if (old == null)
+                    return false;
+                unindexMember(old);
+                return true;
+            }
+        }
+    }
+
+    // ==========================================================
+    // EQUIPMENT
+    // ==========================================================
+
+    private class EquipmentTable implements EquipmentRepository {
+        @Override
+        public void add(Equipment e) throws SQLException {
+            synchronized (InMemoryRepositories.this) {
+                if (equipment.containsKey(e.getSerialNum()))
+                    throw uniqueViolation("equipment.serialNum");
+                Equipment stored = e.copy();
+                equipment.put(stored.getSerialNum(), stored);
+                indexEquipment(stored);
+            }
+        }
+
+        @Override
+        public Equipment find(String serialNum) {
+            synchronized (InMemoryRepositories.this) {
+                Equipment e = equipment.get(serialNum);
+                return e == null ? null : e.copy();
+            }
+        }
+
+        @Override
+        public boolean exists(String serialNum) {
+            synchronized (InMemoryRepositories.this) {
+                return equipment.containsKey(serialNum);
+            }
+        }
+
+        @Override
+        public List<Equipment> findByType(String partial) {
+            List<Equipment> result = new ArrayList<>();
+            synchronized (InMemoryRepositories.this) {
+                for (String serial : searchIndex(equipmentByType, partial))
+                    result.add(equipment.get(serial).copy());
+            }
+            return result;
+        }
+
+        @Override
+        public List<Equipment> findByExactType(String type) {
+            List<Equipment> result = new ArrayList<>();
+            synchronized (InMemoryRepositories.this) {
+                for (String serial : equipmentByType.getOrDefault(nameKey(type), Set.of()))
+                    result.add(equipment.get(serial).copy());
+            }
+            return result;
+        }
+
+        @Override
+        public List<Equipment> findAvailableByType(String type) {
+            List<Equipment> result = new ArrayList<>();
+            synchronized (InMemoryRepositories.this) {
+                for (String serial : availableByType.getOrDefault(type, Set.of()))
+                    result.add(equipment.get(serial).copy());
+            }
+            return result;
+        }
+
+        @Override
+        public List<Equipment> findRentableByType(String type) {
+            List<Equipment> result = new ArrayList<>();
+            synchronized (InMemoryRepositories.this) {
+                for (Equipment e : equipment.values()) {
+                    if (e.getType().equals(type) && e.getStatus() != EquipmentStatus.LOST
+                            && e.getStatus() != EquipmentStatus.RETIRED)
+                        result.add(e.copy());
+                }
+            }
+            result.sort(Comparator.comparing(Equipment::getSerialNum));
+            return result;
+        }
+
+        @Override
+        public List<Equipment> findAll() {
+            List<Equipment> result = new ArrayList<>();
+            synchronized (InMemoryRepositories.this) {
+                for (Equipment e : equipment.values())
+                    result.add(e.copy());
+            }
+            result.sort(Comparator.comparing(Equipment::getType)
+                    .thenComparing(Equipment::getDescription, Comparator.nullsFirst(Comparator.naturalOrder())));
+            return result;
+        }
+
+        @Override
+        public boolean update(Equipment e) {
+            synchronized (InMemoryRepositories.this) {
+                Equipment old = equipment.get(e.getSerialNum());
+                if (old == null)
+                    return false;
+                unindexEquipment(old);
+                Equipment stored = e.copy();
+                equipment.put(stored.getSerialNum(), stored);
+                indexEquipment(stored);
+                // Re-typed item: move its ratings to the new type's summary
+                RatingSummary rating = ratingBySerial.get(stored.getSerialNum());
+                if (rating != null && !old.getType().equals(stored.getType())) {
+                    ratingBySerial.put(stored.getSerialNum(), new RatingSummary(rating.getKey(), stored.getType(),
+                            rating.getRatingSum(), rating.getRatingCount(), rating.getMaxRating()));
+                    refreshTypeRating(old.getType());
+                    refreshTypeRating(stored.getType());
+                }
+                return true;
+            }
+        }
+
+        @Override
+        public boolean delete(String serialNum) {
+            synchronized (InMemoryRepositories.this) {
+                Equipment old = equipment.remove(serialNum);
+                if (old == null)
+                    return false;
+                unindexEquipment(old);
+                if (ratingBySerial.remove(serialNum) != null)
+                    refreshTypeRating(old.getType());
+                return true;
+            }
+        }
+
+        @Override
+        public int count(MassUpdate u) {
+            synchronized (InMemoryRepositories.this) {
+                return matching(u).size();
+            }
+        }
+
+        // Nothing here can fail part-way, so applying row by row under the lock is all-or-nothing
+        @Override
+        public int updateAll(MassUpdate u) throws SQLException {
+            EquipmentStatus newStatus = u.getNewStatus() == null ? null : EquipmentStatus.valueOf(u.getNewStatus());
+            if (newStatus == EquipmentStatus.RENTED)
+                throw new SQLException("RENTED is set by checkout, not by a mass update");
+            synchronized (InMemoryRepositories.this) {
+                List<Equipment> rows = matching(u);
+                long rented = rows.stream().filter(e -> e.getStatus() == EquipmentStatus.RENTED).count();
+                if (newStatus != null && rented > 0)
+                    throw new SQLException(rented + " matching item(s) are rented out; check them in first " +
+                            "or filter by status");
+                for (Equipment e : rows) {
+                    Equipment changed = e.copy();
+                    if (u.getNewWarehouseAddress() != null)
+                        changed.setWarehouseAddress(u.getNewWarehouseAddress());
+                    if (u.getNewType() != null)
+                        changed.setType(u.getNewType());
+                    if (u.getNewModel() != null)
+                        changed.setModel(u.getNewModel());
+                    if (newStatus != null)
+                        changed.setStatus(newStatus);
+                    update(changed);
+                }
+                return rows.size();
+            }
+        }
+
+        private List<Equipment> matching(MassUpdate u) {
+            List<Equipment> result = new ArrayList<>();
+            for (Equipment e : equipment.values()) {
+                if (u.matches(e.getWarehouseAddress(), e.getType(), e.getModel(), e.getYear(), e.getStatus().name()))
+                    result.add(e);
+            }
+            return result;
+        }
+    }
+
+    // ==========================================================
+    // DRONES
+    // ==========================================================
+
+    private class Drones implements DroneRepository {
+        @Override
+        public void add(Drone d) throws SQLException {
+            synchronized (InMemoryRepositories.this) {
+                if (drones.containsKey(d.getSerialNum()))
+                    throw uniqueViolation("drones.serialNum");
+                Drone stored = d.copy();
+                drones.put(stored.getSerialNum(), stored);
+                indexDrone(stored);
+            }
+        }
+
+        @Override
+        public Drone find(String serialNum) {
+            synchronized (InMemoryRepositories.this) {
+                Drone d = drones.get(serialNum);
+                return d == null ? null : d.copy();
+            }
+        }
+
+        @Override
+        public boolean exists(String serialNum) {
+            synchronized (InMemoryRepositories.this) {
+                return drones.containsKey(serialNum);
+            }
+        }
+
+        @Override
+        public List<Drone> findByModel(String partial) {
+            List<Drone> result = new ArrayList<>();
+            synchronized (InMemoryRepositories.this) {
+                for (Drone d : drones.values()) {
+                    if (containsIgnoreCase(d.getModel(), partial))
+                        result.add(d.copy());
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public List<Drone> findIdleAt(String warehouseAddress) {
+            List<Drone> result = new ArrayList<>();
+            synchronized (InMemoryRepositories.this) {
+                for (String serial : idleByWarehouse.getOrDefault(warehouseAddress, Set.of()))
+                    result.add(drones.get(serial).copy());
+            }
+            return result;
+        }
+
+        @Override
+        public List<Drone> findAll() {
+            List<Drone> result = new ArrayList<>();
+            synchronized (InMemoryRepositories.this) {
+                for (Drone d : drones.values())
+                    result.add(d.copy());
+            }
+            result.sort(Comparator.comparing(Drone::getName, Comparator.nullsFirst(Comparator.naturalOrder()))
+                    .thenComparing(Drone::getModel));
+            return result;
+        }
+
+        @Override
+        public boolean update(Drone d) {
+            synchronized (InMemoryRepositories.this) {
+                Drone old = drones.get(d.getSerialNum());
+                if (old == null)
+                    return false;
+                unindexDrone(old);
+                Drone stored = d.copy();
+                drones.put(stored.getSerialNum(), stored);
+                indexDrone(stored);
+                return true;
+            }
+        }
+
+        @Override
+        public boolean delete(String serialNum) {
+            synchronized (InMemoryRepositories.this) {
+                Drone old = drones.remove(serialNum);
+                if (old == null)
+                    return false;
+                unindexDrone(old);
+                return true;
+            }
+        }
+
+        @Override
+        public int count(MassUpdate u) throws SQLException {
+            checkUntyped(u);
+            synchronized (InMemoryRepositories.this) {
+                return matching(u).size();
+            }
+        }
+
+        @Override
+        public int updateAll(MassUpdate u) throws SQLException {
+            checkUntyped(u);
+            DroneStatus newStatus = u.getNewStatus() == null ? null : DroneStatus.valueOf(u.getNewStatus());
+            synchronized (InMemoryRepositories.this) {
+                List<Drone> rows = matching(u);
+                for (Drone d : rows) {
+                    Drone changed = d.copy();
+                    if (u.getNewWarehouseAddress() != null)
+                        changed.setWarehouseAddress(u.getNewWarehouseAddress());
+                    if (u.getNewModel() != null)
+                        changed.setModel(u.getNewModel());
+                    if (newStatus != null)
+                        changed.setStatus(newStatus);
+                    update(changed);
+                }
+                return rows.size();
+            }
+        }
+
+        private List<Drone> matching(MassUpdate u) {
+            List<Drone> result = new ArrayList<>();
+            for (Drone d : drones.values()) {
+                if (u.matches(d.getWarehouseAddress(), null, d.getModel(), d.getYear(), d.getStatus().name()))
+                    result.add(d);
+            }
+            return result;
+        }
+
+        private void checkUntyped(MassUpdate u) throws SQLException {
+            if (u.getType() != null || u.getNewType() != null)
+                throw new SQLException("Drones have no type");
+        }
+    }
+
+    // ==========================================================
+    // RENTALS
+    // ==========================================================
+
+    private class Rentals implements RentalRepository {
+        @Override
+        public boolean checkout(Rental r, String reservationID) throws SQLException {
+            synchronized (InMemoryRepositories.this) {
+                if (rentals.containsKey(r.getCheckOutID()))
+                    throw uniqueViolation("rentals.checkOutID");
+                Equipment e = equipment.get(r.getSerialNum());
+                if (e == null || e.getStatus() != EquipmentStatus.AVAILABLE)
+                    return false;
+
+                // Someone else's booked reservation between today and the due date blocks the rental
+                long today = LocalDate.now().toEpochDay();
+                long due = today;
+                try {
+                    due = Math.max(today, AvailabilityCalendar.toDay(r.getDueDate()));
+                } catch (RuntimeException ex) {
+                    // Missing or unparseable due date: today only
+                }
+                for (AvailabilityCalendar.Booking b : booked.conflicts(r.getSerialNum(), today, due + 1)) {
+                    if (!b.getId().equals(reservationID))
+                        throw new SQLException("Equipment is reserved during that period (reservation " +
+                                b.getId() + ")");
+                }
+
+                unindexEquipment(e);
+                e.setStatus(EquipmentStatus.RENTED);
+                e.setRenterID(r.getUserID());
+                indexEquipment(e);
+
+                Rental stored = r.copy();
+                stored.setReturned(false);
+                rentals.put(stored.getCheckOutID(), stored);
+                openRentals.put(stored.getCheckOutID(), stored);
+
+                if (reservationID != null && "BOOKED".equals(reservationStatus.get(reservationID))) {
+                    reservationStatus.put(reservationID, "FULFILLED");
+                    booked.remove(reservationID);
+                }
+                return true;
+            }
+        }
+
+        @Override
+        public String checkin(String checkOutID) {
+            synchronized (InMemoryRepositories.this) {
+                Rental r = openRentals.remove(checkOutID);
+                if (r == null)
+                    return null;
+                r.setReturned(true);
+                Equipment e = equipment.get(r.getSerialNum());
+                if (e != null && e.getStatus() == EquipmentStatus.RENTED) {
+                    unindexEquipment(e);
+                    e.setStatus(EquipmentStatus.AVAILABLE);
+                    e.setRenterID("0");
+                    indexEquipment(e);
+                }
+                return r.getSerialNum();
+            }
+        }
+
+        @Override
+        public List<Rental> findOpen() {
+            List<Rental> result = new ArrayList<>();
+            synchronized (InMemoryRepositories.this) {
+                for (Rental r : openRentals.values())
+                    result.add(r.copy());
+            }
+            return result;
+        }
+    }
+
+    // ==========================================================
+    // TRANSPORTS
+    // ==========================================================
+
+    private class Transports implements TransportRepository {
+        @Override
+        public void schedule(String droneSerial, String equipmentSerial, DroneStatus droneStatus)
+                throws SQLException {
+            synchronized (InMemoryRepositories.this) {
+                if (transports.contains(droneSerial + "\u0000" + equipmentSerial))
+                    throw uniqueViolation("transports.dSerialNum, transports.eSerialNum");
+                Drone d = drones.get(droneSerial);
+                if (d != null)
+                    dispatchBattery(d);
+                transports.add(droneSerial + "\u0000" + equipmentSerial);
+                if (d != null) {
+                    unindexDrone(d);
+                    d.setStatus(droneStatus);
+                    indexDrone(d);
+                }
+            }
+        }
+    }
+
+    // ==========================================================
+    // RESERVATIONS
+    // ==========================================================
+
+    private class Reservations implements ReservationRepository {
+        @Override
+        public String book(AvailabilityCalendar.Booking b) throws SQLException {
+            synchronized (InMemoryRepositories.this) {
+                if (reservationStatus.containsKey(b.getId()))
+                    throw uniqueViolation("Reservations.reservationID");
+                if (!booked.tryBook(b))
+                    return booked.conflicts(b.getSerialNum(), b.getStartDay(), b.getEndDay()).get(0).getId();
+                reservationStatus.put(b.getId(), "BOOKED");
+                return null;
+            }
+        }
+
+        @Override
+        public boolean cancel(String reservationID) {
+            synchronized (InMemoryRepositories.this) {
+                if (!"BOOKED".equals(reservationStatus.get(reservationID)))
+                    return false;
+                reservationStatus.put(reservationID, "CANCELLED");
+                booked.remove(reservationID);
+                return true;
+            }
+        }
+
+        @Override
+        public List<AvailabilityCalendar.Booking> findBooked() {
+            List<AvailabilityCalendar.Booking> result = new ArrayList<>();
+            synchronized (InMemoryRepositories.this) {
+                for (Map.Entry<String, String> entry : reservationStatus.entrySet()) {
+                    if (entry.getValue().equals("BOOKED"))
+                        result.add(booked.get(entry.getKey()));
+                }
+            }
+            return result;
+        }
+    }
+
+    // ==========================================================
+    // REVIEWS
+    // ==========================================================
+
+    private class Reviews implements ReviewRepository {
+        @Override
+        public void add(Review r) throws SQLException {
+            synchronized (InMemoryRepositories.this) {
+                Equipment e = equipment.get(r.getSerialNum());
+                if (e == null)
+                    throw new SQLException("No equipment with serialNum " + r.getSerialNum());
+                String key = r.getSerialNum() + "|" + r.getUserID() + "|" + r.getComments() + "|" + r.getRating();
+                if (!reviews.add(key))
+                    throw uniqueViolation("Reviews.serialNum, Reviews.userID, Reviews.comments, Reviews.ratings");
+                ratingBySerial.put(r.getSerialNum(), ratingBySerial
+                        .getOrDefault(r.getSerialNum(), new RatingSummary(r.getSerialNum(), e.getType(), 0, 0, 0))
+                        .plus(r.getRating()));
+                ratingByType.put(e.getType(), ratingByType
+                        .getOrDefault(e.getType(), new RatingSummary(e.getType(), e.getType(), 0, 0, 0))
+                        .plus(r.getRating()));
+            }
+        }
+
+        @Override
+        public RatingSummary findSummary(String serialNum) {
+            synchronized (InMemoryRepositories.this) {
+                return ratingBySerial.get(serialNum);
+            }
+        }
+
+        @Override
+        public RatingSummary findTypeSummary(String type) {
+            synchronized (InMemoryRepositories.this) {
+                return ratingByType.get(type);
+            }
+        }
+
+        @Override
+        public List<RatingSummary> findTypeSummaries() {
+            List<RatingSummary> result;
+            synchronized (InMemoryRepositories.this) {
+                result = new ArrayList<>(ratingByType.values());
+            }
+            result.sort(Comparator.comparingDouble(RatingSummary::getAvgRating).reversed()
+                    .thenComparing(RatingSummary::getKey));
+            return result;
+        }
+
+        @Override
+        public List<RatingSummary> findBestRated(String type, int limit) {
+            List<RatingSummary> result = new ArrayList<>();
+            synchronized (InMemoryRepositories.this) {
+                for (RatingSummary r : ratingBySerial.values()) {
+                    if (r.getType().equals(type))
+                        result.add(r);
+                }
+            }
+            result.sort(Comparator.comparingDouble(RatingSummary::getAvgRating).reversed()
+                    .thenComparing(Comparator.comparingInt(RatingSummary::getRatingCount).reversed()));
+            return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+        }
+    }
+
+    // ==========================================================
+    // MAINTENANCE
+    // ==========================================================
+
+    // There is no Mechanics table offline, so any SSN is accepted
+    private class Maintenance implements MaintenanceRepository {
+        @Override
+        public void logRepair(String mechSSN, String droneSN) throws SQLException {
+            synchronized (InMemoryRepositories.this) {
+                if (!drones.containsKey(droneSN))
+                    throw new SQLException("No drone with serialNum " + droneSN);
+                int newPair = repairsByPair.merge(mechSSN + "|" + droneSN, 1, Integer::sum) == 1 ? 1 : 0;
+                RepairCount d = repairsByDrone.getOrDefault(droneSN, new RepairCount(droneSN, 0, 0));
+                repairsByDrone.put(droneSN, new RepairCount(droneSN, d.getRepairs() + 1, d.getPartners() + newPair));
+                RepairCount m = repairsByMechanic.getOrDefault(mechSSN, new RepairCount(mechSSN, 0, 0));
+                repairsByMechanic.put(mechSSN, new RepairCount(mechSSN, m.getRepairs() + 1, m.getPartners() + newPair));
+            }
+        }
+
+        @Override
+        public RepairCount findDroneRepairs(String droneSN) {
+            synchronized (InMemoryRepositories.this) {
+                return repairsByDrone.get(droneSN);
+            }
+        }
+
+        @Override
+        public List<RepairCount> findMostRepairedDrones() {
+            List<RepairCount> result = new ArrayList<>();
+            synchronized (InMemoryRepositories.this) {
+                int max = 0;
+                for (RepairCount r : repairsByDrone.values())
+                    max = Math.max(max, r.getRepairs());
+                for (RepairCount r : repairsByDrone.values()) {
+                    if (r.getRepairs() == max)
+                        result.add(r);
+                }
+            }
+            result.sort(Comparator.comparing(RepairCount::getKey));
+            return result;
+        }
+
+        @Override
+        public List<RepairCount> findMechanicWorkload(int limit) {
+            List<RepairCount> result;
+            synchronized (InMemoryRepositories.this) {
+                result = new ArrayList<>(repairsByMechanic.values());
+            }
+            result.sort(Comparator.comparingInt(RepairCount::getRepairs).reversed()
+                    .thenComparing(RepairCount::getKey));
+            return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+        }
+    }
+
+    // ==========================================================
+    // BATTERIES
+    // ==========================================================
+
+    private class Batteries implements BatteryRepository {
+        @Override
+        public void stock(String batteryID, String type, String warehouseAddress, boolean charged)
+                throws SQLException {
+            synchronized (InMemoryRepositories.this) {
+                Battery b = batteries.get(batteryID);
+                if (b == null) {
+                    batteries.put(batteryID, new Battery(batteryID, type,
+                            charged ? BatteryState.CHARGED : BatteryState.DEPLETED, warehouseAddress, null));
+                    return;
+                }
+                Drone d = droneWithBattery(batteryID);
+                if (d != null)
+                    throw new SQLException("Battery " + batteryID + " is installed in drone " + d.getSerialNum());
+                if (b.getState() == BatteryState.CHARGING)
+                    throw new SQLException("Battery " + batteryID + " is on a charger at " + b.getWarehouseAddress());
+                b.setWarehouseAddress(warehouseAddress);
+            }
+        }
+
+        @Override
+        public List<String> startCharging(String warehouseAddress) {
+            synchronized (InMemoryRepositories.this) {
+                return fillChargers(warehouseAddress);
+            }
+        }
+
+        @Override
+        public boolean finishCharging(String batteryID) {
+            synchronized (InMemoryRepositories.this) {
+                Battery b = batteries.get(batteryID);
+                if (b == null || b.getState() != BatteryState.CHARGING)
+                    return false;
+                b.setState(BatteryState.CHARGED);
+                Drone d = droneWithBattery(batteryID);
+                if (d != null && d.getStatus() == DroneStatus.CHARGING) {
+                    d.setStatus(DroneStatus.IDLE);
+                    indexDrone(d);
+                }
+                fillChargers(b.getWarehouseAddress());
+                return true;
+            }
+        }
+
+        @Override
+        public List<Battery> findAt(String warehouseAddress) {
+            List<Battery> result = new ArrayList<>();
+            synchronized (InMemoryRepositories.this) {
+                for (Battery b : batteries.values()) {
+                    Drone d = droneWithBattery(b.getProductID());
+                    String at = d != null ? d.getWarehouseAddress() : b.getWarehouseAddress();
+                    if (warehouseAddress.equals(at)) {
+                        Battery row = b.copy();
+                        row.setDroneSN(d == null ? null : d.getSerialNum());
+                        result.add(row);
+                    }
+                }
+            }
+            result.sort(Comparator.comparing(Battery::getProductID));
+            return result;
+        }
+
+        @Override
+        public int chargedDroneCount(String warehouseAddress) {
+            int count = 0;
+            synchronized (InMemoryRepositories.this) {
+                for (Drone d : drones.values()) {
+                    Battery b = d.getBatteryID() == null ? null : batteries.get(d.getBatteryID());
+                    if (b != null && b.getState() == BatteryState.CHARGED
+                            && (warehouseAddress == null || warehouseAddress.equals(d.getWarehouseAddress())))
+                        count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    // ==========================================================
+    // LOCATIONS
+    // ==========================================================
+
+    // No Warehouses table offline: the warehouses are the drone bases, geocoded by ZIP
+    private class Locations implements LocationRepository {
+        @Override
+        public Map<String, GeoPoint> findWarehouseLocations() {
+            Map<String, GeoPoint> result = new HashMap<>();
+            synchronized (InMemoryRepositories.this) {
+                for (Drone d : drones.values()) {
+                    GeoPoint p = Geocoder.locate(d.getWarehouseAddress());
+                    if (p != null)
+                        result.put(d.getWarehouseAddress(), p);
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public GeoPoint findAddressLocation(String address) {
+            synchronized (InMemoryRepositories.this) {
+                return addressLocations.get(address);
+            }
+        }
+
+        @Override
+        public void saveAddress(String address, GeoPoint location, double warehouseMiles) {
+            synchronized (InMemoryRepositories.this) {
+                addressLocations.put(address, location);
+            }
+        }
+    }
+
+    // ==========================================================
+    // ORDERS
+    // ==========================================================
+
+    // No Order_Price table offline, so any element type and quantity is accepted
+    private class Orders implements OrderRepository {
+        @Override
+        public void add(Order o) throws SQLException {
+            synchronized (InMemoryRepositories.this) {
+                if (!orders.add(o.getOrderNumber()))
+                    throw uniqueViolation("Orders.orderNumber");
+            }
+        }
+
+        @Override
+        public boolean exists(long orderNumber) {
+            synchronized (InMemoryRepositories.this) {
+                return orders.contains(orderNumber);
+            }
+        }
+    }
+
+    // ==========================================================
+    // MODEL CATALOGS
+    // ==========================================================
+
+    // The offline store starts empty and has no catalog to look specs up in
+    private static class Models implements ModelRepository {
+        @Override
+        public EquipModel findEquipModel(String type, String model, int year) {
+            return null;
+        }
+
+        @Override
+        public DroneModel findDroneModel(String model, int year) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,244 @@
+import java.sql.SQLException;
+import java.time.Instant;
+
+/**
+ * One journaled mutation: sequence number, time, operation and its
+ * arguments as strings. The encoders below turn each repository call into
+ * fields; apply() makes the same call again during replay.
+ */
+public class JournalRecord {
+    public enum Op {
+        MEMBER_ADD(1), MEMBER_UPDATE(2), MEMBER_DELETE(3),
+        EQUIPMENT_ADD(4), EQUIPMENT_UPDATE(5), EQUIPMENT_DELETE(6),
+        DRONE_ADD(7), DRONE_UPDATE(8), DRONE_DELETE(9),
+        CHECKOUT(10), CHECKIN(11), TRANSPORT(12),
+        RESERVATION_BOOK(13), RESERVATION_CANCEL(14),
+        REVIEW_ADD(15), REPAIR(16),
+        BATTERY_STOCK(17), CHARGE_START(18), CHARGE_FINISH(19),
+        ADDRESS_SAVE(20),
+        ORDER_ADD(21),
+        EQUIPMENT_MASS_UPDATE(22), DRONE_MASS_UPDATE(23);
+
+        private final int code;
+
+        Op(int code) {
+            this.code = code;
+        }
+
+        public int code() {
+            return code;
+        }
+
+        public static Op fromCode(int code) {
+            for (Op op : values()) {
+                if (op.code == code)
+                    return op;
+            }
+            return null;
+        }
+    }
+
+    private final long seq;
+    private final long timeMillis;
+    private final Op op;
+    private final String[] fields;
+
+    public JournalRecord(long seq, long timeMillis, Op op, String[] fields) {
+        this.seq = seq;
+        this.timeMillis = timeMillis;
+        this.op = op;
+        this.fields = fields;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    public Op getOp() {
+        return op;
+    }
+
+    public String[] getFields() {
+        return fields;
+    }
+
+    @Override
+    public String toString() {
+        return seq + " " + Instant.ofEpochMilli(timeMillis) + " " + op + " " + String.join(" | ",
+                java.util.Arrays.stream(fields).map(f -> f == null ? "null" : f).toArray(String[]::new));
+    }
+
+    // ===== encoders =====
+
+    static String[] member(Member m) {
+        return new String[] { m.getUserID(), m.getFname(), m.getLname(), m.getAddress(), m.getPhone(), m.getEmail(),
+                m.getStartDate(), String.valueOf(m.getWarehouseDistance()) };
+    }
+
+    static String[] equipment(Equipment e) {
+        return new String[] { e.getSerialNum(), e.getDescription(), e.getType(), e.getModel(),
+                String.valueOf(e.getYear()), e.getStatus().name(), String.valueOf(e.getWarehouseID()),
+                e.getWarehouseAddress(), e.getOrderNum(), e.getLocation(), e.getWarExp(), e.getRenterID() };
+    }
+
+    static String[] drone(Drone d) {
+        return new String[] { d.getSerialNum(), d.getName(), d.getModel(), d.getStatus().name(), d.getLocation(),
+                String.valueOf(d.getYear()), d.getWarehouseAddress(), d.getBatteryID(),
+                String.valueOf(d.getTotalMiles()) };
+    }
+
+    static String[] checkout(Rental r, String reservationID) {
+        return new String[] { r.getCheckOutID(), r.getSerialNum(), r.getUserID(), r.getDueDate(),
+                String.valueOf(r.getRentalFees()), reservationID };
+    }
+
+    static String[] booking(AvailabilityCalendar.Booking b) {
+        return new String[] { b.getId(), b.getKind(), b.getSerialNum(), b.getUserID(),
+                String.valueOf(b.getStartDay()), String.valueOf(b.getEndDay()) };
+    }
+
+    static String[] review(Review r) {
+        return new String[] { r.getSerialNum(), r.getUserID(), r.getComments(), String.valueOf(r.getRating()) };
+    }
+
+    static String[] massUpdate(MassUpdate u) {
+        return new String[] { u.getWarehouseAddress(), u.getType(), u.getModel(),
+                u.getYear() == null ? null : String.valueOf(u.getYear()), u.getStatus(), u.getNewWarehouseAddress(),
+                u.getNewType(), u.getNewModel(), u.getNewStatus() };
+    }
+
+    static String[] address(String address, GeoPoint p, double warehouseMiles) {
+        return new String[] { address, String.valueOf(p.getLat()), String.valueOf(p.getLon()),
+                String.valueOf(warehouseMiles) };
+    }
+
+    static String[] order(Order o) {
+        return new String[] { String.valueOf(o.getOrderNumber()), o.getElementType(), String.valueOf(o.getQuantity()),
+                o.getEstArrDate(), o.getUserID() };
+    }
+
+    // ===== replay =====
+
+    /**
+     * Repeats the mutation, at its journaled time (see RentalClock); throws if
+     * it no longer has the effect it had when journaled.
+     */
+    public void apply(Repositories repos) throws SQLException {
+        RentalClock.at(timeMillis, () -> {
+            applyNow(repos);
+            return null;
+        });
+    }
+
+    private void applyNow(Repositories repos) throws SQLException {
+        String[] f = fields;
+        boolean applied;
+        switch (op) {
+            case MEMBER_ADD:
+                repos.members().add(new Member(f[0], f[1], f[2], f[3], f[4], f[5], f[6], Double.parseDouble(f[7])));
+                return;
+            case MEMBER_UPDATE:
+                applied = repos.members().update(
+                        new Member(f[0], f[1], f[2], f[3], f[4], f[5], f[6], Double.parseDouble(f[7])));
+                break;
+            case MEMBER_DELETE:
+                applied = repos.members().delete(f[0]);
+                break;
+            case EQUIPMENT_ADD:
+                repos.equipment().add(toEquipment(f));
+                return;
+            case EQUIPMENT_UPDATE:
+                applied = repos.equipment().update(toEquipment(f));
+                break;
+            case EQUIPMENT_DELETE:
+                applied = repos.equipment().delete(f[0]);
+                break;
+            case DRONE_ADD:
+                repos.drones().add(toDrone(f));
+                return;
+            case DRONE_UPDATE:
+                applied = repos.drones().update(toDrone(f));
+                break;
+            case DRONE_DELETE:
+                applied = repos.drones().delete(f[0]);
+                break;
+            case CHECKOUT:
+                applied = repos.rentals().checkout(
+                        new Rental(f[0], f[1], f[2], f[3], Double.parseDouble(f[4]), false), f[5]);
+                break;
+            case CHECKIN:
+                applied = repos.rentals().checkin(f[0]) != null;
+                break;
+            case TRANSPORT:
+                repos.transports().schedule(f[0], f[1], DroneStatus.valueOf(f[2]));
+                return;
+            case RESERVATION_BOOK:
+                applied = repos.reservations().book(new AvailabilityCalendar.Booking(f[0], f[1], f[2], f[3],
+                        Long.parseLong(f[4]), Long.parseLong(f[5]))) == null;
+                break;
+            case RESERVATION_CANCEL:
+                applied = repos.reservations().cancel(f[0]);
+                break;
+            case REVIEW_ADD:
+                repos.reviews().add(new Review(f[0], f[1], f[2], Double.parseDouble(f[3])));
+                return;
+            case REPAIR:
+                repos.maintenance().logRepair(f[0], f[1]);
+                return;
+            case BATTERY_STOCK:
+                repos.batteries().stock(f[0], f[1], f[2], Boolean.parseBoolean(f[3]));
+                return;
+            case CHARGE_START:
+                repos.batteries().startCharging(f[0]);
+                return;
+            case CHARGE_FINISH:
+                applied = repos.batteries().finishCharging(f[0]);
+                break;
+            case ADDRESS_SAVE:
+                repos.locations().saveAddress(f[0], new GeoPoint(Double.parseDouble(f[1]), Double.parseDouble(f[2])),
+                        Double.parseDouble(f[3]));
+                return;
+            case ORDER_ADD:
+                repos.orders().add(new Order(Long.parseLong(f[0]), f[1], Integer.parseInt(f[2]), f[3], f[4]));
+                return;
+            case EQUIPMENT_MASS_UPDATE:
+                applied = repos.equipment().updateAll(toMassUpdate(f)) > 0;
+                break;
+            case DRONE_MASS_UPDATE:
+                applied = repos.drones().updateAll(toMassUpdate(f)) > 0;
+                break;
+            default:
+                throw new SQLException("Unknown journal operation " + op);
+        }
+        if (!applied)
+            throw new SQLException("Replay diverged at seq " + seq + ": " + op + " " + f[0] + " had no effect");
+    }
+
+    private static Equipment toEquipment(String[] f) {
+        return new Equipment(f[0], f[1], f[2], f[3], Integer.parseInt(f[4]), EquipmentStatus.valueOf(f[5]),
+                Integer.parseInt(f[6]), f[7], f[8], f[9], f[10], f[11]);
+    }
+
+    private static Drone toDrone(String[] f) {
+        return new Drone(f[0], f[1], f[2], DroneStatus.valueOf(f[3]), f[4], Integer.parseInt(f[5]), f[6], f[7],
+                Double.parseDouble(f[8]));
+    }
+
+    private static MassUpdate toMassUpdate(String[] f) {
+        MassUpdate u = new MassUpdate();
+        u.setWarehouseAddress(f[0]);
+        u.setType(f[1]);
+        u.setModel(f[2]);
+        u.setYear(f[3] == null ? null : Integer.valueOf(f[3]));
+        u.setStatus(f[4]);
+        u.setNewWarehouseAddress(f[5]);
+        u.setNewType(f[6]);
+        u.setNewModel(f[7]);
+        u.setNewStatus(f[8]);
+        return u;
+    }
+}
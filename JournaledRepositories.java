@@ -0,0 +1,646 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Records every successful mutation made through another Repositories in a
+ * MutationJournal: member / equipment / drone CRUD, checkout and checkin,
+ * transports, reservations, reviews, repairs, battery charging, address
+ * locations and purchase orders. A call that fails or has no effect (update of a missing row,
+ * checkout of a rented item) is not journaled.
+ *
+ * Journal order is commit order, so JournalReplay reaches exactly the same
+ * state. Over rentalApp.db a mutation's record is appended inside its own
+ * write transaction, which the single writer already orders (and, with group
+ * commit, inside its batch), so no extra lock is taken. Shard writers commit
+ * independently, and in-memory repositories have no writer, so there each
+ * mutation is applied and journaled under one lock. Reads are passed
+ * straight through.
+ *
+ * snapshot() writes a consistent copy of rentalApp.db stamped with the last
+ * journaled sequence number; snapshot + journal is what JournalReplay needs.
+ */
+public class JournaledRepositories extends Repositories {
+    private final Repositories delegate;
+    private final MutationJournal journal;
+
+    // With shards or in memory: held from the start of a mutation until its record is appended
+    private final ReentrantLock order = new ReentrantLock(true);
+
+    private final MemberRepository members = new JournaledMembers();
+    private final EquipmentRepository equipment = new JournaledEquipment();
+    private final DroneRepository drones = new JournaledDrones();
+    private final RentalRepository rentals = new JournaledRentals();
+    private final TransportRepository transports = new JournaledTransports();
+    private final ReservationRepository reservations = new JournaledReservations();
+    private final ReviewRepository reviews = new JournaledReviews();
+    private final MaintenanceRepository maintenance = new JournaledMaintenance();
+    private final BatteryRepository batteries = new JournaledBatteries();
+    private final LocationRepository locations = new JournaledLocations();
+    private final OrderRepository orders = new JournaledOrders();
+
+    public JournaledRepositories(Repositories delegate, MutationJournal journal) {
+        this.delegate = delegate;
+        this.journal = journal;
+    }
+
+    public MutationJournal getJournal() {
+        return journal;
+    }
+
+    @Override
+    public MemberRepository members() {
+        return members;
+    }
+
+    @Override
+    public EquipmentRepository equipment() {
+        return equipment;
+    }
+
+    @Override
+    public DroneRepository drones() {
+        return drones;
+    }
+
+    @Override
+    public RentalRepository rentals() {
+        return rentals;
+    }
+
+    @Override
+    public TransportRepository transports() {
+        return transports;
+    }
+
+    @Override
+    public ReservationRepository reservations() {
+        return reservations;
+    }
+
+    @Override
+    public ReviewRepository reviews() {
+        return reviews;
+    }
+
+    @Override
+    public MaintenanceRepository maintenance() {
+        return maintenance;
+    }
+
+    @Override
+    public BatteryRepository batteries() {
+        return batteries;
+    }
+
+    @Override
+    public LocationRepository locations() {
+        return locations;
+    }
+
+    @Override
+    public OrderRepository orders() {
+        return orders;
+    }
+
+    @Override
+    public ModelRepository models() {
+        return delegate.models();
+    }
+
+    @Override
+    public boolean isPersistent() {
+        return delegate.isPersistent();
+    }
+
+    @Override
+    public int leaseIdNode(int nodes) throws SQLException {
+        return delegate.leaseIdNode(nodes);
+    }
+
+    /**
+     * Copies the database to out (which must not exist) with VACUUM INTO and
+     * records the journal position in its JournalMark table. Mutations wait
+     * while the copy is made. Returns that sequence number.
+     */
+    public long snapshot(Path out) throws SQLException, IOException {
+        order.lock();
+        try {
+            // Holding the writer as well: no transaction sits between its journal records and its commit
+            return Database.batch(conn -> {
+                try {
+                    journal.sync();
+                    return snapshot(out, journal.lastSeq());
+                } catch (IOException e) {
+                    throw new SQLException("Snapshot failed: " + e.getMessage(), e);
+                }
+            });
+        } finally {
+            order.unlock();
+        }
+    }
+
+    // Also used offline by JournalReplay, when nothing else is writing
+    static long snapshot(Path out, long seq) throws SQLException, IOException {
+        if (Files.exists(out))
+            throw new IOException(out + " already exists");
+        // Not a read connection: query_only also refuses VACUUM INTO
+        try (Connection conn = Database.openUnpooledConnection();
+                PreparedStatement ps = conn.prepareStatement("VACUUM INTO ?;")) {
+            // With shards, rentalApp.db alone is not the whole database
+            try (Statement st = conn.createStatement();
+                    ResultSet rs = st.executeQuery("SELECT 1 FROM ShardDirectory LIMIT 1;")) {
+                if (rs.next())
+                    throw new SQLException("The database is sharded; run 'java Shards merge' before taking a snapshot");
+            }
+            ps.setString(1, out.toString());
+            ps.execute();
+        }
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + out);
+                Statement st = conn.createStatement()) {
+            st.execute("CREATE TABLE JournalMark (seq BIGINT NOT NULL, takenMillis BIGINT NOT NULL);");
+            st.execute("INSERT INTO JournalMark VALUES (" + seq + ", " + System.currentTimeMillis() + ");");
+        }
+        return seq;
+    }
+
+    // ===== journaling =====
+
+    private interface Mutation<T> {
+        T run() throws SQLException;
+    }
+
+    private interface Success<T> {
+        boolean test(T result);
+    }
+
+    // One record of a change: an operation and its fields
+    private static final class Entry {
+        final JournalRecord.Op op;
+        final String[] fields;
+
+        Entry(JournalRecord.Op op, String... fields) {
+            this.op = op;
+            this.fields = fields;
+        }
+    }
+
+    // Runs the mutation and journals it if it succeeded
+    private <T> T journaled(Mutation<T> mutation, Success<T> success, JournalRecord.Op op, String... fields)
+            throws SQLException {
+        return journaled(mutation, success, new Entry(op, fields));
+    }
+
+    // A change made of several repository calls, journaled as one record each, in order
+    private <T> T journaled(Mutation<T> mutation, Success<T> success, Entry... entries) throws SQLException {
+        if (Database.isSharded() || !delegate.isPersistent()) {
+            order.lock();
+            try {
+                T result = mutation.run();
+                if (success.test(result)) {
+                    for (Entry e : entries)
+                        append(e.op, e.fields);
+                }
+                return result;
+            } finally {
+                order.unlock();
+            }
+        }
+
+        // The delegate's own writes join this transaction; a failed append rolls the change back
+        boolean[] appended = { false };
+        try {
+            return Database.write(conn -> {
+                T result = mutation.run();
+                if (success.test(result)) {
+                    for (Entry e : entries)
+                        journal(e.op, e.fields);
+                    appended[0] = true;
+                }
+                return result;
+            });
+        } catch (SQLException e) {
+            if (!appended[0])
+                throw e;
+            // Journaled, then the commit failed; the journal no longer replays to this database
+            throw new SQLException("Change rolled back after it was journaled (take a new snapshot): " +
+                    e.getMessage(), e);
+        }
+    }
+
+    private void journaled(Mutation<?> mutation, JournalRecord.Op op, String... fields) throws SQLException {
+        journaled(mutation, r -> true, op, fields);
+    }
+
+    private void append(JournalRecord.Op op, String[] fields) throws SQLException {
+        try {
+            journal.append(op, fields);
+        } catch (IOException e) {
+            // The change is committed but unrecorded; the journal no longer replays to this database
+            throw new SQLException("Change saved but journal write failed (take a new snapshot): " + e.getMessage(),
+                    e);
+        }
+    }
+
+    // Inside the change's transaction: a failed append rolls the change back with it
+    private void journal(JournalRecord.Op op, String[] fields) throws SQLException {
+        try {
+            journal.append(op, fields);
+        } catch (IOException e) {
+            throw new SQLException("Journal write failed; change not saved: " + e.getMessage(), e);
+        }
+    }
+
+    private static boolean isTrue(Boolean b) {
+        return b;
+    }
+
+    // ==========================================================
+    // MEMBERS / EQUIPMENT / DRONES
+    // ==========================================================
+
+    private class JournaledMembers implements MemberRepository {
+        @Override
+        public void add(Member m) throws SQLException {
+            journaled(() -> {
+                delegate.members().add(m);
+                return null;
+            }, JournalRecord.Op.MEMBER_ADD, JournalRecord.member(m));
+        }
+
+        @Override
+        public void add(Member m, GeoPoint location) throws SQLException {
+            journaled(() -> {
+                delegate.members().add(m, location);
+                return null;
+            }, r -> true, memberWithAddress(JournalRecord.Op.MEMBER_ADD, m, location));
+        }
+
+        @Override
+        public Member find(String userID) throws SQLException {
+            return delegate.members().find(userID);
+        }
+
+        @Override
+        public boolean exists(String userID) throws SQLException {
+            return delegate.members().exists(userID);
+        }
+
+        @Override
+        public List<Member> findByLastName(String partial) throws SQLException {
+            return delegate.members().findByLastName(partial);
+        }
+
+        @Override
+        public List<Member> findByExactLastName(String lname) throws SQLException {
+            return delegate.members().findByExactLastName(lname);
+        }
+
+        @Override
+        public List<Member> findAll() throws SQLException {
+            return delegate.members().findAll();
+        }
+
+        @Override
+        public boolean update(Member m) throws SQLException {
+            return journaled(() -> delegate.members().update(m), JournaledRepositories::isTrue,
+                    JournalRecord.Op.MEMBER_UPDATE, JournalRecord.member(m));
+        }
+
+        @Override
+        public boolean update(Member m, GeoPoint location) throws SQLException {
+            return journaled(() -> delegate.members().update(m, location), JournaledRepositories::isTrue,
+                    memberWithAddress(JournalRecord.Op.MEMBER_UPDATE, m, location));
+        }
+
+        // The member's record, then its address location's when there is one
+        private Entry[] memberWithAddress(JournalRecord.Op op, Member m, GeoPoint location) {
+            Entry member = new Entry(op, JournalRecord.member(m));
+            if (location == null)
+                return new Entry[] { member };
+            return new Entry[] { member, new Entry(JournalRecord.Op.ADDRESS_SAVE,
+                    JournalRecord.address(m.getAddress(), location, m.getWarehouseDistance())) };
+        }
+
+        @Override
+        public boolean delete(String userID) throws SQLException {
+            return journaled(() -> delegate.members().delete(userID), JournaledRepositories::isTrue,
+                    JournalRecord.Op.MEMBER_DELETE, userID);
+        }
+    }
+
+    private class JournaledEquipment implements EquipmentRepository {
+        @Override
+        public void add(Equipment e) throws SQLException {
+            journaled(() -> {
+                delegate.equipment().add(e);
+                return null;
+            }, JournalRecord.Op.EQUIPMENT_ADD, JournalRecord.equipment(e));
+        }
+
+        @Override
+        public Equipment find(String serialNum) throws SQLException {
+            return delegate.equipment().find(serialNum);
+        }
+
+        @Override
+        public boolean exists(String serialNum) throws SQLException {
+            return delegate.equipment().exists(serialNum);
+        }
+
+        @Override
+        public List<Equipment> findByType(String partial) throws SQLException {
+            return delegate.equipment().findByType(partial);
+        }
+
+        @Override
+        public List<Equipment> findByExactType(String type) throws SQLException {
+            return delegate.equipment().findByExactType(type);
+        }
+
+        @Override
+        public List<Equipment> findAvailableByType(String type) throws SQLException {
+            return delegate.equipment().findAvailableByType(type);
+        }
+
+        @Override
+        public List<Equipment> findRentableByType(String type) throws SQLException {
+            return delegate.equipment().findRentableByType(type);
+        }
+
+        @Override
+        public List<Equipment> findAll() throws SQLException {
+            return delegate.equipment().findAll();
+        }
+
+        @Override
+        public boolean update(Equipment e) throws SQLException {
+            return journaled(() -> delegate.equipment().update(e), JournaledRepositories::isTrue,
+                    JournalRecord.Op.EQUIPMENT_UPDATE, JournalRecord.equipment(e));
+        }
+
+        @Override
+        public boolean delete(String serialNum) throws SQLException {
+            return journaled(() -> delegate.equipment().delete(serialNum), JournaledRepositories::isTrue,
+                    JournalRecord.Op.EQUIPMENT_DELETE, serialNum);
+        }
+
+        @Override
+        public int count(MassUpdate u) throws SQLException {
+            return delegate.equipment().count(u);
+        }
+
+        @Override
+        public int updateAll(MassUpdate u) throws SQLException {
+            return journaled(() -> delegate.equipment().updateAll(u), n -> n > 0,
+                    JournalRecord.Op.EQUIPMENT_MASS_UPDATE, JournalRecord.massUpdate(u));
+        }
+    }
+
+    private class JournaledDrones implements DroneRepository {
+        @Override
+        public void add(Drone d) throws SQLException {
+            journaled(() -> {
+                delegate.drones().add(d);
+                return null;
+            }, JournalRecord.Op.DRONE_ADD, JournalRecord.drone(d));
+        }
+
+        @Override
+        public Drone find(String serialNum) throws SQLException {
+            return delegate.drones().find(serialNum);
+        }
+
+        @Override
+        public boolean exists(String serialNum) throws SQLException {
+            return delegate.drones().exists(serialNum);
+        }
+
+        @Override
+        public List<Drone> findByModel(String partial) throws SQLException {
+            return delegate.drones().findByModel(partial);
+        }
+
+        @Override
+        public List<Drone> findIdleAt(String warehouseAddress) throws SQLException {
+            return delegate.drones().findIdleAt(warehouseAddress);
+        }
+
+        @Override
+        public List<Drone> findAll() throws SQLException {
+            return delegate.drones().findAll();
+        }
+
+        @Override
+        public boolean update(Drone d) throws SQLException {
+            return journaled(() -> delegate.drones().update(d), JournaledRepositories::isTrue,
+                    JournalRecord.Op.DRONE_UPDATE, JournalRecord.drone(d));
+        }
+
+        @Override
+        public boolean delete(String serialNum) throws SQLException {
+            return journaled(() -> delegate.drones().delete(serialNum), JournaledRepositories::isTrue,
+                    JournalRecord.Op.DRONE_DELETE, serialNum);
+        }
+
+        @Override
+        public int count(MassUpdate u) throws SQLException {
+            return delegate.drones().count(u);
+        }
+
+        @Override
+        public int updateAll(MassUpdate u) throws SQLException {
+            return journaled(() -> delegate.drones().updateAll(u), n -> n > 0,
+                    JournalRecord.Op.DRONE_MASS_UPDATE, JournalRecord.massUpdate(u));
+        }
+    }
+
+    // ==========================================================
+    // RENTALS / TRANSPORTS / RESERVATIONS
+    // ==========================================================
+
+    private class JournaledRentals implements RentalRepository {
+        @Override
+        public boolean checkout(Rental r, String reservationID) throws SQLException {
+            return journaled(() -> delegate.rentals().checkout(r, reservationID), JournaledRepositories::isTrue,
+                    JournalRecord.Op.CHECKOUT, JournalRecord.checkout(r, reservationID));
+        }
+
+        @Override
+        public String checkin(String checkOutID) throws SQLException {
+            return journaled(() -> delegate.rentals().checkin(checkOutID), serial -> serial != null,
+                    JournalRecord.Op.CHECKIN, checkOutID);
+        }
+
+        @Override
+        public List<Rental> findOpen() throws SQLException {
+            return delegate.rentals().findOpen();
+        }
+    }
+
+    private class JournaledTransports implements TransportRepository {
+        @Override
+        public void schedule(String droneSerial, String equipmentSerial, DroneStatus droneStatus)
+                throws SQLException {
+            journaled(() -> {
+                delegate.transports().schedule(droneSerial, equipmentSerial, droneStatus);
+                return null;
+            }, JournalRecord.Op.TRANSPORT, droneSerial, equipmentSerial, droneStatus.name());
+        }
+    }
+
+    private class JournaledReservations implements ReservationRepository {
+        @Override
+        public String book(AvailabilityCalendar.Booking b) throws SQLException {
+            return journaled(() -> delegate.reservations().book(b), conflict -> conflict == null,
+                    JournalRecord.Op.RESERVATION_BOOK, JournalRecord.booking(b));
+        }
+
+        @Override
+        public boolean cancel(String reservationID) throws SQLException {
+            return journaled(() -> delegate.reservations().cancel(reservationID), JournaledRepositories::isTrue,
+                    JournalRecord.Op.RESERVATION_CANCEL, reservationID);
+        }
+
+        @Override
+        public List<AvailabilityCalendar.Booking> findBooked() throws SQLException {
+            return delegate.reservations().findBooked();
+        }
+    }
+
+    // ==========================================================
+    // REVIEWS / MAINTENANCE / BATTERIES / LOCATIONS / ORDERS
+    // ==========================================================
+
+    private class JournaledReviews implements ReviewRepository {
+        @Override
+        public void add(Review r) throws SQLException {
+            journaled(() -> {
+                delegate.reviews().add(r);
+                return null;
+            }, JournalRecord.Op.REVIEW_ADD, JournalRecord.review(r));
+        }
+
+        @Override
+        public RatingSummary findSummary(String serialNum) throws SQLException {
+            return delegate.reviews().findSummary(serialNum);
+        }
+
+        @Override
+        public RatingSummary findTypeSummary(String type) throws SQLException {
+            return delegate.reviews().findTypeSummary(type);
+        }
+
+        @Override
+        public List<RatingSummary> findTypeSummaries() throws SQLException {
+            return delegate.reviews().findTypeSummaries();
+        }
+
+        @Override
+        public List<RatingSummary> findBestRated(String type, int limit) throws SQLException {
+            return delegate.reviews().findBestRated(type, limit);
+        }
+    }
+
+    private class JournaledMaintenance implements MaintenanceRepository {
+        @Override
+        public void logRepair(String mechSSN, String droneSN) throws SQLException {
+            journaled(() -> {
+                delegate.maintenance().logRepair(mechSSN, droneSN);
+                return null;
+            }, JournalRecord.Op.REPAIR, mechSSN, droneSN);
+        }
+
+        @Override
+        public RepairCount findDroneRepairs(String droneSN) throws SQLException {
+            return delegate.maintenance().findDroneRepairs(droneSN);
+        }
+
+        @Override
+        public List<RepairCount> findMostRepairedDrones() throws SQLException {
+            return delegate.maintenance().findMostRepairedDrones();
+        }
+
+        @Override
+        public List<RepairCount> findMechanicWorkload(int limit) throws SQLException {
+            return delegate.maintenance().findMechanicWorkload(limit);
+        }
+    }
+
+    private class JournaledBatteries implements BatteryRepository {
+        @Override
+        public void stock(String batteryID, String type, String warehouseAddress, boolean charged)
+                throws SQLException {
+            journaled(() -> {
+                delegate.batteries().stock(batteryID, type, warehouseAddress, charged);
+                return null;
+            }, JournalRecord.Op.BATTERY_STOCK, batteryID, type, warehouseAddress, String.valueOf(charged));
+        }
+
+        @Override
+        public List<String> startCharging(String warehouseAddress) throws SQLException {
+            return journaled(() -> delegate.batteries().startCharging(warehouseAddress), started -> !started.isEmpty(),
+                    JournalRecord.Op.CHARGE_START, warehouseAddress);
+        }
+
+        @Override
+        public boolean finishCharging(String batteryID) throws SQLException {
+            return journaled(() -> delegate.batteries().finishCharging(batteryID), JournaledRepositories::isTrue,
+                    JournalRecord.Op.CHARGE_FINISH, batteryID);
+        }
+
+        @Override
+        public List<Battery> findAt(String warehouseAddress) throws SQLException {
+            return delegate.batteries().findAt(warehouseAddress);
+        }
+
+        @Override
+        public int chargedDroneCount(String warehouseAddress) throws SQLException {
+            return delegate.batteries().chargedDroneCount(warehouseAddress);
+        }
+    }
+
+    private class JournaledLocations implements LocationRepository {
+        @Override
+        public Map<String, GeoPoint> findWarehouseLocations() throws SQLException {
+            return delegate.locations().findWarehouseLocations();
+        }
+
+        @Override
+        public GeoPoint findAddressLocation(String address) throws SQLException {
+            return delegate.locations().findAddressLocation(address);
+        }
+
+        @Override
+        public void saveAddress(String address, GeoPoint location, double warehouseMiles) throws SQLException {
+            journaled(() -> {
+                delegate.locations().saveAddress(address, location, warehouseMiles);
+                return null;
+            }, JournalRecord.Op.ADDRESS_SAVE, JournalRecord.address(address, location, warehouseMiles));
+        }
+    }
+
+    private class JournaledOrders implements OrderRepository {
+        @Override
+        public void add(Order o) throws SQLException {
+            journaled(() -> {
+                delegate.orders().add(o);
+                return null;
+            }, JournalRecord.Op.ORDER_ADD, JournalRecord.order(o));
+        }
+
+        @Override
+        public boolean exists(long orderNumber) throws SQLException {
+            return delegate.orders().exists(orderNumber);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * Coordinates of warehouses and member addresses, for the nearest-warehouse
+ * lookups done through WarehouseIndex.
+ */
+public interface LocationRepository {
+    /** Every warehouse with known coordinates, by address. */
+    Map<String, GeoPoint> findWarehouseLocations() throws SQLException;
+
+    /** Null when the address is unknown or has no coordinates. */
+    GeoPoint findAddressLocation(String address) throws SQLException;
+
+    /** Records (or moves) an address and its distance to the nearest warehouse. */
+    void saveAddress(String address, GeoPoint location, double warehouseMiles) throws SQLException;
+}
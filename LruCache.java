@@ -0,0 +1,78 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU map with hit/miss counters, used by CachedRepositories.
+ *
+ * Invalidation bumps a generation counter. A reader that missed records the
+ * generation before loading and only stores its value if no invalidation
+ * happened in between, so a load racing a write can never re-insert the
+ * pre-write row.
+ */
+public class LruCache<K, V> {
+    private final String name;
+    private final int capacity;
+    private final LinkedHashMap<K, V> map;
+
+    private long generation = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    private long invalidations = 0;
+
+    public LruCache(String name, int capacity) {
+        this.name = name;
+        this.capacity = capacity;
+        // accessOrder = true: iteration order is least recently used first
+        this.map = new LinkedHashMap<K, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                if (size() > LruCache.this.capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /** Cached value (counted as a hit) or null (counted as a miss). */
+    public synchronized V get(K key) {
+        V value = map.get(key);
+        if (value != null)
+            hits++;
+        else
+            misses++;
+        return value;
+    }
+
+    /** Current generation; pass it to put() after loading a missed key. */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    /** Stores a loaded value unless something was invalidated since loadGeneration. */
+    public synchronized void put(K key, V value, long loadGeneration) {
+        if (value != null && loadGeneration == generation)
+            map.put(key, value);
+    }
+
+    public synchronized void invalidate(K key) {
+        generation++;
+        invalidations++;
+        map.remove(key);
+    }
+
+    public synchronized void clear() {
+        generation++;
+        invalidations++;
+        map.clear();
+    }
+
+    public synchronized String stats() {
+        long lookups = hits + misses;
+        return name + ": size=" + map.size() + "/" + capacity + " | hits=" + hits + " | misses=" + misses +
+                " | hit ratio=" + (lookups == 0 ? "n/a" : String.format("%.1f%%", 100.0 * hits / lookups)) +
+                " | evictions=" + evictions + " | invalidations=" + invalidations;
+    }
+}
@@ -0,0 +1,21 @@
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Repair records (Repair) with per-drone and per-mechanic counts kept current
+ * in the same transaction as each repair, so the maintenance reports read a
+ * few index entries instead of re-aggregating Repair.
+ */
+public interface MaintenanceRepository {
+    /** Records one repair; throws if the drone (or, with a database, the mechanic) is unknown. */
+    void logRepair(String mechSSN, String droneSN) throws SQLException;
+
+    /** Null when the drone has never been repaired. */
+    RepairCount findDroneRepairs(String droneSN) throws SQLException;
+
+    /** Every drone tied for the highest repair count. */
+    List<RepairCount> findMostRepairedDrones() throws SQLException;
+
+    /** Mechanics by repairs done, busiest first. */
+    List<RepairCount> findMechanicWorkload(int limit) throws SQLException;
+}
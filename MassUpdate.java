@@ -0,0 +1,110 @@
+import java.util.Objects;
+
+/**
+ * Filters and new values for a bulk equipment or drone edit. A null filter
+ * matches every row; a null new value leaves that column as it is. Statuses
+ * are EquipmentStatus / DroneStatus names. Drones have no type, so both type
+ * fields must stay null for them.
+ */
+public class MassUpdate {
+    private String warehouseAddress;
+    private String type;
+    private String model;
+    private Integer year;
+    private String status;
+
+    private String newWarehouseAddress;
+    private String newType;
+    private String newModel;
+    private String newStatus;
+
+    public String getWarehouseAddress() {
+        return warehouseAddress;
+    }
+
+    public void setWarehouseAddress(String warehouseAddress) {
+        this.warehouseAddress = warehouseAddress;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public void setModel(String model) {
+        this.model = model;
+    }
+
+    public Integer getYear() {
+        return year;
+    }
+
+    public void setYear(Integer year) {
+        this.year = year;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getNewWarehouseAddress() {
+        return newWarehouseAddress;
+    }
+
+    public void setNewWarehouseAddress(String newWarehouseAddress) {
+        this.newWarehouseAddress = newWarehouseAddress;
+    }
+
+    public String getNewType() {
+        return newType;
+    }
+
+    public void setNewType(String newType) {
+        this.newType = newType;
+    }
+
+    public String getNewModel() {
+        return newModel;
+    }
+
+    public void setNewModel(String newModel) {
+        this.newModel = newModel;
+    }
+
+    public String getNewStatus() {
+        return newStatus;
+    }
+
+    public void setNewStatus(String newStatus) {
+        this.newStatus = newStatus;
+    }
+
+    public boolean hasChanges() {
+        return newWarehouseAddress != null || newType != null || newModel != null || newStatus != null;
+    }
+
+    /** True when a row with these values passes every filter that is set. */
+    public boolean matches(String warehouseAddress, String type, String model, int year, String status) {
+        return (this.warehouseAddress == null || this.warehouseAddress.equals(warehouseAddress))
+                && (this.type == null || this.type.equals(type))
+                && (this.model == null || this.model.equals(model))
+                && (this.year == null || this.year == year)
+                && (this.status == null || this.status.equals(status));
+    }
+
+    /** True when the new warehouse really moves rows (the filter may already pin them there). */
+    public boolean movesWarehouse() {
+        return newWarehouseAddress != null && !Objects.equals(newWarehouseAddress, warehouseAddress);
+    }
+}
@@ -0,0 +1,82 @@
+public class Member {
+    private String userID;
+    private String fname;
+    private String lname;
+    private String address;
+    private String phone;
+    private String email;
+    private String startDate;
+    private double warehouseDistance;
+
+    public Member(String userID, String fname, String lname, String address, String phone, String email,
+            String startDate, double warehouseDistance) {
+        this.userID = userID;
+        this.fname = fname;
+        this.lname = lname;
+        this.address = address;
+        this.phone = phone;
+        this.email = email;
+        this.startDate = startDate;
+        this.warehouseDistance = warehouseDistance;
+    }
+
+    public Member copy() {
+        return new Member(userID, fname, lname, address, phone, email, startDate, warehouseDistance);
+    }
+
+    public String getUserID() {
+        return userID;
+    }
+
+    public String getFname() {
+        return fname;
+    }
+
+    public void setFname(String fname) {
+        this.fname = fname;
+    }
+
+    public String getLname() {
+        return lname;
+    }
+
+    public void setLname(String lname) {
+        this.lname = lname;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    public void setAddress(String address) {
+        this.address = address;
+    }
+
+    public String getPhone() {
+        return phone;
+    }
+
+    public void setPhone(String phone) {
+        this.phone = phone;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public String getStartDate() {
+        return startDate;
+    }
+
+    public double getWarehouseDistance() {
+        return warehouseDistance;
+    }
+
+    public void setWarehouseDistance(double warehouseDistance) {
+        this.warehouseDistance = warehouseDistance;
+    }
+}
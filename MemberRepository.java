@@ -0,0 +1,33 @@
+import java.sql.SQLException;
+import java.util.List;
+
+public interface MemberRepository {
+    void add(Member m) throws SQLException;
+
+    /**
+     * Adds m and, when location is not null, saves it for m's address (see
+     * LocationRepository.saveAddress) in the same transaction.
+     */
+    void add(Member m, GeoPoint location) throws SQLException;
+
+    Member find(String userID) throws SQLException;
+
+    boolean exists(String userID) throws SQLException;
+
+    /** Case-insensitive partial match on last name. */
+    List<Member> findByLastName(String partial) throws SQLException;
+
+    /** Case-insensitive whole match on last name. */
+    List<Member> findByExactLastName(String lname) throws SQLException;
+
+    /** Ordered by last name, first name. */
+    List<Member> findAll() throws SQLException;
+
+    /** Overwrites every column of the stored member; returns false if missing. */
+    boolean update(Member m) throws SQLException;
+
+    /** Like add(m, location): the member and its address location are saved together or not at all. */
+    boolean update(Member m, GeoPoint location) throws SQLException;
+
+    boolean delete(String userID) throws SQLException;
+}
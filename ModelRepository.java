@@ -0,0 +1,10 @@
+import java.sql.SQLException;
+
+/** Lookups in the Equip_Model and Drone_Model catalogs. */
+public interface ModelRepository {
+    /** Null when the catalog has no such type/model/year. */
+    EquipModel findEquipModel(String type, String model, int year) throws SQLException;
+
+    /** Null when the catalog has no such model/year. */
+    DroneModel findDroneModel(String model, int year) throws SQLException;
+}
@@ -0,0 +1,228 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of mutations, written through a memory-mapped region
+ * of the file so an append is a few buffer puts rather than a system call.
+ *
+ * Layout: a 16-byte header (magic RJNL, version, reserved), then records
+ *
+ *     int bodyLength | body | int crc32(body)
+ *     body = long seq | long timeMillis | byte op | short fieldCount
+ *            | fieldCount x (int byteLength or -1 for null | UTF-8 bytes)
+ *
+ * The file is mapped in REGION_BYTES windows; a record that does not fit in
+ * the current window starts a new one at its offset. Opening an existing
+ * journal scans to the last record whose length and checksum are intact and
+ * cuts off anything after it (a torn write from a crash), so appends resume
+ * with the next sequence number. close() trims the mapped slack.
+ */
+public class MutationJournal implements Closeable {
+    public static final Path DEFAULT_FILE = Paths.get("rentalApp.journal");
+
+    private static final int MAGIC = 0x524A4E4C; // "RJNL"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int REGION_BYTES = 1 << 20;
+    private static final int MAX_RECORD_BYTES = 16 << 20;
+
+    private final Path file;
+    private final FileChannel channel;
+    private MappedByteBuffer region;
+    private long regionStart;
+    private long end;
+    private long lastSeq;
+    private final CRC32 crc = new CRC32();
+
+    private MutationJournal(Path file, FileChannel channel, long end, long lastSeq) throws IOException {
+        this.file = file;
+        this.channel = channel;
+        this.end = end;
+        this.lastSeq = lastSeq;
+        map(end, REGION_BYTES);
+    }
+
+    /** Opens (or creates) a journal and positions it after the last intact record. */
+    public static MutationJournal open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            if (channel.size() < HEADER_BYTES) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+                header.putInt(MAGIC).putInt(VERSION).putLong(0).flip();
+                channel.truncate(0);
+                channel.write(header, 0);
+                channel.force(true);
+            }
+            Scan scan = scan(channel);
+            if (scan.end < channel.size())
+                channel.truncate(scan.end);
+            return new MutationJournal(file, channel, scan.end, scan.lastSeq);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /** Sequence number of the last record appended (0 for an empty journal). */
+    public synchronized long lastSeq() {
+        return lastSeq;
+    }
+
+    /** Appends one record and returns its sequence number. */
+    public synchronized long append(JournalRecord.Op op, String... fields) throws IOException {
+        if (region == null)
+            throw new IOException("Journal is closed");
+        byte[][] encoded = new byte[fields.length][];
+        int bodyLength = 8 + 8 + 1 + 2;
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i] != null)
+                encoded[i] = fields[i].getBytes(StandardCharsets.UTF_8);
+            bodyLength += 4 + (encoded[i] == null ? 0 : encoded[i].length);
+        }
+        if (bodyLength > MAX_RECORD_BYTES)
+            throw new IOException("Journal record too large (" + bodyLength + " bytes)");
+
+        int recordLength = 4 + bodyLength + 4;
+        if (end + recordLength > regionStart + region.capacity())
+            map(end, Math.max(REGION_BYTES, recordLength));
+
+        long seq = lastSeq + 1;
+        int at = (int) (end - regionStart);
+        region.position(at);
+        region.putInt(bodyLength);
+        int bodyAt = region.position();
+        region.putLong(seq).putLong(System.currentTimeMillis()).put((byte) op.code()).putShort((short) fields.length);
+        for (byte[] f : encoded) {
+            if (f == null) {
+                region.putInt(-1);
+            } else {
+                region.putInt(f.length);
+                region.put(f);
+            }
+        }
+        crc.reset();
+        crc.update(region.duplicate().position(bodyAt).limit(bodyAt + bodyLength));
+        region.putInt((int) crc.getValue());
+
+        end += recordLength;
+        lastSeq = seq;
+        return seq;
+    }
+
+    /** Forces appended records to disk. */
+    public synchronized void sync() throws IOException {
+        region.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!channel.isOpen())
+            return;
+        region.force();
+        region = null;
+        channel.truncate(end);
+        channel.close();
+    }
+
+    // ===== reading =====
+
+    /** Every intact record in file order; stops at the first torn or corrupt one. */
+    public static List<JournalRecord> read(Path file) throws IOException {
+        List<JournalRecord> records = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer data = mapForRead(channel);
+            int pos = HEADER_BYTES;
+            ByteBuffer body;
+            while ((body = recordAt(data, pos)) != null) {
+                records.add(decode(body));
+                pos += 4 + body.remaining() + 4;
+            }
+        }
+        return records;
+    }
+
+    private static final class Scan {
+        long end = HEADER_BYTES;
+        long lastSeq;
+    }
+
+    private static Scan scan(FileChannel channel) throws IOException {
+        ByteBuffer data = mapForRead(channel);
+        Scan scan = new Scan();
+        ByteBuffer body;
+        while ((body = recordAt(data, (int) scan.end)) != null) {
+            scan.lastSeq = body.getLong(body.position());
+            scan.end += 4 + body.remaining() + 4;
+        }
+        return scan;
+    }
+
+    private static ByteBuffer mapForRead(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE)
+            throw new IOException("Journal larger than 2 GB; start a new one from a snapshot");
+        ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        if (size < HEADER_BYTES || data.getInt(0) != MAGIC)
+            throw new IOException("Not a rental journal");
+        if (data.getInt(4) != VERSION)
+            throw new IOException("Unsupported journal version " + data.getInt(4));
+        return data;
+    }
+
+    // Body of the record at pos, or null at the end or on a bad length or checksum
+    private static ByteBuffer recordAt(ByteBuffer data, int pos) {
+        if (pos + 4 > data.capacity())
+            return null;
+        int bodyLength = data.getInt(pos);
+        if (bodyLength < 19 || bodyLength > MAX_RECORD_BYTES || (long) pos + 4 + bodyLength + 4 > data.capacity())
+            return null;
+        ByteBuffer body = data.duplicate().position(pos + 4).limit(pos + 4 + bodyLength);
+        CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+        if ((int) crc.getValue() != data.getInt(pos + 4 + bodyLength))
+            return null;
+        return body;
+    }
+
+    private static JournalRecord decode(ByteBuffer body) throws IOException {
+        body = body.slice();
+        long seq = body.getLong();
+        long time = body.getLong();
+        int code = body.get();
+        JournalRecord.Op op = JournalRecord.Op.fromCode(code);
+        if (op == null)
+            throw new IOException("Unknown journal operation code " + code + " at seq " + seq);
+        String[] fields = new String[body.getShort()];
+        for (int i = 0; i < fields.length; i++) {
+            int n = body.getInt();
+            if (n >= 0) {
+                byte[] bytes = new byte[n];
+                body.get(bytes);
+                fields[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+        }
+        return new JournalRecord(seq, time, op, fields);
+    }
+
+    private void map(long start, int bytes) throws IOException {
+        if (region != null)
+            region.force();
+        region = channel.map(FileChannel.MapMode.READ_WRITE, start, bytes);
+        regionStart = start;
+    }
+}
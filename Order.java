@@ -0,0 +1,36 @@
+/** A purchase order (Orders), priced through Order_Price by element type and quantity. */
+public class Order {
+    private long orderNumber;
+    private String elementType;
+    private int quantity;
+    private String estArrDate;
+    private String userID;
+
+    public Order(long orderNumber, String elementType, int quantity, String estArrDate, String userID) {
+        this.orderNumber = orderNumber;
+        this.elementType = elementType;
+        this.quantity = quantity;
+        this.estArrDate = estArrDate;
+        this.userID = userID;
+    }
+
+    public long getOrderNumber() {
+        return orderNumber;
+    }
+
+    public String getElementType() {
+        return elementType;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public String getEstArrDate() {
+        return estArrDate;
+    }
+
+    public String getUserID() {
+        return userID;
+    }
+}
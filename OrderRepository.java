@@ -0,0 +1,9 @@
+import java.sql.SQLException;
+
+/** Purchase orders for new equipment; numbers come from IdGenerator.nextOrderNumber. */
+public interface OrderRepository {
+    /** Throws if the number is taken or Order_Price has no price for the element type and quantity. */
+    void add(Order o) throws SQLException;
+
+    boolean exists(long orderNumber) throws SQLException;
+}
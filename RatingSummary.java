@@ -0,0 +1,55 @@
+/**
+ * Running review totals for one serial number or one equipment type. key is
+ * the serial (per-item summaries) or the type (per-type summaries).
+ */
+public class RatingSummary {
+    private final String key;
+    private final String type;
+    private final double ratingSum;
+    private final int ratingCount;
+    private final double maxRating;
+
+    public RatingSummary(String key, String type, double ratingSum, int ratingCount, double maxRating) {
+        this.key = key;
+        this.type = type;
+        this.ratingSum = ratingSum;
+        this.ratingCount = ratingCount;
+        this.maxRating = maxRating;
+    }
+
+    /** Summary after one more review. */
+    public RatingSummary plus(double rating) {
+        return new RatingSummary(key, type, ratingSum + rating, ratingCount + 1,
+                ratingCount == 0 ? rating : Math.max(maxRating, rating));
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public double getRatingSum() {
+        return ratingSum;
+    }
+
+    public int getRatingCount() {
+        return ratingCount;
+    }
+
+    public double getMaxRating() {
+        return maxRating;
+    }
+
+    public double getAvgRating() {
+        return ratingCount == 0 ? 0 : ratingSum / ratingCount;
+    }
+
+    @Override
+    public String toString() {
+        return key + " | avg=" + String.format("%.2f", getAvgRating()) + " | max=" + maxRating +
+                " | reviews=" + ratingCount;
+    }
+}
@@ -0,0 +1,50 @@
+public class Rental {
+    private String checkOutID;
+    private String serialNum;
+    private String userID;
+    private String dueDate;
+    private double rentalFees;
+    private boolean returned;
+
+    public Rental(String checkOutID, String serialNum, String userID, String dueDate, double rentalFees,
+            boolean returned) {
+        this.checkOutID = checkOutID;
+        this.serialNum = serialNum;
+        this.userID = userID;
+        this.dueDate = dueDate;
+        this.rentalFees = rentalFees;
+        this.returned = returned;
+    }
+
+    public Rental copy() {
+        return new Rental(checkOutID, serialNum, userID, dueDate, rentalFees, returned);
+    }
+
+    public String getCheckOutID() {
+        return checkOutID;
+    }
+
+    public String getSerialNum() {
+        return serialNum;
+    }
+
+    public String getUserID() {
+        return userID;
+    }
+
+    public String getDueDate() {
+        return dueDate;
+    }
+
+    public double getRentalFees() {
+        return rentalFees;
+    }
+
+    public boolean isReturned() {
+        return returned;
+    }
+
+    public void setReturned(boolean returned) {
+        this.returned = returned;
+    }
+}
@@ -1,5 +1,12 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.sql.*;
 import java.time.LocalDate;
+import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Scanner;
 import java.util.InputMismatchException;
 
@@ -12,19 +19,144 @@ public class RentalAppConnected {
      * This ensures that malicious input is safely escaped and treated as literal
      * data.
      */
-    private static Scanner input = new Scanner(System.in);
 
+    // Per-session state: each console or TCP client gets its own instance
+    private final Scanner input;
+    private final PrintStream out;
+    private final PrintStream err;
+
+    // Storage behind the menus (SQLite here, in-memory when started from RentalApp)
+    private final Repositories repos;
+
+    // Rental-count reports add archived history when on (Reports menu toggle)
+    private boolean includeArchived = false;
+
+    // Interval index over reservations and open rentals, loaded on first use
+    // and shared by every session in the JVM
+    private static AvailabilityCalendar calendar;
+
+    // Grid index over warehouse coordinates, loaded on first use and shared
+    private static WarehouseIndex warehouses;
+
+    // Deliveries and pickups are flown from warehouses within this distance
+    static final double DELIVERY_RADIUS_MILES = 20;
+
+    // Group commit defaults: close a batch at 64 writes or 5 ms after its first
+    private static final int GROUP_COMMIT_BATCH = 64;
+    private static final long GROUP_COMMIT_DELAY_MS = 5;
+
+    // Rows kept per table by the equipment / drone / model cache
+    static final int CATALOG_CACHE_SIZE = 1000;
+
+    /**
+     * Options: --group-commit[=maxBatch,maxDelayMillis] batches writes into
+     * shared transactions (also enabled by -Drental.groupCommit=true).
+     * --shards[=dir] keeps each warehouse's equipment, drones, rentals and
+     * transports in its own file under dir (default shards/; see Shards).
+     * Every change is recorded in rentalApp.journal (see JournalReplay).
+     */
     public static void main(String[] args) {
+        if (!configure(args))
+            return;
+
+        CachedRepositories repos = Repositories.cached(Repositories.sqlite(), CATALOG_CACHE_SIZE);
+        MutationJournal journal = openJournal();
+        if (journal == null)
+            return;
+        run(Repositories.journaled(repos, journal));
+
+        closeJournal(journal);
+        String stats = Database.groupCommitStats();
+        String pools = Database.poolStats();
+        Database.shutdown();
+        if (stats != null)
+            System.out.println("Group commit: " + stats);
+        if (pools != null)
+            System.out.println("Connections: " + pools.replace("\n", "\n             "));
+        System.out.println("Cache: " + repos.cacheStats().replace("\n", "\n       "));
+        System.out.println("       " + Reports.cacheStats().replace("\n", "\n       "));
+    }
+
+    // Applies the storage options shared with RentalServer; false on a bad value
+    static boolean configure(String[] args) {
+        for (String arg : args) {
+            if (arg.equals("--group-commit")) {
+                Database.enableGroupCommit(GROUP_COMMIT_BATCH, GROUP_COMMIT_DELAY_MS);
+            } else if (arg.startsWith("--group-commit=")) {
+                String[] parts = arg.substring("--group-commit=".length()).split(",");
+                try {
+                    Database.enableGroupCommit(Integer.parseInt(parts[0].trim()),
+                            parts.length > 1 ? Long.parseLong(parts[1].trim()) : GROUP_COMMIT_DELAY_MS);
+                } catch (NumberFormatException e) {
+                    System.err.println("Invalid --group-commit value: " + arg);
+                    return false;
+                }
+            } else if (arg.equals("--shards") || arg.startsWith("--shards=")) {
+                String dir = arg.startsWith("--shards=") ? arg.substring("--shards=".length()) : null;
+                try {
+                    Database.enableShards(dir == null ? Shards.DEFAULT_DIR : Paths.get(dir));
+                } catch (SQLException e) {
+                    System.err.println("Shard error: " + e.getMessage());
+                    return false;
+                }
+            }
+        }
+        if (Boolean.getBoolean("rental.groupCommit"))
+            Database.enableGroupCommit(GROUP_COMMIT_BATCH, GROUP_COMMIT_DELAY_MS);
+        return true;
+    }
+
+    // The mutation journal shared with RentalServer; null (reported) when it cannot be opened
+    static MutationJournal openJournal() {
+        try {
+            return MutationJournal.open(MutationJournal.DEFAULT_FILE);
+        } catch (IOException e) {
+            System.err.println("Journal error: " + e.getMessage());
+            return null;
+        }
+    }
+
+    static void closeJournal(MutationJournal journal) {
+        try {
+            journal.close();
+        } catch (IOException e) {
+            System.err.println("Journal error: " + e.getMessage());
+        }
+    }
+
+    public RentalAppConnected(Repositories repos, InputStream in, PrintStream out, PrintStream err) {
+        this.repos = repos;
+        this.input = new Scanner(in);
+        this.out = out;
+        this.err = err;
+    }
+
+    // Runs the menus against the given storage on the console until the user exits
+    public static void run(Repositories repositories) {
+        new RentalAppConnected(repositories, System.in, System.out, System.err).run();
+    }
+
+    // Runs this session's menus until the user exits or the input ends
+    public void run() {
+        try {
+            mainMenu();
+        } catch (NoSuchElementException e) {
+            // Input closed (EOF or client disconnected): end the session
+        }
+        input.close();
+    }
+
+    private void mainMenu() {
         boolean running = true;
         while (running) {
-            System.out.println("\n===== MAIN MENU =====");
-            System.out.println("1. Manage Members");
-            System.out.println("2. Manage Equipment");
-            System.out.println("3. Manage Drones");
-            System.out.println("4. Rentals & Deliveries");
-            System.out.println("5. Reports");
-            System.out.println("6. Exit");
-            System.out.print("Choose an option: ");
+            out.println("\n===== MAIN MENU =====");
+            out.println("1. Manage Members");
+            out.println("2. Manage Equipment");
+            out.println("3. Manage Drones");
+            out.println("4. Rentals & Deliveries");
+            out.println("5. Reports");
+            out.println("6. Exit");
+            out.print("Choose an option: ");
             int choice = getIntInput();
 
             switch (choice) {
@@ -41,18 +173,19 @@ public class RentalAppConnected {
                     rentalsMenu();
                     break;
                 case 5:
-                    reportsMenu();
+                    if (repos.isPersistent())
+                        reportsMenu();
+                    else
+                        out.println("Reports need the database (run RentalAppConnected).");
                     break;
                 case 6:
                     running = false;
-                    System.out.println("Exiting. Goodbye!");
+                    out.println("Exiting. Goodbye!");
                     break;
                 default:
-                    System.out.println("Invalid option.");
+                    out.println("Invalid option.");
             }
         }
-
-        input.close();
     }
 
     // ==========================================================
@@ -62,13 +195,13 @@ public class RentalAppConnected {
     /**
      * Forces input until a valid integer is provided
      */
-    private static int getIntInput() {
+    private int getIntInput() {
         while (true) {
             try {
                 String line = input.nextLine();
                 return Integer.parseInt(line.trim());
             } catch (NumberFormatException e) {
-                System.out.print("Please enter a valid number: ");
+                out.print("Please enter a valid number: ");
             }
         }
     }
@@ -76,13 +209,13 @@ public class RentalAppConnected {
     /**
      * Forces input until a non-empty, trimmed string is provided.
      */
-    private static String getStringInput(String prompt) {
+    private String getStringInput(String prompt) {
         String inputStr = "";
         while (inputStr.trim().isEmpty()) {
-            System.out.print(prompt);
+            out.print(prompt);
             inputStr = input.nextLine().trim();
             if (inputStr.isEmpty()) {
-                System.out.println("Input cannot be empty. Please enter a value.");
+                out.println("Input cannot be empty. Please enter a value.");
             }
         }
         return inputStr;
@@ -91,13 +224,13 @@ public class RentalAppConnected {
     /**
      * Forces input until a valid double is provided.
      */
-    private static double getDoubleInput() {
+    private double getDoubleInput() {
         while (true) {
             try {
                 String line = input.nextLine();
                 return Double.parseDouble(line.trim());
             } catch (NumberFormatException e) {
-                System.out.print("Please enter a valid numeric value: ");
+                out.print("Please enter a valid numeric value: ");
             }
         }
     }
@@ -105,7 +238,7 @@ public class RentalAppConnected {
     /**
      * Forces input until a valid integer year is provided.
      */
-    private static int getYearInput() {
+    private int getYearInput() {
         while (true) {
             try {
                 String line = input.nextLine();
@@ -113,44 +246,38 @@ public class RentalAppConnected {
                 if (year > 1900 && year <= LocalDate.now().getYear() + 5) { // Simple validation
                     return year;
                 } else {
-                    System.out.print("Please enter a realistic year (e.g., 2024): ");
+                    out.print("Please enter a realistic year (e.g., 2024): ");
                 }
             } catch (NumberFormatException e) {
-                System.out.print("Please enter a valid numeric year: ");
+                out.print("Please enter a valid numeric year: ");
             }
         }
     }
 
-    // Generic Existence Check Helper
-    private static boolean checkExistence(String table, String column, String value) {
-        String sql = "SELECT " + column + " FROM " + table + " WHERE " + column + " = ?;";
-        try (Connection conn = Database.getConnection();
-                PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, value);
-            try (ResultSet rs = ps.executeQuery()) {
-                return rs.next();
-            }
-        } catch (SQLException e) {
-            System.err.println("Database check error: " + e.getMessage());
-            return false;
-        }
+    /**
+     * Optional input: the trimmed line, or null when left blank.
+     */
+    private String getOptionalInput(String prompt) {
+        out.print(prompt);
+        String line = input.nextLine().trim();
+        return line.isEmpty() ? null : line;
     }
 
     // ==========================================================
     // --- 1. MEMBER MANAGEMENT
     // ==========================================================
 
-    private static void membersMenu() {
+    private void membersMenu() {
         boolean back = false;
         while (!back) {
-            System.out.println("\n--- MEMBERS MENU ---");
-            System.out.println("1. Add Member");
-            System.out.println("2. Edit Member");
-            System.out.println("3. Delete Member");
-            System.out.println("4. Search Member (Retrieve)");
-            System.out.println("5. View All Members (Retrieve)");
-            System.out.println("6. Back");
-            System.out.print("Choose: ");
+            out.println("\n--- MEMBERS MENU ---");
+            out.println("1. Add Member");
+            out.println("2. Edit Member");
+            out.println("3. Delete Member");
+            out.println("4. Search Member (Retrieve)");
+            out.println("5. View All Members (Retrieve)");
+            out.println("6. Back");
+            out.print("Choose: ");
             int c = getIntInput();
             switch (c) {
                 case 1:
@@ -172,13 +299,13 @@ public class RentalAppConnected {
                     back = true;
                     break;
                 default:
-                    System.out.println("Invalid.");
+                    out.println("Invalid.");
             }
         }
     }
 
-    private static void addMember() {
-        System.out.println("--- Adding New Member (All fields mandatory) ---");
+    private void addMember() {
+        out.println("--- Adding New Member (All fields mandatory) ---");
         String userID = getStringInput("Enter userID (unique): ");
         String fname = getStringInput("Enter first name: ");
         String lname = getStringInput("Enter last name: ");
@@ -186,204 +313,158 @@ public class RentalAppConnected {
         String phone = getStringInput("Enter phone: ");
         String email = getStringInput("Enter email: ");
 
-        System.out.print("Enter warehouse distance (numeric, mandatory): ");
-        double dist = getDoubleInput();
+        // Distance to the nearest warehouse, when the address can be located
+        GeoPoint location = locateAddress(addr);
+        double dist = nearestWarehouseMiles(location);
+        if (dist < 0) {
+            out.print("Enter warehouse distance (numeric, mandatory): ");
+            dist = getDoubleInput();
+        }
 
         String startDate = LocalDate.now().toString();
 
-        String sql = "INSERT INTO members(userID, fname, lname, address, phone, email, startDate, warehouseDistance) " +
-                "VALUES(?,?,?,?,?,?,?,?);";
-
-        try (Connection conn = Database.getConnection();
-                PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, userID);
-            ps.setString(2, fname);
-            ps.setString(3, lname);
-            ps.setString(4, addr);
-            ps.setString(5, phone);
-            ps.setString(6, email);
-            ps.setString(7, startDate);
-            ps.setDouble(8, dist);
-
-            ps.executeUpdate();
-            System.out.println("Member added. startDate set to " + startDate);
+        try {
+            // The member and its address location are saved together
+            repos.members().add(new Member(userID, fname, lname, addr, phone, email, startDate, dist), location);
+            out.println("Member added. startDate set to " + startDate);
         } catch (SQLException e) {
-            System.err.println("Error adding member: " + e.getMessage());
+            err.println("Error adding member: " + e.getMessage());
         }
     }
 
-    private static void editMember() {
-        System.out.print("Enter userID of member to edit: ");
+    private void editMember() {
+        out.print("Enter userID of member to edit: ");
         String userID = input.nextLine().trim();
 
-        // Safety check (retrieve)
-        if (!checkExistence("members", "userID", userID)) {
-            System.out.println("Member not found.");
-            return;
-        }
-
-        System.out.println("Enter new values (leave blank to keep current, you can't unset a value):");
-        System.out.print("New first name: ");
-        String fname = input.nextLine();
-        System.out.print("New last name: ");
-        String lname = input.nextLine();
-        System.out.print("New address: ");
-        String addr = input.nextLine();
-        System.out.print("New phone: ");
-        String phone = input.nextLine();
-        System.out.print("New email: ");
-        String email = input.nextLine();
-
-        StringBuilder sb = new StringBuilder("UPDATE members SET ");
-        boolean first = true;
-        if (!fname.isEmpty()) {
-            sb.append("fname = ?");
-            first = false;
-        }
-        if (!lname.isEmpty()) {
-            if (!first)
-                sb.append(", ");
-            sb.append("lname = ?");
-            first = false;
-        }
-        if (!addr.isEmpty()) {
-            if (!first)
-                sb.append(", ");
-            sb.append("address = ?");
-            first = false;
-        }
-        if (!phone.isEmpty()) {
-            if (!first)
-                sb.append(", ");
-            sb.append("phone = ?");
-            first = false;
-        }
-        if (!email.isEmpty()) {
-            if (!first)
-                sb.append(", ");
-            sb.append("email = ?");
-            first = false;
-        }
-
-        if (first) {
-            System.out.println("No changes entered.");
-            return;
-        }
-        sb.append(" WHERE userID = ?;");
+        try {
+            // Safety check (retrieve)
+            Member m = repos.members().find(userID);
+            if (m == null) {
+                out.println("Member not found.");
+                return;
+            }
 
-        try (Connection conn = Database.getConnection();
-                PreparedStatement ps = conn.prepareStatement(sb.toString())) {
-            int idx = 1;
+            out.println("Enter new values (leave blank to keep current, you can't unset a value):");
+            out.print("New first name: ");
+            String fname = input.nextLine();
+            out.print("New last name: ");
+            String lname = input.nextLine();
+            out.print("New address: ");
+            String addr = input.nextLine();
+            out.print("New phone: ");
+            String phone = input.nextLine();
+            out.print("New email: ");
+            String email = input.nextLine();
+
+            if (fname.isEmpty() && lname.isEmpty() && addr.isEmpty() && phone.isEmpty() && email.isEmpty()) {
+                out.println("No changes entered.");
+                return;
+            }
             if (!fname.isEmpty())
-                ps.setString(idx++, fname);
+                m.setFname(fname);
             if (!lname.isEmpty())
-                ps.setString(idx++, lname);
-            if (!addr.isEmpty())
-                ps.setString(idx++, addr);
+                m.setLname(lname);
+            GeoPoint location = null;
+            if (!addr.isEmpty()) {
+                m.setAddress(addr);
+                location = locateAddress(addr);
+                double dist = nearestWarehouseMiles(location);
+                if (dist >= 0)
+                    m.setWarehouseDistance(dist);
+            }
             if (!phone.isEmpty())
-                ps.setString(idx++, phone);
+                m.setPhone(phone);
             if (!email.isEmpty())
-                ps.setString(idx++, email);
-            ps.setString(idx, userID);
-            int updated = ps.executeUpdate();
-            System.out.println("Updated rows: " + updated);
+                m.setEmail(email);
+
+            boolean updated = repos.members().update(m, location);
+            out.println("Updated rows: " + (updated ? 1 : 0));
         } catch (SQLException e) {
-            System.err.println("Update error: " + e.getMessage());
+            err.println("Update error: " + e.getMessage());
         }
     }
 
-    private static void deleteMember() {
-        System.out.print("Enter userID to delete: ");
+    private void deleteMember() {
+        out.print("Enter userID to delete: ");
         String userID = input.nextLine().trim();
 
-        String sql = "DELETE FROM members WHERE userID = ?;";
-        try (Connection conn = Database.getConnection();
-                PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, userID);
-            int del = ps.executeUpdate();
-            System.out.println("Deleted rows: " + del);
+        try {
+            boolean deleted = repos.members().delete(userID);
+            out.println("Deleted rows: " + (deleted ? 1 : 0));
         } catch (SQLException e) {
-            System.err.println("Delete error (Check for foreign key constraints): " + e.getMessage());
+            err.println("Delete error (Check for foreign key constraints): " + e.getMessage());
         }
     }
 
-    private static void searchMember() {
-        System.out.println("Search by: 1) userID  2) last name");
+    private void searchMember() {
+        out.println("Search by: 1) userID  2) last name  3) partial last name");
         int choice = getIntInput();
-        String sql = "";
-        String param = "";
-
-        if (choice == 1) {
-            System.out.print("Enter userID: ");
-            param = input.nextLine().trim();
-            sql = "SELECT * FROM members WHERE userID = ?;";
-        } else if (choice == 2) {
-            System.out.print("Enter last name (partial allowed): ");
-            param = "%" + input.nextLine().trim() + "%";
-            sql = "SELECT * FROM members WHERE lname LIKE ?;";
-        } else {
-            System.out.println("Invalid.");
-            return;
-        }
 
-        try (Connection conn = Database.getConnection();
-                PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, param);
-            try (ResultSet rs = ps.executeQuery()) {
-                boolean found = false;
-                while (rs.next()) {
-                    printMemberRow(rs);
-                    found = true;
-                }
-                if (!found)
-                    System.out.println("No members found.");
+        try {
+            List<Member> found;
+            if (choice == 1) {
+                out.print("Enter userID: ");
+                Member m = repos.members().find(input.nextLine().trim());
+                found = m == null ? List.of() : List.of(m);
+            } else if (choice == 2) {
+                out.print("Enter last name: ");
+                found = repos.members().findByExactLastName(input.nextLine().trim());
+            } else if (choice == 3) {
+                out.print("Enter part of the last name: ");
+                found = repos.members().findByLastName(input.nextLine().trim());
+            } else {
+                out.println("Invalid.");
+                return;
             }
+
+            for (Member m : found)
+                printMemberRow(m);
+            if (found.isEmpty())
+                out.println("No members found.");
         } catch (SQLException e) {
-            System.err.println("Search error: " + e.getMessage());
+            err.println("Search error: " + e.getMessage());
         }
     }
 
-    private static void viewAllMembers() {
-        String sql = "SELECT * FROM members ORDER BY lname, fname;";
-        try (Connection conn = Database.getConnection();
-                PreparedStatement ps = conn.prepareStatement(sql);
-                ResultSet rs = ps.executeQuery()) {
-            boolean any = false;
-            while (rs.next()) {
-                printMemberRow(rs);
-                any = true;
-            }
-            if (!any)
-                System.out.println("No members.");
+    private void viewAllMembers() {
+        try {
+            List<Member> all = repos.members().findAll();
+            for (Member m : all)
+                printMemberRow(m);
+            if (all.isEmpty())
+                out.println("No members.");
         } catch (SQLException e) {
-            System.err.println("Error viewing all members: " + e.getMessage());
+            err.println("Error viewing all members: " + e.getMessage());
         }
     }
 
-    private static void printMemberRow(ResultSet rs) throws SQLException {
-        System.out.println(
-                "userID=" + rs.getString("userID") +
-                        " | Name=" + rs.getString("fname") + " " + rs.getString("lname") +
-                        " | addr=" + rs.getString("address") +
-                        " | email=" + rs.getString("email") +
-                        " | Dist=" + rs.getDouble("warehouseDistance"));
+    private void printMemberRow(Member m) {
+        out.println(
+                "userID=" + m.getUserID() +
+                        " | Name=" + m.getFname() + " " + m.getLname() +
+                        " | addr=" + m.getAddress() +
+                        " | email=" + m.getEmail() +
+                        " | Dist=" + m.getWarehouseDistance());
     }
 
     // ==========================================================
     // 2. EQUIPMENT MANAGEMENT
     // ==========================================================
 
-    private static void equipmentMenu() {
+    private void equipmentMenu() {
         boolean back = false;
         while (!back) {
-            System.out.println("\n--- EQUIPMENT MENU ---");
-            System.out.println("1. Add Equipment");
-            System.out.println("2. Edit Equipment");
-            System.out.println("3. Delete Equipment");
-            System.out.println("4. Search Equipment (Retrieve)");
-            System.out.println("5. View All Equipment (Retrieve)");
-            System.out.println("6. Back");
-            System.out.print("Choose: ");
+            out.println("\n--- EQUIPMENT MENU ---");
+            out.println("1. Add Equipment");
+            out.println("2. Edit Equipment");
+            out.println("3. Delete Equipment");
+            out.println("4. Search Equipment (Retrieve)");
+            out.println("5. View All Equipment (Retrieve)");
+            out.println("6. Add Review");
+            out.println("7. Ratings (Best Rated by Type)");
+            out.println("8. Mass Update");
+            out.println("9. Back");
+            out.print("Choose: ");
             int c = getIntInput();
             switch (c) {
                 case 1:
@@ -402,221 +483,358 @@ public class RentalAppConnected {
                     viewAllEquipment();
                     break;
                 case 6:
+                    addReview();
+                    break;
+                case 7:
+                    viewRatings();
+                    break;
+                case 8:
+                    massUpdateEquipment();
+                    break;
+                case 9:
                     back = true;
                     break;
                 default:
-                    System.out.println("Invalid.");
+                    out.println("Invalid.");
             }
         }
     }
 
-    private static void addEquipment() {
-        System.out.println("--- Adding New Equipment (All fields mandatory) ---");
+    private void addEquipment() {
+        out.println("--- Adding New Equipment (All fields mandatory) ---");
 
         String serial = getStringInput("Enter serialNum (unique): ");
         String desc = getStringInput("Description: ");
         String type = getStringInput("Type: ");
         String model = getStringInput("Model: ");
 
-        System.out.print("Year (numeric): ");
+        out.print("Year (numeric): ");
         int year = getYearInput();
 
-        System.out.print("Enter warehouseID (numeric): ");
+        out.print("Enter warehouseID (numeric): ");
         int wid = getIntInput();
 
         String wAddr = getStringInput("Enter warehouse address: ");
-        String orderNum = getStringInput("Enter Purchase Order Number (orderNum - string): ");
+        String orderNum = getOptionalInput("Enter Purchase Order Number (blank to place a new order): ");
+        String element = null;
+        String estArrival = null;
+        String buyer = null;
+        if (orderNum == null) {
+            element = getStringInput("Order element type (Order_Price): ");
+            estArrival = getStringInput("Estimated arrival date (YYYY-MM-DD): ");
+            buyer = getStringInput("Ordered by userID: ");
+        }
         String location = getStringInput("Enter Equipment Location: ");
         String warExp = getStringInput("Enter Warranty Expiration Date (YYYY-MM-DD): ");
 
-        // Fields: serialNum, description, type, model, year, status, warehouseID,
-        // warehouseAddress, orderNum, location, warExp, renterID
-        String sql = "INSERT INTO equipment(serialNum, description, type, model, year, status, warehouseID, warehouseAddress, orderNum, location, warExp, renterID) VALUES(?,?,?,?,?,?,?,?,?,?,?,?);";
-
-        try (Connection conn = Database.getConnection();
-                PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, serial);
-            ps.setString(2, desc);
-            ps.setString(3, type);
-            ps.setString(4, model);
-            ps.setInt(5, year);
-            ps.setString(6, "AVAILABLE"); // Default status
-            ps.setInt(7, wid); // Mandatory int
-            ps.setString(8, wAddr); // Mandatory string
-            ps.setString(9, orderNum); // Mandatory string/numeric
-            ps.setString(10, location); // Mandatory string
-            ps.setString(11, warExp); // Mandatory string
-            ps.setString(12, "0"); // Placeholder non-null value for renterID (unrented)
-
-            ps.executeUpdate();
-            System.out.println("Equipment added.");
-        } catch (SQLException e) {
-            System.err.println("Add equipment error: " + e.getMessage());
+        boolean placed = false;
+        try {
+            if (orderNum == null) {
+                // Generated rather than typed, so concurrent clerks never clash
+                Order order = new Order(IdGenerator.nextOrderNumber(repos), element, 1, estArrival, buyer);
+                repos.orders().add(order);
+                orderNum = String.valueOf(order.getOrderNumber());
+                placed = true;
+                out.println("Order " + orderNum + " placed.");
+            } else if (!orderExists(orderNum)) {
+                out.println("Error: No purchase order " + orderNum + ".");
+                return;
+            }
+
+            // New equipment starts AVAILABLE, with the placeholder renterID "0" (unrented)
+            repos.equipment().add(new Equipment(serial, desc, type, model, year, EquipmentStatus.AVAILABLE, wid,
+                    wAddr, orderNum, location, warExp, "0"));
+            out.println("Equipment added.");
+        } catch (SQLException ex) {
+            err.println("Add equipment error: " + ex.getMessage() +
+                    (placed ? " (order " + orderNum + " was placed; give its number to retry)" : ""));
         }
     }
 
-    private static void editEquipment() {
-        System.out.print("Enter serialNum of equipment to edit: ");
-        String serial = input.nextLine().trim();
-
-        if (!checkExistence("equipment", "serialNum", serial)) {
-            System.out.println("Equipment not found.");
-            return;
+    private boolean orderExists(String orderNum) throws SQLException {
+        try {
+            return repos.orders().exists(Long.parseLong(orderNum));
+        } catch (NumberFormatException e) {
+            return false;
         }
+    }
 
-        System.out.println("Enter new values (leave blank to keep current):");
-        System.out.print("New description: ");
-        String desc = input.nextLine();
-        System.out.print("New type: ");
-        String type = input.nextLine();
-        System.out.print("New model: ");
-        String model = input.nextLine();
-        System.out.print("New status (e.g., AVAILABLE, RENTED, LOST): ");
-        String status = input.nextLine();
+    private void editEquipment() {
+        out.print("Enter serialNum of equipment to edit: ");
+        String serial = input.nextLine().trim();
 
-        StringBuilder sb = new StringBuilder("UPDATE equipment SET ");
-        boolean first = true;
+        try {
+            Equipment e = repos.equipment().find(serial);
+            if (e == null) {
+                out.println("Equipment not found.");
+                return;
+            }
 
-        if (!desc.isEmpty()) {
-            sb.append("description = ?");
-            first = false;
-        }
-        if (!type.isEmpty()) {
-            if (!first)
-                sb.append(", ");
-            sb.append("type = ?");
-            first = false;
-        }
-        if (!model.isEmpty()) {
-            if (!first)
-                sb.append(", ");
-            sb.append("model = ?");
-            first = false;
-        }
-        if (!status.isEmpty()) {
-            if (!first)
-                sb.append(", ");
-            sb.append("status = ?");
-            first = false;
-        }
-
-        if (first) {
-            System.out.println("No changes entered.");
-            return;
-        }
-        sb.append(" WHERE serialNum = ?;");
+            out.println("Enter new values (leave blank to keep current):");
+            out.print("New description: ");
+            String desc = input.nextLine();
+            out.print("New type: ");
+            String type = input.nextLine();
+            out.print("New model: ");
+            String model = input.nextLine();
+            out.print("New status (" + EquipmentStatus.names() + "): ");
+            String status = input.nextLine();
+            EquipmentStatus newStatus = null;
+            if (!status.isEmpty()) {
+                newStatus = EquipmentStatus.parse(status);
+                if (newStatus == null) {
+                    out.println("Unknown status '" + status + "'. No changes made.");
+                    return;
+                }
+            }
 
-        try (Connection conn = Database.getConnection();
-                PreparedStatement ps = conn.prepareStatement(sb.toString())) {
-            int idx = 1;
+            if (desc.isEmpty() && type.isEmpty() && model.isEmpty() && newStatus == null) {
+                out.println("No changes entered.");
+                return;
+            }
+            // Same rule as the mass update: only checkout and return move an item in or out of RENTED
+            if (newStatus != null && newStatus != e.getStatus()) {
+                if (newStatus == EquipmentStatus.RENTED) {
+                    out.println("RENTED is set by checkout, not by an edit. No changes made.");
+                    return;
+                }
+                if (e.getStatus() == EquipmentStatus.RENTED) {
+                    out.println("Item is rented out; check it in first. No changes made.");
+                    return;
+                }
+            }
             if (!desc.isEmpty())
-                ps.setString(idx++, desc);
+                e.setDescription(desc);
             if (!type.isEmpty())
-                ps.setString(idx++, type);
+                e.setType(type);
             if (!model.isEmpty())
-                ps.setString(idx++, model);
-            if (!status.isEmpty())
-                ps.setString(idx++, status);
-            ps.setString(idx, serial);
-            int updated = ps.executeUpdate();
-            System.out.println("Updated rows: " + updated);
+                e.setModel(model);
+            if (newStatus != null)
+                e.setStatus(newStatus);
+
+            boolean updated = repos.equipment().update(e);
+            out.println("Updated rows: " + (updated ? 1 : 0));
+        } catch (SQLException ex) {
+            err.println("Update error: " + ex.getMessage());
+        }
+    }
+
+    // MASS UPDATE: one set-based UPDATE for every item matching the filters, after a preview count
+    private void massUpdateEquipment() {
+        out.println("--- Mass Update Equipment ---");
+        out.println("Filters (leave blank to match any):");
+        MassUpdate u = new MassUpdate();
+        u.setWarehouseAddress(getOptionalInput("Warehouse address: "));
+        u.setType(getOptionalInput("Type: "));
+        u.setModel(getOptionalInput("Model: "));
+        if (!readYearFilter(u))
+            return;
+        String status = getOptionalInput("Status (" + EquipmentStatus.names() + "): ");
+        if (status != null) {
+            EquipmentStatus parsed = EquipmentStatus.parse(status);
+            if (parsed == null) {
+                out.println("Unknown status '" + status + "'. No changes made.");
+                return;
+            }
+            u.setStatus(parsed.name());
+        }
+
+        out.println("New values (leave blank to keep current):");
+        u.setNewWarehouseAddress(getOptionalInput("New warehouse address: "));
+        u.setNewType(getOptionalInput("New type: "));
+        u.setNewModel(getOptionalInput("New model: "));
+        String newStatus = getOptionalInput("New status (" + EquipmentStatus.names() + "): ");
+        if (newStatus != null) {
+            EquipmentStatus parsed = EquipmentStatus.parse(newStatus);
+            if (parsed == null) {
+                out.println("Unknown status '" + newStatus + "'. No changes made.");
+                return;
+            }
+            u.setNewStatus(parsed.name());
+        }
+
+        try {
+            if (!confirmMassUpdate(u, repos.equipment().count(u), "item(s)"))
+                return;
+            out.println("Updated rows: " + repos.equipment().updateAll(u));
         } catch (SQLException e) {
-            System.err.println("Update error: " + e.getMessage());
+            err.println("Mass update error: " + e.getMessage());
+        }
+    }
+
+    private boolean readYearFilter(MassUpdate u) {
+        String year = getOptionalInput("Year: ");
+        if (year == null)
+            return true;
+        try {
+            u.setYear(Integer.parseInt(year));
+            return true;
+        } catch (NumberFormatException e) {
+            out.println("Year must be numeric. No changes made.");
+            return false;
         }
     }
 
-    private static void deleteEquipment() {
-        System.out.print("Enter serialNum of equipment to delete: ");
+    // Shows how many rows the update would change and asks before applying it
+    private boolean confirmMassUpdate(MassUpdate u, int matching, String rows) {
+        if (!u.hasChanges()) {
+            out.println("No changes entered.");
+            return false;
+        }
+        if (matching == 0) {
+            out.println("No matching " + rows + ".");
+            return false;
+        }
+        out.print(matching + " " + rows + " will be updated. Apply? (y/n): ");
+        if (!input.nextLine().trim().equalsIgnoreCase("y")) {
+            out.println("Cancelled. No changes made.");
+            return false;
+        }
+        return true;
+    }
+
+    private void deleteEquipment() {
+        out.print("Enter serialNum of equipment to delete: ");
         String serial = input.nextLine().trim();
 
-        String sql = "DELETE FROM equipment WHERE serialNum = ?;";
-        try (Connection conn = Database.getConnection();
-                PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, serial);
-            int del = ps.executeUpdate();
-            System.out.println("Deleted rows: " + del);
+        try {
+            boolean deleted = repos.equipment().delete(serial);
+            out.println("Deleted rows: " + (deleted ? 1 : 0));
         } catch (SQLException e) {
-            System.err.println("Delete error (Check for foreign key constraints): " + e.getMessage());
+            err.println("Delete error (Check for foreign key constraints): " + e.getMessage());
         }
     }
 
-    private static void searchEquipment() {
-        System.out.println("Search by: 1) SerialNum  2) Type");
-        int choice = getIntInput();
-        String sql = "";
-        String param = "";
-
-        if (choice == 1) {
-            System.out.print("Enter SerialNum: ");
-            param = input.nextLine().trim();
-            sql = "SELECT * FROM equipment WHERE serialNum = ?;";
-        } else if (choice == 2) {
-            System.out.print("Enter Type (partial allowed): ");
-            param = "%" + input.nextLine().trim() + "%";
-            sql = "SELECT * FROM equipment WHERE type LIKE ?;";
-        } else {
-            System.out.println("Invalid.");
+    private void addReview() {
+        out.println("--- Add Review (All fields mandatory) ---");
+        String serial = getStringInput("Enter equipment serialNum: ");
+        String userID = getStringInput("Enter reviewer userID: ");
+        String comments = getStringInput("Comments: ");
+        out.print("Rating (1-5): ");
+        double rating = getDoubleInput();
+        if (rating < 1 || rating > 5) {
+            out.println("Rating must be between 1 and 5.");
             return;
         }
 
-        try (Connection conn = Database.getConnection();
-                PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, param);
-            try (ResultSet rs = ps.executeQuery()) {
-                boolean found = false;
-                while (rs.next()) {
-                    printEquipmentRow(rs);
-                    found = true;
-                }
-                if (!found)
-                    System.out.println("No equipment found.");
+        try {
+            repos.reviews().add(new Review(serial, userID, comments, rating));
+            out.println("Review added. Item now: " + repos.reviews().findSummary(serial));
+        } catch (SQLException e) {
+            err.println("Error adding review: " + e.getMessage());
+        }
+    }
+
+    // Reads the maintained summaries only; Reviews is never re-aggregated
+    private void viewRatings() {
+        out.print("Enter type for best-rated items (blank for all types): ");
+        String type = input.nextLine().trim();
+        try {
+            if (type.isEmpty()) {
+                List<RatingSummary> types = repos.reviews().findTypeSummaries();
+                if (types.isEmpty())
+                    out.println("No reviews yet.");
+                for (RatingSummary t : types)
+                    out.println("type=" + t);
+                return;
+            }
+            RatingSummary total = repos.reviews().findTypeSummary(type);
+            if (total == null) {
+                out.println("No reviews for type: " + type);
+                return;
             }
+            out.println("--- " + type + ": avg=" + String.format("%.2f", total.getAvgRating()) + " over " +
+                    total.getRatingCount() + " reviews ---");
+            for (RatingSummary r : repos.reviews().findBestRated(type, 5))
+                out.println("   serial=" + r);
         } catch (SQLException e) {
-            System.err.println("Search error: " + e.getMessage());
+            err.println("Error reading ratings: " + e.getMessage());
         }
     }
 
-    private static void viewAllEquipment() {
-        String sql = "SELECT * FROM equipment ORDER BY type, description;";
-        try (Connection conn = Database.getConnection();
-                PreparedStatement ps = conn.prepareStatement(sql);
-                ResultSet rs = ps.executeQuery()) {
-            boolean any = false;
-            while (rs.next()) {
-                printEquipmentRow(rs);
-                any = true;
+    private void searchEquipment() {
+        out.println("Search by: 1) SerialNum  2) Type  3) Partial Type  4) Available by Type");
+        int choice = getIntInput();
+
+        try {
+            List<Equipment> found;
+            if (choice == 1) {
+                out.print("Enter SerialNum: ");
+                Equipment e = repos.equipment().find(input.nextLine().trim());
+                found = e == null ? List.of() : List.of(e);
+            } else if (choice == 2) {
+                out.print("Enter Type: ");
+                found = repos.equipment().findByExactType(input.nextLine().trim());
+            } else if (choice == 3) {
+                out.print("Enter part of the Type: ");
+                found = repos.equipment().findByType(input.nextLine().trim());
+            } else if (choice == 4) {
+                out.print("Enter Type (exact match): ");
+                found = repos.equipment().findAvailableByType(input.nextLine().trim());
+            } else {
+                out.println("Invalid.");
+                return;
             }
-            if (!any)
-                System.out.println("No equipment.");
+
+            for (Equipment e : found)
+                printEquipmentRow(e);
+            if (found.isEmpty())
+                out.println("No equipment found.");
         } catch (SQLException e) {
-            System.err.println("Error viewing all equipment: " + e.getMessage());
+            err.println("Search error: " + e.getMessage());
         }
     }
 
-    private static void printEquipmentRow(ResultSet rs) throws SQLException {
-        System.out.println("serial=" + rs.getString("serialNum") +
-                " | desc=" + rs.getString("description") +
-                " | type=" + rs.getString("type") +
-                " | model=" + rs.getString("model") +
-                " | status=" + rs.getString("status") +
-                " | RenterID=" + rs.getString("renterID"));
+    private void viewAllEquipment() {
+        try {
+            List<Equipment> all = repos.equipment().findAll();
+            for (Equipment e : all)
+                printEquipmentRow(e);
+            if (all.isEmpty())
+                out.println("No equipment.");
+        } catch (SQLException e) {
+            err.println("Error viewing all equipment: " + e.getMessage());
+        }
+    }
+
+    private void printEquipmentRow(Equipment e) {
+        out.println("serial=" + e.getSerialNum() +
+                " | desc=" + e.getDescription() +
+                " | type=" + e.getType() +
+                " | model=" + e.getModel() +
+                " | status=" + e.getStatus() +
+                " | RenterID=" + e.getRenterID() +
+                equipModelSpecs(e));
+    }
+
+    // Catalog specs for the row's model, or "" when the catalog has none
+    private String equipModelSpecs(Equipment e) {
+        try {
+            EquipModel m = repos.models().findEquipModel(e.getType(), e.getModel(), e.getYear());
+            return m == null ? "" : " | maker=" + m.getManufacturer() + " | weight=" + m.getWeight();
+        } catch (SQLException ex) {
+            return "";
+        }
     }
 
     // ==========================================================
     // --- 3. DRONE MANAGEMENT
     // ==========================================================
 
-    private static void dronesMenu() {
+    private void dronesMenu() {
         boolean back = false;
         while (!back) {
-            System.out.println("\n--- DRONES MENU ---");
-            System.out.println("1. Add Drone");
-            System.out.println("2. Edit Drone");
-            System.out.println("3. Delete Drone");
-            System.out.println("4. Search Drone (Retrieve)");
-            System.out.println("5. View All Drones (Retrieve)");
-            System.out.println("6. Back");
-            System.out.print("Choose: ");
+            out.println("\n--- DRONES MENU ---");
+            out.println("1. Add Drone");
+            out.println("2. Edit Drone");
+            out.println("3. Delete Drone");
+            out.println("4. Search Drone (Retrieve)");
+            out.println("5. View All Drones (Retrieve)");
+            out.println("6. Maintenance");
+            out.println("7. Batteries");
+            out.println("8. Mass Update");
+            out.println("9. Back");
+            out.print("Choose: ");
             int c = getIntInput();
             switch (c) {
                 case 1:
@@ -635,16 +853,25 @@ public class RentalAppConnected {
                     viewAllDrones();
                     break;
                 case 6:
+                    maintenanceMenu();
+                    break;
+                case 7:
+                    batteriesMenu();
+                    break;
+                case 8:
+                    massUpdateDrones();
+                    break;
+                case 9:
                     back = true;
                     break;
                 default:
-                    System.out.println("Invalid.");
+                    out.println("Invalid.");
             }
         }
     }
 
-    private static void addDrone() {
-        System.out.println("--- Adding New Drone (All fields mandatory) ---");
+    private void addDrone() {
+        out.println("--- Adding New Drone (All fields mandatory) ---");
 
         // String inputs, guaranteed non-empty
         String serial = getStringInput("Enter serialNum (unique): ");
@@ -654,190 +881,329 @@ public class RentalAppConnected {
         // String input, guaranteed non-empty
         String location = getStringInput("Enter Location: ");
 
-        System.out.print("Enter Year (numeric): ");
+        out.print("Enter Year (numeric): ");
         int year = getYearInput();
 
         // String inputs, guaranteed non-empty
         String wAddr = getStringInput("Enter Warehouse Address: ");
         String batteryID = getStringInput("Enter Battery ID: ");
 
-        System.out.print("Enter Total Miles (numeric): ");
+        out.print("Enter Total Miles (numeric): ");
         double totalMiles = getDoubleInput();
 
-        // Fields: serialNum, name, model, status, location, year,
-        // WarehouseAddress, BatteryID, totalMiles
-        String sql = "INSERT INTO drones(serialNum, name, model, status, location, year, WarehouseAddress, BatteryID, totalMiles) VALUES(?,?,?,?,?,?,?,?,?);";
-
-        try (Connection conn = Database.getConnection();
-                PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, serial);
-            ps.setString(2, name);
-            ps.setString(3, model);
-            ps.setString(4, "AVAILABLE"); // Default status
-
-            ps.setString(5, location);
-            ps.setInt(6, year);
-            ps.setString(7, wAddr);
-            ps.setString(8, batteryID);
-            ps.setDouble(9, totalMiles);
-
-            ps.executeUpdate();
-            System.out.println("Drone added.");
+        // New drones start IDLE
+        Drone d = new Drone(serial, name, model, DroneStatus.IDLE, location, year, wAddr, batteryID, totalMiles);
+        try {
+            repos.drones().add(d);
+            out.println("Drone added.");
         } catch (SQLException e) {
-            System.err.println("Add drone error: " + e.getMessage());
+            err.println("Add drone error: " + e.getMessage());
         }
     }
 
-    private static void editDrone() {
-        System.out.print("Enter serialNum of drone to edit: ");
+    private void editDrone() {
+        out.print("Enter serialNum of drone to edit: ");
         String serial = input.nextLine().trim();
 
-        if (!checkExistence("drones", "serialNum", serial)) {
-            System.out.println("Drone not found.");
-            return;
-        }
+        try {
+            Drone d = repos.drones().find(serial);
+            if (d == null) {
+                out.println("Drone not found.");
+                return;
+            }
 
-        System.out.println("Enter new values (leave blank to keep current):");
-        System.out.print("New name: ");
-        String name = input.nextLine();
-        System.out.print("New model: ");
-        String model = input.nextLine();
-        System.out.print("New status (e.g., AVAILABLE, IN_TRANSIT, INACTIVE): ");
-        String status = input.nextLine();
+            out.println("Enter new values (leave blank to keep current):");
+            out.print("New name: ");
+            String name = input.nextLine();
+            out.print("New model: ");
+            String model = input.nextLine();
+            out.print("New status (" + DroneStatus.names() + "): ");
+            String status = input.nextLine();
+            DroneStatus newStatus = null;
+            if (!status.isEmpty()) {
+                newStatus = DroneStatus.parse(status);
+                if (newStatus == null) {
+                    out.println("Unknown status '" + status + "'. No changes made.");
+                    return;
+                }
+            }
 
-        StringBuilder sb = new StringBuilder("UPDATE drones SET ");
-        boolean first = true;
+            if (name.isEmpty() && model.isEmpty() && newStatus == null) {
+                out.println("No changes entered.");
+                return;
+            }
+            if (!name.isEmpty())
+                d.setName(name);
+            if (!model.isEmpty())
+                d.setModel(model);
+            if (newStatus != null)
+                d.setStatus(newStatus);
 
-        if (!name.isEmpty()) {
-            sb.append("name = ?");
-            first = false;
-        }
-        if (!model.isEmpty()) {
-            if (!first)
-                sb.append(", ");
-            sb.append("model = ?");
-            first = false;
-        }
-        if (!status.isEmpty()) {
-            if (!first)
-                sb.append(", ");
-            sb.append("status = ?");
-            first = false;
+            boolean updated = repos.drones().update(d);
+            out.println("Updated rows: " + (updated ? 1 : 0));
+        } catch (SQLException e) {
+            err.println("Update error: " + e.getMessage());
         }
+    }
 
-        if (first) {
-            System.out.println("No changes entered.");
+    // MASS UPDATE: one set-based UPDATE for every drone matching the filters, after a preview count
+    private void massUpdateDrones() {
+        out.println("--- Mass Update Drones ---");
+        out.println("Filters (leave blank to match any):");
+        MassUpdate u = new MassUpdate();
+        u.setWarehouseAddress(getOptionalInput("Warehouse address: "));
+        u.setModel(getOptionalInput("Model: "));
+        if (!readYearFilter(u))
             return;
+        String status = getOptionalInput("Status (" + DroneStatus.names() + "): ");
+        if (status != null) {
+            DroneStatus parsed = DroneStatus.parse(status);
+            if (parsed == null) {
+                out.println("Unknown status '" + status + "'. No changes made.");
+                return;
+            }
+            u.setStatus(parsed.name());
         }
-        sb.append(" WHERE serialNum = ?;");
 
-        try (Connection conn = Database.getConnection();
-                PreparedStatement ps = conn.prepareStatement(sb.toString())) {
-            int idx = 1;
-            if (!name.isEmpty())
-                ps.setString(idx++, name);
-            if (!model.isEmpty())
-                ps.setString(idx++, model);
-            if (!status.isEmpty())
-                ps.setString(idx++, status);
-            ps.setString(idx, serial);
-            int updated = ps.executeUpdate();
-            System.out.println("Updated rows: " + updated);
+        out.println("New values (leave blank to keep current):");
+        u.setNewWarehouseAddress(getOptionalInput("New warehouse address: "));
+        u.setNewModel(getOptionalInput("New model: "));
+        String newStatus = getOptionalInput("New status (" + DroneStatus.names() + "): ");
+        if (newStatus != null) {
+            DroneStatus parsed = DroneStatus.parse(newStatus);
+            if (parsed == null) {
+                out.println("Unknown status '" + newStatus + "'. No changes made.");
+                return;
+            }
+            u.setNewStatus(parsed.name());
+        }
+
+        try {
+            if (!confirmMassUpdate(u, repos.drones().count(u), "drone(s)"))
+                return;
+            out.println("Updated rows: " + repos.drones().updateAll(u));
         } catch (SQLException e) {
-            System.err.println("Update error: " + e.getMessage());
+            err.println("Mass update error: " + e.getMessage());
         }
     }
 
-    private static void deleteDrone() {
-        System.out.print("Enter serialNum of drone to delete: ");
+    // Repairs and the counts maintained with them
+    private void maintenanceMenu() {
+        boolean back = false;
+        while (!back) {
+            out.println("\n--- MAINTENANCE MENU ---");
+            out.println("1. Log Repair");
+            out.println("2. Repair Count for Drone");
+            out.println("3. Most Repaired Drones");
+            out.println("4. Mechanic Workload");
+            out.println("5. Back");
+            out.print("Choose: ");
+            int c = getIntInput();
+            try {
+                switch (c) {
+                    case 1: {
+                        String ssn = getStringInput("Enter mechanic SSN: ");
+                        String drone = getStringInput("Enter drone serialNum: ");
+                        repos.maintenance().logRepair(ssn, drone);
+                        RepairCount r = repos.maintenance().findDroneRepairs(drone);
+                        out.println("Repair logged. Drone " + drone + " has " + r.getRepairs() + " repairs.");
+                        break;
+                    }
+                    case 2: {
+                        String drone = getStringInput("Enter drone serialNum: ");
+                        RepairCount r = repos.maintenance().findDroneRepairs(drone);
+                        if (r == null)
+                            out.println("No repairs recorded for " + drone);
+                        else
+                            out.println("drone=" + drone + " | repairs=" + r.getRepairs() + " | mechanics=" + r.getPartners());
+                        break;
+                    }
+                    case 3: {
+                        List<RepairCount> top = repos.maintenance().findMostRepairedDrones();
+                        if (top.isEmpty())
+                            out.println("No repairs recorded.");
+                        for (RepairCount r : top)
+                            out.println("drone=" + r.getKey() + " | repairs=" + r.getRepairs() + " | mechanics=" + r.getPartners());
+                        break;
+                    }
+                    case 4: {
+                        List<RepairCount> load = repos.maintenance().findMechanicWorkload(10);
+                        if (load.isEmpty())
+                            out.println("No repairs recorded.");
+                        for (RepairCount r : load)
+                            out.println("mechanic=" + r.getKey() + " | repairs=" + r.getRepairs() + " | drones=" + r.getPartners());
+                        break;
+                    }
+                    case 5:
+                        back = true;
+                        break;
+                    default:
+                        out.println("Invalid.");
+                }
+            } catch (SQLException e) {
+                err.println("Maintenance error: " + e.getMessage());
+            }
+        }
+    }
+
+    // Charging rotation and the charged-drone counts it maintains
+    private void batteriesMenu() {
+        boolean back = false;
+        while (!back) {
+            out.println("\n--- BATTERIES MENU ---");
+            out.println("1. Stock Battery at Warehouse");
+            out.println("2. Start Charging at Warehouse");
+            out.println("3. Finish Charging Battery");
+            out.println("4. Batteries at Warehouse");
+            out.println("5. Charged Drone Count");
+            out.println("6. Back");
+            out.print("Choose: ");
+            int c = getIntInput();
+            try {
+                switch (c) {
+                    case 1: {
+                        String id = getStringInput("Enter battery ID: ");
+                        String type = getStringInput("Enter battery type: ");
+                        String wAddr = getStringInput("Enter warehouse address: ");
+                        out.print("Charged? (y/n): ");
+                        boolean charged = input.nextLine().trim().equalsIgnoreCase("y");
+                        repos.batteries().stock(id, type, wAddr, charged);
+                        out.println("Battery " + id + " stocked at " + wAddr);
+                        break;
+                    }
+                    case 2: {
+                        String wAddr = getStringInput("Enter warehouse address: ");
+                        List<String> started = repos.batteries().startCharging(wAddr);
+                        out.println(started.isEmpty() ? "No free charger or nothing to charge."
+                                : "Now charging: " + String.join(", ", started));
+                        break;
+                    }
+                    case 3: {
+                        String id = getStringInput("Enter battery ID: ");
+                        out.println(repos.batteries().finishCharging(id) ? "Battery " + id + " charged."
+                                : "Battery " + id + " is not charging.");
+                        break;
+                    }
+                    case 4: {
+                        String wAddr = getStringInput("Enter warehouse address: ");
+                        List<Battery> found = repos.batteries().findAt(wAddr);
+                        if (found.isEmpty())
+                            out.println("No batteries at " + wAddr);
+                        for (Battery b : found)
+                            out.println("battery=" + b.getProductID() + " | type=" + b.getType() + " | state=" +
+                                    b.getState() + " | drone=" + (b.getDroneSN() == null ? "(spare)" : b.getDroneSN()));
+                        break;
+                    }
+                    case 5: {
+                        out.print("Warehouse address (blank for whole fleet): ");
+                        String wAddr = input.nextLine().trim();
+                        int n = repos.batteries().chargedDroneCount(wAddr.isEmpty() ? null : wAddr);
+                        out.println("Drones with a charged battery" + (wAddr.isEmpty() ? "" : " at " + wAddr) + ": " + n);
+                        break;
+                    }
+                    case 6:
+                        back = true;
+                        break;
+                    default:
+                        out.println("Invalid.");
+                }
+            } catch (SQLException e) {
+                err.println("Battery error: " + e.getMessage());
+            }
+        }
+    }
+
+    private void deleteDrone() {
+        out.print("Enter serialNum of drone to delete: ");
         String serial = input.nextLine().trim();
 
-        String sql = "DELETE FROM drones WHERE serialNum = ?;";
-        try (Connection conn = Database.getConnection();
-                PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, serial);
-            int del = ps.executeUpdate();
-            System.out.println("Deleted rows: " + del);
+        try {
+            boolean deleted = repos.drones().delete(serial);
+            out.println("Deleted rows: " + (deleted ? 1 : 0));
         } catch (SQLException e) {
-            System.err.println("Delete error (Check for foreign key constraints): " + e.getMessage());
+            err.println("Delete error (Check for foreign key constraints): " + e.getMessage());
         }
     }
 
-    private static void searchDrone() {
-        System.out.println("Search by: 1) SerialNum  2) Model");
+    private void searchDrone() {
+        out.println("Search by: 1) SerialNum  2) Model  3) Idle at Warehouse");
         int choice = getIntInput();
-        String sql = "";
-        String param = "";
-
-        if (choice == 1) {
-            System.out.print("Enter SerialNum: ");
-            param = input.nextLine().trim();
-            sql = "SELECT * FROM drones WHERE serialNum = ?;";
-        } else if (choice == 2) {
-            System.out.print("Enter Model (partial allowed): ");
-            param = "%" + input.nextLine().trim() + "%";
-            sql = "SELECT * FROM drones WHERE model LIKE ?;";
-        } else {
-            System.out.println("Invalid.");
-            return;
-        }
 
-        try (Connection conn = Database.getConnection();
-                PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, param);
-            try (ResultSet rs = ps.executeQuery()) {
-                boolean found = false;
-                while (rs.next()) {
-                    printDroneRow(rs);
-                    found = true;
-                }
-                if (!found)
-                    System.out.println("No drone found.");
+        try {
+            List<Drone> found;
+            if (choice == 1) {
+                out.print("Enter SerialNum: ");
+                Drone d = repos.drones().find(input.nextLine().trim());
+                found = d == null ? List.of() : List.of(d);
+            } else if (choice == 2) {
+                out.print("Enter Model (partial allowed): ");
+                found = repos.drones().findByModel(input.nextLine().trim());
+            } else if (choice == 3) {
+                out.print("Enter Warehouse Address: ");
+                found = repos.drones().findIdleAt(input.nextLine().trim());
+            } else {
+                out.println("Invalid.");
+                return;
             }
+
+            for (Drone d : found)
+                printDroneRow(d);
+            if (found.isEmpty())
+                out.println("No drone found.");
         } catch (SQLException e) {
-            System.err.println("Search error: " + e.getMessage());
+            err.println("Search error: " + e.getMessage());
         }
     }
 
-    private static void viewAllDrones() {
-        String sql = "SELECT * FROM drones ORDER BY name, model;";
-        try (Connection conn = Database.getConnection();
-                PreparedStatement ps = conn.prepareStatement(sql);
-                ResultSet rs = ps.executeQuery()) {
-            boolean any = false;
-            while (rs.next()) {
-                printDroneRow(rs);
-                any = true;
-            }
-            if (!any)
-                System.out.println("No drones.");
+    private void viewAllDrones() {
+        try {
+            List<Drone> all = repos.drones().findAll();
+            for (Drone d : all)
+                printDroneRow(d);
+            if (all.isEmpty())
+                out.println("No drones.");
         } catch (SQLException e) {
-            System.err.println("Error viewing all drones: " + e.getMessage());
+            err.println("Error viewing all drones: " + e.getMessage());
         }
     }
 
-    private static void printDroneRow(ResultSet rs) throws SQLException {
-        System.out.println("serial=" + rs.getString("serialNum") +
-                " | name=" + rs.getString("name") +
-                " | model=" + rs.getString("model") +
-                " | status=" + rs.getString("status") +
-                " | miles=" + rs.getDouble("totalMiles"));
+    private void printDroneRow(Drone d) {
+        out.println("serial=" + d.getSerialNum() +
+                " | name=" + d.getName() +
+                " | model=" + d.getModel() +
+                " | status=" + d.getStatus() +
+                " | miles=" + d.getTotalMiles() +
+                droneModelSpecs(d));
+    }
+
+    private String droneModelSpecs(Drone d) {
+        try {
+            DroneModel m = repos.models().findDroneModel(d.getModel(), d.getYear());
+            return m == null ? "" : " | maker=" + m.getManufacturer() + " | maxSpeed=" + m.getMaxSpeed() +
+                    " | weightCap=" + m.getWeightCap();
+        } catch (SQLException ex) {
+            return "";
+        }
     }
 
     // ==========================================================
     // 4. RENTALS & DELIVERIES
     // ==========================================================
 
-    private static void rentalsMenu() {
+    private void rentalsMenu() {
         boolean back = false;
         while (!back) {
-            System.out.println("\n--- RENTALS & DELIVERIES ---");
-            System.out.println("1. Rent Equipment");
-            System.out.println("2. Return Equipment");
-            System.out.println("3. Schedule Delivery (assign drone)");
-            System.out.println("4. Schedule Pickup (assign drone)");
-            System.out.println("5. Back");
-            System.out.print("Choose: ");
+            out.println("\n--- RENTALS & DELIVERIES ---");
+            out.println("1. Rent Equipment");
+            out.println("2. Return Equipment");
+            out.println("3. Schedule Delivery (assign drone)");
+            out.println("4. Schedule Pickup (assign drone)");
+            out.println("5. Reserve Equipment (future dates)");
+            out.println("6. Find Free Equipment by Type");
+            out.println("7. Cancel Reservation");
+            out.println("8. View Bookings for Equipment");
+            out.println("9. Back");
+            out.print("Choose: ");
             int c = getIntInput();
             switch (c) {
                 case 1:
@@ -853,18 +1219,29 @@ public class RentalAppConnected {
                     schedulePickup();
                     break;
                 case 5:
+                    reserveEquipment();
+                    break;
+                case 6:
+                    findFreeEquipment();
+                    break;
+                case 7:
+                    cancelReservation();
+                    break;
+                case 8:
+                    viewBookings();
+                    break;
+                case 9:
                     back = true;
                     break;
                 default:
-                    System.out.println("Invalid.");
+                    out.println("Invalid.");
             }
         }
     }
 
     // RENT EQUIPMENT: Inserts new rental record, updates equipment status.
-    private static void rentEquipment() {
-        System.out.println("--- Rent Equipment (All fields mandatory) ---");
-        String checkOutID = getStringInput("Enter checkout ID (unique): ");
+    private void rentEquipment() {
+        out.println("--- Rent Equipment (All fields mandatory) ---");
         String serial = getStringInput("Enter equipment serialNum: ");
         String userID = getStringInput("Enter userID renting: ");
 
@@ -872,186 +1249,387 @@ public class RentalAppConnected {
         String due = getStringInput("Enter dueDate (YYYY-MM-DD): ");
 
         // Print prompt, then call argument-less method
-        System.out.print("Enter rental fee (numeric): ");
+        out.print("Enter rental fee (numeric): ");
         double fee = getDoubleInput();
 
-        if (!checkExistence("equipment", "serialNum", serial)) {
-            System.out.println("Error: Equipment not found.");
+        long today = LocalDate.now().toEpochDay();
+        long dueDay;
+        try {
+            dueDay = Math.max(today, AvailabilityCalendar.toDay(due));
+        } catch (RuntimeException e) {
+            out.println("Error: dueDate must be YYYY-MM-DD.");
             return;
         }
 
-        // 1. INSERT into rentals
-        // Fields: checkOutID, serialNum, userID, dueDate, rentalFees, Returns (6
-        // columns)
-        String sql = "INSERT INTO rentals(checkOutID, serialNum, userID, dueDate, rentalFees, Returns) " +
-                "VALUES(?,?,?,?,?,?);";
-
-        try (Connection conn = Database.getConnection()) {
-            conn.setAutoCommit(false); // Start transaction
-            try (PreparedStatement ps = conn.prepareStatement(sql)) {
-                ps.setString(1, checkOutID);
-                ps.setString(2, serial);
-                ps.setString(3, userID);
-                // Index 4 corresponds to dueDate (provided by the user)
-                ps.setString(4, due);
-                // Index 5 corresponds to rentalFees
-                ps.setDouble(5, fee);
-                // Index 6 corresponds to Returns
-                ps.setString(6, "NO");
-                ps.executeUpdate();
+        try {
+            if (!repos.equipment().exists(serial)) {
+                out.println("Error: Equipment not found.");
+                return;
             }
 
-            // 2. UPDATE equipment status
-            // Sets renterID to the renting userID and status to RENTED.
-            String eqUpd = "UPDATE equipment SET renterID = ?, status = ? WHERE serialNum = ? AND status = 'AVAILABLE';";
-            try (PreparedStatement ps2 = conn.prepareStatement(eqUpd)) {
-                ps2.setString(1, userID);
-                ps2.setString(2, "RENTED");
-                ps2.setString(3, serial);
-                int updated = ps2.executeUpdate();
-                if (updated == 0) {
-                    // Equipment was not available, abort transaction
-                    conn.rollback();
-                    System.out
-                            .println("RENT FAILED: Equipment is not AVAILABLE or SerialNum is invalid (Rolling back).");
-                    return;
+            // Someone else's reservation inside [today, due] blocks the rental;
+            // the renter's own reservation is picked up by this checkout.
+            AvailabilityCalendar cal = calendar();
+            if (cal == null)
+                return;
+            AvailabilityCalendar.Booking own = null;
+            for (AvailabilityCalendar.Booking b : cal.conflicts(serial, today, dueDay + 1)) {
+                if (b.getKind().equals(AvailabilityCalendar.RESERVATION) && b.getUserID().equals(userID)) {
+                    own = b;
+                    break;
+                }
+            }
+
+            // Generated rather than typed, so concurrent clerks never clash
+            String checkOutID = IdGenerator.nextCheckOutID(repos);
+            // The slot is booked before the checkout, so no other session can reserve it in between
+            if (!cal.tryBookReplacing(new AvailabilityCalendar.Booking(checkOutID, AvailabilityCalendar.RENTAL,
+                    serial, userID, today, dueDay + 1), own == null ? null : own.getId())) {
+                for (AvailabilityCalendar.Booking b : cal.conflicts(serial, today, dueDay + 1)) {
+                    if (b != own) {
+                        out.println("RENT FAILED: Equipment is booked during that period: " + b);
+                        break;
+                    }
+                }
+                return;
+            }
+
+            Rental r = new Rental(checkOutID, serial, userID, due, fee, false);
+            boolean rented = false;
+            try {
+                rented = repos.rentals().checkout(r, own == null ? null : own.getId());
+            } finally {
+                if (!rented) {
+                    cal.remove(checkOutID);
+                    if (own != null)
+                        cal.tryBook(own);
                 }
             }
-            conn.commit(); // Commit transaction
-            System.out.println("Equipment rented successfully (ID: " + checkOutID + ").");
+            if (!rented) {
+                // Equipment was not available, nothing was written
+                out.println("RENT FAILED: Equipment is not AVAILABLE or SerialNum is invalid (Rolling back).");
+                return;
+            }
+            out.println("Equipment rented successfully (ID: " + checkOutID + ").");
         } catch (SQLException e) {
-            System.err.println("Rent error: " + e.getMessage());
+            err.println("Rent error: " + e.getMessage());
         }
     }
 
     // RETURN EQUIPMENT: Updates rental record, updates equipment status.
-    private static void returnEquipment() {
-        System.out.print("Enter checkout ID to return: ");
+    private void returnEquipment() {
+        out.print("Enter checkout ID to return: ");
         String checkOutID = input.nextLine().trim();
 
-        String findSerial = "SELECT serialNum FROM rentals WHERE checkOutID = ? AND Returns = 'NO';";
+        try {
+            String serial = repos.rentals().checkin(checkOutID);
+            if (serial == null) {
+                out.println("Error: Rental ID not found or already returned.");
+                return;
+            }
+            AvailabilityCalendar cal = calendar();
+            if (cal != null)
+                cal.remove(checkOutID);
+            out.println("Equipment " + serial + " returned successfully.");
+        } catch (SQLException e) {
+            err.println("Return error: " + e.getMessage());
+        }
+    }
 
-        String updateRental = "UPDATE rentals SET Returns = ? WHERE checkOutID = ?;";
+    // DELIVERY: Assigns a drone to transport equipment
+    private void scheduleDelivery() {
+        out.print("Enter equipment serialNum for delivery: ");
+        String serial = input.nextLine().trim();
+        out.print("Enter drone serialNum to assign (blank for the nearest idle drone): ");
+        String drone = input.nextLine().trim();
 
-        String updateEquipment = "UPDATE equipment SET status = ?, renterID = '0' WHERE serialNum = ? AND status = 'RENTED';";
+        // Records the transport and sets the drone IN_TRANSIT_DELIVERY
+        try {
+            if (drone.isEmpty() && (drone = nearestIdleDrone(serial)) == null)
+                return;
+            repos.transports().schedule(drone, serial, DroneStatus.IN_TRANSIT_DELIVERY);
+            out.println("Delivery scheduled: equipment " + serial + " via drone " + drone + ".");
+        } catch (SQLException e) {
+            err.println("Schedule Delivery error: " + e.getMessage());
+        }
+    }
 
-        try (Connection conn = Database.getConnection()) {
-            conn.setAutoCommit(false); // Start transaction
-            String serial = null;
+    // PICKUP: Assigns a drone to retrieve equipment
+    private void schedulePickup() {
+        out.print("Enter equipment serialNum for pickup: ");
+        String serial = input.nextLine().trim();
+        out.print("Enter drone serialNum to assign (blank for the nearest idle drone): ");
+        String drone = input.nextLine().trim();
 
-            // Step 1: Find the serial number and check if it's currently not returned
-            try (PreparedStatement ps1 = conn.prepareStatement(findSerial)) {
-                ps1.setString(1, checkOutID);
-                try (ResultSet rs = ps1.executeQuery()) {
-                    if (rs.next()) {
-                        serial = rs.getString("serialNum");
-                    } else {
-                        System.out.println("Error: Rental ID not found or already returned.");
-                        return;
-                    }
-                }
-            }
+        // Records the transport and sets the drone IN_TRANSIT_PICKUP
+        try {
+            if (drone.isEmpty() && (drone = nearestIdleDrone(serial)) == null)
+                return;
+            repos.transports().schedule(drone, serial, DroneStatus.IN_TRANSIT_PICKUP);
+            out.println("Pickup scheduled: equipment " + serial + " via drone " + drone + ".");
+        } catch (SQLException e) {
+            err.println("Schedule Pickup error: " + e.getMessage());
+        }
+    }
 
-            // Step 2: Mark the rental record as returned
-            try (PreparedStatement ps2 = conn.prepareStatement(updateRental)) {
-                ps2.setString(1, "YES");
-                ps2.setString(2, checkOutID); // The second parameter is now the WHERE clause value
-                ps2.executeUpdate();
+    // Idle drone at the closest warehouse within DELIVERY_RADIUS_MILES of the renter
+    private String nearestIdleDrone(String serial) throws SQLException {
+        Equipment e = repos.equipment().find(serial);
+        Member m = e == null || e.getRenterID() == null ? null : repos.members().find(e.getRenterID());
+        if (m == null) {
+            out.println("Equipment " + serial + " has no renter to deliver to; enter a drone serialNum.");
+            return null;
+        }
+        GeoPoint to = repos.locations().findAddressLocation(m.getAddress());
+        if (to == null)
+            to = Geocoder.locate(m.getAddress());
+        if (to == null) {
+            out.println("Cannot locate " + m.getAddress() + "; enter a drone serialNum.");
+            return null;
+        }
+        for (WarehouseIndex.Hit hit : warehouseIndex().within(to, DELIVERY_RADIUS_MILES)) {
+            List<Drone> idle = repos.drones().findIdleAt(hit.getAddress());
+            if (!idle.isEmpty()) {
+                out.printf("Using drone %s from %s (%.1f mi away).%n", idle.get(0).getSerialNum(), hit.getAddress(),
+                        hit.getMiles());
+                return idle.get(0).getSerialNum();
             }
+        }
+        out.println("No idle drone within " + DELIVERY_RADIUS_MILES + " mi of " + m.getAddress() + ".");
+        return null;
+    }
 
-            // Step 3: Update equipment status (only if currently RENTED)
-            try (PreparedStatement ps3 = conn.prepareStatement(updateEquipment)) {
-                ps3.setString(1, "AVAILABLE");
-                ps3.setString(2, serial);
-                ps3.executeUpdate();
-            }
+    private WarehouseIndex warehouseIndex() throws SQLException {
+        synchronized (RentalAppConnected.class) {
+            if (warehouses == null)
+                warehouses = new WarehouseIndex(repos.locations().findWarehouseLocations());
+            return warehouses;
+        }
+    }
 
-            conn.commit(); // Commit transaction
-            System.out.println("Equipment " + serial + " returned successfully.");
+    // Stored coordinates, else the ZIP centroid, else asks; null if none given
+    private GeoPoint locateAddress(String address) {
+        try {
+            GeoPoint p = repos.locations().findAddressLocation(address);
+            if (p != null)
+                return p;
+        } catch (SQLException e) {
+            err.println("Location lookup error: " + e.getMessage());
+        }
+        GeoPoint p = Geocoder.locate(address);
+        if (p != null)
+            return p;
+        while (true) {
+            out.print("Address not recognized. Enter latitude, longitude (blank to skip): ");
+            String line = input.nextLine().trim();
+            if (line.isEmpty())
+                return null;
+            String[] parts = line.split(",");
+            try {
+                if (parts.length == 2)
+                    return new GeoPoint(Double.parseDouble(parts[0].trim()), Double.parseDouble(parts[1].trim()));
+            } catch (NumberFormatException e) {
+                // fall through and ask again
+            }
+        }
+    }
 
+    // Miles to the nearest warehouse, rounded to 0.1, or -1 if it cannot be worked out
+    private double nearestWarehouseMiles(GeoPoint location) {
+        if (location == null)
+            return -1;
+        try {
+            WarehouseIndex.Hit nearest = warehouseIndex().nearest(location);
+            if (nearest == null)
+                return -1;
+            double miles = Math.round(nearest.getMiles() * 10) / 10.0;
+            out.println("Nearest warehouse: " + nearest.getAddress() + " (" + miles + " mi)");
+            return miles;
         } catch (SQLException e) {
-            System.err.println("Return error: " + e.getMessage());
+            err.println("Location lookup error: " + e.getMessage());
+            return -1;
         }
     }
 
-    // DELIVERY: Assigns a drone to transport equipment
-    private static void scheduleDelivery() {
-        System.out.print("Enter equipment serialNum for delivery: ");
-        String serial = input.nextLine().trim();
-        System.out.print("Enter drone serialNum to assign: ");
-        String drone = input.nextLine().trim();
+    // ==========================================================
+    // 4b. RESERVATIONS
+    // ==========================================================
 
-        // Inserts dSerialNum and eSerialNum into transports.
-        String sql = "INSERT INTO transports(dSerialNum, eSerialNum) VALUES(?,?);";
-        try (Connection conn = Database.getConnection()) {
-            conn.setAutoCommit(false); // Start transaction
-            try (PreparedStatement ps = conn.prepareStatement(sql)) {
-                ps.setString(1, drone);
-                ps.setString(2, serial);
-                ps.executeUpdate();
+    private AvailabilityCalendar calendar() {
+        synchronized (RentalAppConnected.class) {
+            if (calendar == null) {
+                try {
+                    calendar = AvailabilityCalendar.load(repos);
+                } catch (SQLException e) {
+                    err.println("Error loading availability calendar: " + e.getMessage());
+                }
             }
+            return calendar;
+        }
+    }
 
-            // Update drone status to IN_TRANSIT
-            String droneUpd = "UPDATE drones SET status = 'IN_TRANSIT' WHERE serialNum = ?;";
-            try (PreparedStatement ps2 = conn.prepareStatement(droneUpd)) {
-                ps2.setString(1, drone);
-                ps2.executeUpdate();
+    // Reads a start/end date pair; returns {startDay, endDayExclusive} or null
+    private long[] getDateRangeInput() {
+        try {
+            long start = AvailabilityCalendar.toDay(getStringInput("Enter start date (YYYY-MM-DD): "));
+            long end = AvailabilityCalendar.toDay(getStringInput("Enter end date (YYYY-MM-DD, inclusive): "));
+            if (end < start) {
+                out.println("End date is before start date.");
+                return null;
             }
+            return new long[] { start, end + 1 };
+        } catch (RuntimeException e) {
+            out.println("Dates must be YYYY-MM-DD.");
+            return null;
+        }
+    }
 
-            conn.commit(); // Commit transaction
-            System.out.println("Delivery scheduled: equipment " + serial + " via drone " + drone + ".");
+    private void reserveEquipment() {
+        out.println("--- Reserve Equipment (All fields mandatory) ---");
+        String reservationID = getStringInput("Enter reservation ID (unique): ");
+        String serial = getStringInput("Enter equipment serialNum: ");
+        String userID = getStringInput("Enter userID reserving: ");
+        long[] range = getDateRangeInput();
+        if (range == null)
+            return;
+        if (range[0] < LocalDate.now().toEpochDay()) {
+            out.println("Reservations must start today or later.");
+            return;
+        }
+
+        try {
+            if (!repos.equipment().exists(serial)) {
+                out.println("Error: Equipment not found.");
+                return;
+            }
+            if (!repos.members().exists(userID)) {
+                out.println("Error: Member not found.");
+                return;
+            }
         } catch (SQLException e) {
-            System.err.println("Schedule Delivery error: " + e.getMessage());
+            err.println("Database check error: " + e.getMessage());
+            return;
         }
-    }
 
-    // PICKUP: Assigns a drone to retrieve equipment
-    private static void schedulePickup() {
-        System.out.print("Enter equipment serialNum for pickup: ");
-        String serial = input.nextLine().trim();
-        System.out.print("Enter drone serialNum to assign: ");
-        String drone = input.nextLine().trim();
+        AvailabilityCalendar cal = calendar();
+        if (cal == null)
+            return;
+        AvailabilityCalendar.Booking booking = new AvailabilityCalendar.Booking(reservationID,
+                AvailabilityCalendar.RESERVATION, serial, userID, range[0], range[1]);
+        if (!cal.tryBook(booking)) {
+            out.println("RESERVE FAILED: Equipment is already booked in that period:");
+            for (AvailabilityCalendar.Booking b : cal.conflicts(serial, range[0], range[1]))
+                out.println("   " + b);
+            return;
+        }
 
-        // Inserts dSerialNum and eSerialNum into transports.
-        String sql = "INSERT INTO transports(dSerialNum, eSerialNum) VALUES(?,?);";
-        try (Connection conn = Database.getConnection()) {
-            conn.setAutoCommit(false); // Start transaction
-            try (PreparedStatement ps = conn.prepareStatement(sql)) {
-                ps.setString(1, drone);
-                ps.setString(2, serial);
-                ps.executeUpdate();
+        // The repository re-checks the stored reservations too, in case
+        // another process booked the item since the calendar was loaded
+        try {
+            String overlapping = repos.reservations().book(booking);
+            if (overlapping != null) {
+                cal.remove(reservationID);
+                out.println("RESERVE FAILED: Overlaps reservation " + overlapping + ".");
+                return;
             }
+            out.println("Reserved " + serial + " for " + userID + " (ID: " + reservationID + ").");
+        } catch (SQLException e) {
+            cal.remove(reservationID);
+            err.println("Reserve error: " + e.getMessage());
+        }
+    }
 
-            // Update drone status to IN_TRANSIT
-            String droneUpd = "UPDATE drones SET status = 'IN_TRANSIT' WHERE serialNum = ?;";
-            try (PreparedStatement ps2 = conn.prepareStatement(droneUpd)) {
-                ps2.setString(1, drone);
-                ps2.executeUpdate();
+    private void findFreeEquipment() {
+        String type = getStringInput("Enter equipment type (exact match): ");
+        long[] range = getDateRangeInput();
+        if (range == null)
+            return;
+        AvailabilityCalendar cal = calendar();
+        if (cal == null)
+            return;
+
+        // Candidates come from the type index; each is then one O(log n) calendar probe
+        try {
+            boolean any = false;
+            out.println("--- Free '" + type + "' equipment from " + AvailabilityCalendar.toDate(range[0]) +
+                    " to " + AvailabilityCalendar.toDate(range[1] - 1) + " ---");
+            for (Equipment e : repos.equipment().findRentableByType(type)) {
+                if (cal.isFree(e.getSerialNum(), range[0], range[1])) {
+                    out.println("   serial=" + e.getSerialNum() +
+                            " | desc=" + e.getDescription() +
+                            " | model=" + e.getModel());
+                    any = true;
+                }
             }
+            if (!any)
+                out.println("No free equipment of that type in the period.");
+        } catch (SQLException e) {
+            err.println("Search error: " + e.getMessage());
+        }
+    }
+
+    private void cancelReservation() {
+        out.print("Enter reservation ID to cancel: ");
+        String reservationID = input.nextLine().trim();
 
-            conn.commit(); // Commit transaction
-            System.out.println("Pickup scheduled: equipment " + serial + " via drone " + drone + ".");
+        try {
+            if (!repos.reservations().cancel(reservationID)) {
+                out.println("Reservation not found or not active.");
+                return;
+            }
+            AvailabilityCalendar cal = calendar();
+            if (cal != null)
+                cal.remove(reservationID);
+            out.println("Reservation " + reservationID + " cancelled.");
         } catch (SQLException e) {
-            System.err.println("Schedule Pickup error: " + e.getMessage());
+            err.println("Cancel error: " + e.getMessage());
         }
     }
 
+    private void viewBookings() {
+        out.print("Enter equipment serialNum: ");
+        String serial = input.nextLine().trim();
+        AvailabilityCalendar cal = calendar();
+        if (cal == null)
+            return;
+        List<AvailabilityCalendar.Booking> bookings = cal.upcoming(serial, LocalDate.now().toEpochDay());
+        if (bookings.isEmpty()) {
+            out.println("No upcoming bookings for " + serial + ".");
+            return;
+        }
+        for (AvailabilityCalendar.Booking b : bookings)
+            out.println("   " + b);
+    }
+
     // ==========================================================
     // 5. REPORTS
     // ==========================================================
 
-    private static void reportsMenu() {
+    private void reportsMenu() {
         boolean back = false;
         while (!back) {
-            System.out.println("\n--- REPORTS ---");
-            System.out.println("1. Renting checkouts by member (Total rented per UserID)");
-            System.out.println("2. Popular item (Most rented equipment)");
-            System.out.println("3. Popular manufacturer");
-            System.out.println("4. Popular drone (Most transports)");
-            System.out.println("5. Member who rented most items");
-            System.out.println("6. Equipment by type released before YEAR");
-            System.out.println("7. Back");
-            System.out.print("Choose: ");
+            out.println("\n--- REPORTS ---");
+            out.println("1. Renting checkouts by member (Total rented per UserID)");
+            out.println("2. Popular item (Most rented equipment)");
+            out.println("3. Popular manufacturer");
+            out.println("4. Popular drone (Most transports)");
+            out.println("5. Member who rented most items");
+            out.println("6. Equipment by type released before YEAR");
+            out.println("7. Best-rated item per type");
+            out.println("8. Most repaired drones");
+            out.println("9. Mechanic workload");
+            out.println("10. Warehouse utilization");
+            out.println("11. Dashboard (all reports in parallel)");
+            out.println("12. Export table or report (CSV / NDJSON)");
+            out.println("13. Analytics snapshot (offline history)");
+            out.println("14. Database snapshot (base for journal replay)");
+            out.println("15. Demand trend by day and type");
+            out.println("16. Utilization by warehouse and type");
+            out.println("17. Restock recommendations");
+            out.println("18. Include archived rentals in reports 1-3, 5 and 11 (now " +
+                    (includeArchived ? "ON" : "OFF") + ")");
+            out.println("19. Back");
+            out.print("Choose: ");
             int c = getIntInput();
             switch (c) {
                 case 1:
@@ -1073,148 +1651,345 @@ public class RentalAppConnected {
                     reportEquipmentByTypeBeforeYear();
                     break;
                 case 7:
+                    reportBestRatedByType();
+                    break;
+                case 8:
+                    reportMostRepairedDrones();
+                    break;
+                case 9:
+                    reportMechanicWorkload();
+                    break;
+                case 10:
+                    reportWarehouseUtilization();
+                    break;
+                case 11:
+                    showDashboard();
+                    break;
+                case 12:
+                    exportData();
+                    break;
+                case 13:
+                    snapshotAnalytics();
+                    break;
+                case 14:
+                    databaseSnapshot();
+                    break;
+                case 15:
+                    reportDemandTrend();
+                    break;
+                case 16:
+                    reportUtilizationByType();
+                    break;
+                case 17:
+                    reportRestockPlan();
+                    break;
+                case 18:
+                    includeArchived = !includeArchived;
+                    out.println("Archived rentals are now " + (includeArchived ? "included." : "left out."));
+                    break;
+                case 19:
                     back = true;
                     break;
                 default:
-                    System.out.println("Invalid.");
+                    out.println("Invalid.");
             }
         }
     }
 
     // Report 1: Total number equipment items rented by a single member
-    private static void reportRentingCheckoutsByMember() {
-        System.out.print("Enter userID to count rentals: ");
+    private void reportRentingCheckoutsByMember() {
+        out.print("Enter userID to count rentals: ");
         String userID = input.nextLine().trim();
-        String sql = "SELECT COUNT(checkOutID) AS cnt FROM rentals WHERE userID = ?;";
-        try (Connection conn = Database.getConnection();
-                PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, userID);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    System.out.println("User " + userID + " has a total of " + rs.getInt("cnt") + " rental checkouts.");
-                } else {
-                    System.out.println("No data found for user: " + userID);
-                }
+        try {
+            ReportResult r = Reports.checkoutsByMember(userID, includeArchived);
+            if (!r.isEmpty()) {
+                out.println("User " + userID + " has a total of " + r.number(0, "cnt") + " rental checkouts.");
+            } else {
+                out.println("No data found for user: " + userID);
             }
         } catch (SQLException e) {
-            System.err.println("Report error: " + e.getMessage());
+            err.println("Report error: " + e.getMessage());
         }
     }
 
     // Report 2: Find most popular equipment by number of rentals
-    private static void reportPopularItem() {
-        String sql = "SELECT r.serialNum, e.description, COUNT(r.checkOutID) AS timesRented " +
-                "FROM rentals r JOIN equipment e ON r.serialNum = e.serialNum " +
-                "GROUP BY r.serialNum, e.description ORDER BY timesRented DESC LIMIT 1;";
-        try (Connection conn = Database.getConnection();
-                PreparedStatement ps = conn.prepareStatement(sql);
-                ResultSet rs = ps.executeQuery()) {
-            if (rs.next()) {
-                System.out.println("Most Popular Item:");
-                System.out.println("   Serial: " + rs.getString("serialNum"));
-                System.out.println("   Desc: " + rs.getString("description"));
-                System.out.println("   Times Rented: " + rs.getInt("timesRented"));
+    private void reportPopularItem() {
+        try {
+            ReportResult r = Reports.popularItem(includeArchived);
+            if (!r.isEmpty()) {
+                out.println("Most Popular Item:");
+                out.println("   Serial: " + r.text(0, "serialNum"));
+                out.println("   Desc: " + r.text(0, "description"));
+                out.println("   Times Rented: " + r.number(0, "timesRented"));
             } else {
-                System.out.println("No rental data available.");
+                out.println("No rental data available.");
             }
         } catch (SQLException e) {
-            System.err.println("Report error: " + e.getMessage());
+            err.println("Report error: " + e.getMessage());
         }
     }
 
     // Report 3: Most frequent equipment manufacturer (Requires 'equip_model' table
     // with 'manufacturer' column)
-    private static void reportPopularManufacturer() {
-        String sql = "SELECT em.manufacturer, COUNT(r.checkOutID) AS rentedCount " +
-                "FROM rentals r " +
-                "JOIN equipment e ON r.serialNum = e.serialNum " +
-                "JOIN equip_model em ON e.model = em.model " +
-                "GROUP BY em.manufacturer " +
-                "ORDER BY rentedCount DESC LIMIT 1;";
-        try (Connection conn = Database.getConnection();
-                PreparedStatement ps = conn.prepareStatement(sql);
-                ResultSet rs = ps.executeQuery()) {
-            if (rs.next()) {
-                System.out.println("Most Popular Manufacturer: " + rs.getString("manufacturer") +
-                        " | Units Rented: " + rs.getInt("rentedCount"));
+    private void reportPopularManufacturer() {
+        try {
+            ReportResult r = Reports.popularManufacturer(includeArchived);
+            if (!r.isEmpty()) {
+                out.println("Most Popular Manufacturer: " + r.text(0, "manufacturer") +
+                        " | Units Rented: " + r.number(0, "rentedCount"));
             } else {
-                System.out.println("No manufacturer data available (ensure equip_model table exists).");
+                out.println("No manufacturer data available (ensure equip_model table exists).");
             }
         } catch (SQLException e) {
-            System.err.println("Report error: " + e.getMessage());
+            err.println("Report error: " + e.getMessage());
         }
     }
 
     // Report 4: Most used drone
-    private static void reportPopularDrone() {
-        String sql = "SELECT t.dSerialNum, d.name, COUNT(t.dSerialNum) AS uses " +
-                "FROM transports t JOIN drones d ON t.dSerialNum = d.serialNum " +
-                "GROUP BY t.dSerialNum, d.name " +
-                "ORDER BY uses DESC LIMIT 1;";
-        try (Connection conn = Database.getConnection();
-                PreparedStatement ps = conn.prepareStatement(sql);
-                ResultSet rs = ps.executeQuery()) {
-            if (rs.next()) {
-                System.out.println("Most Popular Drone:");
-                System.out.println("   Serial: " + rs.getString("dSerialNum"));
-                System.out.println("   Name: " + rs.getString("name"));
-                System.out.println("   Transports: " + rs.getInt("uses"));
+    private void reportPopularDrone() {
+        try {
+            ReportResult r = Reports.popularDrone();
+            if (!r.isEmpty()) {
+                out.println("Most Popular Drone:");
+                out.println("   Serial: " + r.text(0, "dSerialNum"));
+                out.println("   Name: " + r.text(0, "name"));
+                out.println("   Transports: " + r.number(0, "uses"));
             } else {
-                System.out.println("No transport data available.");
+                out.println("No transport data available.");
             }
         } catch (SQLException e) {
-            System.err.println("Report error: " + e.getMessage());
+            err.println("Report error: " + e.getMessage());
         }
     }
 
     // Report 5: Member who has rented the most items
-    private static void reportMemberWithMostItems() {
-        String sql = "SELECT r.userID, m.fname, m.lname, COUNT(r.checkOutID) AS totalRented " +
-                "FROM rentals r JOIN members m ON r.userID = m.userID " +
-                "GROUP BY r.userID, m.fname, m.lname " +
-                "ORDER BY totalRented DESC LIMIT 1;";
-        try (Connection conn = Database.getConnection();
-                PreparedStatement ps = conn.prepareStatement(sql);
-                ResultSet rs = ps.executeQuery()) {
-            if (rs.next()) {
-                System.out.println("Top Renter:");
-                System.out.println("   UserID: " + rs.getString("userID"));
-                System.out.println("   Name: " + rs.getString("fname") + " " + rs.getString("lname"));
-                System.out.println("   Total Items Rented: " + rs.getInt("totalRented"));
+    private void reportMemberWithMostItems() {
+        try {
+            ReportResult r = Reports.memberWithMostItems(includeArchived);
+            if (!r.isEmpty()) {
+                out.println("Top Renter:");
+                out.println("   UserID: " + r.text(0, "userID"));
+                out.println("   Name: " + r.text(0, "fname") + " " + r.text(0, "lname"));
+                out.println("   Total Items Rented: " + r.number(0, "totalRented"));
             } else {
-                System.out.println("No rental records yet.");
+                out.println("No rental records yet.");
             }
         } catch (SQLException e) {
-            System.err.println("Report error: " + e.getMessage());
+            err.println("Report error: " + e.getMessage());
         }
     }
 
     // Report 6: Equipment by Type released before YEAR
-    private static void reportEquipmentByTypeBeforeYear() {
-        System.out.print("Enter equipment type (exact match): ");
+    private void reportEquipmentByTypeBeforeYear() {
+        out.print("Enter equipment type (exact match): ");
         String type = input.nextLine().trim();
-        System.out.print("Enter YEAR (e.g., 2018): ");
+        out.print("Enter YEAR (e.g., 2018): ");
         int year = getIntInput();
 
-        String sql = "SELECT serialNum, description, year FROM equipment WHERE type = ? AND year < ? ORDER BY year DESC;";
-        try (Connection conn = Database.getConnection();
-                PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, type);
-            ps.setInt(2, year);
-            try (ResultSet rs = ps.executeQuery()) {
-                boolean any = false;
-                System.out.println("--- Equipment of type '" + type + "' made before " + year + " ---");
-                while (rs.next()) {
-                    System.out.println("   serial=" + rs.getString("serialNum") +
-                            " | desc=" + rs.getString("description") +
-                            " | year=" + rs.getInt("year"));
-                    any = true;
-                }
-                if (!any)
-                    System.out.println("No equipment matched.");
+        try {
+            ReportResult r = Reports.equipmentByTypeBeforeYear(type, year);
+            out.println("--- Equipment of type '" + type + "' made before " + year + " ---");
+            for (int i = 0; i < r.size(); i++) {
+                out.println("   serial=" + r.text(i, "serialNum") +
+                        " | desc=" + r.text(i, "description") +
+                        " | year=" + r.number(i, "year"));
+            }
+            if (r.isEmpty())
+                out.println("No equipment matched.");
+        } catch (SQLException e) {
+            err.println("Report error: " + e.getMessage());
+        }
+    }
+
+    // Report 7: Top item of every type, from the maintained rating summaries
+    private void reportBestRatedByType() {
+        try {
+            ReportResult r = Reports.bestRatedByType();
+            if (r.isEmpty())
+                out.println("No reviews yet.");
+            for (int i = 0; i < r.size(); i++) {
+                out.println("type=" + r.text(i, "type") +
+                        " | best=" + r.text(i, "serialNum") +
+                        " | avg=" + String.format("%.2f", ((Number) r.value(i, "avgRating")).doubleValue()) +
+                        " | reviews=" + r.number(i, "ratingCount") +
+                        " | type avg=" + String.format("%.2f", ((Number) r.value(i, "typeAvg")).doubleValue()));
+            }
+        } catch (SQLException e) {
+            err.println("Report error: " + e.getMessage());
+        }
+    }
+
+    // Report 8: Drones tied for the most repairs (replaces the DroneMaxRepairs view)
+    private void reportMostRepairedDrones() {
+        try {
+            ReportResult r = Reports.mostRepairedDrones();
+            if (r.isEmpty())
+                out.println("No repairs recorded.");
+            for (int i = 0; i < r.size(); i++) {
+                out.println("drone=" + r.text(i, "droneSN") +
+                        " | name=" + r.text(i, "name") +
+                        " | repairs=" + r.number(i, "repairs") +
+                        " | mechanics=" + r.number(i, "mechanics"));
             }
         } catch (SQLException e) {
-            System.err.println("Report error: " + e.getMessage());
+            err.println("Report error: " + e.getMessage());
+        }
+    }
+
+    // Report 9: Mechanics by repairs done
+    private void reportMechanicWorkload() {
+        try {
+            ReportResult r = Reports.mechanicWorkload();
+            if (r.isEmpty())
+                out.println("No repairs recorded.");
+            for (int i = 0; i < r.size(); i++) {
+                out.println("mechanic=" + r.text(i, "mechSSN") +
+                        " | specialty=" + r.text(i, "specialty") +
+                        " | repairs=" + r.number(i, "repairs") +
+                        " | drones=" + r.number(i, "drones"));
+            }
+        } catch (SQLException e) {
+            err.println("Report error: " + e.getMessage());
+        }
+    }
+
+    private void reportWarehouseUtilization() {
+        try {
+            ReportResult r = Reports.warehouseUtilization();
+            if (r.isEmpty())
+                out.println("No warehouses.");
+            for (int i = 0; i < r.size(); i++) {
+                out.println(r.text(i, "address") +
+                        " | items=" + (r.number(i, "onHand") + r.number(i, "rentedOut")) + "/" + r.text(i, "storeCap") +
+                        " (" + r.text(i, "storePct") + "%, " + r.number(i, "rentedOut") + " rented out)" +
+                        " | drones=" + r.number(i, "drones") + "/" + r.text(i, "droneCap") +
+                        " (" + r.text(i, "dronePct") + "%)");
+            }
+        } catch (SQLException e) {
+            err.println("Report error: " + e.getMessage());
+        }
+    }
+
+    // Daily checkouts and returns per type, from the RentalDaily rollups
+    private void reportDemandTrend() {
+        long[] range = getDateRangeInput();
+        if (range == null)
+            return;
+        try {
+            ReportResult r = Reports.demandTrend(LocalDate.ofEpochDay(range[0]).toString(),
+                    LocalDate.ofEpochDay(range[1] - 1).toString());
+            if (r.isEmpty())
+                out.println("No checkouts or returns recorded in that period.");
+            for (int i = 0; i < r.size(); i++) {
+                out.println(r.text(i, "day") +
+                        " | type=" + r.text(i, "type") +
+                        " | checkouts=" + r.number(i, "checkouts") +
+                        " | returns=" + r.number(i, "returns") +
+                        " | fees=" + r.text(i, "fees"));
+            }
+        } catch (SQLException e) {
+            err.println("Report error: " + e.getMessage());
+        }
+    }
+
+    // Rented-out share of each warehouse's items per type over a period, from the RentalDaily rollups
+    private void reportUtilizationByType() {
+        long[] range = getDateRangeInput();
+        if (range == null)
+            return;
+        try {
+            ReportResult r = Reports.utilizationByType(LocalDate.ofEpochDay(range[0]).toString(),
+                    LocalDate.ofEpochDay(range[1] - 1).toString());
+            if (r.isEmpty())
+                out.println("No equipment.");
+            for (int i = 0; i < r.size(); i++) {
+                out.println(r.text(i, "warehouseAddress") +
+                        " | type=" + r.text(i, "type") +
+                        " | items=" + r.number(i, "items") +
+                        " | checkouts=" + r.number(i, "checkouts") +
+                        " | hours out=" + r.text(i, "hoursOut") +
+                        " (" + r.text(i, "utilPct") + "%)");
+            }
+        } catch (SQLException e) {
+            err.println("Report error: " + e.getMessage());
+        }
+    }
+
+    // What to order (or what sits idle) per warehouse and model, from recent rental velocity
+    private void reportRestockPlan() {
+        try {
+            out.println("--- Restock plan (last " + RestockPlanner.SHORT_DAYS + " and " + RestockPlanner.LONG_DAYS +
+                    " days) ---");
+            RestockPlanner.print(out, RestockPlanner.plan(LocalDate.now(), RestockPlanner.SHORT_DAYS,
+                    RestockPlanner.LONG_DAYS));
+        } catch (SQLException e) {
+            err.println("Report error: " + e.getMessage());
+        }
+    }
+
+    // Streams a table, or writes a report, to a file
+    private void exportData() {
+        out.println("Reports: " + String.join(", ", Exporter.reportNames()));
+        String name = getStringInput("Table or report to export: ");
+        Exporter.Format format;
+        do {
+            format = Exporter.Format.parse(getStringInput("Format (csv / ndjson): "));
+        } while (format == null);
+        String file = getStringInput("Output file: ");
+        try {
+            long rows = Exporter.exportToFile(name, format, Paths.get(file));
+            out.println("Exported " + rows + " rows to " + file);
+        } catch (SQLException | IOException e) {
+            err.println("Export error: " + e.getMessage());
+        }
+    }
+
+    // History analytics from the memory-mapped snapshot, optionally refreshed first
+    private void snapshotAnalytics() {
+        out.print("Refresh snapshot from the database first? (y/n): ");
+        boolean refresh = input.nextLine().trim().equalsIgnoreCase("y");
+        try {
+            if (refresh || !Files.exists(RentalSnapshot.DEFAULT_FILE))
+                out.println("Snapshot written: " + RentalSnapshot.write(RentalSnapshot.DEFAULT_FILE) + " rows");
+            new SnapshotAnalytics(RentalSnapshot.open(RentalSnapshot.DEFAULT_FILE)).printAll(out);
+        } catch (SQLException | IOException e) {
+            err.println("Snapshot error: " + e.getMessage());
+        }
+    }
+
+    // Consistent copy of the database stamped with the journal position it was taken at
+    private void databaseSnapshot() {
+        if (!(repos instanceof JournaledRepositories)) {
+            out.println("Journaling is not enabled for this session.");
+            return;
+        }
+        out.print("Snapshot file (e.g., snapshot-" + LocalDate.now() + ".db): ");
+        String file = input.nextLine().trim();
+        if (file.isEmpty()) {
+            out.println("Cancelled.");
+            return;
+        }
+        try {
+            long seq = ((JournaledRepositories) repos).snapshot(Paths.get(file));
+            out.println("Snapshot written to " + file + " at journal seq " + seq + ".");
+            out.println("Rebuild later with: java JournalReplay replay " + file + " <out.db> [--until=<seq|time>]");
+        } catch (SQLException | IOException e) {
+            err.println("Snapshot error: " + e.getMessage());
+        }
+    }
+
+    // All reports at once on separate read connections, within a time budget
+    private void showDashboard() {
+        out.print("Enter userID for rentals-by-member (blank to skip): ");
+        String userID = input.nextLine().trim();
+        out.print("Enter equipment type for made-before-YEAR (blank to skip): ");
+        String type = input.nextLine().trim();
+        Integer year = null;
+        if (!type.isEmpty()) {
+            out.print("Enter YEAR (e.g., 2018): ");
+            year = getIntInput();
         }
+        Dashboard.show(out, userID.isEmpty() ? null : userID, type.isEmpty() ? null : type, year, includeArchived,
+                Dashboard.DEFAULT_BUDGET_MS);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,105 @@
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Moves returned rentals out of the hot rentals table into RentalArchive.
+ *
+ * A rental is archived once it is returned (SqliteRepositories.RETURNED_RENTAL:
+ * 'YES', or the return date in seeded rows) and its dueDate is before the
+ * cutoff. Each batch is one Database.write: the rows are copied
+ * to RentalArchive, added to the per item / member counts in
+ * RentalArchiveTotals and deleted from rentals. Lookups and reports over
+ * rentals then only scan open and recent checkouts, while the all-time
+ * counts stay available to the includeArchived reports. Between batches the
+ * writer is free for the app, so the job can run while it is in use.
+ *
+ * With shards each warehouse's shard is archived in turn.
+ *
+ * Usage: java RentalArchiver &lt;cutoff YYYY-MM-DD&gt; [batchSize] [--shards[=dir]]
+ */
+public class RentalArchiver {
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    // One batch, chosen the same way by each statement of its transaction (rowid order needs no sort)
+    private static final String BATCH = "SELECT rowid FROM rentals WHERE " + SqliteRepositories.RETURNED_RENTAL
+            + " AND dueDate < ? ORDER BY rowid LIMIT ?";
+
+    public static void main(String[] args) {
+        String cutoff = null;
+        int batchSize = DEFAULT_BATCH_SIZE;
+        try {
+            for (String arg : args) {
+                if (arg.equals("--shards") || arg.startsWith("--shards=")) {
+                    Database.enableShards(arg.equals("--shards") ? Shards.DEFAULT_DIR
+                            : Paths.get(arg.substring("--shards=".length())));
+                } else if (cutoff == null) {
+                    cutoff = LocalDate.parse(arg).toString();
+                } else {
+                    batchSize = Integer.parseInt(arg);
+                }
+            }
+            if (cutoff == null || batchSize < 1) {
+                usage();
+                return;
+            }
+            long start = System.nanoTime();
+            int moved = archive(cutoff, batchSize);
+            System.out.println("Archived " + moved + " returned rental(s) due before " + cutoff + " in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+        } catch (DateTimeParseException | NumberFormatException e) {
+            usage();
+        } catch (SQLException e) {
+            System.err.println("Archive error: " + e.getMessage());
+        } finally {
+            Database.shutdown();
+        }
+    }
+
+    private static void usage() {
+        System.err.println("Usage: java RentalArchiver <cutoff YYYY-MM-DD> [batchSize] [--shards[=dir]]");
+    }
+
+    /** Archives every returned rental due before cutoff (YYYY-MM-DD); returns how many moved. */
+    public static int archive(String cutoff, int batchSize) throws SQLException {
+        if (!Database.isSharded())
+            return archiveHere(cutoff, batchSize);
+        int total = 0;
+        for (String warehouse : Database.shards())
+            total += Database.onShard(warehouse, () -> archiveHere(cutoff, batchSize));
+        return total;
+    }
+
+    private static int archiveHere(String cutoff, int batchSize) throws SQLException {
+        String today = LocalDate.now().toString();
+        int total = 0;
+        while (true) {
+            int moved = Database.write(conn -> {
+                execute(conn, "INSERT INTO RentalArchive(serialNum, userID, checkOutID, dueDate, rentalFees, returns, "
+                        + "rentedHours, checkedOutAt, returnedAt, archivedOn) SELECT serialNum, userID, checkOutID, "
+                        + "dueDate, rentalFees, returns, rentedHours, checkedOutAt, returnedAt, ? FROM rentals "
+                        + "WHERE rowid IN (" + BATCH + ");", today, cutoff, batchSize);
+                execute(conn, "INSERT INTO RentalArchiveTotals(serialNum, userID, rentals) "
+                        + "SELECT serialNum, userID, COUNT(*) FROM rentals WHERE rowid IN (" + BATCH + ") "
+                        + "GROUP BY serialNum, userID "
+                        + "ON CONFLICT(serialNum, userID) DO UPDATE SET rentals = rentals + excluded.rentals;",
+                        cutoff, batchSize);
+                return execute(conn, "DELETE FROM rentals WHERE rowid IN (" + BATCH + ");", cutoff, batchSize);
+            });
+            total += moved;
+            if (moved < batchSize)
+                return total;
+        }
+    }
+
+    private static int execute(Connection conn, String sql, Object... params) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++)
+                ps.setObject(i + 1, params[i]);
+            return ps.executeUpdate();
+        }
+    }
+}
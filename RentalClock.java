@@ -0,0 +1,37 @@
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Time stamped on checkouts and returns, as local "yyyy-MM-dd HH:mm:ss"
+ * text (its first ten characters are the rollup day). Normally the wall
+ * clock; journal replay runs each record at the time it was journaled, so a
+ * rebuilt database has the same timestamps and daily rollups as the original.
+ */
+public class RentalClock {
+    private static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final ThreadLocal<Long> fixedMillis = new ThreadLocal<>();
+
+    public static String now() {
+        Long fixed = fixedMillis.get();
+        LocalDateTime time = fixed == null ? LocalDateTime.now()
+                : LocalDateTime.ofInstant(Instant.ofEpochMilli(fixed), ZoneId.systemDefault());
+        return time.format(FORMAT);
+    }
+
+    /** Runs work with now() fixed at millis on this thread. */
+    public static <T> T at(long millis, Database.Routed<T> work) throws SQLException {
+        Long previous = fixedMillis.get();
+        fixedMillis.set(millis);
+        try {
+            return work.run();
+        } finally {
+            if (previous == null)
+                fixedMillis.remove();
+            else
+                fixedMillis.set(previous);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+import java.sql.SQLException;
+import java.util.List;
+
+public interface RentalRepository {
+    /**
+     * Records the rental and marks the equipment RENTED in one step. If
+     * reservationID is not null that reservation is marked FULFILLED too.
+     * Returns false (and changes nothing) if the equipment is not AVAILABLE;
+     * throws if another booked reservation overlaps today through the due date.
+     */
+    boolean checkout(Rental r, String reservationID) throws SQLException;
+
+    /**
+     * Marks an open rental returned and makes the equipment AVAILABLE again.
+     * Returns the equipment serial, or null if the rental is unknown or
+     * already returned.
+     */
+    String checkin(String checkOutID) throws SQLException;
+
+    /** Rentals not yet returned. */
+    List<Rental> findOpen() throws SQLException;
+}
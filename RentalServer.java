@@ -0,0 +1,105 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Multi-session server: every TCP client on localhost gets its own run of the
+ * RentalAppConnected menus, with its own input and output, while all sessions
+ * share one JVM, the read-only connection pool, the single writer connection
+ * and the availability calendar. --pool sizes the read pool; --shards
+ * splits per-warehouse data into one file per warehouse (see Shards);
+ * --stats logs the cache statistics each time a session closes.
+ *
+ * Usage: java RentalServer [port] [--sessions=N] [--pool=N] [--group-commit[=batch,ms]] [--shards[=dir]]
+ *        [--stats]
+ * Connect with e.g. "nc localhost 5050".
+ */
+public class RentalServer {
+    private static final int DEFAULT_PORT = 5050;
+    private static final int DEFAULT_SESSIONS = 32;
+    private static final int DEFAULT_POOL = 8;
+
+    public static void main(String[] args) {
+        int port = DEFAULT_PORT;
+        int sessions = DEFAULT_SESSIONS;
+        int poolSize = DEFAULT_POOL;
+        boolean stats = false;
+        try {
+            for (String arg : args) {
+                if (arg.startsWith("--sessions="))
+                    sessions = Integer.parseInt(arg.substring("--sessions=".length()));
+                else if (arg.startsWith("--pool="))
+                    poolSize = Integer.parseInt(arg.substring("--pool=".length()));
+                else if (arg.equals("--stats"))
+                    stats = true;
+                else if (!arg.startsWith("--"))
+                    port = Integer.parseInt(arg);
+            }
+        } catch (NumberFormatException e) {
+            System.err.println("Usage: java RentalServer [port] [--sessions=N] [--pool=N] [--group-commit[=batch,ms]] "
+                    + "[--shards[=dir]] [--stats]");
+            return;
+        }
+        if (!RentalAppConnected.configure(args))
+            return;
+        Database.enablePool(poolSize);
+
+        CachedRepositories repos = Repositories.cached(Repositories.sqlite(),
+                RentalAppConnected.CATALOG_CACHE_SIZE);
+        MutationJournal journal = RentalAppConnected.openJournal();
+        if (journal == null)
+            return;
+        JournaledRepositories journaled = Repositories.journaled(repos, journal);
+        // Java 17 has no virtual threads: one platform thread per session,
+        // capped at --sessions; further clients wait for a free slot.
+        ExecutorService pool = Executors.newFixedThreadPool(sessions, sessionThreads());
+        AtomicInteger active = new AtomicInteger();
+        CachedRepositories statsOf = stats ? repos : null;
+
+        try (ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+            System.out.println("Rental server listening on localhost:" + port + " (sessions=" + sessions
+                    + ", pool=" + poolSize + ")");
+            while (true) {
+                Socket client = server.accept();
+                pool.execute(() -> serve(client, journaled, statsOf, active));
+            }
+        } catch (IOException e) {
+            System.err.println("Server error: " + e.getMessage());
+        } finally {
+            pool.shutdown();
+            RentalAppConnected.closeJournal(journal);
+            Database.shutdown();
+        }
+    }
+
+    // cache is null unless --stats asked for its statistics after each session
+    private static void serve(Socket client, Repositories repos, CachedRepositories cache, AtomicInteger active) {
+        String who = client.getRemoteSocketAddress().toString();
+        System.out.println("Session opened: " + who + " (active: " + active.incrementAndGet() + ")");
+        try (Socket s = client;
+                PrintStream out = new PrintStream(s.getOutputStream(), true)) {
+            new RentalAppConnected(repos, s.getInputStream(), out, out).run();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Session error (" + who + "): " + e.getMessage());
+        } finally {
+            System.out.println("Session closed: " + who + " (active: " + active.decrementAndGet() + ")");
+            if (cache != null)
+                System.out.println(cache.cacheStats());
+        }
+    }
+
+    private static ThreadFactory sessionThreads() {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, "session-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
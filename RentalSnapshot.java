@@ -0,0 +1,385 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Columnar snapshot of rental, transport and review history, written once
+ * from rentalApp.db and then memory-mapped read-only, so analytics
+ * (SnapshotAnalytics) scan primitive columns without touching the live
+ * database.
+ *
+ * Serial numbers, userIDs and drone serials are dictionary-encoded: each
+ * column stores an int index into a string table kept at the end of the
+ * file. File layout (big-endian):
+ *
+ *   header   magic, version, createdMillis, row counts, dictionary sizes,
+ *            dictionary offset (64 bytes)
+ *   rentals  serial int[R], user int[R], hours int[R] (-1 = unknown),
+ *            returned byte[R], padding to 8, fees double[R]
+ *   transports  drone int[T], serial int[T]
+ *   reviews  serial int[V], user int[V], rating double[V] (NaN = none)
+ *   dictionaries  serials, users, drones: (unsigned short length, UTF-8 bytes)*
+ */
+public class RentalSnapshot {
+    public static final Path DEFAULT_FILE = Paths.get("rentalSnapshot.bin");
+
+    private static final int MAGIC = 0x52534E50; // "RSNP"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+
+    private final long createdMillis;
+    private final int rentals, transports, reviews;
+    private final String[] serials, users, drones;
+
+    private final IntBuffer rentalSerial, rentalUser, rentalHours;
+    private final ByteBuffer rentalReturned;
+    private final DoubleBuffer rentalFees;
+    private final IntBuffer transportDrone, transportSerial;
+    private final IntBuffer reviewSerial, reviewUser;
+    private final DoubleBuffer reviewRating;
+
+    /** Writes a snapshot of the database to a file (replaced atomically); returns the rows written. */
+    public static int write(Path file) throws SQLException, IOException {
+        Dictionary serials = new Dictionary(), users = new Dictionary(), drones = new Dictionary();
+        IntColumn rSerial = new IntColumn(), rUser = new IntColumn(), rHours = new IntColumn(), rReturned = new IntColumn();
+        DoubleColumn rFees = new DoubleColumn();
+        IntColumn tDrone = new IntColumn(), tSerial = new IntColumn();
+        IntColumn vSerial = new IntColumn(), vUser = new IntColumn();
+        DoubleColumn vRating = new DoubleColumn();
+
+        // One consistent read snapshot across the three tables; with shards, one per shard
+        // for its rentals and transports, and reviews (in rentalApp.db) with the last
+        List<String> shards = Database.shards();
+        int parts = Math.max(1, shards.size());
+        for (int part = 0; part < parts; part++) {
+            String warehouse = shards.isEmpty() ? null : shards.get(part);
+            boolean last = part == parts - 1;
+            try (Connection conn = warehouse == null ? Database.getReadConnection()
+                    : Database.onShard(warehouse, Database::getReadConnection)) {
+                conn.setAutoCommit(false);
+                try {
+                    // Archived rentals are history too (see RentalArchiver)
+                    String returned = "CASE WHEN " + SqliteRepositories.RETURNED_RENTAL + " THEN 1 ELSE 0 END";
+                    scan(conn, "SELECT serialNum, userID, rentalFees, rentedHours, " + returned + " FROM rentals " +
+                            "UNION ALL SELECT serialNum, userID, rentalFees, rentedHours, " + returned +
+                            " FROM RentalArchive;", rs -> {
+                        rSerial.add(serials.id(rs.getString(1)));
+                        rUser.add(users.id(rs.getString(2)));
+                        rFees.add(rs.getDouble(3));
+                        int hours = rs.getInt(4);
+                        rHours.add(rs.wasNull() ? -1 : hours);
+                        rReturned.add(rs.getInt(5));
+                    });
+                    scan(conn, "SELECT dSerialNum, eSerialNum FROM transports;", rs -> {
+                        tDrone.add(drones.id(rs.getString(1)));
+                        tSerial.add(serials.id(rs.getString(2)));
+                    });
+                    if (last) {
+                        scan(conn, "SELECT serialNum, userID, ratings FROM Reviews;", rs -> {
+                            vSerial.add(serials.id(rs.getString(1)));
+                            vUser.add(users.id(rs.getString(2)));
+                            double rating = rs.getDouble(3);
+                            vRating.add(rs.wasNull() ? Double.NaN : rating);
+                        });
+                    }
+                } finally {
+                    conn.rollback();
+                }
+            }
+        }
+
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            int r = rSerial.size, t = tDrone.size, v = vSerial.size;
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(System.currentTimeMillis());
+            out.writeInt(r);
+            out.writeInt(t);
+            out.writeInt(v);
+            out.writeInt(serials.size());
+            out.writeInt(users.size());
+            out.writeInt(drones.size());
+            out.writeLong(dictionaryOffset(r, t, v));
+            out.write(new byte[HEADER_BYTES - out.size()]);
+
+            rSerial.writeTo(out);
+            rUser.writeTo(out);
+            rHours.writeTo(out);
+            for (int i = 0; i < r; i++)
+                out.writeByte(rReturned.values[i]);
+            out.write(new byte[pad(13L * r)]);
+            rFees.writeTo(out);
+            tDrone.writeTo(out);
+            tSerial.writeTo(out);
+            vSerial.writeTo(out);
+            vUser.writeTo(out);
+            vRating.writeTo(out);
+
+            serials.writeTo(out);
+            users.writeTo(out);
+            drones.writeTo(out);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return rSerial.size + tDrone.size + vSerial.size;
+    }
+
+    /** Maps a snapshot file read-only. */
+    public static RentalSnapshot open(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new RentalSnapshot(ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()));
+        }
+    }
+
+    private RentalSnapshot(MappedByteBuffer map) throws IOException {
+        if (map.capacity() < HEADER_BYTES || map.getInt(0) != MAGIC)
+            throw new IOException("Not a rental snapshot");
+        if (map.getInt(4) != VERSION)
+            throw new IOException("Unsupported snapshot version " + map.getInt(4));
+        createdMillis = map.getLong(8);
+        rentals = map.getInt(16);
+        transports = map.getInt(20);
+        reviews = map.getInt(24);
+        int serialCount = map.getInt(28), userCount = map.getInt(32), droneCount = map.getInt(36);
+        long dictionaries = map.getLong(40);
+        if (dictionaries != dictionaryOffset(rentals, transports, reviews) || dictionaries > map.capacity())
+            throw new IOException("Corrupt rental snapshot");
+
+        int pos = HEADER_BYTES;
+        rentalSerial = map.slice(pos, 4 * rentals).asIntBuffer();
+        pos += 4 * rentals;
+        rentalUser = map.slice(pos, 4 * rentals).asIntBuffer();
+        pos += 4 * rentals;
+        rentalHours = map.slice(pos, 4 * rentals).asIntBuffer();
+        pos += 4 * rentals;
+        rentalReturned = map.slice(pos, rentals);
+        pos += rentals + pad(13L * rentals);
+        rentalFees = map.slice(pos, 8 * rentals).asDoubleBuffer();
+        pos += 8 * rentals;
+        transportDrone = map.slice(pos, 4 * transports).asIntBuffer();
+        pos += 4 * transports;
+        transportSerial = map.slice(pos, 4 * transports).asIntBuffer();
+        pos += 4 * transports;
+        reviewSerial = map.slice(pos, 4 * reviews).asIntBuffer();
+        pos += 4 * reviews;
+        reviewUser = map.slice(pos, 4 * reviews).asIntBuffer();
+        pos += 4 * reviews;
+        reviewRating = map.slice(pos, 8 * reviews).asDoubleBuffer();
+
+        ByteBuffer dict = map.slice((int) dictionaries, map.capacity() - (int) dictionaries);
+        serials = Dictionary.read(dict, serialCount);
+        users = Dictionary.read(dict, userCount);
+        drones = Dictionary.read(dict, droneCount);
+    }
+
+    public long getCreatedMillis() {
+        return createdMillis;
+    }
+
+    public int rentalCount() {
+        return rentals;
+    }
+
+    public int transportCount() {
+        return transports;
+    }
+
+    public int reviewCount() {
+        return reviews;
+    }
+
+    /** Dictionary sizes: serial ids, user ids and drone ids are below these. */
+    public int serialCount() {
+        return serials.length;
+    }
+
+    public int userCount() {
+        return users.length;
+    }
+
+    public int droneCount() {
+        return drones.length;
+    }
+
+    public String serial(int id) {
+        return serials[id];
+    }
+
+    public String user(int id) {
+        return users[id];
+    }
+
+    public String drone(int id) {
+        return drones[id];
+    }
+
+    // Column accessors, by row
+
+    public int rentalSerial(int row) {
+        return rentalSerial.get(row);
+    }
+
+    public int rentalUser(int row) {
+        return rentalUser.get(row);
+    }
+
+    /** -1 when the rental has no hours recorded. */
+    public int rentalHours(int row) {
+        return rentalHours.get(row);
+    }
+
+    public boolean rentalReturned(int row) {
+        return rentalReturned.get(row) != 0;
+    }
+
+    public double rentalFees(int row) {
+        return rentalFees.get(row);
+    }
+
+    public int transportDrone(int row) {
+        return transportDrone.get(row);
+    }
+
+    public int transportSerial(int row) {
+        return transportSerial.get(row);
+    }
+
+    public int reviewSerial(int row) {
+        return reviewSerial.get(row);
+    }
+
+    public int reviewUser(int row) {
+        return reviewUser.get(row);
+    }
+
+    /** NaN when the review has no rating. */
+    public double reviewRating(int row) {
+        return reviewRating.get(row);
+    }
+
+    public static void main(String[] args) {
+        Path file = args.length > 0 ? Paths.get(args[0]) : DEFAULT_FILE;
+        try {
+            int rows = write(file);
+            System.out.println("Wrote " + rows + " rows to " + file + " (" + Files.size(file) + " bytes)");
+        } catch (SQLException | IOException e) {
+            System.err.println("Snapshot error: " + e.getMessage());
+        } finally {
+            Database.shutdown();
+        }
+    }
+
+    // ===== layout =====
+
+    private static int pad(long bytes) {
+        return (int) ((8 - bytes % 8) % 8);
+    }
+
+    // Everything after the returned bytes is 8-byte aligned
+    private static long dictionaryOffset(int r, int t, int v) {
+        return HEADER_BYTES + 13L * r + pad(13L * r) + 8L * r + 8L * t + 16L * v;
+    }
+
+    private interface RowReader {
+        void read(ResultSet rs) throws SQLException;
+    }
+
+    private static void scan(Connection conn, String sql, RowReader reader) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(sql);
+                ResultSet rs = ps.executeQuery()) {
+            while (rs.next())
+                reader.read(rs);
+        }
+    }
+
+    private static class Dictionary {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int id(String value) {
+            String key = value == null ? "" : value;
+            Integer id = ids.get(key);
+            if (id == null) {
+                id = values.size();
+                ids.put(key, id);
+                values.add(key);
+            }
+            return id;
+        }
+
+        int size() {
+            return values.size();
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            for (String v : values) {
+                byte[] bytes = v.getBytes(StandardCharsets.UTF_8);
+                out.writeShort(bytes.length);
+                out.write(bytes);
+            }
+        }
+
+        static String[] read(ByteBuffer buf, int count) {
+            String[] values = new String[count];
+            for (int i = 0; i < count; i++) {
+                byte[] bytes = new byte[buf.getShort() & 0xffff];
+                buf.get(bytes);
+                values[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            return values;
+        }
+    }
+
+    private static class IntColumn {
+        int[] values = new int[1024];
+        int size;
+
+        void add(int v) {
+            if (size == values.length)
+                values = Arrays.copyOf(values, size * 2);
+            values[size++] = v;
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            for (int i = 0; i < size; i++)
+                out.writeInt(values[i]);
+        }
+    }
+
+    private static class DoubleColumn {
+        double[] values = new double[1024];
+        int size;
+
+        void add(double v) {
+            if (size == values.length)
+                values = Arrays.copyOf(values, size * 2);
+            values[size++] = v;
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            for (int i = 0; i < size; i++)
+                out.writeDouble(values[i]);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+/**
+ * Maintained repair totals for one drone or one mechanic. partners is the
+ * number of distinct mechanics (for a drone) or drones (for a mechanic).
+ */
+public class RepairCount {
+    private final String key;
+    private final int repairs;
+    private final int partners;
+
+    public RepairCount(String key, int repairs, int partners) {
+        this.key = key;
+        this.repairs = repairs;
+        this.partners = partners;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public int getRepairs() {
+        return repairs;
+    }
+
+    public int getPartners() {
+        return partners;
+    }
+}
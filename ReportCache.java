@@ -0,0 +1,74 @@
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+
+/**
+ * Caches report results by report name plus parameters until the data
+ * changes.
+ *
+ * Validity is tracked by two counters, read before each lookup: this
+ * process's write epoch (bumped by Database.write after every commit) and
+ * PRAGMA data_version on a dedicated connection, which changes when any
+ * other connection or process commits. If either counter moved, every
+ * cached result is dropped. Between writes, repeated reports are answered
+ * from memory.
+ */
+public class ReportCache {
+    private static final int CAPACITY = 256;
+
+    private static ReportCache shared;
+
+    /** Runs the report when its result is not cached. */
+    public interface Loader {
+        ReportResult load() throws SQLException;
+    }
+
+    private final LruCache<String, ReportResult> results = new LruCache<>("reports", CAPACITY);
+    private Connection watch;
+    private String token;
+
+    /** The cache shared by every session in the JVM. */
+    public static synchronized ReportCache shared() {
+        if (shared == null)
+            shared = new ReportCache();
+        return shared;
+    }
+
+    public ReportResult get(String report, Object[] params, Loader loader) throws SQLException {
+        String key = report + Arrays.toString(params);
+        long generation;
+        synchronized (this) {
+            String current = currentToken();
+            if (!current.equals(token)) {
+                results.clear();
+                token = current;
+            }
+            generation = results.generation();
+        }
+        ReportResult cached = results.get(key);
+        if (cached != null)
+            return cached;
+        ReportResult loaded = loader.load();
+        // Dropped if the data changed (and the cache was cleared) meanwhile
+        results.put(key, loaded, generation);
+        return loaded;
+    }
+
+    public String stats() {
+        return results.stats();
+    }
+
+    // "<write epoch>:<data_version>"
+    private String currentToken() throws SQLException {
+        long epoch = Database.writeEpoch();
+        if (watch == null || watch.isClosed())
+            watch = Database.openUnpooledConnection();
+        try (Statement st = watch.createStatement();
+                ResultSet rs = st.executeQuery("PRAGMA data_version;")) {
+            rs.next();
+            return epoch + ":" + rs.getLong(1);
+        }
+    }
+}
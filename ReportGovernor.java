@@ -0,0 +1,196 @@
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps analytics from crowding out rentals and returns.
+ *
+ * At most MAX_CONCURRENT reports run at once; a report that cannot start
+ * within QUEUE_WAIT_MS is refused rather than queued indefinitely. Each
+ * running query gets a deadline: when it passes, the statement is cancelled
+ * (sqlite3_interrupt), which aborts the query mid-step and releases its read
+ * snapshot.
+ *
+ * A dashboard is admitted as one unit: it takes a single slot for its whole
+ * fan-out, and the reports it runs on its worker threads (see joined) go
+ * through admit without taking another. So one dashboard never queues behind
+ * its own reports, and while it runs the other MAX_CONCURRENT - 1 slots stay
+ * free for other sessions. Inside its slot a dashboard runs its queries on
+ * a worker pool shared by all sessions and no larger than the read pool (see
+ * Dashboard.parallelism), so however many dashboards are open they never
+ * hold more read connections than the pool has. A joined task may carry the
+ * dashboard's deadline: its queries are then cancelled when the budget runs
+ * out, not only at their own timeout, so they give their connection back.
+ *
+ * Transactional work takes the other lane: it uses Database.write and the
+ * regular (pooled) connections, never waits on these permits, and under WAL
+ * is not blocked by report readers.
+ */
+public class ReportGovernor {
+    public static final int MAX_CONCURRENT = 2;
+    public static final long QUEUE_WAIT_MS = 2000;
+
+    private static final ReportGovernor shared = new ReportGovernor(MAX_CONCURRENT, QUEUE_WAIT_MS);
+
+    private static final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "report-watchdog");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /** Work run under the governor. */
+    public interface Task<T> {
+        T run() throws SQLException;
+    }
+
+    private final Semaphore permits;
+    // Set while this thread works for a unit that already holds a slot
+    private final ThreadLocal<Boolean> inSlot = new ThreadLocal<>();
+    // System.nanoTime() by which this thread's queries are cancelled; null for just their own timeout
+    private final ThreadLocal<Long> deadline = new ThreadLocal<>();
+    private final int maxConcurrent;
+    private final long queueWaitMillis;
+
+    private long admitted = 0;
+    private long refused = 0;
+    private long cancelled = 0;
+
+    public ReportGovernor(int maxConcurrent, long queueWaitMillis) {
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.maxConcurrent = maxConcurrent;
+        this.queueWaitMillis = queueWaitMillis;
+    }
+
+    public static ReportGovernor shared() {
+        return shared;
+    }
+
+    /**
+     * Runs task once a report slot is free; refuses it after queueWaitMillis.
+     * Within an admitted unit (including joined tasks) it just runs.
+     */
+    public <T> T admit(String report, Task<T> task) throws SQLException {
+        if (inSlot.get() != null)
+            return task.run();
+        try {
+            if (!permits.tryAcquire(queueWaitMillis, TimeUnit.MILLISECONDS)) {
+                synchronized (this) {
+                    refused++;
+                }
+                throw new SQLException("Report '" + report + "' refused: " + maxConcurrent +
+                        " reports already running, try again shortly");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a report slot", e);
+        }
+        try {
+            synchronized (this) {
+                admitted++;
+            }
+            return runInSlot(task);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Runs task, typically on a worker thread, as part of a unit admitted
+     * elsewhere: reports it starts take no slot of their own. Only call it
+     * while that unit's admit is still running.
+     */
+    public <T> T joined(Task<T> task) throws SQLException {
+        return runInSlot(task);
+    }
+
+    /**
+     * Like joined, but queries the task runs are also cancelled once
+     * System.nanoTime() reaches deadlineNanos (null for no deadline).
+     */
+    public <T> T joined(Long deadlineNanos, Task<T> task) throws SQLException {
+        Long outer = deadline.get();
+        if (deadlineNanos == null)
+            deadline.remove();
+        else
+            deadline.set(deadlineNanos);
+        try {
+            return runInSlot(task);
+        } finally {
+            if (outer == null)
+                deadline.remove();
+            else
+                deadline.set(outer);
+        }
+    }
+
+    /** The deadline this thread's queries run under, to pass on to threads it fans out to; null if none. */
+    public Long deadline() {
+        return deadline.get();
+    }
+
+    private <T> T runInSlot(Task<T> task) throws SQLException {
+        if (inSlot.get() != null)
+            return task.run();
+        inSlot.set(Boolean.TRUE);
+        try {
+            return task.run();
+        } finally {
+            inSlot.remove();
+        }
+    }
+
+    /**
+     * Runs task, cancelling statement if it is still running after
+     * timeoutSeconds or past this thread's deadline, whichever comes first.
+     */
+    public <T> T withTimeout(String report, Statement statement, int timeoutSeconds, Task<T> task)
+            throws SQLException {
+        statement.setQueryTimeout(timeoutSeconds);
+        long delayNanos = TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        Long until = deadline.get();
+        boolean budget = until != null && until - System.nanoTime() < delayNanos;
+        if (budget) {
+            delayNanos = until - System.nanoTime();
+            // A cancel before the query starts would be lost, so don't start it
+            if (delayNanos <= 0) {
+                synchronized (this) {
+                    cancelled++;
+                }
+                throw new SQLException("Report '" + report + "' cancelled at the end of its time budget");
+            }
+        }
+        AtomicBoolean fired = new AtomicBoolean(false);
+        ScheduledFuture<?> cancel = watchdog.schedule(() -> {
+            fired.set(true);
+            try {
+                statement.cancel();
+            } catch (SQLException e) {
+                System.err.println("Report cancel error: " + e.getMessage());
+            }
+        }, delayNanos, TimeUnit.NANOSECONDS);
+        try {
+            return task.run();
+        } catch (SQLException e) {
+            if (fired.get()) {
+                synchronized (this) {
+                    cancelled++;
+                }
+                throw new SQLException("Report '" + report + "' cancelled " +
+                        (budget ? "at the end of its time budget" : "after " + timeoutSeconds + " s"), e);
+            }
+            throw e;
+        } finally {
+            cancel.cancel(false);
+        }
+    }
+
+    public synchronized String stats() {
+        return "governor: running=" + (maxConcurrent - permits.availablePermits()) + "/" + maxConcurrent +
+                " | admitted=" + admitted + " | refused=" + refused + " | cancelled=" + cancelled;
+    }
+}
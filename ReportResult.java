@@ -0,0 +1,47 @@
+import java.util.Collections;
+import java.util.List;
+
+/** Column names and rows of one report run. Rows are not copied; treat them as read-only. */
+public class ReportResult {
+    private final List<String> columns;
+    private final List<Object[]> rows;
+
+    public ReportResult(List<String> columns, List<Object[]> rows) {
+        this.columns = Collections.unmodifiableList(columns);
+        this.rows = Collections.unmodifiableList(rows);
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    public List<Object[]> getRows() {
+        return rows;
+    }
+
+    public int size() {
+        return rows.size();
+    }
+
+    public boolean isEmpty() {
+        return rows.isEmpty();
+    }
+
+    /** Value of the named column in the given row (SQLite's own Java type). */
+    public Object value(int row, String column) {
+        int index = columns.indexOf(column);
+        if (index < 0)
+            throw new IllegalArgumentException("No column " + column);
+        return rows.get(row)[index];
+    }
+
+    public String text(int row, String column) {
+        Object v = value(row, column);
+        return v == null ? null : v.toString();
+    }
+
+    public int number(int row, String column) {
+        Object v = value(row, column);
+        return v == null ? 0 : ((Number) v).intValue();
+    }
+}
@@ -0,0 +1,406 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The report queries behind the Reports menu. Each returns its rows as a
+ * ReportResult, served from the shared ReportCache while the data has not
+ * changed; the menu only formats them. Queries run on read-only WAL
+ * connections, so several can run at once (see Dashboard), under the
+ * ReportGovernor's concurrency cap and per-report timeouts. With
+ * per-warehouse shards, reports over the sharded tables run on every shard
+ * at once and their rows are merged (see runSharded). Trend reports read the
+ * RentalDaily rollups kept by checkout and return, not the rentals themselves.
+ */
+public class Reports {
+    // Query timeouts: single-key lookups should be instant, aggregations get longer
+    private static final int LOOKUP_TIMEOUT_S = 5;
+    private static final int AGGREGATE_TIMEOUT_S = 15;
+
+    // Total number of rentals by one member
+    public static ReportResult checkoutsByMember(String userID) throws SQLException {
+        return checkoutsByMember(userID, false);
+    }
+
+    public static ReportResult checkoutsByMember(String userID, boolean includeArchived) throws SQLException {
+        return runSharded(named("checkoutsByMember", includeArchived), LOOKUP_TIMEOUT_S,
+                "SELECT COALESCE(SUM(n), 0) AS cnt FROM " + rentalCounts(includeArchived) + " r WHERE userID = ?",
+                Merge.of("", "cnt", "", 0), userID);
+    }
+
+    // Most popular equipment by number of rentals
+    public static ReportResult popularItem() throws SQLException {
+        return popularItem(false);
+    }
+
+    public static ReportResult popularItem(boolean includeArchived) throws SQLException {
+        return runSharded(named("popularItem", includeArchived), AGGREGATE_TIMEOUT_S,
+                "SELECT r.serialNum, e.description, SUM(r.n) AS timesRented " +
+                        "FROM " + rentalCounts(includeArchived) + " r JOIN equipment e ON r.serialNum = e.serialNum " +
+                        "GROUP BY r.serialNum, e.description ORDER BY timesRented DESC",
+                Merge.of("serialNum", "timesRented", "timesRented DESC", 1));
+    }
+
+    // Most frequent equipment manufacturer
+    public static ReportResult popularManufacturer() throws SQLException {
+        return popularManufacturer(false);
+    }
+
+    public static ReportResult popularManufacturer(boolean includeArchived) throws SQLException {
+        return runSharded(named("popularManufacturer", includeArchived), AGGREGATE_TIMEOUT_S,
+                "SELECT em.manufacturer, SUM(r.n) AS rentedCount " +
+                        "FROM " + rentalCounts(includeArchived) + " r " +
+                        "JOIN equipment e ON r.serialNum = e.serialNum " +
+                        "JOIN equip_model em ON e.model = em.model " +
+                        "GROUP BY em.manufacturer " +
+                        "ORDER BY rentedCount DESC",
+                Merge.of("manufacturer", "rentedCount", "rentedCount DESC", 1));
+    }
+
+    // Most used drone
+    public static ReportResult popularDrone() throws SQLException {
+        return runSharded("popularDrone", AGGREGATE_TIMEOUT_S,
+                "SELECT t.dSerialNum, d.name, COUNT(t.dSerialNum) AS uses " +
+                        "FROM transports t JOIN drones d ON t.dSerialNum = d.serialNum " +
+                        "GROUP BY t.dSerialNum, d.name " +
+                        "ORDER BY uses DESC",
+                Merge.of("dSerialNum", "uses", "uses DESC", 1));
+    }
+
+    // Member who has rented the most items
+    public static ReportResult memberWithMostItems() throws SQLException {
+        return memberWithMostItems(false);
+    }
+
+    public static ReportResult memberWithMostItems(boolean includeArchived) throws SQLException {
+        return runSharded(named("memberWithMostItems", includeArchived), AGGREGATE_TIMEOUT_S,
+                "SELECT r.userID, m.fname, m.lname, SUM(r.n) AS totalRented " +
+                        "FROM " + rentalCounts(includeArchived) + " r JOIN members m ON r.userID = m.userID " +
+                        "GROUP BY r.userID, m.fname, m.lname " +
+                        "ORDER BY totalRented DESC",
+                Merge.of("userID", "totalRented", "totalRented DESC", 1));
+    }
+
+    // Equipment of one type released before a year
+    public static ReportResult equipmentByTypeBeforeYear(String type, int year) throws SQLException {
+        return runSharded("equipmentByTypeBeforeYear", LOOKUP_TIMEOUT_S,
+                "SELECT serialNum, description, year FROM equipment WHERE type = ? AND year < ? ORDER BY year DESC",
+                Merge.of("", "", "year DESC", 0), type, year);
+    }
+
+    // Best-rated item of every type: one pass over RatingSummary, never over Reviews
+    public static ReportResult bestRatedByType() throws SQLException {
+        return run("bestRatedByType", AGGREGATE_TIMEOUT_S,
+                "SELECT s.type, s.serialNum, s.avgRating, s.ratingCount, t.avgRating AS typeAvg " +
+                        "FROM (SELECT *, ROW_NUMBER() OVER (PARTITION BY type " +
+                        "ORDER BY avgRating DESC, ratingCount DESC) AS rn FROM RatingSummary) s " +
+                        "JOIN TypeRatingSummary t ON t.type = s.type " +
+                        "WHERE s.rn = 1 ORDER BY s.avgRating DESC, s.type;");
+    }
+
+    // Drones tied for the most repairs, from the maintained counts
+    public static ReportResult mostRepairedDrones() throws SQLException {
+        // Counts live in rentalApp.db; with shards only the drone's own shard fills in its name
+        return runSharded("mostRepairedDrones", LOOKUP_TIMEOUT_S,
+                "SELECT c.droneSN, d.name, c.repairs, c.mechanics FROM DroneRepairCount c " +
+                        "LEFT JOIN drones d ON d.serialNum = c.droneSN " +
+                        "WHERE c.repairs = (SELECT MAX(repairs) FROM DroneRepairCount) ORDER BY c.droneSN",
+                Merge.of("droneSN", "", "droneSN", 0));
+    }
+
+    // Busiest mechanics first, from the maintained counts
+    public static ReportResult mechanicWorkload() throws SQLException {
+        return run("mechanicWorkload", LOOKUP_TIMEOUT_S,
+                "SELECT w.mechSSN, m.specialty, w.repairs, w.drones FROM MechanicWorkload w " +
+                        "LEFT JOIN Mechanics m ON m.ssn = w.mechSSN " +
+                        "ORDER BY w.repairs DESC, w.mechSSN LIMIT 10;");
+    }
+
+    // Fullest warehouses first, from the maintained occupancy counters
+    public static ReportResult warehouseUtilization() throws SQLException {
+        // With shards each one reports its own warehouse (which ?2 names); without, ?2 is null
+        return runSharded("warehouseUtilization", LOOKUP_TIMEOUT_S,
+                "SELECT w.address, w.storeCap, COALESCE(o.onHand, 0) AS onHand, COALESCE(o.rentedOut, 0) AS rentedOut, " +
+                        "ROUND(100.0 * (COALESCE(o.onHand, 0) + COALESCE(o.rentedOut, 0)) / w.storeCap, 1) AS storePct, " +
+                        "w.droneCap, COALESCE(o.drones, 0) AS drones, " +
+                        "ROUND(100.0 * COALESCE(o.drones, 0) / w.droneCap, 1) AS dronePct " +
+                        "FROM Warehouses w LEFT JOIN WarehouseOccupancy o ON o.warehouseAddress = w.address " +
+                        "WHERE ?1 IS NULL OR w.address = ?1 " +
+                        "ORDER BY storePct DESC, w.address",
+                Merge.of("", "", "storePct DESC, address", 0), Merge.SHARD);
+    }
+
+    // Checkouts and returns per day and type between two days (YYYY-MM-DD, inclusive), from the daily rollups
+    public static ReportResult demandTrend(String fromDay, String toDay) throws SQLException {
+        return runSharded("demandTrend", AGGREGATE_TIMEOUT_S,
+                "SELECT day, type, SUM(checkouts) AS checkouts, SUM(returns) AS returns, " +
+                        "ROUND(SUM(fees), 2) AS fees FROM RentalDaily WHERE day BETWEEN ? AND ? " +
+                        "GROUP BY day, type ORDER BY day, type",
+                Merge.of("day, type", "checkouts, returns, fees", "day, type", 0), fromDay, toDay);
+    }
+
+    // Share of the period each warehouse's items of a type spent rented out, busiest first.
+    // Hours are booked on the return day, and items are counted as they stand now.
+    public static ReportResult utilizationByType(String fromDay, String toDay) throws SQLException {
+        return runSharded("utilizationByType", AGGREGATE_TIMEOUT_S,
+                "SELECT i.warehouseAddress, i.type, i.items, COALESCE(d.checkouts, 0) AS checkouts, " +
+                        "ROUND(COALESCE(d.hoursOut, 0), 1) AS hoursOut, " +
+                        "ROUND(100.0 * COALESCE(d.hoursOut, 0) / (24 * (julianday(?2) - julianday(?1) + 1) * i.items), 1) " +
+                        "AS utilPct " +
+                        "FROM (SELECT COALESCE(warehouseAddress, '') AS warehouseAddress, COALESCE(type, '') AS type, " +
+                        "COUNT(*) AS items FROM equipment GROUP BY 1, 2) i " +
+                        "LEFT JOIN (SELECT warehouseAddress, type, SUM(checkouts) AS checkouts, SUM(hoursOut) AS hoursOut " +
+                        "FROM RentalDaily WHERE day BETWEEN ?1 AND ?2 GROUP BY warehouseAddress, type) d " +
+                        "ON d.warehouseAddress = i.warehouseAddress AND d.type = i.type " +
+                        "ORDER BY utilPct DESC, i.warehouseAddress, i.type",
+                Merge.of("", "", "utilPct DESC, warehouseAddress, type", 0), fromDay, toDay);
+    }
+
+    /**
+     * Per warehouse, type and model: items in stock (not lost or retired),
+     * how many are out, checkouts over the short and long windows ending
+     * asOfDay (windows start after shortFrom / longFrom), the long window's
+     * returns and hours out, the warehouse's free storage, and the last order
+     * of this model stocked here with its unit price. Input to RestockPlanner.
+     */
+    public static ReportResult restockInputs(String asOfDay, String shortFrom, String longFrom) throws SQLException {
+        return runSharded("restockInputs", AGGREGATE_TIMEOUT_S,
+                "SELECT i.warehouseAddress, i.type, i.model, i.items, i.rentedOut, " +
+                        "COALESCE(s.checkouts, 0) AS shortCheckouts, COALESCE(l.checkouts, 0) AS longCheckouts, " +
+                        "COALESCE(l.returns, 0) AS longReturns, COALESCE(l.hoursOut, 0) AS longHours, " +
+                        "w.storeCap - COALESCE(o.onHand, 0) - COALESCE(o.rentedOut, 0) AS freeSpace, " +
+                        "lo.orderNumber AS lastOrder, lo.elementType, op.value / op.quantity AS unitPrice " +
+                        "FROM (SELECT COALESCE(warehouseAddress, '') AS warehouseAddress, type, " +
+                        "COALESCE(model, '') AS model, COUNT(*) AS items, SUM(statusCode = ?4) AS rentedOut " +
+                        "FROM equipment WHERE statusCode NOT IN (?5, ?6) GROUP BY 1, 2, 3) i " +
+                        "LEFT JOIN (SELECT warehouseAddress, type, model, SUM(checkouts) AS checkouts FROM RentalDaily " +
+                        "WHERE day > ?3 AND day <= ?1 GROUP BY warehouseAddress, type, model) s " +
+                        "ON s.warehouseAddress = i.warehouseAddress AND s.type = i.type AND s.model = i.model " +
+                        "LEFT JOIN (SELECT warehouseAddress, type, model, SUM(checkouts) AS checkouts, " +
+                        "SUM(returns) AS returns, SUM(hoursOut) AS hoursOut FROM RentalDaily " +
+                        "WHERE day > ?2 AND day <= ?1 GROUP BY warehouseAddress, type, model) l " +
+                        "ON l.warehouseAddress = i.warehouseAddress AND l.type = i.type AND l.model = i.model " +
+                        "LEFT JOIN Warehouses w ON w.address = i.warehouseAddress " +
+                        "LEFT JOIN WarehouseOccupancy o ON o.warehouseAddress = i.warehouseAddress " +
+                        "LEFT JOIN (SELECT o.orderNumber, o.elementType, o.quantity, e.type, COALESCE(e.model, '') AS model, " +
+                        "ROW_NUMBER() OVER (PARTITION BY e.type, COALESCE(e.model, '') " +
+                        "ORDER BY o.orderNumber DESC) AS rn " +
+                        "FROM equipment e JOIN Orders o ON o.orderNumber = e.orderNum) lo " +
+                        "ON lo.type = i.type AND lo.model = i.model AND lo.rn = 1 " +
+                        "LEFT JOIN Order_Price op ON op.elementType = lo.elementType AND op.quantity = lo.quantity " +
+                        "ORDER BY i.warehouseAddress, i.type, i.model",
+                Merge.of("", "", "warehouseAddress, type, model", 0), asOfDay, longFrom, shortFrom,
+                EquipmentStatus.RENTED.code(), EquipmentStatus.LOST.code(), EquipmentStatus.RETIRED.code());
+    }
+
+    /**
+     * Rentals as (serialNum, userID, n) rows for the counting reports: one row
+     * per hot rental, plus with includeArchived the archive's per item /
+     * member totals (see RentalArchiver), so archived history costs one row
+     * per pair instead of one per checkout.
+     */
+    private static String rentalCounts(boolean includeArchived) {
+        return "(SELECT serialNum, userID, 1 AS n FROM rentals" + (includeArchived
+                ? " UNION ALL SELECT serialNum, userID, rentals AS n FROM RentalArchiveTotals)" : ")");
+    }
+
+    private static String named(String report, boolean includeArchived) {
+        return includeArchived ? report + "+archive" : report;
+    }
+
+    public static String cacheStats() {
+        return ReportCache.shared().stats() + "\n" + ReportGovernor.shared().stats();
+    }
+
+    private static ReportResult run(String name, int timeoutSeconds, String sql, Object... params)
+            throws SQLException {
+        ReportGovernor governor = ReportGovernor.shared();
+        return ReportCache.shared().get(name, params,
+                () -> governor.admit(name, () -> query(name, timeoutSeconds, sql, params)));
+    }
+
+    /**
+     * A report over the per-warehouse tables (sql has no LIMIT or ';'). With
+     * shards it runs on every shard in parallel, under one governor slot, and
+     * merge combines the rows; without, merge's LIMIT is appended and it runs
+     * once. A Merge.SHARD parameter is bound to the shard's address (null
+     * without shards).
+     */
+    private static ReportResult runSharded(String name, int timeoutSeconds, String sql, Merge merge,
+            Object... params) throws SQLException {
+        if (!Database.isSharded())
+            return run(name, timeoutSeconds, sql + merge.limitClause() + ";", Merge.bind(params, null));
+        ReportGovernor governor = ReportGovernor.shared();
+        return ReportCache.shared().get(name, params, () -> governor.admit(name, () -> {
+            // Fan-out threads run inside this slot and keep a dashboard's deadline
+            Long deadline = governor.deadline();
+            return merge.apply(Shards.fanOut(w -> governor.joined(deadline,
+                    () -> query(name, timeoutSeconds, sql + ";", Merge.bind(params, w)))));
+        }));
+    }
+
+    // How one report's rows from every shard become one result, like its GROUP BY / ORDER BY / LIMIT
+    private static final class Merge {
+        static final Object SHARD = new Object();
+
+        private final List<String> key;
+        private final List<String> sums;
+        private final List<String> order;
+        private final int limit;
+
+        private Merge(List<String> key, List<String> sums, List<String> order, int limit) {
+            this.key = key;
+            this.sums = sums;
+            this.order = order;
+            this.limit = limit;
+        }
+
+        /**
+         * Column lists are comma-separated. Rows with equal key columns are one
+         * row, their sums columns added and other columns taking the first
+         * non-null value; no key columns means one group when there are sums,
+         * else rows are just concatenated. order is "col [DESC], ..."; limit 0
+         * means all rows.
+         */
+        static Merge of(String key, String sums, String order, int limit) {
+            return new Merge(split(key), split(sums), split(order), limit);
+        }
+
+        private static List<String> split(String columns) {
+            List<String> list = new ArrayList<>();
+            for (String c : columns.split(","))
+                if (!c.isBlank())
+                    list.add(c.trim());
+            return list;
+        }
+
+        String limitClause() {
+            return limit > 0 ? " LIMIT " + limit : "";
+        }
+
+        static Object[] bind(Object[] params, String warehouse) {
+            Object[] bound = params.clone();
+            for (int i = 0; i < bound.length; i++)
+                if (bound[i] == SHARD)
+                    bound[i] = warehouse;
+            return bound;
+        }
+
+        ReportResult apply(List<ReportResult> parts) {
+            List<String> columns = parts.get(0).getColumns();
+            int[] keyAt = indexes(columns, key);
+            int[] sumAt = indexes(columns, sums);
+            List<Object[]> rows = new ArrayList<>();
+            if (keyAt.length == 0 && sumAt.length == 0) {
+                for (ReportResult part : parts)
+                    rows.addAll(part.getRows());
+            } else {
+                Map<List<Object>, Object[]> groups = new LinkedHashMap<>();
+                for (ReportResult part : parts) {
+                    for (Object[] row : part.getRows()) {
+                        List<Object> k = new ArrayList<>();
+                        for (int i : keyAt)
+                            k.add(row[i]);
+                        Object[] merged = groups.get(k);
+                        if (merged == null) {
+                            groups.put(k, row.clone());
+                            continue;
+                        }
+                        for (int i = 0; i < row.length; i++) {
+                            if (contains(sumAt, i))
+                                merged[i] = add(merged[i], row[i]);
+                            else if (merged[i] == null)
+                                merged[i] = row[i];
+                        }
+                    }
+                }
+                rows.addAll(groups.values());
+            }
+            int[] orderAt = new int[order.size()];
+            boolean[] descending = new boolean[order.size()];
+            for (int i = 0; i < order.size(); i++) {
+                String[] spec = order.get(i).split("\\s+");
+                orderAt[i] = columns.indexOf(spec[0]);
+                descending[i] = spec.length > 1 && spec[1].equalsIgnoreCase("DESC");
+            }
+            rows.sort((a, b) -> {
+                for (int i = 0; i < orderAt.length; i++) {
+                    int c = compare(a[orderAt[i]], b[orderAt[i]]);
+                    if (c != 0)
+                        return descending[i] ? -c : c;
+                }
+                return 0;
+            });
+            if (limit > 0 && rows.size() > limit)
+                rows = new ArrayList<>(rows.subList(0, limit));
+            return new ReportResult(new ArrayList<>(columns), rows);
+        }
+
+        private static int[] indexes(List<String> columns, List<String> names) {
+            int[] at = new int[names.size()];
+            for (int i = 0; i < at.length; i++)
+                at[i] = columns.indexOf(names.get(i));
+            return at;
+        }
+
+        private static boolean contains(int[] at, int i) {
+            for (int a : at)
+                if (a == i)
+                    return true;
+            return false;
+        }
+
+        private static Object add(Object a, Object b) {
+            if (a == null || b == null)
+                return a == null ? b : a;
+            if (a instanceof Double || b instanceof Double)
+                return ((Number) a).doubleValue() + ((Number) b).doubleValue();
+            long sum = ((Number) a).longValue() + ((Number) b).longValue();
+            return sum == (int) sum ? (Object) (int) sum : (Object) sum;
+        }
+
+        // SQLite's order: NULL, then numbers, then text
+        private static int compare(Object a, Object b) {
+            if (a == null || b == null)
+                return a == null ? (b == null ? 0 : -1) : 1;
+            if (a instanceof Number && b instanceof Number)
+                return Double.compare(((Number) a).doubleValue(), ((Number) b).doubleValue());
+            if (a instanceof Number || b instanceof Number)
+                return a instanceof Number ? -1 : 1;
+            return a.toString().compareTo(b.toString());
+        }
+    }
+
+    private static ReportResult query(String name, int timeoutSeconds, String sql, Object... params)
+            throws SQLException {
+        try (Connection conn = Database.getReadConnection();
+                PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++)
+                ps.setObject(i + 1, params[i]);
+            return ReportGovernor.shared().withTimeout(name, ps, timeoutSeconds, () -> read(ps));
+        }
+    }
+
+    private static ReportResult read(PreparedStatement ps) throws SQLException {
+        try (ResultSet rs = ps.executeQuery()) {
+            ResultSetMetaData meta = rs.getMetaData();
+            List<String> columns = new ArrayList<>();
+            for (int i = 1; i <= meta.getColumnCount(); i++)
+                columns.add(meta.getColumnLabel(i));
+            List<Object[]> rows = new ArrayList<>();
+            while (rs.next()) {
+                Object[] row = new Object[columns.size()];
+                for (int i = 0; i < row.length; i++)
+                    row[i] = rs.getObject(i + 1);
+                rows.add(row);
+            }
+            return new ReportResult(columns, rows);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+import java.sql.SQLException;
+
+/**
+ * Storage behind the menu workflow. The same menus run against an in-memory
+ * engine (RentalApp, benchmarks, tests) or against rentalApp.db
+ * (RentalAppConnected).
+ *
+ * Implementations report failures as SQLException, with the same messages a
+ * SQLite constraint violation would give, so callers have one error path.
+ */
+public abstract class Repositories {
+
+    public abstract MemberRepository members();
+
+    public abstract EquipmentRepository equipment();
+
+    public abstract DroneRepository drones();
+
+    public abstract RentalRepository rentals();
+
+    public abstract TransportRepository transports();
+
+    public abstract ReservationRepository reservations();
+
+    public abstract ReviewRepository reviews();
+
+    public abstract MaintenanceRepository maintenance();
+
+    public abstract BatteryRepository batteries();
+
+    public abstract LocationRepository locations();
+
+    public abstract OrderRepository orders();
+
+    public abstract ModelRepository models();
+
+    /** True when data lives in rentalApp.db (reports are only available then). */
+    public abstract boolean isPersistent();
+
+    /** A node number in [0, nodes) for this process's IdGenerator, distinct from other running processes'. */
+    public abstract int leaseIdNode(int nodes) throws SQLException;
+
+    public static Repositories inMemory() {
+        return new InMemoryRepositories();
+    }
+
+    /** Over rentalApp.db, or over its per-warehouse shards once Database.enableShards has run. */
+    public static Repositories sqlite() {
+        return Database.isSharded() ? new ShardedRepositories(new SqliteRepositories()) : new SqliteRepositories();
+    }
+
+    /** Wraps repositories in a read-through LRU cache of at most capacity rows per table. */
+    public static CachedRepositories cached(Repositories delegate, int capacity) {
+        return new CachedRepositories(delegate, capacity);
+    }
+
+    /** Records every successful mutation through delegate in the journal (see JournalReplay). */
+    public static JournaledRepositories journaled(Repositories delegate, MutationJournal journal) {
+        return new JournaledRepositories(delegate, journal);
+    }
+}
@@ -0,0 +1,17 @@
+import java.sql.SQLException;
+import java.util.List;
+
+public interface ReservationRepository {
+    /**
+     * Persists a reservation unless it overlaps a BOOKED one for the same
+     * serial; returns the overlapping reservation's ID in that case, else null.
+     */
+    String book(AvailabilityCalendar.Booking b) throws SQLException;
+
+    /** Cancels a BOOKED reservation; returns false if it is not active. */
+    boolean cancel(String reservationID) throws SQLException;
+
+    List<AvailabilityCalendar.Booking> findBooked() throws SQLException;
+}
+
+// Entity Classes
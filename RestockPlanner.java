@@ -0,0 +1,189 @@
+import java.io.PrintStream;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Restock proposals from rental velocity, per warehouse, type and model.
+ *
+ * Velocity is checkouts per day over a short and a long window ending on the
+ * as-of day, read from the RentalDaily rollups (Reports.restockInputs), so a
+ * plan costs a few rollup rows per model however long the rental history is.
+ * Rentals from before the rollups were kept are counted on estimated days
+ * (Schema.backfillRentalDaily).
+ * The faster of the two windows is used, so a rising trend shows up early
+ * without a quiet week hiding steady demand. By Little's law the items out at
+ * once average velocity times the days an item stays out (from the long
+ * window's returns); the target stock keeps that at TARGET_UTILIZATION.
+ *
+ * Each model short of its target gets an ORDER line, largest shortfall first,
+ * capped by the warehouse's free storage; the unit price is that of the
+ * latest order that bought the model, in any warehouse. Models above target
+ * whose items were out less than IDLE_UTILIZATION of the long window are
+ * listed as IDLE with their spare items (candidates to move or sell), keeping
+ * MIN_STOCK of each and any that are rented out. Models on target are left out.
+ *
+ * Usage: java RestockPlanner [asOf YYYY-MM-DD] [shortDays longDays] [--shards[=dir]]
+ */
+public class RestockPlanner {
+    public static final int SHORT_DAYS = 7;
+    public static final int LONG_DAYS = 28;
+    static final double TARGET_UTILIZATION = 0.75;
+    static final double IDLE_UTILIZATION = 0.10;
+    static final int MIN_STOCK = 1;
+    // Days an item is assumed to stay out when the window has no returns to measure
+    private static final double DEFAULT_DAYS_OUT = 1.0;
+
+    static final List<String> COLUMNS = List.of("warehouseAddress", "type", "model", "action", "items", "rentedOut",
+            "perDay", "daysOut", "utilPct", "target", "quantity", "elementType", "unitPrice", "estCost");
+
+    public static void main(String[] args) {
+        LocalDate asOf = LocalDate.now();
+        List<Integer> days = new ArrayList<>();
+        try {
+            for (String arg : args) {
+                if (arg.equals("--shards") || arg.startsWith("--shards=")) {
+                    Database.enableShards(arg.equals("--shards") ? Shards.DEFAULT_DIR
+                            : Paths.get(arg.substring("--shards=".length())));
+                } else if (arg.contains("-")) {
+                    asOf = LocalDate.parse(arg);
+                } else {
+                    days.add(Integer.parseInt(arg));
+                }
+            }
+            if (days.size() == 1 || days.size() > 2) {
+                usage();
+                return;
+            }
+            int shortDays = days.isEmpty() ? SHORT_DAYS : days.get(0);
+            int longDays = days.isEmpty() ? LONG_DAYS : days.get(1);
+            long start = System.nanoTime();
+            ReportResult plan = plan(asOf, shortDays, longDays);
+            long ms = (System.nanoTime() - start) / 1_000_000;
+            print(System.out, plan);
+            System.out.println(plan.size() + " line(s) as of " + asOf + " in " + ms + " ms");
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            usage();
+        } catch (SQLException e) {
+            System.err.println("Restock error: " + e.getMessage());
+        } finally {
+            Database.shutdown();
+        }
+    }
+
+    private static void usage() {
+        System.err.println("Usage: java RestockPlanner [asOf YYYY-MM-DD] [shortDays longDays] [--shards[=dir]]");
+    }
+
+    /** ORDER and IDLE lines for the windows ending on asOf (inclusive). */
+    public static ReportResult plan(LocalDate asOf, int shortDays, int longDays) throws SQLException {
+        if (shortDays < 1 || longDays < shortDays)
+            throw new IllegalArgumentException("Windows must satisfy 1 <= shortDays <= longDays");
+        ReportResult in = Reports.restockInputs(asOf.toString(), asOf.minusDays(shortDays).toString(),
+                asOf.minusDays(longDays).toString());
+
+        // Fallback stay for models without returns: the average over every model that has some
+        double hours = 0;
+        long returns = 0;
+        for (int i = 0; i < in.size(); i++) {
+            hours += number(in, i, "longHours");
+            returns += (long) number(in, i, "longReturns");
+        }
+        double defaultDaysOut = returns > 0 ? hours / returns / 24 : DEFAULT_DAYS_OUT;
+
+        // Each model is priced by its latest order in any warehouse (with shards, each only sees its own)
+        Map<List<String>, Integer> latest = new HashMap<>();
+        for (int i = 0; i < in.size(); i++) {
+            if (in.value(i, "lastOrder") == null)
+                continue;
+            Integer best = latest.putIfAbsent(List.of(in.text(i, "type"), in.text(i, "model")), i);
+            if (best != null && number(in, i, "lastOrder") > number(in, best, "lastOrder"))
+                latest.put(List.of(in.text(i, "type"), in.text(i, "model")), i);
+        }
+
+        List<Object[]> orders = new ArrayList<>();
+        List<Object[]> idle = new ArrayList<>();
+        for (int i = 0; i < in.size(); i++) {
+            int items = (int) number(in, i, "items");
+            double perDay = Math.max(number(in, i, "shortCheckouts") / shortDays,
+                    number(in, i, "longCheckouts") / longDays);
+            double longReturns = number(in, i, "longReturns");
+            double daysOut = longReturns > 0 ? number(in, i, "longHours") / longReturns / 24 : defaultDaysOut;
+            double utilization = number(in, i, "longHours") / (24.0 * longDays * items);
+            int target = (int) Math.ceil(perDay * daysOut / TARGET_UTILIZATION);
+            if (target > items) {
+                Integer priced = latest.get(List.of(in.text(i, "type"), in.text(i, "model")));
+                orders.add(line(in, i, priced, "ORDER", perDay, daysOut, utilization, target, target - items));
+            } else if (utilization < IDLE_UTILIZATION) {
+                // Keep one of each model, and never count items that are out right now as spare
+                int spare = Math.min(items - Math.max(target, MIN_STOCK), items - (int) number(in, i, "rentedOut"));
+                if (spare > 0)
+                    idle.add(line(in, i, null, "IDLE", perDay, daysOut, utilization, target, spare));
+            }
+        }
+
+        // Largest shortfalls get the warehouse's free space first
+        orders.sort((a, b) -> Integer.compare((int) b[10], (int) a[10]));
+        Map<String, Integer> freeSpace = new HashMap<>();
+        for (int i = 0; i < in.size(); i++) {
+            Object free = in.value(i, "freeSpace");
+            freeSpace.putIfAbsent(in.text(i, "warehouseAddress"),
+                    free == null ? Integer.MAX_VALUE : Math.max(0, ((Number) free).intValue()));
+        }
+        List<Object[]> rows = new ArrayList<>();
+        for (Object[] row : orders) {
+            int free = freeSpace.get((String) row[0]);
+            int quantity = Math.min((int) row[10], free);
+            freeSpace.put((String) row[0], free - quantity);
+            if (quantity < (int) row[10])
+                row[3] = quantity == 0 ? "ORDER (no space)" : "ORDER (capped by space)";
+            row[10] = quantity;
+            row[13] = row[12] == null ? null : round(quantity * ((Number) row[12]).doubleValue(), 2);
+            rows.add(row);
+        }
+        rows.addAll(idle);
+        return new ReportResult(new ArrayList<>(COLUMNS), rows);
+    }
+
+    /** One line per proposal, as the Reports menu shows them. */
+    public static void print(PrintStream out, ReportResult plan) {
+        if (plan.isEmpty())
+            out.println("Stock matches demand; nothing to order.");
+        for (int i = 0; i < plan.size(); i++) {
+            out.println(plan.text(i, "action") + " " + plan.number(i, "quantity") +
+                    " x " + plan.text(i, "type") + " " + plan.text(i, "model") +
+                    " | " + plan.text(i, "warehouseAddress") +
+                    " | items=" + plan.number(i, "items") + " (" + plan.number(i, "rentedOut") + " out)" +
+                    " | " + plan.text(i, "perDay") + "/day, " + plan.text(i, "daysOut") + " days out" +
+                    " | util=" + plan.text(i, "utilPct") + "%" +
+                    " | target=" + plan.number(i, "target") +
+                    (plan.value(i, "estCost") == null ? ""
+                            : " | element " + plan.text(i, "elementType") + " est. $" +
+                                    String.format("%.2f", ((Number) plan.value(i, "estCost")).doubleValue())));
+        }
+    }
+
+    private static Object[] line(ReportResult in, int i, Integer priced, String action, double perDay,
+            double daysOut, double utilization, int target, int quantity) {
+        Object price = priced == null ? null : in.value(priced, "unitPrice");
+        return new Object[] { in.text(i, "warehouseAddress"), in.text(i, "type"), in.text(i, "model"), action,
+                (int) number(in, i, "items"), (int) number(in, i, "rentedOut"), round(perDay, 2), round(daysOut, 1),
+                round(100 * utilization, 1), target, quantity, priced == null ? null : in.text(priced, "elementType"),
+                price == null ? null : ((Number) price).doubleValue(), null };
+    }
+
+    private static double number(ReportResult r, int row, String column) {
+        Object v = r.value(row, column);
+        return v == null ? 0 : ((Number) v).doubleValue();
+    }
+
+    private static double round(double value, int places) {
+        double scale = Math.pow(10, places);
+        return Math.round(value * scale) / scale;
+    }
+}
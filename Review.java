@@ -0,0 +1,29 @@
+public class Review {
+    private String serialNum;
+    private String userID;
+    private String comments;
+    private double rating;
+
+    public Review(String serialNum, String userID, String comments, double rating) {
+        this.serialNum = serialNum;
+        this.userID = userID;
+        this.comments = comments;
+        this.rating = rating;
+    }
+
+    public String getSerialNum() {
+        return serialNum;
+    }
+
+    public String getUserID() {
+        return userID;
+    }
+
+    public String getComments() {
+        return comments;
+    }
+
+    public double getRating() {
+        return rating;
+    }
+}
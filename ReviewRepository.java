@@ -0,0 +1,24 @@
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Reviews plus their running per-serial and per-type rating summaries, kept
+ * current in the same transaction as each review so rating lookups never
+ * re-aggregate Reviews.
+ */
+public interface ReviewRepository {
+    /** Throws if the serial number is unknown or the same review exists. */
+    void add(Review r) throws SQLException;
+
+    /** Null when the item has no reviews. */
+    RatingSummary findSummary(String serialNum) throws SQLException;
+
+    /** Null when no item of the type has reviews. */
+    RatingSummary findTypeSummary(String type) throws SQLException;
+
+    /** Per-type summaries, best average first. */
+    List<RatingSummary> findTypeSummaries() throws SQLException;
+
+    /** Reviewed items of exactly this type, best average first (ties: more reviews first). */
+    List<RatingSummary> findBestRated(String type, int limit) throws SQLException;
+}
@@ -0,0 +1,384 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Brings an existing rentalApp.db up to date with the schema the Java code
+ * expects. Each step runs once, tracked through PRAGMA user_version, so the
+ * hand-maintained Create.txt / Populate.txt databases keep working.
+ */
+public class Schema {
+    private static final int LATEST_VERSION = 12;
+
+    public static void migrate(Connection conn) throws SQLException {
+        int version = userVersion(conn);
+        if (version >= LATEST_VERSION)
+            return;
+
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try {
+            if (version < 1)
+                encodeStatuses(conn);
+            if (version < 2)
+                createReservations(conn);
+            if (version < 3)
+                createRatingSummaries(conn);
+            if (version < 4)
+                createRepairCounts(conn);
+            if (version < 5)
+                createBatteryScheduling(conn);
+            if (version < 6)
+                locateAddresses(conn);
+            if (version < 7)
+                createOccupancy(conn);
+            if (version < 8)
+                createShardDirectory(conn);
+            if (version < 9)
+                createIdNodes(conn);
+            if (version < 10)
+                createRentalArchive(conn);
+            if (version < 11)
+                createRentalDaily(conn);
+            if (version < 12)
+                backfillRentalDaily(conn);
+
+            try (Statement st = conn.createStatement()) {
+                st.execute("PRAGMA user_version = " + LATEST_VERSION + ";");
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    private static int userVersion(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement();
+                ResultSet rs = st.executeQuery("PRAGMA user_version;")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static boolean hasColumn(Connection conn, String table, String column) throws SQLException {
+        try (Statement st = conn.createStatement();
+                ResultSet rs = st.executeQuery("PRAGMA table_info(" + table + ");")) {
+            while (rs.next()) {
+                if (rs.getString("name").equalsIgnoreCase(column))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    // Version 1: integer status codes + partial indexes over the available set
+    private static void encodeStatuses(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            if (!hasColumn(conn, "Equipment", "statusCode"))
+                st.execute("ALTER TABLE Equipment ADD COLUMN statusCode INTEGER NOT NULL DEFAULT "
+                        + EquipmentStatus.AVAILABLE.code() + ";");
+            if (!hasColumn(conn, "Drones", "statusCode"))
+                st.execute("ALTER TABLE Drones ADD COLUMN statusCode INTEGER NOT NULL DEFAULT "
+                        + DroneStatus.IDLE.code() + ";");
+        }
+
+        for (String text : distinctValues(conn, "SELECT DISTINCT status FROM Equipment;")) {
+            EquipmentStatus s = EquipmentStatus.parse(text);
+            if (s == null) {
+                System.err.println("Unknown equipment status '" + text + "', migrating as MAINTENANCE.");
+                s = EquipmentStatus.MAINTENANCE;
+            }
+            rewriteStatus(conn, "Equipment", text, s.name(), s.code());
+        }
+        for (String text : distinctValues(conn, "SELECT DISTINCT status FROM Drones;")) {
+            DroneStatus s = DroneStatus.parse(text);
+            if (s == null) {
+                System.err.println("Unknown drone status '" + text + "', migrating as OFFLINE.");
+                s = DroneStatus.OFFLINE;
+            }
+            rewriteStatus(conn, "Drones", text, s.name(), s.code());
+        }
+
+        // The predicate has to be a literal for the planner to pick a partial
+        // index, so queries that want these indexes inline the same constant.
+        try (Statement st = conn.createStatement()) {
+            st.execute("CREATE INDEX IF NOT EXISTS idxEquipAvailable ON Equipment(type) WHERE statusCode = "
+                    + EquipmentStatus.AVAILABLE.code() + ";");
+            st.execute("CREATE INDEX IF NOT EXISTS idxDroneIdle ON Drones(warehouseAddress) WHERE statusCode = "
+                    + DroneStatus.IDLE.code() + ";");
+        }
+    }
+
+    // Version 2: future reservations, indexed per serial by start date
+    private static void createReservations(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.execute("CREATE TABLE IF NOT EXISTS Reservations"
+                    + " ( reservationID varchar(30) PRIMARY KEY,"
+                    + " serialNum varchar(20) not null,"
+                    + " userID varchar(50) not null,"
+                    + " startDate varchar(20) not null,"
+                    + " endDate varchar(20) not null,"
+                    + " status varchar(15) not null,"
+                    + " FOREIGN KEY (serialNum) REFERENCES Equipment(serialNum),"
+                    + " FOREIGN KEY (userID) REFERENCES Members(userID) );");
+            st.execute("CREATE INDEX IF NOT EXISTS idxReservationSerialStart ON Reservations(serialNum, startDate)"
+                    + " WHERE status = 'BOOKED';");
+        }
+    }
+
+    // Version 3: running review totals per serial and per type, backfilled from Reviews
+    private static void createRatingSummaries(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.execute("CREATE TABLE IF NOT EXISTS RatingSummary"
+                    + " ( serialNum varchar(20) PRIMARY KEY,"
+                    + " type varchar(20) not null,"
+                    + " ratingSum double not null,"
+                    + " ratingCount int not null,"
+                    + " maxRating double not null,"
+                    + " avgRating double not null,"
+                    + " FOREIGN KEY (serialNum) REFERENCES Equipment(serialNum) );");
+            st.execute("CREATE TABLE IF NOT EXISTS TypeRatingSummary"
+                    + " ( type varchar(20) PRIMARY KEY,"
+                    + " ratingSum double not null,"
+                    + " ratingCount int not null,"
+                    + " maxRating double not null,"
+                    + " avgRating double not null );");
+            st.execute("CREATE INDEX IF NOT EXISTS idxRatingTypeAvg ON RatingSummary(type, avgRating DESC);");
+
+            st.execute("INSERT OR REPLACE INTO RatingSummary(serialNum, type, ratingSum, ratingCount, maxRating, avgRating)"
+                    + " SELECT r.serialNum, e.type, SUM(r.ratings), COUNT(*), MAX(r.ratings), AVG(r.ratings)"
+                    + " FROM Reviews r JOIN Equipment e ON e.serialNum = r.serialNum"
+                    + " WHERE r.ratings IS NOT NULL GROUP BY r.serialNum, e.type;");
+            st.execute("INSERT OR REPLACE INTO TypeRatingSummary(type, ratingSum, ratingCount, maxRating, avgRating)"
+                    + " SELECT type, SUM(ratingSum), SUM(ratingCount), MAX(maxRating), SUM(ratingSum) / SUM(ratingCount)"
+                    + " FROM RatingSummary GROUP BY type;");
+        }
+    }
+
+    // Version 4: repeat repairs per (mechanic, drone) plus maintained per-drone / per-mechanic counts
+    private static void createRepairCounts(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            if (!hasColumn(conn, "Repair", "timesRepaired"))
+                st.execute("ALTER TABLE Repair ADD COLUMN timesRepaired int not null default 1;");
+            st.execute("CREATE TABLE IF NOT EXISTS DroneRepairCount"
+                    + " ( droneSN varchar(20) PRIMARY KEY,"
+                    + " repairs int not null,"
+                    + " mechanics int not null,"
+                    + " FOREIGN KEY (droneSN) REFERENCES Drones(serialNum) );");
+            st.execute("CREATE TABLE IF NOT EXISTS MechanicWorkload"
+                    + " ( mechSSN varchar(20) PRIMARY KEY,"
+                    + " repairs int not null,"
+                    + " drones int not null,"
+                    + " FOREIGN KEY (mechSSN) REFERENCES Mechanics(ssn) );");
+            st.execute("CREATE INDEX IF NOT EXISTS idxDroneRepairs ON DroneRepairCount(repairs);");
+            st.execute("CREATE INDEX IF NOT EXISTS idxMechanicRepairs ON MechanicWorkload(repairs);");
+
+            st.execute("INSERT OR REPLACE INTO DroneRepairCount(droneSN, repairs, mechanics)"
+                    + " SELECT droneSN, SUM(timesRepaired), COUNT(*) FROM Repair GROUP BY droneSN;");
+            st.execute("INSERT OR REPLACE INTO MechanicWorkload(mechSSN, repairs, drones)"
+                    + " SELECT mechSSN, SUM(timesRepaired), COUNT(*) FROM Repair GROUP BY mechSSN;");
+        }
+    }
+
+    // Version 5: battery charge state and location, chargers per warehouse, live charged-drone counts
+    private static void createBatteryScheduling(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            if (!hasColumn(conn, "Batteries", "chargeCode"))
+                st.execute("ALTER TABLE Batteries ADD COLUMN chargeCode int not null default 0;");
+            if (!hasColumn(conn, "Batteries", "warehouseAddress"))
+                st.execute("ALTER TABLE Batteries ADD COLUMN warehouseAddress varchar(30);");
+            if (!hasColumn(conn, "Warehouses", "chargerCap"))
+                st.execute("ALTER TABLE Warehouses ADD COLUMN chargerCap int not null default 2;");
+
+            st.execute("UPDATE Batteries SET chargeCode = CASE WHEN chargedStatus IN ('1', 'Full') THEN "
+                    + BatteryState.CHARGED.code() + " ELSE " + BatteryState.DEPLETED.code() + " END;");
+            st.execute("UPDATE Batteries SET warehouseAddress ="
+                    + " (SELECT d.warehouseAddress FROM Drones d WHERE d.batteryID = Batteries.productID)"
+                    + " WHERE warehouseAddress IS NULL;");
+            // One charger per ten drone bays
+            st.execute("UPDATE Warehouses SET chargerCap = MAX(1, COALESCE(droneCap, 0) / 10);");
+
+            st.execute("CREATE TABLE IF NOT EXISTS ChargeCounts"
+                    + " ( warehouseAddress varchar(30) PRIMARY KEY,"
+                    + " chargedDrones int not null,"
+                    + " charging int not null );");
+            st.execute("INSERT OR REPLACE INTO ChargeCounts(warehouseAddress, chargedDrones, charging)"
+                    + " SELECT d.warehouseAddress, SUM(b.chargeCode = " + BatteryState.CHARGED.code() + "), 0"
+                    + " FROM Drones d JOIN Batteries b ON b.productID = d.batteryID GROUP BY d.warehouseAddress;");
+            st.execute("CREATE INDEX IF NOT EXISTS idxDroneBattery ON Drones(batteryID);");
+            st.execute("CREATE INDEX IF NOT EXISTS idxBatteryWarehouseCharge ON Batteries(warehouseAddress, chargeCode);");
+        }
+    }
+
+    // Version 6: coordinates for warehouses and member addresses, geocoded by ZIP where possible
+    private static void locateAddresses(Connection conn) throws SQLException {
+        for (String table : new String[] { "Warehouses", "Address" }) {
+            try (Statement st = conn.createStatement()) {
+                if (!hasColumn(conn, table, "lat"))
+                    st.execute("ALTER TABLE " + table + " ADD COLUMN lat double;");
+                if (!hasColumn(conn, table, "lon"))
+                    st.execute("ALTER TABLE " + table + " ADD COLUMN lon double;");
+            }
+            List<String> addresses = distinctValues(conn, "SELECT address FROM " + table + " WHERE lat IS NULL;");
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "UPDATE " + table + " SET lat = ?, lon = ? WHERE address = ?;")) {
+                for (String address : addresses) {
+                    GeoPoint p = Geocoder.locate(address);
+                    if (p == null)
+                        continue;
+                    ps.setDouble(1, p.getLat());
+                    ps.setDouble(2, p.getLon());
+                    ps.setString(3, address);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        }
+    }
+
+    // Version 7: per-warehouse occupancy counters checked against storeCap / droneCap
+    private static void createOccupancy(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.execute("CREATE TABLE IF NOT EXISTS WarehouseOccupancy"
+                    + " ( warehouseAddress varchar(30) PRIMARY KEY,"
+                    + " onHand int not null default 0,"
+                    + " rentedOut int not null default 0,"
+                    + " drones int not null default 0 );");
+            st.execute("DELETE FROM WarehouseOccupancy;");
+            st.execute("INSERT INTO WarehouseOccupancy(warehouseAddress, onHand, rentedOut)"
+                    + " SELECT warehouseAddress,"
+                    + " SUM(statusCode NOT IN (" + EquipmentStatus.RENTED.code() + ", " + EquipmentStatus.LOST.code() + ")),"
+                    + " SUM(statusCode = " + EquipmentStatus.RENTED.code() + ")"
+                    + " FROM Equipment GROUP BY warehouseAddress;");
+            st.execute("INSERT INTO WarehouseOccupancy(warehouseAddress, drones)"
+                    + " SELECT warehouseAddress, COUNT(*) FROM Drones GROUP BY warehouseAddress"
+                    + " ON CONFLICT(warehouseAddress) DO UPDATE SET drones = excluded.drones;");
+        }
+    }
+
+    // Version 8: which warehouse shard holds each equipment item and drone (used only when sharded)
+    private static void createShardDirectory(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.execute("CREATE TABLE IF NOT EXISTS ShardDirectory"
+                    + " ( kind char(1) not null,"
+                    + " serialNum varchar(20) not null,"
+                    + " warehouseAddress varchar(30) not null,"
+                    + " PRIMARY KEY (kind, serialNum) );");
+        }
+    }
+
+    // Version 9: node numbers leased by IdGenerator, one per process
+    private static void createIdNodes(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.execute("CREATE TABLE IF NOT EXISTS IdNodes ( nextNode int not null );");
+            st.execute("INSERT INTO IdNodes(nextNode) SELECT 0 WHERE NOT EXISTS (SELECT 1 FROM IdNodes);");
+        }
+    }
+
+    // Version 10: cold storage for returned rentals (see RentalArchiver) and their per item / member totals
+    private static void createRentalArchive(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.execute("CREATE TABLE IF NOT EXISTS RentalArchive"
+                    + " ( serialNum varchar(20) not null,"
+                    + " userID varchar(50) not null,"
+                    + " checkOutID varchar(30) PRIMARY KEY,"
+                    + " dueDate varchar(20),"
+                    + " rentalFees DECIMAL(10, 2),"
+                    + " returns varchar(50),"
+                    + " rentedHours int,"
+                    + " archivedOn varchar(20) not null );");
+            st.execute("CREATE TABLE IF NOT EXISTS RentalArchiveTotals"
+                    + " ( serialNum varchar(20) not null,"
+                    + " userID varchar(50) not null,"
+                    + " rentals int not null,"
+                    + " PRIMARY KEY (serialNum, userID) );");
+            st.execute("CREATE INDEX IF NOT EXISTS idxRentalArchiveTotalsUser ON RentalArchiveTotals(userID);");
+        }
+    }
+
+    // Version 11: checkout / return times and the daily rollups kept from them (older rentals have none)
+    private static void createRentalDaily(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            for (String table : new String[] { "Rentals", "RentalArchive" }) {
+                if (!hasColumn(conn, table, "checkedOutAt"))
+                    st.execute("ALTER TABLE " + table + " ADD COLUMN checkedOutAt varchar(20);");
+                if (!hasColumn(conn, table, "returnedAt"))
+                    st.execute("ALTER TABLE " + table + " ADD COLUMN returnedAt varchar(20);");
+            }
+            st.execute("CREATE TABLE IF NOT EXISTS RentalDaily"
+                    + " ( day varchar(10) not null,"
+                    + " warehouseAddress varchar(30) not null,"
+                    + " type varchar(20) not null,"
+                    + " model varchar(20) not null,"
+                    + " checkouts int not null default 0,"
+                    + " returns int not null default 0,"
+                    + " hoursOut real not null default 0,"
+                    + " fees DECIMAL(10, 2) not null default 0,"
+                    + " PRIMARY KEY (day, warehouseAddress, type, model) );");
+        }
+    }
+
+    // Version 12: rollups for rentals from before version 11, whose checkout / return times were never
+    // recorded. Checkouts fall on the day a generated checkOutID encodes (see IdGenerator), else on the
+    // return or due date less rentedHours; returns on the return date, else the due date. Rows that were
+    // already rolled up live (checkedOutAt / returnedAt set) are skipped. Shards runs this on each new shard.
+    static void backfillRentalDaily(Connection conn) throws SQLException {
+        String history = "(SELECT checkOutID, serialNum, dueDate, rentalFees, Returns, rentedHours, checkedOutAt, "
+                + "returnedAt FROM rentals UNION ALL SELECT checkOutID, serialNum, dueDate, rentalFees, returns, "
+                + "rentedHours, checkedOutAt, returnedAt FROM RentalArchive)";
+        String dated = "Returns GLOB '[0-9][0-9][0-9][0-9]-[0-9][0-9]-[0-9][0-9]*'";
+        String hoursBefore = "'-' || COALESCE(rentedHours, 0) || ' hours'";
+        String checkoutDay = "CASE WHEN length(checkOutID) = 19 AND checkOutID NOT GLOB '*[^0-9]*' "
+                + "THEN date((CAST(checkOutID AS INTEGER) >> " + IdGenerator.TIME_SHIFT + ") / 1000 + "
+                + IdGenerator.EPOCH_MILLIS / 1000 + ", 'unixepoch', 'localtime') "
+                + "WHEN " + dated + " THEN date(substr(Returns, 1, 10), " + hoursBefore + ") "
+                + "ELSE date(dueDate, " + hoursBefore + ") END";
+        String returnDay = "CASE WHEN " + dated + " THEN substr(Returns, 1, 10) ELSE date(dueDate) END";
+        try (Statement st = conn.createStatement()) {
+            st.execute("INSERT INTO RentalDaily(day, warehouseAddress, type, model, checkouts, returns, hoursOut, fees)"
+                    + " SELECT h.day, COALESCE(e.warehouseAddress, ''), COALESCE(e.type, ''), COALESCE(e.model, ''),"
+                    + " SUM(h.checkouts), SUM(h.returns), SUM(h.hoursOut), SUM(h.fees)"
+                    + " FROM (SELECT " + checkoutDay + " AS day, serialNum, 1 AS checkouts, 0 AS returns,"
+                    + " 0 AS hoursOut, COALESCE(rentalFees, 0) AS fees FROM " + history
+                    + " WHERE checkedOutAt IS NULL"
+                    + " UNION ALL SELECT " + returnDay + ", serialNum, 0, 1, COALESCE(rentedHours, 0), 0 FROM "
+                    + history + " WHERE returnedAt IS NULL AND " + SqliteRepositories.RETURNED_RENTAL + ") h"
+                    + " JOIN equipment e ON e.serialNum = h.serialNum"
+                    + " WHERE h.day IS NOT NULL"
+                    + " GROUP BY 1, 2, 3, 4"
+                    + " ON CONFLICT(day, warehouseAddress, type, model) DO UPDATE SET"
+                    + " checkouts = checkouts + excluded.checkouts, returns = returns + excluded.returns,"
+                    + " hoursOut = hoursOut + excluded.hoursOut, fees = fees + excluded.fees;");
+        }
+    }
+
+    private static List<String> distinctValues(Connection conn, String sql) throws SQLException {
+        List<String> values = new ArrayList<>();
+        try (Statement st = conn.createStatement();
+                ResultSet rs = st.executeQuery(sql)) {
+            while (rs.next())
+                values.add(rs.getString(1));
+        }
+        return values;
+    }
+
+    private static void rewriteStatus(Connection conn, String table, String oldText, String newText, int code)
+            throws SQLException {
+        String sql = oldText == null
+                ? "UPDATE " + table + " SET status = ?, statusCode = ? WHERE status IS NULL;"
+                : "UPDATE " + table + " SET status = ?, statusCode = ? WHERE status = ?;";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, newText);
+            ps.setInt(2, code);
+            if (oldText != null)
+                ps.setString(3, oldText);
+            ps.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,722 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Routes the SQLite repositories to per-warehouse shards (see Shards).
+ *
+ * A call about one item runs on the shard of its warehouse, found through
+ * ShardDirectory in rentalApp.db; a call about one warehouse runs on that
+ * warehouse's shard; searches and listings run on every shard in parallel
+ * and are merged in the order the unsharded query would give. Members,
+ * reservations, reviews, repairs and the catalogs stay in rentalApp.db,
+ * which each shard connection attaches, so their SQL is unchanged.
+ *
+ * Moving an item or drone to another warehouse moves its row, its rental
+ * or transport history and a drone's battery to the new shard. The new
+ * shard's transaction commits inside the old one's, so a refused move
+ * (full warehouse, charging drone) changes neither; only a failure of the
+ * final commit can leave the row in both.
+ */
+public class ShardedRepositories extends Repositories {
+    private static final String EQUIPMENT = "E";
+    private static final String DRONE = "D";
+
+    // Held by moves between warehouses, which take two shards' writers
+    private static final Object MOVES = new Object();
+
+    private final Repositories delegate;
+
+    private final EquipmentRepository equipment = new ShardedEquipment();
+    private final DroneRepository drones = new ShardedDrones();
+    private final RentalRepository rentals = new ShardedRentals();
+    private final TransportRepository transports = new ShardedTransports();
+    private final ReviewRepository reviews = new ShardedReviews();
+    private final MaintenanceRepository maintenance = new ShardedMaintenance();
+    private final BatteryRepository batteries = new ShardedBatteries();
+
+    public ShardedRepositories(Repositories delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public MemberRepository members() {
+        return delegate.members();
+    }
+
+    @Override
+    public EquipmentRepository equipment() {
+        return equipment;
+    }
+
+    @Override
+    public DroneRepository drones() {
+        return drones;
+    }
+
+    @Override
+    public RentalRepository rentals() {
+        return rentals;
+    }
+
+    @Override
+    public TransportRepository transports() {
+        return transports;
+    }
+
+    @Override
+    public ReservationRepository reservations() {
+        return delegate.reservations();
+    }
+
+    @Override
+    public ReviewRepository reviews() {
+        return reviews;
+    }
+
+    @Override
+    public MaintenanceRepository maintenance() {
+        return maintenance;
+    }
+
+    @Override
+    public BatteryRepository batteries() {
+        return batteries;
+    }
+
+    @Override
+    public LocationRepository locations() {
+        return delegate.locations();
+    }
+
+    @Override
+    public OrderRepository orders() {
+        return delegate.orders();
+    }
+
+    @Override
+    public ModelRepository models() {
+        return delegate.models();
+    }
+
+    @Override
+    public boolean isPersistent() {
+        return true;
+    }
+
+    // IdNodes lives in rentalApp.db, which is where an unrouted write goes
+    @Override
+    public int leaseIdNode(int nodes) throws SQLException {
+        return delegate.leaseIdNode(nodes);
+    }
+
+    // ==========================================================
+    // HELPER METHODS
+    // ==========================================================
+
+    // Warehouse whose shard holds the item or drone, or null
+    private static String shardOf(String kind, String serialNum) throws SQLException {
+        try (Connection conn = Database.getReadConnection();
+                PreparedStatement ps = conn.prepareStatement(
+                        "SELECT warehouseAddress FROM ShardDirectory WHERE kind = ? AND serialNum = ?;")) {
+            ps.setString(1, kind);
+            ps.setString(2, serialNum);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+
+    // Directory changes run inside the shard's transaction (rentalApp.db is attached to it)
+    private static void place(Connection conn, String kind, String serialNum, String warehouse) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT OR REPLACE INTO ShardDirectory(kind, serialNum, warehouseAddress) VALUES(?,?,?);")) {
+            ps.setString(1, kind);
+            ps.setString(2, serialNum);
+            ps.setString(3, warehouse);
+            ps.executeUpdate();
+        }
+    }
+
+    private static void unplace(Connection conn, String kind, String serialNum) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "DELETE FROM ShardDirectory WHERE kind = ? AND serialNum = ?;")) {
+            ps.setString(1, kind);
+            ps.setString(2, serialNum);
+            ps.executeUpdate();
+        }
+    }
+
+    // Runs work on the item's shard, or returns missing when no shard holds it
+    private static <T> T onItem(String kind, String serialNum, Database.Routed<T> work, T missing)
+            throws SQLException {
+        String warehouse = shardOf(kind, serialNum);
+        return warehouse == null ? missing : Database.onShard(warehouse, work);
+    }
+
+    private static <T> List<T> everyShard(Shards.PerShard<List<T>> work, Comparator<T> order) throws SQLException {
+        List<T> all = new ArrayList<>();
+        for (List<T> part : Shards.fanOut(work))
+            all.addAll(part);
+        if (order != null)
+            all.sort(order);
+        return all;
+    }
+
+    private static boolean isShard(String warehouse) {
+        return Database.shards().contains(warehouse);
+    }
+
+    // Preview of a mass update: only the filtered warehouse's shard, or all of them in parallel
+    private static int countMatching(MassUpdate u, Shards.PerShard<Integer> count) throws SQLException {
+        String w = u.getWarehouseAddress();
+        if (w != null)
+            return isShard(w) ? Database.onShard(w, () -> count.run(w)) : 0;
+        int total = 0;
+        for (int n : Shards.fanOut(count))
+            total += n;
+        return total;
+    }
+
+    /**
+     * A mass update runs as one transaction per shard, one shard after the
+     * other (a re-type writes the shared rating summaries in rentalApp.db).
+     * Moving a selection to another warehouse would be a move per row, so it
+     * is refused here.
+     */
+    private static int updateMatching(MassUpdate u, Shards.PerShard<Integer> update) throws SQLException {
+        if (u.movesWarehouse())
+            throw new SQLException("Mass moves between warehouses are not available while sharded; " +
+                    "edit the items one at a time");
+        String w = u.getWarehouseAddress();
+        if (w != null)
+            return isShard(w) ? Database.onShard(w, () -> update.run(w)) : 0;
+        int total = 0;
+        for (String shard : Database.shards()) {
+            try {
+                total += Database.onShard(shard, () -> update.run(shard));
+            } catch (SQLException e) {
+                throw new SQLException(e.getMessage() + " (at " + shard + "; " + total +
+                        " row(s) on earlier warehouses were already updated)", e);
+            }
+        }
+        return total;
+    }
+
+    // SQLite orders NULL first
+    private static <T> Comparator<T> by(java.util.function.Function<T, String> key) {
+        return Comparator.comparing(key, Comparator.nullsFirst(Comparator.naturalOrder()));
+    }
+
+    // Shard holding the battery, checked in parallel (batteries are few)
+    private static String batteryShard(String batteryID) throws SQLException {
+        List<String> warehouses = Database.shards();
+        List<Battery> found = Shards.fanOut(w -> SqliteRepositories.findBattery(batteryID));
+        for (int i = 0; i < found.size(); i++) {
+            if (found.get(i) != null)
+                return warehouses.get(i);
+        }
+        return null;
+    }
+
+    // Throws unless the battery (on shard from) is a spare or droneSN's own battery, and not charging
+    private static void checkMovable(String from, String batteryID, String droneSN) throws SQLException {
+        Battery b = Database.onShard(from, () -> SqliteRepositories.findBattery(batteryID));
+        if (b.getDroneSN() != null && !b.getDroneSN().equals(droneSN))
+            throw new SQLException("Battery " + batteryID + " is installed in drone " + b.getDroneSN());
+        if (b.getState() == BatteryState.CHARGING)
+            throw new SQLException("Battery " + batteryID + " is on a charger at " + b.getWarehouseAddress());
+    }
+
+    // Moves a battery row to warehouse's shard
+    private static void moveBattery(String batteryID, String warehouse, String droneSN) throws SQLException {
+        synchronized (MOVES) {
+            String from = batteryShard(batteryID);
+            if (from == null || from.equals(warehouse))
+                return;
+            checkMovable(from, batteryID, droneSN);
+            Database.onShard(from, () -> Database.write(conn -> {
+                Map<String, ReportResult> row = history(conn, BATTERY, batteryID);
+                forget(conn, BATTERY, batteryID);
+                Database.onShard(warehouse, () -> Database.write(target -> {
+                    restore(target, row);
+                    return null;
+                }));
+                return null;
+            }));
+        }
+    }
+
+    // Rows that follow an item or drone to its new shard: table -> key column
+    private static final Map<String, String> EQUIPMENT_HISTORY = Map.of("Rentals", "serialNum", "Rent", "serialNum",
+            "RentalArchive", "serialNum", "RentalArchiveTotals", "serialNum");
+    private static final Map<String, String> DRONE_HISTORY = Map.of("Transports", "dSerialNum");
+    private static final Map<String, String> BATTERY = Map.of("Batteries", "productID");
+
+    private static Map<String, ReportResult> history(Connection conn, Map<String, String> tables, String serialNum)
+            throws SQLException {
+        Map<String, ReportResult> rows = new HashMap<>();
+        for (Map.Entry<String, String> t : tables.entrySet()) {
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "SELECT * FROM " + t.getKey() + " WHERE " + t.getValue() + " = ?;")) {
+                ps.setString(1, serialNum);
+                try (ResultSet rs = ps.executeQuery()) {
+                    ResultSetMetaData meta = rs.getMetaData();
+                    List<String> columns = new ArrayList<>();
+                    for (int i = 1; i <= meta.getColumnCount(); i++)
+                        columns.add(meta.getColumnName(i));
+                    List<Object[]> values = new ArrayList<>();
+                    while (rs.next()) {
+                        Object[] row = new Object[columns.size()];
+                        for (int i = 0; i < row.length; i++)
+                            row[i] = rs.getObject(i + 1);
+                        values.add(row);
+                    }
+                    rows.put(t.getKey(), new ReportResult(columns, values));
+                }
+            }
+        }
+        return rows;
+    }
+
+    private static void restore(Connection conn, Map<String, ReportResult> history) throws SQLException {
+        for (Map.Entry<String, ReportResult> t : history.entrySet()) {
+            List<String> columns = t.getValue().getColumns();
+            String sql = "INSERT INTO " + t.getKey() + "(" + String.join(", ", columns) + ") VALUES(" +
+                    String.join(",", Collections.nCopies(columns.size(), "?")) + ");";
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                for (Object[] row : t.getValue().getRows()) {
+                    for (int i = 0; i < row.length; i++)
+                        ps.setObject(i + 1, row[i]);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        }
+    }
+
+    private static void forget(Connection conn, Map<String, String> tables, String serialNum) throws SQLException {
+        for (Map.Entry<String, String> t : tables.entrySet()) {
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "DELETE FROM " + t.getKey() + " WHERE " + t.getValue() + " = ?;")) {
+                ps.setString(1, serialNum);
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    // ==========================================================
+    // EQUIPMENT
+    // ==========================================================
+
+    private class ShardedEquipment implements EquipmentRepository {
+        @Override
+        public void add(Equipment e) throws SQLException {
+            if (shardOf(EQUIPMENT, e.getSerialNum()) != null)
+                throw new SQLException("UNIQUE constraint failed: Equipment.serialNum");
+            Database.onShard(e.getWarehouseAddress(), () -> Database.write(conn -> {
+                delegate.equipment().add(e);
+                place(conn, EQUIPMENT, e.getSerialNum(), e.getWarehouseAddress());
+                return null;
+            }));
+        }
+
+        @Override
+        public Equipment find(String serialNum) throws SQLException {
+            return onItem(EQUIPMENT, serialNum, () -> delegate.equipment().find(serialNum), null);
+        }
+
+        @Override
+        public boolean exists(String serialNum) throws SQLException {
+            return onItem(EQUIPMENT, serialNum, () -> delegate.equipment().exists(serialNum), false);
+        }
+
+        @Override
+        public List<Equipment> findByType(String partial) throws SQLException {
+            return everyShard(w -> delegate.equipment().findByType(partial), null);
+        }
+
+        @Override
+        public List<Equipment> findByExactType(String type) throws SQLException {
+            return everyShard(w -> delegate.equipment().findByExactType(type), null);
+        }
+
+        @Override
+        public List<Equipment> findAvailableByType(String type) throws SQLException {
+            return everyShard(w -> delegate.equipment().findAvailableByType(type), null);
+        }
+
+        @Override
+        public List<Equipment> findRentableByType(String type) throws SQLException {
+            return everyShard(w -> delegate.equipment().findRentableByType(type), by(Equipment::getSerialNum));
+        }
+
+        @Override
+        public List<Equipment> findAll() throws SQLException {
+            return everyShard(w -> delegate.equipment().findAll(),
+                    ShardedRepositories.<Equipment>by(Equipment::getType).thenComparing(by(Equipment::getDescription)));
+        }
+
+        @Override
+        public boolean update(Equipment e) throws SQLException {
+            String from = shardOf(EQUIPMENT, e.getSerialNum());
+            String to = e.getWarehouseAddress();
+            if (from == null)
+                return false;
+            if (from.equals(to))
+                return Database.onShard(from, () -> delegate.equipment().update(e));
+
+            // Both shards' writers are held until the move commits, so no checkout or checkin slips in between
+            synchronized (MOVES) {
+                return Database.onShard(from, () -> Database.write(conn -> {
+                    Equipment old = delegate.equipment().find(e.getSerialNum());
+                    if (old == null)
+                        return false;
+                    // Columns update() leaves alone come from the stored row
+                    Equipment moved = old.copy();
+                    moved.setDescription(e.getDescription());
+                    moved.setType(e.getType());
+                    moved.setModel(e.getModel());
+                    moved.setStatus(e.getStatus());
+                    moved.setWarehouseAddress(to);
+                    moved.setLocation(e.getLocation());
+                    moved.setRenterID(e.getRenterID());
+                    Map<String, ReportResult> history = history(conn, EQUIPMENT_HISTORY, e.getSerialNum());
+                    if (!old.getType().equals(e.getType())) {
+                        // Moves the item's ratings to its new type
+                        Equipment retyped = old.copy();
+                        retyped.setType(e.getType());
+                        delegate.equipment().update(retyped);
+                    }
+                    SqliteRepositories.detachEquipment(e.getSerialNum());
+                    forget(conn, EQUIPMENT_HISTORY, e.getSerialNum());
+                    place(conn, EQUIPMENT, e.getSerialNum(), to);
+                    // Last, so a full warehouse rolls back the whole move
+                    Database.onShard(to, () -> Database.write(target -> {
+                        delegate.equipment().add(moved);
+                        restore(target, history);
+                        return null;
+                    }));
+                    return true;
+                }));
+            }
+        }
+
+        @Override
+        public boolean delete(String serialNum) throws SQLException {
+            return onItem(EQUIPMENT, serialNum, () -> Database.write(conn -> {
+                if (!delegate.equipment().delete(serialNum))
+                    return false;
+                unplace(conn, EQUIPMENT, serialNum);
+                return true;
+            }), false);
+        }
+
+        @Override
+        public int count(MassUpdate u) throws SQLException {
+            return countMatching(u, w -> delegate.equipment().count(u));
+        }
+
+        @Override
+        public int updateAll(MassUpdate u) throws SQLException {
+            return updateMatching(u, w -> delegate.equipment().updateAll(u));
+        }
+    }
+
+    // ==========================================================
+    // DRONES
+    // ==========================================================
+
+    private class ShardedDrones implements DroneRepository {
+        @Override
+        public void add(Drone d) throws SQLException {
+            if (shardOf(DRONE, d.getSerialNum()) != null)
+                throw new SQLException("UNIQUE constraint failed: Drones.serialNum");
+            if (!isShard(d.getWarehouseAddress()))
+                throw new SQLException("No warehouse at " + d.getWarehouseAddress());
+            if (d.getBatteryID() != null)
+                moveBattery(d.getBatteryID(), d.getWarehouseAddress(), d.getSerialNum());
+            Database.onShard(d.getWarehouseAddress(), () -> Database.write(conn -> {
+                delegate.drones().add(d);
+                place(conn, DRONE, d.getSerialNum(), d.getWarehouseAddress());
+                return null;
+            }));
+        }
+
+        @Override
+        public Drone find(String serialNum) throws SQLException {
+            return onItem(DRONE, serialNum, () -> delegate.drones().find(serialNum), null);
+        }
+
+        @Override
+        public boolean exists(String serialNum) throws SQLException {
+            return onItem(DRONE, serialNum, () -> delegate.drones().exists(serialNum), false);
+        }
+
+        @Override
+        public List<Drone> findByModel(String partial) throws SQLException {
+            return everyShard(w -> delegate.drones().findByModel(partial), null);
+        }
+
+        @Override
+        public List<Drone> findIdleAt(String warehouseAddress) throws SQLException {
+            if (!isShard(warehouseAddress))
+                return new ArrayList<>();
+            return Database.onShard(warehouseAddress, () -> delegate.drones().findIdleAt(warehouseAddress));
+        }
+
+        @Override
+        public List<Drone> findAll() throws SQLException {
+            return everyShard(w -> delegate.drones().findAll(),
+                    ShardedRepositories.<Drone>by(Drone::getName).thenComparing(by(Drone::getModel)));
+        }
+
+        @Override
+        public boolean update(Drone d) throws SQLException {
+            String from = shardOf(DRONE, d.getSerialNum());
+            String to = d.getWarehouseAddress();
+            String batteryID = d.getBatteryID();
+            if (from == null)
+                return false;
+            if (from.equals(to)) {
+                if (batteryID != null)
+                    moveBattery(batteryID, to, d.getSerialNum());
+                return Database.onShard(from, () -> delegate.drones().update(d));
+            }
+
+            synchronized (MOVES) {
+                // A spare from a third warehouse is fetched first; the drone's own battery moves with it
+                String batteryAt = batteryID == null ? null : batteryShard(batteryID);
+                if (batteryAt != null && !batteryAt.equals(from))
+                    moveBattery(batteryID, to, d.getSerialNum());
+                return Database.onShard(from, () -> Database.write(conn -> {
+                    Drone old = delegate.drones().find(d.getSerialNum());
+                    if (old == null)
+                        return false;
+                    if (old.getStatus() == DroneStatus.CHARGING)
+                        throw new SQLException("Drone " + d.getSerialNum() + " is charging at " + from +
+                                "; finish charging before moving it");
+                    Battery battery = batteryID == null ? null : SqliteRepositories.findBattery(batteryID);
+                    if (battery != null && battery.getDroneSN() != null && !battery.getDroneSN().equals(d.getSerialNum()))
+                        throw new SQLException("Battery " + batteryID + " is installed in drone " + battery.getDroneSN());
+                    if (battery != null && battery.getState() == BatteryState.CHARGING)
+                        throw new SQLException("Battery " + batteryID + " is on a charger at " +
+                                battery.getWarehouseAddress());
+                    Drone moved = old.copy();
+                    moved.setName(d.getName());
+                    moved.setModel(d.getModel());
+                    moved.setStatus(d.getStatus());
+                    moved.setWarehouseAddress(to);
+                    moved.setBatteryID(batteryID);
+                    Map<String, ReportResult> history = history(conn, DRONE_HISTORY, d.getSerialNum());
+                    Map<String, ReportResult> batteryRow = battery == null ? Map.of()
+                            : history(conn, BATTERY, batteryID);
+                    SqliteRepositories.detachDrone(d.getSerialNum());
+                    forget(conn, DRONE_HISTORY, d.getSerialNum());
+                    if (battery != null)
+                        forget(conn, BATTERY, batteryID);
+                    place(conn, DRONE, d.getSerialNum(), to);
+                    Database.onShard(to, () -> Database.write(target -> {
+                        restore(target, batteryRow);
+                        delegate.drones().add(moved);
+                        restore(target, history);
+                        return null;
+                    }));
+                    return true;
+                }));
+            }
+        }
+
+        @Override
+        public boolean delete(String serialNum) throws SQLException {
+            return onItem(DRONE, serialNum, () -> Database.write(conn -> {
+                if (!delegate.drones().delete(serialNum))
+                    return false;
+                unplace(conn, DRONE, serialNum);
+                return true;
+            }), false);
+        }
+
+        @Override
+        public int count(MassUpdate u) throws SQLException {
+            return countMatching(u, w -> delegate.drones().count(u));
+        }
+
+        @Override
+        public int updateAll(MassUpdate u) throws SQLException {
+            return updateMatching(u, w -> delegate.drones().updateAll(u));
+        }
+    }
+
+    // ==========================================================
+    // RENTALS AND TRANSPORTS
+    // ==========================================================
+
+    private class ShardedRentals implements RentalRepository {
+        @Override
+        public boolean checkout(Rental r, String reservationID) throws SQLException {
+            return onItem(EQUIPMENT, r.getSerialNum(), () -> delegate.rentals().checkout(r, reservationID), false);
+        }
+
+        @Override
+        public String checkin(String checkOutID) throws SQLException {
+            List<Boolean> open = Shards.fanOut(w -> {
+                try (Connection conn = Database.getReadConnection();
+                        PreparedStatement ps = conn.prepareStatement(
+                                "SELECT 1 FROM rentals WHERE checkOutID = ? AND " + SqliteRepositories.OPEN_RENTAL + ";")) {
+                    ps.setString(1, checkOutID);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        return rs.next();
+                    }
+                }
+            });
+            List<String> warehouses = Database.shards();
+            for (int i = 0; i < open.size(); i++) {
+                if (open.get(i))
+                    return Database.onShard(warehouses.get(i), () -> delegate.rentals().checkin(checkOutID));
+            }
+            return null;
+        }
+
+        @Override
+        public List<Rental> findOpen() throws SQLException {
+            return everyShard(w -> delegate.rentals().findOpen(), null);
+        }
+    }
+
+    private class ShardedTransports implements TransportRepository {
+        @Override
+        public void schedule(String droneSerial, String equipmentSerial, DroneStatus droneStatus)
+                throws SQLException {
+            // An unknown drone is recorded like in rentalApp.db, on the first shard
+            String warehouse = shardOf(DRONE, droneSerial);
+            Database.onShard(warehouse != null ? warehouse : Database.shards().get(0), () -> {
+                delegate.transports().schedule(droneSerial, equipmentSerial, droneStatus);
+                return null;
+            });
+        }
+    }
+
+    // ==========================================================
+    // REVIEWS AND MAINTENANCE (summaries stay in rentalApp.db)
+    // ==========================================================
+
+    private class ShardedReviews implements ReviewRepository {
+        @Override
+        public void add(Review r) throws SQLException {
+            String warehouse = shardOf(EQUIPMENT, r.getSerialNum());
+            if (warehouse == null)
+                throw new SQLException("No equipment with serialNum " + r.getSerialNum());
+            Database.onShard(warehouse, () -> {
+                delegate.reviews().add(r);
+                return null;
+            });
+        }
+
+        @Override
+        public RatingSummary findSummary(String serialNum) throws SQLException {
+            return delegate.reviews().findSummary(serialNum);
+        }
+
+        @Override
+        public RatingSummary findTypeSummary(String type) throws SQLException {
+            return delegate.reviews().findTypeSummary(type);
+        }
+
+        @Override
+        public List<RatingSummary> findTypeSummaries() throws SQLException {
+            return delegate.reviews().findTypeSummaries();
+        }
+
+        @Override
+        public List<RatingSummary> findBestRated(String type, int limit) throws SQLException {
+            return delegate.reviews().findBestRated(type, limit);
+        }
+    }
+
+    private class ShardedMaintenance implements MaintenanceRepository {
+        @Override
+        public void logRepair(String mechSSN, String droneSN) throws SQLException {
+            String warehouse = shardOf(DRONE, droneSN);
+            if (warehouse == null)
+                throw new SQLException("No drone with serialNum " + droneSN);
+            Database.onShard(warehouse, () -> {
+                delegate.maintenance().logRepair(mechSSN, droneSN);
+                return null;
+            });
+        }
+
+        @Override
+        public RepairCount findDroneRepairs(String droneSN) throws SQLException {
+            return delegate.maintenance().findDroneRepairs(droneSN);
+        }
+
+        @Override
+        public List<RepairCount> findMostRepairedDrones() throws SQLException {
+            return delegate.maintenance().findMostRepairedDrones();
+        }
+
+        @Override
+        public List<RepairCount> findMechanicWorkload(int limit) throws SQLException {
+            return delegate.maintenance().findMechanicWorkload(limit);
+        }
+    }
+
+    // ==========================================================
+    // BATTERIES
+    // ==========================================================
+
+    private class ShardedBatteries implements BatteryRepository {
+        @Override
+        public void stock(String batteryID, String type, String warehouseAddress, boolean charged)
+                throws SQLException {
+            if (!isShard(warehouseAddress))
+                throw new SQLException("No warehouse at " + warehouseAddress);
+            moveBattery(batteryID, warehouseAddress, null);
+            Database.onShard(warehouseAddress, () -> {
+                delegate.batteries().stock(batteryID, type, warehouseAddress, charged);
+                return null;
+            });
+        }
+
+        @Override
+        public List<String> startCharging(String warehouseAddress) throws SQLException {
+            return Database.onShard(warehouseAddress, () -> delegate.batteries().startCharging(warehouseAddress));
+        }
+
+        @Override
+        public boolean finishCharging(String batteryID) throws SQLException {
+            String warehouse = batteryShard(batteryID);
+            return warehouse != null
+                    && Database.onShard(warehouse, () -> delegate.batteries().finishCharging(batteryID));
+        }
+
+        @Override
+        public List<Battery> findAt(String warehouseAddress) throws SQLException {
+            if (!isShard(warehouseAddress))
+                return new ArrayList<>();
+            return Database.onShard(warehouseAddress, () -> delegate.batteries().findAt(warehouseAddress));
+        }
+
+        @Override
+        public int chargedDroneCount(String warehouseAddress) throws SQLException {
+            if (warehouseAddress == null) {
+                int total = 0;
+                for (int n : Shards.fanOut(w -> delegate.batteries().chargedDroneCount(w)))
+                    total += n;
+                return total;
+            }
+            if (!isShard(warehouseAddress))
+                return 0;
+            return Database.onShard(warehouseAddress, () -> delegate.batteries().chargedDroneCount(warehouseAddress));
+        }
+    }
+}
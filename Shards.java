@@ -0,0 +1,396 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Per-warehouse shard files for sharded mode (--shards).
+ *
+ * Each warehouse gets one SQLite file holding its rows of the tables below,
+ * with the same definitions and indexes as in rentalApp.db; everything else
+ * (members, reservations, reviews, models, warehouses, mechanics) stays in
+ * rentalApp.db, which every shard connection attaches as "global". Writes
+ * to different warehouses then commit on different files, in parallel.
+ *
+ * Rows are placed by the warehouse that owns them: equipment and drones by
+ * warehouseAddress, rentals, rent and archived rentals by their equipment,
+ * transports by their drone, batteries by the drone they are in or else
+ * their warehouse, and daily rental rollups by the warehouse they count.
+ * Rows whose owner no longer exists go to the first shard.
+ *
+ * open() creates missing shard files, adds columns and indexes that later
+ * schema versions gave rentalApp.db, and moves any rows still in
+ * rentalApp.db into their shards. merge() moves everything back.
+ *
+ * Usage: java Shards status|merge [dir]
+ */
+public class Shards {
+    public static final Path DEFAULT_DIR = Paths.get("shards");
+
+    /** Tables that live in the shards, in the order rows are moved. */
+    static final List<String> TABLES = List.of("Equipment", "Drones", "Rentals", "Rent", "Transports", "Batteries",
+            "ChargeCounts", "WarehouseOccupancy", "RentalArchive", "RentalArchiveTotals", "RentalDaily");
+
+    // Fan-out threads; cached so a fan-out started from a fan-out thread never waits on itself
+    private static final ExecutorService FAN_OUT = Executors.newCachedThreadPool(fanOutThreads());
+
+    /** Work run once per shard by fanOut. */
+    public interface PerShard<T> {
+        T run(String warehouseAddress) throws SQLException;
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 1 || args.length > 2 || !(args[0].equals("status") || args[0].equals("merge"))) {
+            System.err.println("Usage: java Shards status|merge [dir]");
+            return;
+        }
+        Path dir = args.length > 1 ? Paths.get(args[1]) : DEFAULT_DIR;
+        try {
+            if (args[0].equals("merge")) {
+                System.out.println("Merged " + merge(dir) + " shard(s) back into rentalApp.db");
+            } else {
+                Database.enableShards(dir);
+                for (Map.Entry<String, Map<String, Integer>> e : rowCounts().entrySet())
+                    System.out.println(e.getKey() + ": " + e.getValue());
+            }
+        } catch (SQLException | IOException e) {
+            System.err.println("Shard error: " + e.getMessage());
+        } finally {
+            Database.shutdown();
+        }
+    }
+
+    /**
+     * Runs work on every shard in parallel, each call routed to its shard,
+     * and returns the results in shard order. Without sharding it runs once,
+     * against rentalApp.db, with a null address.
+     */
+    public static <T> List<T> fanOut(PerShard<T> work) throws SQLException {
+        List<String> warehouses = Database.shards();
+        if (warehouses.isEmpty())
+            return List.of(work.run(null));
+        List<Future<T>> futures = new ArrayList<>();
+        for (String w : warehouses)
+            futures.add(FAN_OUT.submit(() -> Database.onShard(w, () -> work.run(w))));
+        List<T> results = new ArrayList<>();
+        SQLException failure = null;
+        for (Future<T> f : futures) {
+            try {
+                results.add(f.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure = new SQLException("Interrupted while waiting for shards", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (failure == null)
+                    failure = cause instanceof SQLException ? (SQLException) cause : new SQLException(cause);
+            }
+        }
+        if (failure != null)
+            throw failure;
+        return results;
+    }
+
+    /** Rows per shard table, by warehouse. */
+    public static Map<String, Map<String, Integer>> rowCounts() throws SQLException {
+        Map<String, Map<String, Integer>> counts = new LinkedHashMap<>();
+        List<Map<String, Integer>> perShard = fanOut(w -> {
+            Map<String, Integer> c = new LinkedHashMap<>();
+            try (Connection conn = Database.getReadConnection()) {
+                for (String table : TABLES)
+                    c.put(table, count(conn, "main", table));
+            }
+            return c;
+        });
+        List<String> warehouses = Database.shards();
+        for (int i = 0; i < perShard.size(); i++)
+            counts.put(warehouses.isEmpty() ? "rentalApp.db" : warehouses.get(i), perShard.get(i));
+        return counts;
+    }
+
+    /** True for tables whose rows live in the shards. */
+    public static boolean isShardTable(String table) {
+        return TABLES.stream().anyMatch(table::equalsIgnoreCase);
+    }
+
+    // ===== opening =====
+
+    /** Creates, upgrades and fills the shard files; returns them by warehouse address. */
+    static Map<String, Path> open(Path dir) throws SQLException {
+        try {
+            Files.createDirectories(dir);
+        } catch (IOException e) {
+            throw new SQLException("Cannot create shard directory " + dir + ": " + e.getMessage(), e);
+        }
+        Map<String, Path> files = new TreeMap<>();
+        Map<String, String> bySlug = new TreeMap<>();
+        try (Connection global = Database.openUnpooledConnection()) {
+            for (String w : warehouses(global)) {
+                String slug = slug(w);
+                String clash = bySlug.put(slug, w);
+                if (clash != null)
+                    throw new SQLException("Warehouses '" + clash + "' and '" + w + "' map to the same shard file");
+                files.put(w, dir.resolve(slug + ".db"));
+            }
+            if (files.isEmpty())
+                throw new SQLException("No warehouses to shard by");
+
+            boolean unsplit = false;
+            for (String table : TABLES)
+                unsplit |= count(global, "main", table) > 0;
+
+            String first = files.keySet().iterator().next();
+            for (Map.Entry<String, Path> e : files.entrySet()) {
+                try (Connection conn = Database.openShardConnection(e.getValue())) {
+                    try (Statement st = conn.createStatement()) {
+                        st.execute("PRAGMA journal_mode = WAL;");
+                    }
+                    createTables(conn);
+                    if (unsplit)
+                        split(conn, e.getKey(), e.getKey().equals(first));
+                }
+            }
+            if (unsplit)
+                clearGlobal(global);
+        }
+        return files;
+    }
+
+    // Shard tables as defined in rentalApp.db, plus any columns and indexes added there since.
+    // A shard that gains RentalDaily here gets the rollups of the rentals it already holds.
+    private static void createTables(Connection conn) throws SQLException {
+        boolean backfill = false;
+        for (String table : TABLES) {
+            String ddl = definition(conn, "global", "table", table);
+            if (ddl == null)
+                throw new SQLException("rentalApp.db has no " + table + " table");
+            if (definition(conn, "main", "table", table) == null) {
+                execute(conn, ddl);
+                backfill |= table.equals("RentalDaily");
+            } else {
+                List<String> present = columnNames(conn, "main", table);
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "SELECT name, type, \"notnull\", dflt_value FROM pragma_table_info(?, 'global');")) {
+                    ps.setString(1, table);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            if (present.stream().anyMatch(rs.getString(1)::equalsIgnoreCase))
+                                continue;
+                            String dflt = rs.getString(4);
+                            execute(conn, "ALTER TABLE main." + table + " ADD COLUMN " + rs.getString(1) + " " +
+                                    rs.getString(2) + (rs.getBoolean(3) && dflt != null ? " NOT NULL" : "") +
+                                    (dflt != null ? " DEFAULT " + dflt : "") + ";");
+                        }
+                    }
+                }
+            }
+            try (PreparedStatement ps = conn.prepareStatement("SELECT name, sql FROM global.sqlite_master " +
+                    "WHERE type = 'index' AND tbl_name = ? COLLATE NOCASE AND sql IS NOT NULL;")) {
+                ps.setString(1, table);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        if (definition(conn, "main", "index", rs.getString(1)) == null)
+                            execute(conn, rs.getString(2));
+                    }
+                }
+            }
+        }
+        if (backfill)
+            Schema.backfillRentalDaily(conn);
+    }
+
+    // Copies this warehouse's rows out of rentalApp.db (repeatable: rows are replaced, not duplicated)
+    private static void split(Connection conn, String warehouse, boolean first) throws SQLException {
+        String equipment = "(SELECT serialNum FROM global.Equipment WHERE warehouseAddress = ?1)";
+        String drones = "(SELECT serialNum FROM global.Drones WHERE warehouseAddress = ?1)";
+        String installed = "(SELECT batteryID FROM global.Drones WHERE batteryID IS NOT NULL)";
+        Map<String, String> where = new LinkedHashMap<>();
+        where.put("Equipment", "warehouseAddress = ?1"
+                + (first ? " OR warehouseAddress NOT IN (SELECT address FROM global.Warehouses)" : ""));
+        where.put("Drones", "warehouseAddress = ?1"
+                + (first ? " OR warehouseAddress NOT IN (SELECT address FROM global.Warehouses)" : ""));
+        where.put("Rentals", "serialNum IN " + equipment
+                + (first ? " OR serialNum NOT IN (SELECT serialNum FROM global.Equipment WHERE warehouseAddress "
+                        + "IN (SELECT address FROM global.Warehouses))" : ""));
+        where.put("Rent", "serialNum IN " + equipment
+                + (first ? " OR serialNum NOT IN (SELECT serialNum FROM global.Equipment WHERE warehouseAddress "
+                        + "IN (SELECT address FROM global.Warehouses))" : ""));
+        where.put("RentalArchive", "serialNum IN " + equipment
+                + (first ? " OR serialNum NOT IN (SELECT serialNum FROM global.Equipment WHERE warehouseAddress "
+                        + "IN (SELECT address FROM global.Warehouses))" : ""));
+        where.put("RentalArchiveTotals", "serialNum IN " + equipment
+                + (first ? " OR serialNum NOT IN (SELECT serialNum FROM global.Equipment WHERE warehouseAddress "
+                        + "IN (SELECT address FROM global.Warehouses))" : ""));
+        where.put("Transports", "dSerialNum IN " + drones
+                + (first ? " OR dSerialNum NOT IN (SELECT serialNum FROM global.Drones WHERE warehouseAddress "
+                        + "IN (SELECT address FROM global.Warehouses))" : ""));
+        where.put("Batteries", "productID IN (SELECT batteryID FROM global.Drones WHERE warehouseAddress = ?1) "
+                + "OR (productID NOT IN " + installed + " AND (warehouseAddress = ?1"
+                + (first ? " OR warehouseAddress IS NULL OR warehouseAddress NOT IN (SELECT address FROM global.Warehouses)"
+                        : "") + "))");
+        where.put("ChargeCounts", "warehouseAddress = ?1");
+        where.put("WarehouseOccupancy", "warehouseAddress = ?1");
+        where.put("RentalDaily", "warehouseAddress = ?1"
+                + (first ? " OR warehouseAddress NOT IN (SELECT address FROM global.Warehouses)" : ""));
+
+        conn.setAutoCommit(false);
+        try {
+            for (Map.Entry<String, String> e : where.entrySet()) {
+                String cols = String.join(", ", columnNames(conn, "global", e.getKey()));
+                try (PreparedStatement ps = conn.prepareStatement("INSERT OR REPLACE INTO main." + e.getKey() +
+                        "(" + cols + ") SELECT " + cols + " FROM global." + e.getKey() + " WHERE " + e.getValue() + ";")) {
+                    ps.setString(1, warehouse);
+                    ps.executeUpdate();
+                }
+            }
+            execute(conn, "INSERT OR REPLACE INTO global.ShardDirectory(kind, serialNum, warehouseAddress) " +
+                    "SELECT 'E', serialNum, '" + warehouse.replace("'", "''") + "' FROM main.Equipment;");
+            execute(conn, "INSERT OR REPLACE INTO global.ShardDirectory(kind, serialNum, warehouseAddress) " +
+                    "SELECT 'D', serialNum, '" + warehouse.replace("'", "''") + "' FROM main.Drones;");
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    private static void clearGlobal(Connection global) throws SQLException {
+        global.setAutoCommit(false);
+        try {
+            for (String table : TABLES)
+                execute(global, "DELETE FROM " + table + ";");
+            global.commit();
+        } catch (SQLException e) {
+            global.rollback();
+            throw e;
+        } finally {
+            global.setAutoCommit(true);
+        }
+    }
+
+    // ===== merging back =====
+
+    /** Moves every shard's rows back into rentalApp.db and deletes the shard files. */
+    public static int merge(Path dir) throws SQLException, IOException {
+        if (Database.isSharded())
+            throw new SQLException("Shards are in use by this process");
+        if (!Files.isDirectory(dir))
+            return 0;
+        List<Path> files = new ArrayList<>();
+        try (var listing = Files.newDirectoryStream(dir, "*.db")) {
+            listing.forEach(files::add);
+        }
+        for (Path file : files) {
+            try (Connection conn = Database.openShardConnection(file)) {
+                conn.setAutoCommit(false);
+                try {
+                    for (String table : TABLES) {
+                        if (definition(conn, "main", "table", table) == null)
+                            continue;
+                        List<String> shardColumns = columnNames(conn, "main", table);
+                        List<String> cols = new ArrayList<>();
+                        for (String c : columnNames(conn, "global", table)) {
+                            if (shardColumns.stream().anyMatch(c::equalsIgnoreCase))
+                                cols.add(c);
+                        }
+                        String list = String.join(", ", cols);
+                        execute(conn, "INSERT OR REPLACE INTO global." + table + "(" + list + ") SELECT " + list +
+                                " FROM main." + table + ";");
+                    }
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            }
+            for (String suffix : new String[] { "", "-wal", "-shm" })
+                Files.deleteIfExists(file.resolveSibling(file.getFileName() + suffix));
+        }
+        try (Connection global = Database.openUnpooledConnection()) {
+            execute(global, "DELETE FROM ShardDirectory;");
+        }
+        return files.size();
+    }
+
+    // ===== helpers =====
+
+    private static List<String> warehouses(Connection conn) throws SQLException {
+        List<String> names = new ArrayList<>();
+        try (Statement st = conn.createStatement();
+                ResultSet rs = st.executeQuery("SELECT address FROM Warehouses ORDER BY address;")) {
+            while (rs.next())
+                names.add(rs.getString(1));
+        }
+        return names;
+    }
+
+    // File name for a warehouse: its address reduced to lower-case letters, digits and dashes
+    static String slug(String address) {
+        String slug = address.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]+", "-").replaceAll("^-|-$", "");
+        return slug.isEmpty() ? "warehouse" : slug;
+    }
+
+    private static String definition(Connection conn, String schema, String type, String name) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT sql FROM " + schema + ".sqlite_master WHERE type = ? AND name = ? COLLATE NOCASE;")) {
+            ps.setString(1, type);
+            ps.setString(2, name);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+
+    private static List<String> columnNames(Connection conn, String schema, String table) throws SQLException {
+        List<String> names = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement("SELECT name FROM pragma_table_info(?, ?);")) {
+            ps.setString(1, table);
+            ps.setString(2, schema);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next())
+                    names.add(rs.getString(1));
+            }
+        }
+        return names;
+    }
+
+    private static int count(Connection conn, String schema, String table) throws SQLException {
+        try (Statement st = conn.createStatement();
+                ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM " + schema + "." + table + ";")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static void execute(Connection conn, String sql) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.execute(sql);
+        }
+    }
+
+    private static java.util.concurrent.ThreadFactory fanOutThreads() {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, "shard-fanout-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
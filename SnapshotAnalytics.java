@@ -0,0 +1,176 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Offline analytics over a memory-mapped RentalSnapshot. Every query is one
+ * sequential pass over a few primitive columns, aggregating into arrays
+ * indexed by dictionary id; nothing touches rentalApp.db, so these never
+ * compete with rentals and returns.
+ *
+ * Results come back as ReportResult, the same shape as the live Reports.
+ *
+ * Usage: java SnapshotAnalytics [snapshotFile]
+ */
+public class SnapshotAnalytics {
+    private final RentalSnapshot snap;
+
+    public SnapshotAnalytics(RentalSnapshot snap) {
+        this.snap = snap;
+    }
+
+    /** Totals over the whole history. */
+    public ReportResult summary() {
+        int returned = 0, withHours = 0;
+        long hours = 0;
+        double revenue = 0;
+        for (int i = 0; i < snap.rentalCount(); i++) {
+            revenue += snap.rentalFees(i);
+            if (snap.rentalReturned(i))
+                returned++;
+            int h = snap.rentalHours(i);
+            if (h >= 0) {
+                hours += h;
+                withHours++;
+            }
+        }
+        int rated = 0;
+        double ratingSum = 0;
+        for (int i = 0; i < snap.reviewCount(); i++) {
+            double r = snap.reviewRating(i);
+            if (!Double.isNaN(r)) {
+                ratingSum += r;
+                rated++;
+            }
+        }
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[] { snap.rentalCount(), returned, round(revenue),
+                withHours == 0 ? null : round((double) hours / withHours), snap.transportCount(), snap.reviewCount(),
+                rated == 0 ? null : round(ratingSum / rated) });
+        return new ReportResult(List.of("rentals", "returned", "revenue", "avgHours", "transports", "reviews",
+                "avgRating"), rows);
+    }
+
+    /** Most rented items with their revenue. */
+    public ReportResult topItems(int limit) {
+        int[] count = new int[snap.serialCount()];
+        double[] revenue = new double[snap.serialCount()];
+        for (int i = 0; i < snap.rentalCount(); i++) {
+            int s = snap.rentalSerial(i);
+            count[s]++;
+            revenue[s] += snap.rentalFees(i);
+        }
+        List<Object[]> rows = new ArrayList<>();
+        for (int id : top(count, limit))
+            rows.add(new Object[] { snap.serial(id), count[id], round(revenue[id]) });
+        return new ReportResult(List.of("serialNum", "rentals", "revenue"), rows);
+    }
+
+    /** Members by number of rentals, with what they spent. */
+    public ReportResult topMembers(int limit) {
+        int[] count = new int[snap.userCount()];
+        double[] spent = new double[snap.userCount()];
+        for (int i = 0; i < snap.rentalCount(); i++) {
+            int u = snap.rentalUser(i);
+            count[u]++;
+            spent[u] += snap.rentalFees(i);
+        }
+        List<Object[]> rows = new ArrayList<>();
+        for (int id : top(count, limit))
+            rows.add(new Object[] { snap.user(id), count[id], round(spent[id]) });
+        return new ReportResult(List.of("userID", "rentals", "spent"), rows);
+    }
+
+    /** Drones by number of transports. */
+    public ReportResult busiestDrones(int limit) {
+        int[] count = new int[snap.droneCount()];
+        for (int i = 0; i < snap.transportCount(); i++)
+            count[snap.transportDrone(i)]++;
+        List<Object[]> rows = new ArrayList<>();
+        for (int id : top(count, limit))
+            rows.add(new Object[] { snap.drone(id), count[id] });
+        return new ReportResult(List.of("droneSN", "transports"), rows);
+    }
+
+    /** Highest average rating among items with at least minReviews ratings. */
+    public ReportResult bestRated(int limit, int minReviews) {
+        int[] count = new int[snap.serialCount()];
+        double[] sum = new double[snap.serialCount()];
+        for (int i = 0; i < snap.reviewCount(); i++) {
+            double r = snap.reviewRating(i);
+            if (Double.isNaN(r))
+                continue;
+            int s = snap.reviewSerial(i);
+            count[s]++;
+            sum[s] += r;
+        }
+        List<Integer> ids = new ArrayList<>();
+        for (int id = 0; id < count.length; id++) {
+            if (count[id] >= Math.max(1, minReviews))
+                ids.add(id);
+        }
+        ids.sort((a, b) -> {
+            int byAvg = Double.compare(sum[b] / count[b], sum[a] / count[a]);
+            return byAvg != 0 ? byAvg : Integer.compare(count[b], count[a]);
+        });
+        List<Object[]> rows = new ArrayList<>();
+        for (int id : ids.subList(0, Math.min(limit, ids.size())))
+            rows.add(new Object[] { snap.serial(id), count[id], round(sum[id] / count[id]) });
+        return new ReportResult(List.of("serialNum", "reviews", "avgRating"), rows);
+    }
+
+    /** Prints every analytic; used by main and the Reports menu. */
+    public void printAll(PrintStream out) {
+        out.println("Snapshot taken " + Instant.ofEpochMilli(snap.getCreatedMillis()));
+        print(out, "Summary", summary());
+        print(out, "Most rented items", topItems(5));
+        print(out, "Top members", topMembers(5));
+        print(out, "Busiest drones", busiestDrones(5));
+        print(out, "Best rated (2+ reviews)", bestRated(5, 2));
+    }
+
+    public static void main(String[] args) {
+        Path file = args.length > 0 ? Paths.get(args[0]) : RentalSnapshot.DEFAULT_FILE;
+        try {
+            new SnapshotAnalytics(RentalSnapshot.open(file)).printAll(System.out);
+        } catch (IOException e) {
+            System.err.println("Snapshot error: " + e.getMessage());
+        }
+    }
+
+    private static void print(PrintStream out, String title, ReportResult r) {
+        out.println("\n== " + title + " ==");
+        if (r.isEmpty()) {
+            out.println("   (no rows)");
+            return;
+        }
+        out.println("   " + String.join(" | ", r.getColumns()));
+        for (Object[] row : r.getRows()) {
+            StringBuilder line = new StringBuilder("   ");
+            for (int c = 0; c < row.length; c++)
+                line.append(c > 0 ? " | " : "").append(row[c]);
+            out.println(line);
+        }
+    }
+
+    // Ids with the highest non-zero counts, ties by id (first seen)
+    private static List<Integer> top(int[] count, int limit) {
+        Integer[] ids = new Integer[count.length];
+        for (int i = 0; i < ids.length; i++)
+            ids[i] = i;
+        Arrays.sort(ids, (a, b) -> count[b] != count[a] ? Integer.compare(count[b], count[a]) : Integer.compare(a, b));
+        List<Integer> result = new ArrayList<>();
+        for (int i = 0; i < ids.length && result.size() < limit && count[ids[i]] > 0; i++)
+            result.add(ids[i]);
+        return result;
+    }
+
+    private static double round(double v) {
+        return Math.round(v * 100) / 100.0;
+    }
+}
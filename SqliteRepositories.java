@@ -0,0 +1,1330 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Repositories over rentalApp.db. Every statement is a PreparedStatement;
+ * every mutation goes through Database.write, so multi-step operations
+ * (checkout, checkin, transports, reservations, reviews with their rating
+ * summaries) run in a single transaction and all writes can be
+ * group-committed. Plain reads use Database's read-only pool.
+ */
+public class SqliteRepositories extends Repositories {
+    private final MemberRepository members = new Members();
+    private final EquipmentRepository equipment = new EquipmentTable();
+    private final DroneRepository drones = new Drones();
+    private final RentalRepository rentals = new Rentals();
+    private final TransportRepository transports = new Transports();
+    private final ReservationRepository reservations = new Reservations();
+    private final ReviewRepository reviews = new Reviews();
+    private final MaintenanceRepository maintenance = new Maintenance();
+    private final BatteryRepository batteries = new Batteries();
+    private final LocationRepository locations = new Locations();
+    private final OrderRepository orders = new Orders();
+    private final ModelRepository models = new Models();
+
+    // A rental still out. Returns is 'NO' until checkin sets 'YES'; seeded rows hold NULL
+    // while out and the return date once back
+    static final String OPEN_RENTAL = "(Returns IS NULL OR Returns = 'NO')";
+    static final String RETURNED_RENTAL = "(Returns IS NOT NULL AND Returns <> 'NO')";
+
+    @Override
+    public MemberRepository members() {
+        return members;
+    }
+
+    @Override
+    public EquipmentRepository equipment() {
+        return equipment;
+    }
+
+    @Override
+    public DroneRepository drones() {
+        return drones;
+    }
+
+    @Override
+    public RentalRepository rentals() {
+        return rentals;
+    }
+
+    @Override
+    public TransportRepository transports() {
+        return transports;
+    }
+
+    @Override
+    public ReservationRepository reservations() {
+        return reservations;
+    }
+
+    @Override
+    public ReviewRepository reviews() {
+        return reviews;
+    }
+
+    @Override
+    public MaintenanceRepository maintenance() {
+        return maintenance;
+    }
+
+    @Override
+    public BatteryRepository batteries() {
+        return batteries;
+    }
+
+    @Override
+    public LocationRepository locations() {
+        return locations;
+    }
+
+    @Override
+    public OrderRepository orders() {
+        return orders;
+    }
+
+    @Override
+    public ModelRepository models() {
+        return models;
+    }
+
+    @Override
+    public boolean isPersistent() {
+        return true;
+    }
+
+    // Takes the next node number from the IdNodes counter (schema v9), which hands out 0..nodes-1
+    // in turn. Updating first takes the write lock, so two processes starting at once queue up.
+    @Override
+    public int leaseIdNode(int nodes) throws SQLException {
+        return Database.write(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "UPDATE IdNodes SET nextNode = (nextNode + 1) % ? RETURNING nextNode;")) {
+                ps.setInt(1, nodes);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next())
+                        throw new SQLException("IdNodes is empty");
+                    return (rs.getInt("nextNode") + nodes - 1) % nodes;
+                }
+            }
+        });
+    }
+
+    // ==========================================================
+    // HELPER METHODS
+    // ==========================================================
+
+    private interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    // Lookups, searches and listings run on the read pool, never on the writer
+    private static <T> List<T> query(String sql, RowMapper<T> mapper, Object... params) throws SQLException {
+        try (Connection conn = Database.getReadConnection()) {
+            return query(conn, sql, mapper, params);
+        }
+    }
+
+    private static <T> List<T> query(Connection conn, String sql, RowMapper<T> mapper, Object... params)
+            throws SQLException {
+        List<T> result = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            bind(ps, params);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next())
+                    result.add(mapper.map(rs));
+            }
+        }
+        return result;
+    }
+
+    private static <T> T queryOne(String sql, RowMapper<T> mapper, Object... params) throws SQLException {
+        List<T> rows = query(sql, mapper, params);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    private static <T> T queryOne(Connection conn, String sql, RowMapper<T> mapper, Object... params)
+            throws SQLException {
+        List<T> rows = query(conn, sql, mapper, params);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    private static int execute(String sql, Object... params) throws SQLException {
+        return Database.write(conn -> execute(conn, sql, params));
+    }
+
+    private static int execute(Connection conn, String sql, Object... params) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            bind(ps, params);
+            return ps.executeUpdate();
+        }
+    }
+
+    private static void bind(PreparedStatement ps, Object... params) throws SQLException {
+        for (int i = 0; i < params.length; i++)
+            ps.setObject(i + 1, params[i]);
+    }
+
+    // WHERE clause for a mass update's filters, with their values appended to params
+    private static String massFilter(MassUpdate u, Integer statusCode, List<Object> params) {
+        List<String> terms = new ArrayList<>();
+        if (u.getWarehouseAddress() != null) {
+            terms.add("warehouseAddress = ?");
+            params.add(u.getWarehouseAddress());
+        }
+        if (u.getType() != null) {
+            terms.add("type = ?");
+            params.add(u.getType());
+        }
+        if (u.getModel() != null) {
+            terms.add("model = ?");
+            params.add(u.getModel());
+        }
+        if (u.getYear() != null) {
+            terms.add("year = ?");
+            params.add(u.getYear());
+        }
+        if (statusCode != null) {
+            terms.add("statusCode = ?");
+            params.add(statusCode);
+        }
+        return terms.isEmpty() ? "1 = 1" : String.join(" AND ", terms);
+    }
+
+    // SET clause for a mass update's new values (type only for equipment), with their values in params
+    private static String massSet(MassUpdate u, boolean typed, List<Object> params) {
+        List<String> assignments = new ArrayList<>();
+        if (u.getNewWarehouseAddress() != null) {
+            assignments.add("warehouseAddress = ?");
+            params.add(u.getNewWarehouseAddress());
+        }
+        if (typed && u.getNewType() != null) {
+            assignments.add("type = ?");
+            params.add(u.getNewType());
+        }
+        if (u.getNewModel() != null) {
+            assignments.add("model = ?");
+            params.add(u.getNewModel());
+        }
+        return String.join(", ", assignments);
+    }
+
+    private static Integer equipmentCode(String status) {
+        return status == null ? null : EquipmentStatus.valueOf(status).code();
+    }
+
+    private static Integer droneCode(String status) {
+        return status == null ? null : DroneStatus.valueOf(status).code();
+    }
+
+    private static Object[] concat(List<Object> first, List<Object> second) {
+        List<Object> all = new ArrayList<>(first);
+        all.addAll(second);
+        return all.toArray();
+    }
+
+    // ==========================================================
+    // MEMBERS
+    // ==========================================================
+
+    private static Member mapMember(ResultSet rs) throws SQLException {
+        return new Member(rs.getString("userID"), rs.getString("fname"), rs.getString("lname"),
+                rs.getString("address"), rs.getString("phone"), rs.getString("email"),
+                rs.getString("startDate"), rs.getDouble("warehouseDistance"));
+    }
+
+    private static class Members implements MemberRepository {
+        @Override
+        public void add(Member m) throws SQLException {
+            execute("INSERT INTO members(userID, fname, lname, address, phone, email, startDate, warehouseDistance) " +
+                    "VALUES(?,?,?,?,?,?,?,?);",
+                    m.getUserID(), m.getFname(), m.getLname(), m.getAddress(), m.getPhone(), m.getEmail(),
+                    m.getStartDate(), m.getWarehouseDistance());
+        }
+
+        @Override
+        public void add(Member m, GeoPoint location) throws SQLException {
+            Database.write(conn -> {
+                add(m);
+                if (location != null)
+                    saveAddress(m.getAddress(), location, m.getWarehouseDistance());
+                return null;
+            });
+        }
+
+        @Override
+        public Member find(String userID) throws SQLException {
+            return queryOne("SELECT * FROM members WHERE userID = ?;", SqliteRepositories::mapMember, userID);
+        }
+
+        @Override
+        public boolean exists(String userID) throws SQLException {
+            return queryOne("SELECT userID FROM members WHERE userID = ?;", rs -> Boolean.TRUE, userID) != null;
+        }
+
+        @Override
+        public List<Member> findByLastName(String partial) throws SQLException {
+            return query("SELECT * FROM members WHERE lname LIKE ?;", SqliteRepositories::mapMember,
+                    "%" + partial + "%");
+        }
+
+        @Override
+        public List<Member> findByExactLastName(String lname) throws SQLException {
+            return query("SELECT * FROM members WHERE lname = ? COLLATE NOCASE;", SqliteRepositories::mapMember,
+                    lname);
+        }
+
+        @Override
+        public List<Member> findAll() throws SQLException {
+            return query("SELECT * FROM members ORDER BY lname, fname;", SqliteRepositories::mapMember);
+        }
+
+        @Override
+        public boolean update(Member m) throws SQLException {
+            return execute(
+                    "UPDATE members SET fname = ?, lname = ?, address = ?, phone = ?, email = ?, warehouseDistance = ? " +
+                            "WHERE userID = ?;",
+                    m.getFname(), m.getLname(), m.getAddress(), m.getPhone(), m.getEmail(),
+                    m.getWarehouseDistance(), m.getUserID()) > 0;
+        }
+
+        @Override
+        public boolean update(Member m, GeoPoint location) throws SQLException {
+            return Database.write(conn -> {
+                boolean updated = update(m);
+                if (updated && location != null)
+                    saveAddress(m.getAddress(), location, m.getWarehouseDistance());
+                return updated;
+            });
+        }
+
+        @Override
+        public boolean delete(String userID) throws SQLException {
+            return execute("DELETE FROM members WHERE userID = ?;", userID) > 0;
+        }
+    }
+
+    // ==========================================================
+    // EQUIPMENT
+    // ==========================================================
+
+    private static Equipment mapEquipment(ResultSet rs) throws SQLException {
+        return new Equipment(rs.getString("serialNum"), rs.getString("description"), rs.getString("type"),
+                rs.getString("model"), rs.getInt("year"), EquipmentStatus.fromCode(rs.getInt("statusCode")),
+                rs.getInt("warehouseID"), rs.getString("warehouseAddress"), rs.getString("orderNum"),
+                rs.getString("location"), rs.getString("warExp"), rs.getString("renterID"));
+    }
+
+    private static class EquipmentTable implements EquipmentRepository {
+        @Override
+        public void add(Equipment e) throws SQLException {
+            Database.write(conn -> {
+                if (onHandColumn(e.getStatus().code()) != null)
+                    checkStoreCapacity(conn, e.getWarehouseAddress());
+                execute(conn, "INSERT INTO equipment(serialNum, description, type, model, year, status, warehouseID, " +
+                        "warehouseAddress, orderNum, location, warExp, renterID, statusCode) VALUES(?,?,?,?,?,?,?,?,?,?,?,?,?);",
+                        e.getSerialNum(), e.getDescription(), e.getType(), e.getModel(), e.getYear(),
+                        e.getStatus().name(), e.getWarehouseID(), e.getWarehouseAddress(), e.getOrderNum(),
+                        e.getLocation(), e.getWarExp(), e.getRenterID(), e.getStatus().code());
+                return countEquipment(conn, e.getWarehouseAddress(), e.getStatus().code(), 1);
+            });
+        }
+
+        @Override
+        public Equipment find(String serialNum) throws SQLException {
+            return queryOne("SELECT * FROM equipment WHERE serialNum = ?;", SqliteRepositories::mapEquipment,
+                    serialNum);
+        }
+
+        @Override
+        public boolean exists(String serialNum) throws SQLException {
+            return queryOne("SELECT serialNum FROM equipment WHERE serialNum = ?;", rs -> Boolean.TRUE,
+                    serialNum) != null;
+        }
+
+        @Override
+        public List<Equipment> findByType(String partial) throws SQLException {
+            return query("SELECT * FROM equipment WHERE type LIKE ?;", SqliteRepositories::mapEquipment,
+                    "%" + partial + "%");
+        }
+
+        @Override
+        public List<Equipment> findByExactType(String type) throws SQLException {
+            return query("SELECT * FROM equipment WHERE type = ? COLLATE NOCASE;", SqliteRepositories::mapEquipment,
+                    type);
+        }
+
+        @Override
+        public List<Equipment> findAvailableByType(String type) throws SQLException {
+            // Literal status code so the planner can use idxEquipAvailable
+            return query("SELECT * FROM equipment WHERE statusCode = " + EquipmentStatus.AVAILABLE.code()
+                    + " AND type = ?;", SqliteRepositories::mapEquipment, type);
+        }
+
+        @Override
+        public List<Equipment> findRentableByType(String type) throws SQLException {
+            return query("SELECT * FROM equipment WHERE type = ? AND statusCode NOT IN ("
+                    + EquipmentStatus.LOST.code() + ", " + EquipmentStatus.RETIRED.code() + ") ORDER BY serialNum;",
+                    SqliteRepositories::mapEquipment, type);
+        }
+
+        @Override
+        public List<Equipment> findAll() throws SQLException {
+            return query("SELECT * FROM equipment ORDER BY type, description;", SqliteRepositories::mapEquipment);
+        }
+
+        @Override
+        public boolean update(Equipment e) throws SQLException {
+            return Database.write(conn -> {
+                Equipment old = queryOne(conn, "SELECT * FROM equipment WHERE serialNum = ?;",
+                        SqliteRepositories::mapEquipment, e.getSerialNum());
+                String oldType = old == null ? null : old.getType();
+                // Moved, or back from LOST: it needs a place at its warehouse
+                String oldColumn = old == null ? null : onHandColumn(old.getStatus().code());
+                String newColumn = onHandColumn(e.getStatus().code());
+                boolean moved = old != null && !old.getWarehouseAddress().equals(e.getWarehouseAddress());
+                if (old != null && newColumn != null && (moved || oldColumn == null))
+                    checkStoreCapacity(conn, e.getWarehouseAddress());
+                int updated = execute(conn,
+                        "UPDATE equipment SET description = ?, type = ?, model = ?, status = ?, statusCode = ?, " +
+                                "warehouseAddress = ?, location = ?, renterID = ? WHERE serialNum = ?;",
+                        e.getDescription(), e.getType(), e.getModel(), e.getStatus().name(), e.getStatus().code(),
+                        e.getWarehouseAddress(), e.getLocation(), e.getRenterID(), e.getSerialNum());
+                if (updated > 0 && (moved || !Objects.equals(oldColumn, newColumn))) {
+                    countEquipment(conn, old.getWarehouseAddress(), old.getStatus().code(), -1);
+                    countEquipment(conn, e.getWarehouseAddress(), e.getStatus().code(), 1);
+                }
+                // Re-typed item: move its ratings to the new type's summary
+                if (updated > 0 && oldType != null && !oldType.equals(e.getType())
+                        && execute(conn, "UPDATE RatingSummary SET type = ? WHERE serialNum = ?;",
+                                e.getType(), e.getSerialNum()) > 0) {
+                    refreshTypeSummary(conn, oldType);
+                    refreshTypeSummary(conn, e.getType());
+                }
+                return updated > 0;
+            });
+        }
+
+        @Override
+        public boolean delete(String serialNum) throws SQLException {
+            return Database.write(conn -> {
+                Equipment old = queryOne(conn, "SELECT * FROM equipment WHERE serialNum = ?;",
+                        SqliteRepositories::mapEquipment, serialNum);
+                if (old == null || execute(conn, "DELETE FROM equipment WHERE serialNum = ?;", serialNum) == 0)
+                    return false;
+                countEquipment(conn, old.getWarehouseAddress(), old.getStatus().code(), -1);
+                String type = queryOne(conn, "SELECT type FROM RatingSummary WHERE serialNum = ?;",
+                        rs -> rs.getString("type"), serialNum);
+                if (type != null) {
+                    execute(conn, "DELETE FROM RatingSummary WHERE serialNum = ?;", serialNum);
+                    refreshTypeSummary(conn, type);
+                }
+                return true;
+            });
+        }
+
+        @Override
+        public int count(MassUpdate u) throws SQLException {
+            List<Object> params = new ArrayList<>();
+            String where = massFilter(u, equipmentCode(u.getStatus()), params);
+            return queryOne("SELECT COUNT(*) AS n FROM equipment WHERE " + where + ";", rs -> rs.getInt("n"),
+                    params.toArray());
+        }
+
+        /**
+         * One UPDATE for all matching items. The occupancy counters move per
+         * (warehouse, status) group and are then checked against storeCap, and
+         * re-typed ratings follow the items, so a refused update changes nothing.
+         */
+        @Override
+        public int updateAll(MassUpdate u) throws SQLException {
+            EquipmentStatus newStatus = u.getNewStatus() == null ? null : EquipmentStatus.valueOf(u.getNewStatus());
+            if (newStatus == EquipmentStatus.RENTED)
+                throw new SQLException("RENTED is set by checkout, not by a mass update");
+            return Database.write(conn -> {
+                List<Object> params = new ArrayList<>();
+                String where = massFilter(u, equipmentCode(u.getStatus()), params);
+                // Matching items per warehouse and status: {warehouseAddress, statusCode, count}
+                List<Object[]> groups = query(conn, "SELECT warehouseAddress, statusCode, COUNT(*) AS n FROM equipment " +
+                        "WHERE " + where + " GROUP BY warehouseAddress, statusCode;",
+                        rs -> new Object[] { rs.getString("warehouseAddress"), rs.getInt("statusCode"), rs.getInt("n") },
+                        params.toArray());
+                if (groups.isEmpty())
+                    return 0;
+                int rented = 0;
+                for (Object[] g : groups) {
+                    if ((int) g[1] == EquipmentStatus.RENTED.code())
+                        rented += (int) g[2];
+                }
+                if (newStatus != null && rented > 0)
+                    throw new SQLException(rented + " matching item(s) are rented out; check them in first " +
+                            "or filter by status");
+
+                List<String> oldTypes = new ArrayList<>();
+                if (u.getNewType() != null) {
+                    oldTypes = query(conn, "SELECT DISTINCT type FROM equipment WHERE " + where + ";",
+                            rs -> rs.getString("type"), params.toArray());
+                    execute(conn, "UPDATE RatingSummary SET type = ? WHERE serialNum IN " +
+                            "(SELECT serialNum FROM equipment WHERE " + where + ");",
+                            concat(List.of(u.getNewType()), params));
+                }
+
+                List<Object> values = new ArrayList<>();
+                String set = massSet(u, true, values);
+                if (newStatus != null) {
+                    set += (set.isEmpty() ? "" : ", ") + "status = ?, statusCode = ?";
+                    values.add(newStatus.name());
+                    values.add(newStatus.code());
+                }
+                int updated = execute(conn, "UPDATE equipment SET " + set + " WHERE " + where + ";",
+                        concat(values, params));
+
+                Map<String, Boolean> arrivals = new HashMap<>();
+                for (Object[] g : groups) {
+                    String from = (String) g[0];
+                    int code = (int) g[1];
+                    int n = (int) g[2];
+                    String to = u.getNewWarehouseAddress() == null ? from : u.getNewWarehouseAddress();
+                    int toCode = newStatus == null ? code : newStatus.code();
+                    String oldColumn = onHandColumn(code);
+                    String newColumn = onHandColumn(toCode);
+                    if (to.equals(from) && Objects.equals(oldColumn, newColumn))
+                        continue;
+                    countEquipment(conn, from, code, -n);
+                    countEquipment(conn, to, toCode, n);
+                    if (newColumn != null && (!to.equals(from) || oldColumn == null))
+                        arrivals.put(to, true);
+                }
+                for (String warehouse : arrivals.keySet())
+                    checkStoreCapacity(conn, warehouse, 0);
+
+                for (String type : oldTypes) {
+                    if (!type.equals(u.getNewType()))
+                        refreshTypeSummary(conn, type);
+                }
+                if (!oldTypes.isEmpty())
+                    refreshTypeSummary(conn, u.getNewType());
+                return updated;
+            });
+        }
+    }
+
+    // ==========================================================
+    // DRONES
+    // ==========================================================
+
+    private static Drone mapDrone(ResultSet rs) throws SQLException {
+        return new Drone(rs.getString("serialNum"), rs.getString("name"), rs.getString("model"),
+                DroneStatus.fromCode(rs.getInt("statusCode")), rs.getString("location"), rs.getInt("year"),
+                rs.getString("warehouseAddress"), rs.getString("batteryID"), rs.getDouble("totalMiles"));
+    }
+
+    private static class Drones implements DroneRepository {
+        @Override
+        public void add(Drone d) throws SQLException {
+            Database.write(conn -> {
+                checkDroneCapacity(conn, d.getWarehouseAddress());
+                execute(conn, "INSERT INTO drones(serialNum, name, model, status, location, year, WarehouseAddress, " +
+                        "BatteryID, totalMiles, statusCode) VALUES(?,?,?,?,?,?,?,?,?,?);",
+                        d.getSerialNum(), d.getName(), d.getModel(), d.getStatus().name(), d.getLocation(),
+                        d.getYear(), d.getWarehouseAddress(), d.getBatteryID(), d.getTotalMiles(),
+                        d.getStatus().code());
+                adjustOccupancy(conn, d.getWarehouseAddress(), 0, 0, 1);
+                return recountChargedDrones(conn, d.getWarehouseAddress());
+            });
+        }
+
+        @Override
+        public Drone find(String serialNum) throws SQLException {
+            return queryOne("SELECT * FROM drones WHERE serialNum = ?;", SqliteRepositories::mapDrone, serialNum);
+        }
+
+        @Override
+        public boolean exists(String serialNum) throws SQLException {
+            return queryOne("SELECT serialNum FROM drones WHERE serialNum = ?;", rs -> Boolean.TRUE,
+                    serialNum) != null;
+        }
+
+        @Override
+        public List<Drone> findByModel(String partial) throws SQLException {
+            return query("SELECT * FROM drones WHERE model LIKE ?;", SqliteRepositories::mapDrone,
+                    "%" + partial + "%");
+        }
+
+        @Override
+        public List<Drone> findIdleAt(String warehouseAddress) throws SQLException {
+            // Literal status code so the planner can use idxDroneIdle
+            return query("SELECT * FROM drones WHERE statusCode = " + DroneStatus.IDLE.code()
+                    + " AND warehouseAddress = ?;", SqliteRepositories::mapDrone, warehouseAddress);
+        }
+
+        @Override
+        public List<Drone> findAll() throws SQLException {
+            return query("SELECT * FROM drones ORDER BY name, model;", SqliteRepositories::mapDrone);
+        }
+
+        @Override
+        public boolean update(Drone d) throws SQLException {
+            return Database.write(conn -> {
+                String oldWarehouse = queryOne(conn, "SELECT warehouseAddress FROM drones WHERE serialNum = ?;",
+                        rs -> rs.getString("warehouseAddress"), d.getSerialNum());
+                boolean moved = oldWarehouse != null && !oldWarehouse.equals(d.getWarehouseAddress());
+                if (moved)
+                    checkDroneCapacity(conn, d.getWarehouseAddress());
+                int updated = execute(conn,
+                        "UPDATE drones SET name = ?, model = ?, status = ?, statusCode = ?, warehouseAddress = ?, " +
+                                "batteryID = ? WHERE serialNum = ?;",
+                        d.getName(), d.getModel(), d.getStatus().name(), d.getStatus().code(),
+                        d.getWarehouseAddress(), d.getBatteryID(), d.getSerialNum());
+                // Battery or base may have changed
+                if (updated > 0 && moved) {
+                    adjustOccupancy(conn, oldWarehouse, 0, 0, -1);
+                    adjustOccupancy(conn, d.getWarehouseAddress(), 0, 0, 1);
+                }
+                if (updated > 0) {
+                    recountChargedDrones(conn, oldWarehouse);
+                    recountChargedDrones(conn, d.getWarehouseAddress());
+                }
+                return updated > 0;
+            });
+        }
+
+        @Override
+        public boolean delete(String serialNum) throws SQLException {
+            return Database.write(conn -> {
+                String warehouse = queryOne(conn, "SELECT warehouseAddress FROM drones WHERE serialNum = ?;",
+                        rs -> rs.getString("warehouseAddress"), serialNum);
+                if (execute(conn, "DELETE FROM drones WHERE serialNum = ?;", serialNum) == 0)
+                    return false;
+                adjustOccupancy(conn, warehouse, 0, 0, -1);
+                recountChargedDrones(conn, warehouse);
+                return true;
+            });
+        }
+
+        @Override
+        public int count(MassUpdate u) throws SQLException {
+            checkUntyped(u);
+            List<Object> params = new ArrayList<>();
+            String where = massFilter(u, droneCode(u.getStatus()), params);
+            return queryOne("SELECT COUNT(*) AS n FROM drones WHERE " + where + ";", rs -> rs.getInt("n"),
+                    params.toArray());
+        }
+
+        // One UPDATE for all matching drones; bays are checked after the move, charge counts recounted
+        @Override
+        public int updateAll(MassUpdate u) throws SQLException {
+            checkUntyped(u);
+            DroneStatus newStatus = u.getNewStatus() == null ? null : DroneStatus.valueOf(u.getNewStatus());
+            return Database.write(conn -> {
+                List<Object> params = new ArrayList<>();
+                String where = massFilter(u, droneCode(u.getStatus()), params);
+                Map<String, Integer> byWarehouse = new HashMap<>();
+                for (Object[] g : query(conn, "SELECT warehouseAddress, COUNT(*) AS n FROM drones WHERE " + where +
+                        " GROUP BY warehouseAddress;", rs -> new Object[] { rs.getString("warehouseAddress"),
+                                rs.getInt("n") }, params.toArray()))
+                    byWarehouse.put((String) g[0], (Integer) g[1]);
+                if (byWarehouse.isEmpty())
+                    return 0;
+
+                List<Object> values = new ArrayList<>();
+                String set = massSet(u, false, values);
+                if (newStatus != null) {
+                    set += (set.isEmpty() ? "" : ", ") + "status = ?, statusCode = ?";
+                    values.add(newStatus.name());
+                    values.add(newStatus.code());
+                }
+                int updated = execute(conn, "UPDATE drones SET " + set + " WHERE " + where + ";",
+                        concat(values, params));
+
+                String to = u.getNewWarehouseAddress();
+                for (Map.Entry<String, Integer> g : byWarehouse.entrySet()) {
+                    if (to != null && !to.equals(g.getKey())) {
+                        adjustOccupancy(conn, g.getKey(), 0, 0, -g.getValue());
+                        adjustOccupancy(conn, to, 0, 0, g.getValue());
+                    }
+                    recountChargedDrones(conn, g.getKey());
+                }
+                if (to != null && !byWarehouse.containsKey(to))
+                    recountChargedDrones(conn, to);
+                if (u.movesWarehouse())
+                    checkDroneCapacity(conn, to, 0);
+                return updated;
+            });
+        }
+
+        private void checkUntyped(MassUpdate u) throws SQLException {
+            if (u.getType() != null || u.getNewType() != null)
+                throw new SQLException("Drones have no type");
+        }
+    }
+
+    // ==========================================================
+    // RENTALS
+    // ==========================================================
+
+    private static class Rentals implements RentalRepository {
+        @Override
+        public boolean checkout(Rental r, String reservationID) throws SQLException {
+            return Database.write(conn -> {
+                // 0. Someone else's booked reservation between today and the due date blocks the rental,
+                // checked here in case another session or process booked it since its calendar was read
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "SELECT reservationID FROM Reservations WHERE serialNum = ?3 AND status = 'BOOKED' " +
+                                "AND startDate <= MAX(?1, COALESCE(date(?2), ?1)) AND endDate >= ?1 " +
+                                "AND reservationID IS NOT ?4 LIMIT 1;")) {
+                    ps.setString(1, RentalClock.now().substring(0, 10));
+                    ps.setString(2, r.getDueDate());
+                    ps.setString(3, r.getSerialNum());
+                    ps.setString(4, reservationID);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        if (rs.next())
+                            throw new SQLException("Equipment is reserved during that period (reservation " +
+                                    rs.getString(1) + ")");
+                    }
+                }
+
+                // 1. UPDATE equipment status, only if it is AVAILABLE; nothing is written otherwise
+                int updated = execute(conn,
+                        "UPDATE equipment SET renterID = ?, status = ?, statusCode = ? WHERE serialNum = ? AND statusCode = ?;",
+                        r.getUserID(), EquipmentStatus.RENTED.name(), EquipmentStatus.RENTED.code(),
+                        r.getSerialNum(), EquipmentStatus.AVAILABLE.code());
+                if (updated == 0)
+                    return false;
+                adjustOccupancy(conn, warehouseOf(conn, r.getSerialNum()), -1, 1, 0);
+
+                // 2. INSERT into rentals, stamped with the checkout time, and count it in today's rollup
+                String now = RentalClock.now();
+                execute(conn, "INSERT INTO rentals(checkOutID, serialNum, userID, dueDate, rentalFees, Returns, " +
+                        "checkedOutAt) VALUES(?,?,?,?,?,?,?);",
+                        r.getCheckOutID(), r.getSerialNum(), r.getUserID(), r.getDueDate(), r.getRentalFees(),
+                        "NO", now);
+                rollUp(conn, r.getSerialNum(), now, 1, 0, 0, r.getRentalFees());
+
+                // 3. Mark the renter's reservation as picked up
+                if (reservationID != null)
+                    execute(conn, "UPDATE Reservations SET status = 'FULFILLED' WHERE reservationID = ?;",
+                            reservationID);
+                return true;
+            });
+        }
+
+        @Override
+        public String checkin(String checkOutID) throws SQLException {
+            return Database.write(conn -> {
+                String serial;
+                String checkedOutAt;
+                int bookedHours;
+                // Step 1: Find the serial number and check if it's currently not returned
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "SELECT serialNum, checkedOutAt, rentedHours FROM rentals WHERE checkOutID = ? AND " +
+                        OPEN_RENTAL + ";")) {
+                    ps.setString(1, checkOutID);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        if (!rs.next())
+                            return null;
+                        serial = rs.getString("serialNum");
+                        checkedOutAt = rs.getString("checkedOutAt");
+                        bookedHours = rs.getInt("rentedHours");
+                    }
+                }
+
+                // Step 2: Mark the rental record as returned; the time out (when known) goes to
+                // rentedHours and, with the return, into today's rollup. Rentals from before
+                // checkout times were kept roll up the rentedHours they were booked with.
+                String now = RentalClock.now();
+                double hours = checkedOutAt == null ? bookedHours : hoursBetween(checkedOutAt, now);
+                execute(conn, "UPDATE rentals SET Returns = ?, returnedAt = ?, " +
+                        "rentedHours = CASE WHEN checkedOutAt IS NULL THEN rentedHours ELSE ? END " +
+                        "WHERE checkOutID = ?;", "YES", now, (int) Math.ceil(hours), checkOutID);
+                rollUp(conn, serial, now, 0, 1, hours, 0);
+
+                // Step 3: Update equipment status (only if currently RENTED); returns always fit,
+                // since rented-out items keep their place in the warehouse's count
+                if (execute(conn, "UPDATE equipment SET status = ?, statusCode = ?, renterID = '0' " +
+                        "WHERE serialNum = ? AND statusCode = ?;",
+                        EquipmentStatus.AVAILABLE.name(), EquipmentStatus.AVAILABLE.code(), serial,
+                        EquipmentStatus.RENTED.code()) > 0)
+                    adjustOccupancy(conn, warehouseOf(conn, serial), 1, -1, 0);
+                return serial;
+            });
+        }
+
+        @Override
+        public List<Rental> findOpen() throws SQLException {
+            return query("SELECT checkOutID, serialNum, userID, dueDate, rentalFees FROM rentals " +
+                    "WHERE " + OPEN_RENTAL + ";",
+                    rs -> new Rental(rs.getString("checkOutID"), rs.getString("serialNum"), rs.getString("userID"),
+                            rs.getString("dueDate"), rs.getDouble("rentalFees"), false));
+        }
+    }
+
+    // ==========================================================
+    // TRANSPORTS
+    // ==========================================================
+
+    private static class Transports implements TransportRepository {
+        @Override
+        public void schedule(String droneSerial, String equipmentSerial, DroneStatus droneStatus)
+                throws SQLException {
+            Database.write(conn -> {
+                execute(conn, "INSERT INTO transports(dSerialNum, eSerialNum) VALUES(?,?);",
+                        droneSerial, equipmentSerial);
+                dispatchBattery(conn, droneSerial);
+                return execute(conn, "UPDATE drones SET status = ?, statusCode = ? WHERE serialNum = ?;",
+                        droneStatus.name(), droneStatus.code(), droneSerial);
+            });
+        }
+    }
+
+    // ==========================================================
+    // RESERVATIONS
+    // ==========================================================
+
+    private static class Reservations implements ReservationRepository {
+        @Override
+        public String book(AvailabilityCalendar.Booking b) throws SQLException {
+            String start = AvailabilityCalendar.toDate(b.getStartDay());
+            String end = AvailabilityCalendar.toDate(b.getEndDay() - 1);
+            return Database.write(conn -> {
+                // Booked reservations never overlap, so only the latest one
+                // starting on or before our end can collide: one index seek.
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "SELECT reservationID, endDate FROM Reservations WHERE serialNum = ? AND status = 'BOOKED' " +
+                                "AND startDate <= ? ORDER BY startDate DESC LIMIT 1;")) {
+                    ps.setString(1, b.getSerialNum());
+                    ps.setString(2, end);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        if (rs.next() && rs.getString("endDate").compareTo(start) >= 0)
+                            return rs.getString("reservationID");
+                    }
+                }
+                execute(conn, "INSERT INTO Reservations(reservationID, serialNum, userID, startDate, endDate, status) " +
+                        "VALUES(?,?,?,?,?,'BOOKED');",
+                        b.getId(), b.getSerialNum(), b.getUserID(), start, end);
+                return null;
+            });
+        }
+
+        @Override
+        public boolean cancel(String reservationID) throws SQLException {
+            return execute("UPDATE Reservations SET status = 'CANCELLED' WHERE reservationID = ? AND status = 'BOOKED';",
+                    reservationID) > 0;
+        }
+
+        @Override
+        public List<AvailabilityCalendar.Booking> findBooked() throws SQLException {
+            return query("SELECT reservationID, serialNum, userID, startDate, endDate FROM Reservations " +
+                    "WHERE status = 'BOOKED';",
+                    rs -> new AvailabilityCalendar.Booking(rs.getString("reservationID"),
+                            AvailabilityCalendar.RESERVATION, rs.getString("serialNum"), rs.getString("userID"),
+                            AvailabilityCalendar.toDay(rs.getString("startDate")),
+                            AvailabilityCalendar.toDay(rs.getString("endDate")) + 1));
+        }
+    }
+
+    // ==========================================================
+    // REVIEWS
+    // ==========================================================
+
+    private static RatingSummary mapRatingSummary(ResultSet rs, String keyColumn) throws SQLException {
+        return new RatingSummary(rs.getString(keyColumn), rs.getString("type"), rs.getDouble("ratingSum"),
+                rs.getInt("ratingCount"), rs.getDouble("maxRating"));
+    }
+
+    // Rebuilds one type's totals from its per-item summaries (not from Reviews)
+    private static void refreshTypeSummary(Connection conn, String type) throws SQLException {
+        execute(conn, "DELETE FROM TypeRatingSummary WHERE type = ?;", type);
+        execute(conn, "INSERT INTO TypeRatingSummary(type, ratingSum, ratingCount, maxRating, avgRating) " +
+                "SELECT type, SUM(ratingSum), SUM(ratingCount), MAX(maxRating), SUM(ratingSum) / SUM(ratingCount) " +
+                "FROM RatingSummary WHERE type = ? GROUP BY type;", type);
+    }
+
+    private static class Reviews implements ReviewRepository {
+        @Override
+        public void add(Review r) throws SQLException {
+            Database.write(conn -> {
+                String type = queryOne(conn, "SELECT type FROM equipment WHERE serialNum = ?;",
+                        rs -> rs.getString("type"), r.getSerialNum());
+                if (type == null)
+                    throw new SQLException("No equipment with serialNum " + r.getSerialNum());
+
+                execute(conn, "INSERT INTO Reviews(serialNum, userID, comments, ratings) VALUES(?,?,?,?);",
+                        r.getSerialNum(), r.getUserID(), r.getComments(), r.getRating());
+
+                // Fold the rating into the running totals (SET sees the pre-update row)
+                execute(conn, "INSERT INTO RatingSummary(serialNum, type, ratingSum, ratingCount, maxRating, avgRating) " +
+                        "VALUES(?,?,?,1,?,?) ON CONFLICT(serialNum) DO UPDATE SET " +
+                        "ratingSum = ratingSum + excluded.ratingSum, ratingCount = ratingCount + 1, " +
+                        "maxRating = MAX(maxRating, excluded.maxRating), " +
+                        "avgRating = (ratingSum + excluded.ratingSum) / (ratingCount + 1);",
+                        r.getSerialNum(), type, r.getRating(), r.getRating(), r.getRating());
+                return execute(conn, "INSERT INTO TypeRatingSummary(type, ratingSum, ratingCount, maxRating, avgRating) " +
+                        "VALUES(?,?,1,?,?) ON CONFLICT(type) DO UPDATE SET " +
+                        "ratingSum = ratingSum + excluded.ratingSum, ratingCount = ratingCount + 1, " +
+                        "maxRating = MAX(maxRating, excluded.maxRating), " +
+                        "avgRating = (ratingSum + excluded.ratingSum) / (ratingCount + 1);",
+                        type, r.getRating(), r.getRating(), r.getRating());
+            });
+        }
+
+        @Override
+        public RatingSummary findSummary(String serialNum) throws SQLException {
+            return queryOne("SELECT * FROM RatingSummary WHERE serialNum = ?;",
+                    rs -> mapRatingSummary(rs, "serialNum"), serialNum);
+        }
+
+        @Override
+        public RatingSummary findTypeSummary(String type) throws SQLException {
+            return queryOne("SELECT * FROM TypeRatingSummary WHERE type = ?;", rs -> mapRatingSummary(rs, "type"),
+                    type);
+        }
+
+        @Override
+        public List<RatingSummary> findTypeSummaries() throws SQLException {
+            return query("SELECT * FROM TypeRatingSummary ORDER BY avgRating DESC, type;",
+                    rs -> mapRatingSummary(rs, "type"));
+        }
+
+        @Override
+        public List<RatingSummary> findBestRated(String type, int limit) throws SQLException {
+            // Walks idxRatingTypeAvg from the top; no aggregation over Reviews
+            return query("SELECT * FROM RatingSummary WHERE type = ? ORDER BY avgRating DESC, ratingCount DESC LIMIT ?;",
+                    rs -> mapRatingSummary(rs, "serialNum"), type, limit);
+        }
+    }
+
+    // ==========================================================
+    // MAINTENANCE
+    // ==========================================================
+
+    private static class Maintenance implements MaintenanceRepository {
+        @Override
+        public void logRepair(String mechSSN, String droneSN) throws SQLException {
+            Database.write(conn -> {
+                if (queryOne(conn, "SELECT serialNum FROM drones WHERE serialNum = ?;", rs -> Boolean.TRUE, droneSN) == null)
+                    throw new SQLException("No drone with serialNum " + droneSN);
+                if (queryOne(conn, "SELECT ssn FROM Mechanics WHERE ssn = ?;", rs -> Boolean.TRUE, mechSSN) == null)
+                    throw new SQLException("No mechanic with ssn " + mechSSN);
+
+                // Repeat repair by the same mechanic bumps the existing row
+                int newPair = 0;
+                if (execute(conn, "UPDATE Repair SET timesRepaired = timesRepaired + 1 WHERE mechSSN = ? AND droneSN = ?;",
+                        mechSSN, droneSN) == 0) {
+                    execute(conn, "INSERT INTO Repair(mechSSN, droneSN, timesRepaired) VALUES(?,?,1);", mechSSN, droneSN);
+                    newPair = 1;
+                }
+
+                execute(conn, "INSERT INTO DroneRepairCount(droneSN, repairs, mechanics) VALUES(?,1,?) " +
+                        "ON CONFLICT(droneSN) DO UPDATE SET repairs = repairs + 1, mechanics = mechanics + excluded.mechanics;",
+                        droneSN, newPair);
+                return execute(conn, "INSERT INTO MechanicWorkload(mechSSN, repairs, drones) VALUES(?,1,?) " +
+                        "ON CONFLICT(mechSSN) DO UPDATE SET repairs = repairs + 1, drones = drones + excluded.drones;",
+                        mechSSN, newPair);
+            });
+        }
+
+        @Override
+        public RepairCount findDroneRepairs(String droneSN) throws SQLException {
+            return queryOne("SELECT * FROM DroneRepairCount WHERE droneSN = ?;",
+                    rs -> new RepairCount(rs.getString("droneSN"), rs.getInt("repairs"), rs.getInt("mechanics")),
+                    droneSN);
+        }
+
+        @Override
+        public List<RepairCount> findMostRepairedDrones() throws SQLException {
+            // MAX comes off the end of idxDroneRepairs, then one range seek for the ties
+            return query("SELECT * FROM DroneRepairCount " +
+                    "WHERE repairs = (SELECT MAX(repairs) FROM DroneRepairCount) ORDER BY droneSN;",
+                    rs -> new RepairCount(rs.getString("droneSN"), rs.getInt("repairs"), rs.getInt("mechanics")));
+        }
+
+        @Override
+        public List<RepairCount> findMechanicWorkload(int limit) throws SQLException {
+            return query("SELECT * FROM MechanicWorkload ORDER BY repairs DESC, mechSSN LIMIT ?;",
+                    rs -> new RepairCount(rs.getString("mechSSN"), rs.getInt("repairs"), rs.getInt("drones")), limit);
+        }
+    }
+
+    // ==========================================================
+    // BATTERIES
+    // ==========================================================
+
+    private static final String CHARGED = String.valueOf(BatteryState.CHARGED.code());
+    private static final String DEPLETED = String.valueOf(BatteryState.DEPLETED.code());
+
+    private static void setBatteryState(Connection conn, String batteryID, BatteryState state) throws SQLException {
+        execute(conn, "UPDATE Batteries SET chargeCode = ?, chargedStatus = ? WHERE productID = ?;",
+                state.code(), state.chargedStatus(), batteryID);
+    }
+
+    private static void adjustChargeCounts(Connection conn, String warehouse, int chargedDrones, int charging)
+            throws SQLException {
+        execute(conn, "INSERT INTO ChargeCounts(warehouseAddress, chargedDrones, charging) VALUES(?,?,?) " +
+                "ON CONFLICT(warehouseAddress) DO UPDATE SET chargedDrones = chargedDrones + excluded.chargedDrones, " +
+                "charging = charging + excluded.charging;", warehouse, chargedDrones, charging);
+    }
+
+    // Recounts one warehouse's charged drones (a handful of rows) after drone edits
+    private static int recountChargedDrones(Connection conn, String warehouse) throws SQLException {
+        if (warehouse == null)
+            return 0;
+        return execute(conn, "INSERT INTO ChargeCounts(warehouseAddress, chargedDrones, charging) " +
+                "SELECT ?, (SELECT COUNT(*) FROM drones d JOIN Batteries b ON b.productID = d.batteryID " +
+                "WHERE d.warehouseAddress = ? AND b.chargeCode = " + CHARGED + "), 0 " +
+                "ON CONFLICT(warehouseAddress) DO UPDATE SET chargedDrones = excluded.chargedDrones;",
+                warehouse, warehouse);
+    }
+
+    /**
+     * Gives the drone a charged battery for its trip and marks it used. A
+     * drone whose own battery is not charged gets a charged spare from its
+     * warehouse; its old battery stays there as a spare. Batteries with no
+     * Batteries row are not scheduled.
+     */
+    private static void dispatchBattery(Connection conn, String droneSN) throws SQLException {
+        String[] drone = queryOne(conn, "SELECT warehouseAddress, batteryID FROM drones WHERE serialNum = ?;",
+                rs -> new String[] { rs.getString("warehouseAddress"), rs.getString("batteryID") }, droneSN);
+        if (drone == null)
+            return;
+        String warehouse = drone[0];
+        Integer code = queryOne(conn, "SELECT chargeCode FROM Batteries WHERE productID = ?;",
+                rs -> rs.getInt("chargeCode"), drone[1]);
+        if (code == null)
+            return;
+
+        String battery = drone[1];
+        if (code == BatteryState.CHARGED.code()) {
+            adjustChargeCounts(conn, warehouse, -1, 0); // about to be used up
+        } else {
+            battery = queryOne(conn, "SELECT productID FROM Batteries b WHERE warehouseAddress = ? AND chargeCode = " +
+                    CHARGED + " AND NOT EXISTS (SELECT 1 FROM drones d WHERE d.batteryID = b.productID) " +
+                    "ORDER BY productID LIMIT 1;", rs -> rs.getString("productID"), warehouse);
+            if (battery == null)
+                throw new SQLException("No charged battery for drone " + droneSN + " at " + warehouse +
+                        "; start charging there first");
+            execute(conn, "UPDATE drones SET batteryID = ? WHERE serialNum = ?;", battery, droneSN);
+            execute(conn, "UPDATE Batteries SET warehouseAddress = ? WHERE productID = ?;", warehouse, drone[1]);
+        }
+        setBatteryState(conn, battery, BatteryState.DEPLETED);
+    }
+
+    // Starts depleted batteries at the warehouse on its free chargers: spares first, then idle drones
+    private static List<String> fillChargers(Connection conn, String warehouse) throws SQLException {
+        Integer chargers = queryOne(conn, "SELECT chargerCap FROM Warehouses WHERE address = ?;",
+                rs -> rs.getInt("chargerCap"), warehouse);
+        if (chargers == null)
+            throw new SQLException("No warehouse at " + warehouse);
+        Integer busy = queryOne(conn, "SELECT charging FROM ChargeCounts WHERE warehouseAddress = ?;",
+                rs -> rs.getInt("charging"), warehouse);
+        int free = chargers - (busy == null ? 0 : busy);
+        List<String> started = new ArrayList<>();
+        if (free <= 0)
+            return started;
+
+        List<String[]> depleted = query(conn, "SELECT b.productID, d.serialNum FROM Batteries b " +
+                "LEFT JOIN drones d ON d.batteryID = b.productID WHERE b.chargeCode = " + DEPLETED + " AND " +
+                "((d.serialNum IS NULL AND b.warehouseAddress = ?) OR (d.warehouseAddress = ? AND d.statusCode = " +
+                DroneStatus.IDLE.code() + ")) ORDER BY d.serialNum IS NOT NULL, b.productID LIMIT ?;",
+                rs -> new String[] { rs.getString("productID"), rs.getString("serialNum") }, warehouse, warehouse,
+                free);
+        for (String[] b : depleted) {
+            setBatteryState(conn, b[0], BatteryState.CHARGING);
+            execute(conn, "UPDATE Batteries SET warehouseAddress = ? WHERE productID = ?;", warehouse, b[0]);
+            if (b[1] != null)
+                execute(conn, "UPDATE drones SET status = ?, statusCode = ? WHERE serialNum = ?;",
+                        DroneStatus.CHARGING.name(), DroneStatus.CHARGING.code(), b[1]);
+            started.add(b[0]);
+        }
+        adjustChargeCounts(conn, warehouse, 0, started.size());
+        return started;
+    }
+
+    private static class Batteries implements BatteryRepository {
+        @Override
+        public void stock(String batteryID, String type, String warehouseAddress, boolean charged)
+                throws SQLException {
+            Database.write(conn -> {
+                if (queryOne(conn, "SELECT address FROM Warehouses WHERE address = ?;", rs -> Boolean.TRUE,
+                        warehouseAddress) == null)
+                    throw new SQLException("No warehouse at " + warehouseAddress);
+                Battery existing = queryOne(conn, "SELECT b.*, d.serialNum AS droneSN FROM Batteries b " +
+                        "LEFT JOIN drones d ON d.batteryID = b.productID WHERE b.productID = ?;",
+                        SqliteRepositories::mapBattery, batteryID);
+                if (existing == null) {
+                    BatteryState state = charged ? BatteryState.CHARGED : BatteryState.DEPLETED;
+                    return execute(conn, "INSERT INTO Batteries(productID, chargedStatus, type, chargeCode, " +
+                            "warehouseAddress) VALUES(?,?,?,?,?);",
+                            batteryID, state.chargedStatus(), type, state.code(), warehouseAddress);
+                }
+                if (existing.getDroneSN() != null)
+                    throw new SQLException("Battery " + batteryID + " is installed in drone " + existing.getDroneSN());
+                if (existing.getState() == BatteryState.CHARGING)
+                    throw new SQLException("Battery " + batteryID + " is on a charger at " +
+                            existing.getWarehouseAddress());
+                return execute(conn, "UPDATE Batteries SET warehouseAddress = ? WHERE productID = ?;",
+                        warehouseAddress, batteryID);
+            });
+        }
+
+        @Override
+        public List<String> startCharging(String warehouseAddress) throws SQLException {
+            return Database.write(conn -> fillChargers(conn, warehouseAddress));
+        }
+
+        @Override
+        public boolean finishCharging(String batteryID) throws SQLException {
+            return Database.write(conn -> {
+                Battery b = queryOne(conn, "SELECT b.*, d.serialNum AS droneSN FROM Batteries b " +
+                        "LEFT JOIN drones d ON d.batteryID = b.productID WHERE b.productID = ?;",
+                        SqliteRepositories::mapBattery, batteryID);
+                if (b == null || b.getState() != BatteryState.CHARGING)
+                    return false;
+                setBatteryState(conn, batteryID, BatteryState.CHARGED);
+                adjustChargeCounts(conn, b.getWarehouseAddress(), b.getDroneSN() != null ? 1 : 0, -1);
+                if (b.getDroneSN() != null)
+                    execute(conn, "UPDATE drones SET status = ?, statusCode = ? WHERE serialNum = ? AND statusCode = ?;",
+                            DroneStatus.IDLE.name(), DroneStatus.IDLE.code(), b.getDroneSN(),
+                            DroneStatus.CHARGING.code());
+                fillChargers(conn, b.getWarehouseAddress());
+                return true;
+            });
+        }
+
+        @Override
+        public List<Battery> findAt(String warehouseAddress) throws SQLException {
+            return query("SELECT b.*, d.serialNum AS droneSN FROM Batteries b " +
+                    "LEFT JOIN drones d ON d.batteryID = b.productID " +
+                    "WHERE COALESCE(d.warehouseAddress, b.warehouseAddress) = ? ORDER BY b.productID;",
+                    SqliteRepositories::mapBattery, warehouseAddress);
+        }
+
+        @Override
+        public int chargedDroneCount(String warehouseAddress) throws SQLException {
+            Integer count = warehouseAddress == null
+                    ? queryOne("SELECT COALESCE(SUM(chargedDrones), 0) AS n FROM ChargeCounts;", rs -> rs.getInt("n"))
+                    : queryOne("SELECT chargedDrones AS n FROM ChargeCounts WHERE warehouseAddress = ?;",
+                            rs -> rs.getInt("n"), warehouseAddress);
+            return count == null ? 0 : count;
+        }
+    }
+
+    private static Battery mapBattery(ResultSet rs) throws SQLException {
+        return new Battery(rs.getString("productID"), rs.getString("type"),
+                BatteryState.fromCode(rs.getInt("chargeCode")), rs.getString("warehouseAddress"),
+                rs.getString("droneSN"));
+    }
+
+    // ==========================================================
+    // RENTAL ROLLUPS
+    // ==========================================================
+
+    // Adds a checkout or return to its day's RentalDaily row for the item's warehouse, type and model
+    private static void rollUp(Connection conn, String serialNum, String at, int checkouts, int returns,
+            double hoursOut, double fees) throws SQLException {
+        execute(conn, "INSERT INTO RentalDaily(day, warehouseAddress, type, model, checkouts, returns, hoursOut, fees) " +
+                "SELECT substr(?1, 1, 10), COALESCE(warehouseAddress, ''), COALESCE(type, ''), COALESCE(model, ''), " +
+                "?2, ?3, ?4, ?5 FROM equipment WHERE serialNum = ?6 " +
+                "ON CONFLICT(day, warehouseAddress, type, model) DO UPDATE SET " +
+                "checkouts = checkouts + excluded.checkouts, returns = returns + excluded.returns, " +
+                "hoursOut = hoursOut + excluded.hoursOut, fees = fees + excluded.fees;",
+                at, checkouts, returns, hoursOut, fees, serialNum);
+    }
+
+    private static double hoursBetween(String from, String to) {
+        DateTimeFormatter format = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        return Math.max(0, Duration.between(LocalDateTime.parse(from, format), LocalDateTime.parse(to, format))
+                .getSeconds() / 3600.0);
+    }
+
+    // ==========================================================
+    // WAREHOUSE OCCUPANCY
+    // ==========================================================
+
+    // Rented-out items still hold their place (they come back); lost items hold none
+    private static String onHandColumn(int statusCode) {
+        if (statusCode == EquipmentStatus.LOST.code())
+            return null;
+        return statusCode == EquipmentStatus.RENTED.code() ? "rentedOut" : "onHand";
+    }
+
+    private static int adjustOccupancy(Connection conn, String warehouse, int onHand, int rentedOut, int drones)
+            throws SQLException {
+        return execute(conn, "INSERT INTO WarehouseOccupancy(warehouseAddress, onHand, rentedOut, drones) " +
+                "VALUES(?,?,?,?) ON CONFLICT(warehouseAddress) DO UPDATE SET onHand = onHand + excluded.onHand, " +
+                "rentedOut = rentedOut + excluded.rentedOut, drones = drones + excluded.drones;",
+                warehouse, onHand, rentedOut, drones);
+    }
+
+    private static int countEquipment(Connection conn, String warehouse, int statusCode, int delta)
+            throws SQLException {
+        String column = onHandColumn(statusCode);
+        if (column == null)
+            return 0;
+        return column.equals("onHand") ? adjustOccupancy(conn, warehouse, delta, 0, 0)
+                : adjustOccupancy(conn, warehouse, 0, delta, 0);
+    }
+
+    private static String warehouseOf(Connection conn, String serialNum) throws SQLException {
+        return queryOne(conn, "SELECT warehouseAddress FROM equipment WHERE serialNum = ?;",
+                rs -> rs.getString("warehouseAddress"), serialNum);
+    }
+
+    // Refuses one more item at a warehouse already holding storeCap items (NULL storeCap: no limit)
+    private static void checkStoreCapacity(Connection conn, String warehouse) throws SQLException {
+        checkStoreCapacity(conn, warehouse, 1);
+    }
+
+    // With adding = 0, after a mass update has already been counted in
+    private static void checkStoreCapacity(Connection conn, String warehouse, int adding) throws SQLException {
+        int[] used = queryOne(conn, "SELECT w.storeCap, COALESCE(o.onHand + o.rentedOut, 0) AS used " +
+                "FROM Warehouses w LEFT JOIN WarehouseOccupancy o ON o.warehouseAddress = w.address " +
+                "WHERE w.address = ?;", rs -> new int[] { rs.getObject("storeCap") == null ? -1 : rs.getInt("storeCap"),
+                        rs.getInt("used") }, warehouse);
+        if (used == null)
+            throw new SQLException("No warehouse at " + warehouse);
+        if (used[0] >= 0 && used[1] + adding > used[0])
+            throw new SQLException("Warehouse " + warehouse + " is full (" + used[1] + " of " + used[0] + " items)");
+    }
+
+    private static void checkDroneCapacity(Connection conn, String warehouse) throws SQLException {
+        checkDroneCapacity(conn, warehouse, 1);
+    }
+
+    private static void checkDroneCapacity(Connection conn, String warehouse, int adding) throws SQLException {
+        int[] used = queryOne(conn, "SELECT w.droneCap, COALESCE(o.drones, 0) AS used " +
+                "FROM Warehouses w LEFT JOIN WarehouseOccupancy o ON o.warehouseAddress = w.address " +
+                "WHERE w.address = ?;", rs -> new int[] { rs.getObject("droneCap") == null ? -1 : rs.getInt("droneCap"),
+                        rs.getInt("used") }, warehouse);
+        if (used == null)
+            throw new SQLException("No warehouse at " + warehouse);
+        if (used[0] >= 0 && used[1] + adding > used[0])
+            throw new SQLException("Warehouse " + warehouse + " has no free drone bays (" + used[1] + " of " +
+                    used[0] + ")");
+    }
+
+    // ==========================================================
+    // SHARD MOVES (see ShardedRepositories)
+    // ==========================================================
+
+    // Removes an item that now lives in another shard: its place at the warehouse is freed,
+    // but unlike delete() its ratings are kept
+    static boolean detachEquipment(String serialNum) throws SQLException {
+        return Database.write(conn -> {
+            Equipment old = queryOne(conn, "SELECT * FROM equipment WHERE serialNum = ?;",
+                    SqliteRepositories::mapEquipment, serialNum);
+            if (old == null || execute(conn, "DELETE FROM equipment WHERE serialNum = ?;", serialNum) == 0)
+                return false;
+            countEquipment(conn, old.getWarehouseAddress(), old.getStatus().code(), -1);
+            return true;
+        });
+    }
+
+    static boolean detachDrone(String serialNum) throws SQLException {
+        return Database.write(conn -> {
+            String warehouse = queryOne(conn, "SELECT warehouseAddress FROM drones WHERE serialNum = ?;",
+                    rs -> rs.getString("warehouseAddress"), serialNum);
+            if (execute(conn, "DELETE FROM drones WHERE serialNum = ?;", serialNum) == 0)
+                return false;
+            adjustOccupancy(conn, warehouse, 0, 0, -1);
+            recountChargedDrones(conn, warehouse);
+            return true;
+        });
+    }
+
+    static Battery findBattery(String batteryID) throws SQLException {
+        return queryOne("SELECT b.*, d.serialNum AS droneSN FROM Batteries b " +
+                "LEFT JOIN drones d ON d.batteryID = b.productID WHERE b.productID = ?;",
+                SqliteRepositories::mapBattery, batteryID);
+    }
+
+    // ==========================================================
+    // LOCATIONS
+    // ==========================================================
+
+    private static class Locations implements LocationRepository {
+        @Override
+        public Map<String, GeoPoint> findWarehouseLocations() throws SQLException {
+            Map<String, GeoPoint> result = new HashMap<>();
+            for (Map.Entry<String, GeoPoint> e : query(
+                    "SELECT address, lat, lon FROM Warehouses WHERE lat IS NOT NULL AND lon IS NOT NULL;",
+                    rs -> Map.entry(rs.getString("address"), new GeoPoint(rs.getDouble("lat"), rs.getDouble("lon")))))
+                result.put(e.getKey(), e.getValue());
+            return result;
+        }
+
+        @Override
+        public GeoPoint findAddressLocation(String address) throws SQLException {
+            return queryOne("SELECT lat, lon FROM Address WHERE address = ? AND lat IS NOT NULL AND lon IS NOT NULL;",
+                    rs -> new GeoPoint(rs.getDouble("lat"), rs.getDouble("lon")), address);
+        }
+
+        @Override
+        public void saveAddress(String address, GeoPoint location, double warehouseMiles) throws SQLException {
+            SqliteRepositories.saveAddress(address, location, warehouseMiles);
+        }
+    }
+
+    // Also written with the member that has the address (Members.add / update)
+    private static void saveAddress(String address, GeoPoint location, double warehouseMiles) throws SQLException {
+        execute("INSERT INTO Address(address, userDist, lat, lon) VALUES(?,?,?,?) " +
+                "ON CONFLICT(address) DO UPDATE SET userDist = excluded.userDist, lat = excluded.lat, " +
+                "lon = excluded.lon;", address, warehouseMiles, location.getLat(), location.getLon());
+    }
+
+    // ==========================================================
+    // ORDERS
+    // ==========================================================
+
+    private static class Orders implements OrderRepository {
+        @Override
+        public void add(Order o) throws SQLException {
+            Database.write(conn -> {
+                if (queryOne(conn, "SELECT 1 FROM Order_Price WHERE elementType = ? AND quantity = ?;",
+                        rs -> Boolean.TRUE, o.getElementType(), o.getQuantity()) == null)
+                    throw new SQLException("No price for element " + o.getElementType() + " in quantity " +
+                            o.getQuantity());
+                return execute(conn, "INSERT INTO Orders(orderNumber, elementType, quantity, estArrDate, userID) " +
+                        "VALUES(?,?,?,?,?);", o.getOrderNumber(), o.getElementType(), o.getQuantity(),
+                        o.getEstArrDate(), o.getUserID());
+            });
+        }
+
+        @Override
+        public boolean exists(long orderNumber) throws SQLException {
+            return queryOne("SELECT orderNumber FROM Orders WHERE orderNumber = ?;", rs -> Boolean.TRUE,
+                    orderNumber) != null;
+        }
+    }
+
+    // ==========================================================
+    // MODEL CATALOGS
+    // ==========================================================
+
+    private static class Models implements ModelRepository {
+        @Override
+        public EquipModel findEquipModel(String type, String model, int year) throws SQLException {
+            return queryOne("SELECT * FROM Equip_Model WHERE type = ? AND model = ? AND year = ?;",
+                    rs -> new EquipModel(rs.getString("type"), rs.getString("model"), rs.getInt("year"),
+                            rs.getDouble("weight"), rs.getString("dimensions"), rs.getString("manufacturer")),
+                    type, model, year);
+        }
+
+        @Override
+        public DroneModel findDroneModel(String model, int year) throws SQLException {
+            return queryOne("SELECT * FROM Drone_Model WHERE model = ? AND year = ?;",
+                    rs -> new DroneModel(rs.getString("model"), rs.getInt("year"), rs.getInt("weightCap"),
+                            rs.getInt("maxSpeed"), rs.getInt("maxDist"), rs.getString("manufacturer")),
+                    model, year);
+        }
+    }
+}
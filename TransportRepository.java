@@ -0,0 +1,6 @@
+import java.sql.SQLException;
+
+public interface TransportRepository {
+    /** Records the transport and moves the drone to the given status in one step. */
+    void schedule(String droneSerial, String equipmentSerial, DroneStatus droneStatus) throws SQLException;
+}
@@ -0,0 +1,150 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory grid index over warehouse locations.
+ *
+ * Warehouses are bucketed into CELL_DEGREES x CELL_DEGREES cells. A nearest
+ * query scans rings of cells outward from the query's cell and stops as soon
+ * as the best distance found is shorter than anything the next ring could
+ * hold; a radius query scans only the cells overlapping the radius. Both
+ * touch a handful of warehouses instead of all of them.
+ *
+ * The index is immutable; rebuild it when warehouse locations change.
+ */
+public class WarehouseIndex {
+    private static final double CELL_DEGREES = 0.25;
+
+    /** A warehouse and its distance from the query point. */
+    public static class Hit {
+        private final String address;
+        private final double miles;
+
+        Hit(String address, double miles) {
+            this.address = address;
+            this.miles = miles;
+        }
+
+        public String getAddress() {
+            return address;
+        }
+
+        public double getMiles() {
+            return miles;
+        }
+    }
+
+    private static class Entry {
+        final String address;
+        final GeoPoint point;
+
+        Entry(String address, GeoPoint point) {
+            this.address = address;
+            this.point = point;
+        }
+    }
+
+    private final Map<Long, List<Entry>> cells = new HashMap<>();
+    private final int size;
+    private int minRow = Integer.MAX_VALUE, maxRow = Integer.MIN_VALUE;
+    private int minCol = Integer.MAX_VALUE, maxCol = Integer.MIN_VALUE;
+    // Smallest cos(latitude) over the indexed points: bounds how narrow a cell can get
+    private double minCos = 1;
+
+    /** Builds the index from warehouse address to location. */
+    public WarehouseIndex(Map<String, GeoPoint> locations) {
+        for (Map.Entry<String, GeoPoint> e : locations.entrySet()) {
+            GeoPoint p = e.getValue();
+            int row = row(p), col = col(p);
+            cells.computeIfAbsent(key(row, col), k -> new ArrayList<>()).add(new Entry(e.getKey(), p));
+            minRow = Math.min(minRow, row);
+            maxRow = Math.max(maxRow, row);
+            minCol = Math.min(minCol, col);
+            maxCol = Math.max(maxCol, col);
+            minCos = Math.min(minCos, cos(p.getLat()));
+        }
+        this.size = locations.size();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** The closest warehouse, or null when the index is empty. */
+    public Hit nearest(GeoPoint from) {
+        if (size == 0)
+            return null;
+        int row = row(from), col = col(from);
+        // Anything in ring r or beyond is at least r - 1 whole cells away
+        double cellMiles = CELL_DEGREES * GeoPoint.MILES_PER_DEGREE_LAT * Math.min(minCos, cos(from.getLat()));
+        int lastRing = Math.max(Math.max(Math.abs(row - minRow), Math.abs(row - maxRow)),
+                Math.max(Math.abs(col - minCol), Math.abs(col - maxCol)));
+
+        Hit best = null;
+        for (int ring = 0; ring <= lastRing; ring++) {
+            if (best != null && best.miles <= (ring - 1) * cellMiles)
+                break;
+            for (int r = row - ring; r <= row + ring; r++) {
+                for (int c = col - ring; c <= col + ring; c++) {
+                    if (Math.max(Math.abs(r - row), Math.abs(c - col)) != ring)
+                        continue; // inner rings were already scanned
+                    for (Entry e : cells.getOrDefault(key(r, c), List.of())) {
+                        double miles = from.milesTo(e.point);
+                        if (best == null || miles < best.miles
+                                || (miles == best.miles && e.address.compareTo(best.address) < 0))
+                            best = new Hit(e.address, miles);
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /** Warehouses within radiusMiles, closest first. */
+    public List<Hit> within(GeoPoint from, double radiusMiles) {
+        double dLat = radiusMiles / GeoPoint.MILES_PER_DEGREE_LAT;
+        double dLon = radiusMiles / (GeoPoint.MILES_PER_DEGREE_LAT * cos(Math.abs(from.getLat()) + dLat));
+        int r0 = Math.max(minRow, row(from.getLat() - dLat)), r1 = Math.min(maxRow, row(from.getLat() + dLat));
+        int c0 = Math.max(minCol, col(from.getLon() - dLon)), c1 = Math.min(maxCol, col(from.getLon() + dLon));
+
+        List<Hit> hits = new ArrayList<>();
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                for (Entry e : cells.getOrDefault(key(r, c), List.of())) {
+                    double miles = from.milesTo(e.point);
+                    if (miles <= radiusMiles)
+                        hits.add(new Hit(e.address, miles));
+                }
+            }
+        }
+        hits.sort(Comparator.comparingDouble(Hit::getMiles).thenComparing(Hit::getAddress));
+        return hits;
+    }
+
+    private static double cos(double latDegrees) {
+        return Math.max(0.01, Math.cos(Math.toRadians(Math.min(90, Math.abs(latDegrees)))));
+    }
+
+    private static int row(GeoPoint p) {
+        return row(p.getLat());
+    }
+
+    private static int col(GeoPoint p) {
+        return col(p.getLon());
+    }
+
+    private static int row(double lat) {
+        return (int) Math.floor(lat / CELL_DEGREES);
+    }
+
+    private static int col(double lon) {
+        return (int) Math.floor(lon / CELL_DEGREES);
+    }
+
+    private static long key(int row, int col) {
+        return ((long) row << 32) | (col & 0xffffffffL);
+    }
+}
@@ -0,0 +1,131 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+
+/**
+ * Rental history checks against a copy of the seeded rentalApp.db, whose
+ * rentals hold NULL in Returns while out and the return date once back.
+ *
+ * Run from the project root after compiling the sources and this file:
+ * java -cp out:test:sqlite-jdbc.jar RentalHistoryTest
+ */
+public class RentalHistoryTest {
+    // Available in the seed data, with one returned rental (70018) in its history
+    private static final String RETURNED_BEFORE = "SNJ-SPX3000-22-001";
+    // Rented out in the seed data under open rental 70001 (Returns NULL)
+    private static final String OUT_NOW = "DEW-DCD771C2-22-001";
+    // Available in the seed data, with no rentals or reservations
+    private static final String NEVER_RENTED = "RYO-RYAC130-23-001";
+
+    private static int failures = 0;
+
+    public static void main(String[] args) throws Exception {
+        Path dir = Files.createTempDirectory("rental-test");
+        Path db = dir.resolve("rentalApp.db");
+        Files.copy(Paths.get("rentalApp.db"), db, StandardCopyOption.REPLACE_EXISTING);
+        System.setProperty("rental.db", db.toString());
+        try {
+            backfilledRollups();
+            rentItemWithReturnedHistory();
+            rentOverStoredReservation();
+            archiveSeededReturns();
+        } finally {
+            Database.shutdown();
+        }
+        if (failures > 0) {
+            System.err.println(failures + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("All checks passed");
+    }
+
+    // Rentals from before checkout times were kept still count in RentalDaily, so restock sees their demand
+    private static void backfilledRollups() throws Exception {
+        int rentals = count("SELECT COUNT(*) FROM rentals");
+        check(count("SELECT SUM(checkouts) FROM RentalDaily") == rentals, "RentalDaily misses seeded checkouts");
+        check(count("SELECT SUM(returns) FROM RentalDaily") == count(
+                "SELECT COUNT(*) FROM rentals WHERE Returns IS NOT NULL AND Returns <> 'NO'"),
+                "RentalDaily misses seeded returns");
+        ReportResult in = Reports.restockInputs("2025-11-20", "2025-11-13", "2025-09-01");
+        double checkouts = 0;
+        for (int i = 0; i < in.size(); i++)
+            checkouts += in.value(i, "longCheckouts") == null ? 0 : ((Number) in.value(i, "longCheckouts")).doubleValue();
+        check(checkouts > 0, "restock sees no seeded checkouts");
+    }
+
+    // A returned rental must not keep blocking its item; an open one must
+    private static void rentItemWithReturnedHistory() throws Exception {
+        Repositories repos = Repositories.sqlite();
+        long today = LocalDate.now().toEpochDay();
+        AvailabilityCalendar cal = AvailabilityCalendar.load(repos);
+        check(cal.conflicts(RETURNED_BEFORE, today, today + 8).isEmpty(),
+                "returned rental 70018 still books " + RETURNED_BEFORE);
+        check(!cal.conflicts(OUT_NOW, today, today + 1).isEmpty(), "open rental 70001 does not book " + OUT_NOW);
+
+        String id = IdGenerator.nextCheckOutID(repos);
+        check(repos.rentals().checkout(new Rental(id, RETURNED_BEFORE, "7", LocalDate.now().plusDays(7).toString(),
+                10, false), null), "checkout of " + RETURNED_BEFORE + " refused");
+        check(repos.rentals().findOpen().stream().anyMatch(r -> r.getCheckOutID().equals(id)),
+                "new rental " + id + " not open");
+        check(OUT_NOW.equals(repos.rentals().checkin("70001")), "seeded open rental 70001 cannot be checked in");
+    }
+
+    // A reservation stored by another session blocks a checkout over it; the renter's own does not
+    private static void rentOverStoredReservation() throws Exception {
+        Repositories repos = Repositories.sqlite();
+        long today = LocalDate.now().toEpochDay();
+        check(repos.reservations().book(new AvailabilityCalendar.Booking("TEST-RES-1",
+                AvailabilityCalendar.RESERVATION, NEVER_RENTED, "5", today + 2, today + 4)) == null,
+                "reservation of " + NEVER_RENTED + " refused");
+        String due = LocalDate.now().plusDays(7).toString();
+        boolean refused = false;
+        try {
+            repos.rentals().checkout(new Rental(IdGenerator.nextCheckOutID(repos), NEVER_RENTED, "7", due, 10, false),
+                    null);
+        } catch (SQLException e) {
+            refused = true;
+        }
+        check(refused, "checkout over reservation TEST-RES-1 accepted");
+        check(repos.rentals().checkout(new Rental(IdGenerator.nextCheckOutID(repos), NEVER_RENTED, "5", due, 10, false),
+                "TEST-RES-1"), "the renter's own reservation blocks their checkout");
+    }
+
+    // Returned rentals, whether marked YES or with a return date, move to the archive; open ones stay
+    private static void archiveSeededReturns() throws Exception {
+        String cutoff = LocalDate.now().plusYears(1).toString();
+        Repositories repos = Repositories.sqlite();
+        int open = repos.rentals().findOpen().size();
+        int returned = count("SELECT COUNT(*) FROM rentals WHERE Returns IS NOT NULL AND Returns <> 'NO'");
+        check(returned > 0, "seed data has no returned rentals");
+        check(count("SELECT COUNT(*) FROM rentals WHERE Returns GLOB '[0-9]*'") > 0,
+                "seed data has no return dates");
+
+        int moved = RentalArchiver.archive(cutoff, 4);
+        check(moved == returned, "archived " + moved + " of " + returned + " returned rentals");
+        check(count("SELECT COUNT(*) FROM RentalArchive") == returned, "RentalArchive is missing rows");
+        check(repos.rentals().findOpen().size() == open, "an open rental was archived");
+        check(count("SELECT COUNT(*) FROM rentals") == open, "returned rentals left in rentals");
+    }
+
+    private static int count(String sql) throws Exception {
+        try (Connection conn = Database.getReadConnection();
+                Statement st = conn.createStatement();
+                ResultSet rs = st.executeQuery(sql)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private static void check(boolean ok, String message) {
+        if (!ok) {
+            failures++;
+            System.err.println("FAIL: " + message);
+        }
+    }
+}